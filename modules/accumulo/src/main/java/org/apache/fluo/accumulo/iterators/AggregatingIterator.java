@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.fluo.accumulo.util.ColumnConstants;
+import org.apache.fluo.accumulo.values.AggregateValue;
+
+/**
+ * Aggregates the data returned by {@link SnapshotIterator} into {@link AggregateValue}s, so it must
+ * be configured with a higher priority. A partial aggregate is returned before any lock and at the
+ * end of the range. Each partial aggregate has the key of the last data it includes, so a scan that
+ * continues after it does not aggregate any data twice. Locks are returned as is and the client is
+ * expected to resolve them and then aggregate the locked columns.
+ */
+public class AggregatingIterator implements SortedKeyValueIterator<Key, Value> {
+
+  private SortedKeyValueIterator<Key, Value> source;
+  private final AggregateValue aggregate = new AggregateValue();
+  private final Key lastData = new Key();
+  private Key topKey;
+  private Value topValue;
+
+  private void findTop() throws IOException {
+    topKey = null;
+    topValue = null;
+    aggregate.clear();
+
+    while (source.hasTop()) {
+      Key key = source.getTopKey();
+      if ((key.getTimestamp() & ColumnConstants.PREFIX_MASK) == ColumnConstants.DATA_PREFIX) {
+        aggregate.add(source.getTopValue().get());
+        lastData.set(key);
+        source.next();
+      } else if (aggregate.isEmpty()) {
+        topKey = new Key(key);
+        topValue = new Value(source.getTopValue());
+        source.next();
+        return;
+      } else {
+        // return the lock on the next call
+        break;
+      }
+    }
+
+    if (!aggregate.isEmpty()) {
+      topKey = new Key(lastData);
+      topValue = new Value(aggregate.encode());
+    }
+  }
+
+  @Override
+  public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options,
+      IteratorEnvironment env) throws IOException {
+    this.source = source;
+  }
+
+  @Override
+  public boolean hasTop() {
+    return topKey != null;
+  }
+
+  @Override
+  public void next() throws IOException {
+    findTop();
+  }
+
+  @Override
+  public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+      throws IOException {
+    source.seek(range, columnFamilies, inclusive);
+    findTop();
+  }
+
+  @Override
+  public Key getTopKey() {
+    return topKey;
+  }
+
+  @Override
+  public Value getTopValue() {
+    return topValue;
+  }
+
+  @Override
+  public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -17,7 +17,6 @@ package org.apache.fluo.accumulo.iterators;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Map;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -55,8 +54,9 @@ public class GarbageCollectionIterator implements SortedKeyValueIterator<Key, Va
 
   private ColumnBuffer keys = new ColumnBuffer();
   private ColumnBuffer keysFiltered = new ColumnBuffer();
-  private HashSet<Long> completeTxs = new HashSet<>();
-  private HashSet<Long> rolledback = new HashSet<>();
+  // timestamps are added for every version of every column, so avoid boxing them
+  private LongHashSet completeTxs = new LongHashSet();
+  private LongHashSet rolledback = new LongHashSet();
   private Key curCol = new Key();
   private long truncationTime;
   private int position = 0;
@@ -332,4 +332,12 @@ public class GarbageCollectionIterator implements SortedKeyValueIterator<Key, Va
   public static void setZookeepers(IteratorSetting gcIter, String zookeepers) {
     gcIter.addOption(ZOOKEEPER_CONNECT_OPT, zookeepers);
   }
+
+  /**
+   * Sets the oldest active timestamp directly instead of reading it from ZooKeeper.
+   */
+  @VisibleForTesting
+  public static void setGcTimestamp(IteratorSetting gcIter, long timestamp) {
+    gcIter.addOption(GC_TIMESTAMP_OPT, Long.toString(timestamp));
+  }
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative longs that does not box them. Uses open addressing with linear probing and
+ * is meant to be cleared and reused, like {@link ColumnBuffer}, for each column an iterator
+ * processes.
+ */
+class LongHashSet {
+
+  private static final long EMPTY = -1;
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] slots;
+  private int size = 0;
+
+  LongHashSet() {
+    slots = newSlots(MIN_CAPACITY);
+  }
+
+  private static long[] newSlots(int capacity) {
+    long[] newSlots = new long[capacity];
+    Arrays.fill(newSlots, EMPTY);
+    return newSlots;
+  }
+
+  private int slot(long value) {
+    // the low bits of timestamps are not very random, so mix in the high bits
+    long hash = value * 0x9e3779b97f4a7c15L;
+    return (int) (hash >>> 32) & (slots.length - 1);
+  }
+
+  private int find(long value) {
+    int i = slot(value);
+    while (slots[i] != EMPTY && slots[i] != value) {
+      i = (i + 1) & (slots.length - 1);
+    }
+    return i;
+  }
+
+  /**
+   * @param value must be non-negative
+   * @return true if the value was not already in the set
+   */
+  boolean add(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value " + value);
+    }
+
+    int i = find(value);
+    if (slots[i] == value) {
+      return false;
+    }
+
+    slots[i] = value;
+    size++;
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    return true;
+  }
+
+  boolean contains(long value) {
+    return value >= 0 && slots[find(value)] == value;
+  }
+
+  /**
+   * @return true if the value was in the set
+   */
+  boolean remove(long value) {
+    if (value < 0) {
+      return false;
+    }
+
+    int i = find(value);
+    if (slots[i] != value) {
+      return false;
+    }
+
+    slots[i] = EMPTY;
+    size--;
+
+    // shift back following values that can no longer be found past the emptied slot
+    int mask = slots.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (slots[j] == EMPTY) {
+        break;
+      }
+      int home = slot(slots[j]);
+      // move the value if its home slot is not cyclically between the emptied slot and j
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        slots[i] = slots[j];
+        slots[j] = EMPTY;
+        i = j;
+      }
+    }
+
+    return true;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    if (slots.length > MIN_CAPACITY * 4 && size * 8 < slots.length) {
+      // a large column grew the table, do not keep paying to clear it for small columns
+      slots = newSlots(MIN_CAPACITY);
+    } else if (size > 0) {
+      Arrays.fill(slots, EMPTY);
+    }
+    size = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldSlots = slots;
+    slots = newSlots(capacity);
+    for (long value : oldSlots) {
+      if (value != EMPTY) {
+        slots[find(value)] = value;
+      }
+    }
+  }
+}
@@ -16,6 +16,8 @@
 package org.apache.fluo.accumulo.iterators;
 
 import java.io.IOException;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.Map;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -31,14 +33,26 @@ public class NotificationHashFilter extends Filter {
 
   private static final String DIVISOR_OPT = "divisor";
   private static final String REMAINDER_OPT = "remainder";
+  private static final String NUM_BUCKETS_OPT = "numBuckets";
+  private static final String BUCKETS_OPT = "buckets";
 
   private int divisor;
   private int remainder;
+  // when set, accept notifications that hash to one of these buckets instead of using the modulus
+  private BitSet buckets;
+  private int numBuckets;
 
   public static boolean accept(ByteSequence row, ByteSequence cq, int divisor, int remainder) {
     return Math.abs(row.hashCode() + cq.hashCode()) % divisor == remainder;
   }
 
+  /**
+   * @return the bucket, between 0 (inclusive) and numBuckets (exclusive), of a notification
+   */
+  public static int getBucket(ByteSequence row, ByteSequence cq, int numBuckets) {
+    return Math.floorMod(row.hashCode() + cq.hashCode(), numBuckets);
+  }
+
   @VisibleForTesting
   public static boolean accept(Key k, int divisor, int remainder) {
     return accept(k.getRowData(), k.getColumnQualifierData(), divisor, remainder);
@@ -46,6 +60,9 @@ public class NotificationHashFilter extends Filter {
 
   @Override
   public boolean accept(Key k, Value v) {
+    if (buckets != null) {
+      return buckets.get(getBucket(k.getRowData(), k.getColumnQualifierData(), numBuckets));
+    }
     return accept(k, divisor, remainder);
   }
 
@@ -54,8 +71,13 @@ public class NotificationHashFilter extends Filter {
       IteratorEnvironment env) throws IOException {
     super.init(source, options, env);
 
-    this.divisor = Integer.parseInt(options.get(DIVISOR_OPT));
-    this.remainder = Integer.parseInt(options.get(REMAINDER_OPT));
+    if (options.containsKey(BUCKETS_OPT)) {
+      this.numBuckets = Integer.parseInt(options.get(NUM_BUCKETS_OPT));
+      this.buckets = BitSet.valueOf(Base64.getDecoder().decode(options.get(BUCKETS_OPT)));
+    } else {
+      this.divisor = Integer.parseInt(options.get(DIVISOR_OPT));
+      this.remainder = Integer.parseInt(options.get(REMAINDER_OPT));
+    }
   }
 
   public static void setModulusParams(IteratorSetting iterCfg, int divisor, int remainder) {
@@ -74,4 +96,22 @@ public class NotificationHashFilter extends Filter {
     iterCfg.addOption(DIVISOR_OPT, divisor + "");
     iterCfg.addOption(REMAINDER_OPT, remainder + "");
   }
+
+  /**
+   * Configures the filter to accept notifications whose bucket, as computed by
+   * {@link #getBucket(ByteSequence, ByteSequence, int)}, is set in the given bit set.
+   */
+  public static void setBucketParams(IteratorSetting iterCfg, int numBuckets, BitSet buckets) {
+    if (numBuckets <= 0) {
+      throw new IllegalArgumentException("numBuckets <= 0 : " + numBuckets);
+    }
+
+    if (buckets.length() > numBuckets) {
+      throw new IllegalArgumentException("bucket >= numBuckets : " + (buckets.length() - 1) + ","
+          + numBuckets);
+    }
+
+    iterCfg.addOption(NUM_BUCKETS_OPT, numBuckets + "");
+    iterCfg.addOption(BUCKETS_OPT, Base64.getEncoder().encodeToString(buckets.toByteArray()));
+  }
 }
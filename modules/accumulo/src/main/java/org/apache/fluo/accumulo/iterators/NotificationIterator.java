@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
@@ -33,6 +34,7 @@ import org.apache.accumulo.core.iterators.SkippingIterator;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.fluo.accumulo.util.ColumnConstants;
 
+import static org.apache.fluo.accumulo.util.NotificationUtil.decodeTs;
 import static org.apache.fluo.accumulo.util.NotificationUtil.isDelete;
 import static org.apache.fluo.accumulo.util.NotificationUtil.isNtfy;
 
@@ -47,6 +49,16 @@ import static org.apache.fluo.accumulo.util.NotificationUtil.isNtfy;
  * <p>This iterator also ensure only one notification per column is returned, similar to what the
  * versioning iterator does. Could not use the versioning iterator, because it can not be applied to
  * a single column family.
+ *
+ * <p>When scanning, this iterator can optionally skip notifications whose timestamp is not after a
+ * given timestamp. This is used to only look for notifications that are new since a previous scan.
+ *
+ * <p>A column notified by many transactions usually has runs of notifications between deletes,
+ * because each delete covers all notifications up to the one processed. By default a partial
+ * compaction only drops a delete when deletes and notifications strictly alternate. When configured
+ * to coalesce, a partial compaction drops a delete when every delete is followed by at least one
+ * notification. If this lets an older notification in a file not being compacted resurface, the
+ * worker will find it was already acknowledged and delete it again.
  */
 public class NotificationIterator extends SkippingIterator {
 
@@ -59,6 +71,30 @@ public class NotificationIterator extends SkippingIterator {
   private Range seekRange;
   private Collection<ByteSequence> colFams;
   private boolean inclusive;
+  private long minTimestamp = -1;
+  private boolean coalesce = false;
+
+  private static final String MIN_TIMESTAMP_OPT = "minTimestamp";
+  private static final String COALESCE_OPT = "coalesce";
+
+  /**
+   * Causes scans to skip notifications with a timestamp less than or equal to the given timestamp.
+   * Has no effect on compactions.
+   */
+  public static void setMinTimestamp(IteratorSetting cfg, long timestamp) {
+    if (timestamp < 0) {
+      throw new IllegalArgumentException();
+    }
+    cfg.addOption(MIN_TIMESTAMP_OPT, timestamp + "");
+  }
+
+  /**
+   * Causes partial compactions to drop deletes for columns with runs of notifications between
+   * deletes. Has no effect on scans and full compactions, which always drop deletes.
+   */
+  public static void setCoalesce(IteratorSetting cfg) {
+    cfg.addOption(COALESCE_OPT, "true");
+  }
 
   private void skipRowCol(PushbackIterator source, Key key) throws IOException {
     int count = 0;
@@ -81,17 +117,25 @@ public class NotificationIterator extends SkippingIterator {
   @Override
   protected void consume() throws IOException {
     PushbackIterator source = (PushbackIterator) getSource();
-    if (lastKeySet == true) {
-      skipRowCol(source, lastKey);
-    }
+    while (true) {
+      if (lastKeySet == true) {
+        skipRowCol(source, lastKey);
+      }
 
-    consumeDeletes(source);
+      consumeDeletes(source);
 
-    if (source.hasTop() && isNtfy(source.getTopKey()) && !isDelete(source.getTopKey())) {
-      lastKey.set(source.getTopKey());
-      lastKeySet = true;
-    } else {
-      lastKeySet = false;
+      if (source.hasTop() && isNtfy(source.getTopKey()) && !isDelete(source.getTopKey())) {
+        lastKey.set(source.getTopKey());
+        lastKeySet = true;
+        if (minTimestamp >= 0 && decodeTs(source.getTopKey()) <= minTimestamp) {
+          // this is the newest notification for the column and it is old, so skip the column
+          continue;
+        }
+      } else {
+        lastKeySet = false;
+      }
+
+      break;
     }
   }
 
@@ -114,8 +158,14 @@ public class NotificationIterator extends SkippingIterator {
         source.next();
         while (source.hasTop()
             && source.getTopKey().equals(keyCopy, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
-          isOrderly &= isDelete(source.getTopKey()) ^ lastKeyWasDelete;
-          lastKeyWasDelete = isDelete(source.getTopKey());
+          boolean isDelete = isDelete(source.getTopKey());
+          if (coalesce) {
+            // only require that each delete is followed by a notification
+            isOrderly &= !(isDelete && lastKeyWasDelete);
+          } else {
+            isOrderly &= isDelete ^ lastKeyWasDelete;
+          }
+          lastKeyWasDelete = isDelete;
           source.next();
         }
 
@@ -149,6 +199,10 @@ public class NotificationIterator extends SkippingIterator {
       IteratorEnvironment env) throws IOException {
     scanOrFullMajc = env.getIteratorScope() == IteratorScope.scan
         || (env.getIteratorScope() == IteratorScope.majc && env.isFullMajorCompaction());
+    if (env.getIteratorScope() == IteratorScope.scan && options.containsKey(MIN_TIMESTAMP_OPT)) {
+      minTimestamp = Long.parseLong(options.get(MIN_TIMESTAMP_OPT));
+    }
+    coalesce = Boolean.parseBoolean(options.get(COALESCE_OPT));
     super.init(new PushbackIterator(source), options, env);
   }
 }
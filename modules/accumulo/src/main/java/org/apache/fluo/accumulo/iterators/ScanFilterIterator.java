@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.primitives.UnsignedBytes;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.fluo.accumulo.util.ColumnConstants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Filters the output of {@link SnapshotIterator}, so it must be configured with a higher priority.
+ * Each instance runs a single filter, stack multiple instances to combine filters. Only data
+ * entries are filtered by value, lock entries are always returned so the client can resolve them.
+ */
+public class ScanFilterIterator implements SortedKeyValueIterator<Key, Value> {
+
+  private static final String TYPE_OPT = "type";
+  private static final String PREFIX_OPT = "prefix";
+  private static final String REGEX_OPT = "regex";
+  private static final String START_OPT = "start";
+  private static final String START_INCLUSIVE_OPT = "startInclusive";
+  private static final String END_OPT = "end";
+  private static final String END_INCLUSIVE_OPT = "endInclusive";
+  private static final String MAX_COLUMNS_OPT = "maxColumns";
+  private static final String FRACTION_OPT = "fraction";
+
+  private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+  private enum Type {
+    VALUE_PREFIX, VALUE_REGEX, VALUE_RANGE, MAX_COLUMNS, ROW_SAMPLE
+  }
+
+  private SortedKeyValueIterator<Key, Value> source;
+  private Type type;
+
+  private byte[] prefix;
+  private Matcher matcher;
+  private byte[] start;
+  private boolean startInclusive;
+  private byte[] end;
+  private boolean endInclusive;
+  private int maxColumns;
+  private double sampleFraction;
+
+  private Range range;
+  private Collection<ByteSequence> columnFamilies;
+  private boolean inclusive;
+  private boolean exhausted;
+
+  // state for the row filters, reset on every seek
+  private Key curRow;
+  private boolean curRowSampled;
+  private int columnsInRow;
+
+  private static boolean isData(Key key) {
+    return (key.getTimestamp() & ColumnConstants.PREFIX_MASK) == ColumnConstants.DATA_PREFIX;
+  }
+
+  /**
+   * Deterministically maps a row to a long whose high bits are uniformly distributed, so that every
+   * tablet server samples the same rows.
+   */
+  static long hashRow(ByteSequence row) {
+    long hash = 1125899906842597L;
+    for (int i = 0; i < row.length(); i++) {
+      hash = 31 * hash + row.byteAt(i);
+    }
+    hash *= 0x9e3779b97f4a7c15L;
+    return hash ^ (hash >>> 32);
+  }
+
+  private boolean acceptValue(byte[] val) {
+    switch (type) {
+      case VALUE_PREFIX:
+        if (val.length < prefix.length) {
+          return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+          if (val[i] != prefix[i]) {
+            return false;
+          }
+        }
+        return true;
+      case VALUE_REGEX:
+        return matcher.reset(new String(val, UTF_8)).matches();
+      case VALUE_RANGE:
+        if (start.length > 0) {
+          int cmp = COMPARATOR.compare(val, start);
+          if (cmp < 0 || (cmp == 0 && !startInclusive)) {
+            return false;
+          }
+        }
+        if (end.length > 0) {
+          int cmp = COMPARATOR.compare(val, end);
+          if (cmp > 0 || (cmp == 0 && !endInclusive)) {
+            return false;
+          }
+        }
+        return true;
+      default:
+        throw new IllegalStateException("Unexpected type " + type);
+    }
+  }
+
+  /**
+   * @return false if there are no more rows in the range
+   */
+  private boolean skipRow(Key key) throws IOException {
+    Key nextRow = key.followingKey(PartialKey.ROW);
+    if (range.afterEndKey(nextRow)) {
+      exhausted = true;
+      return false;
+    }
+    source.seek(new Range(nextRow, true, range.getEndKey(), range.isEndKeyInclusive()),
+        columnFamilies, inclusive);
+    return true;
+  }
+
+  private boolean isNewRow(Key key) {
+    if (curRow == null || !curRow.equals(key, PartialKey.ROW)) {
+      curRow = new Key(key);
+      return true;
+    }
+    return false;
+  }
+
+  private void findTop() throws IOException {
+    while (!exhausted && source.hasTop()) {
+      Key key = source.getTopKey();
+      switch (type) {
+        case ROW_SAMPLE:
+          if (isNewRow(key)) {
+            curRowSampled = (hashRow(key.getRowData()) >>> 11) * 0x1.0p-53 < sampleFraction;
+          }
+          if (curRowSampled) {
+            return;
+          }
+          skipRow(key);
+          break;
+        case MAX_COLUMNS:
+          if (isNewRow(key)) {
+            columnsInRow = 0;
+          }
+          if (isData(key)) {
+            columnsInRow++;
+          }
+          return;
+        default:
+          if (!isData(key) || acceptValue(source.getTopValue().get())) {
+            return;
+          }
+          source.next();
+      }
+    }
+  }
+
+  @Override
+  public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options,
+      IteratorEnvironment env) throws IOException {
+    this.source = source;
+    this.type = Type.valueOf(options.get(TYPE_OPT));
+    switch (type) {
+      case VALUE_PREFIX:
+        prefix = Base64.getDecoder().decode(options.get(PREFIX_OPT));
+        break;
+      case VALUE_REGEX:
+        matcher = Pattern.compile(options.get(REGEX_OPT)).matcher("");
+        break;
+      case VALUE_RANGE:
+        start = Base64.getDecoder().decode(options.get(START_OPT));
+        startInclusive = Boolean.parseBoolean(options.get(START_INCLUSIVE_OPT));
+        end = Base64.getDecoder().decode(options.get(END_OPT));
+        endInclusive = Boolean.parseBoolean(options.get(END_INCLUSIVE_OPT));
+        break;
+      case MAX_COLUMNS:
+        maxColumns = Integer.parseInt(options.get(MAX_COLUMNS_OPT));
+        break;
+      case ROW_SAMPLE:
+        sampleFraction = Double.parseDouble(options.get(FRACTION_OPT));
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected type " + type);
+    }
+  }
+
+  @Override
+  public boolean hasTop() {
+    return !exhausted && source.hasTop();
+  }
+
+  @Override
+  public void next() throws IOException {
+    if (type == Type.MAX_COLUMNS && columnsInRow >= maxColumns) {
+      // the rest of the row is not needed, even locks since they are after the last column
+      skipRow(source.getTopKey());
+    } else {
+      source.next();
+    }
+    findTop();
+  }
+
+  @Override
+  public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+      throws IOException {
+    this.range = range;
+    this.columnFamilies = columnFamilies;
+    this.inclusive = inclusive;
+    this.exhausted = false;
+
+    // Seeking may start in the middle of a row, in which case columns returned before the seek are
+    // not counted. So the column limit is only an upper bound, the client must enforce it exactly.
+    curRow = null;
+    columnsInRow = 0;
+
+    source.seek(range, columnFamilies, inclusive);
+    findTop();
+  }
+
+  @Override
+  public Key getTopKey() {
+    return source.getTopKey();
+  }
+
+  @Override
+  public Value getTopValue() {
+    return source.getTopValue();
+  }
+
+  @Override
+  public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+    throw new UnsupportedOperationException();
+  }
+
+  public static void setValuePrefix(IteratorSetting cfg, byte[] prefix) {
+    cfg.addOption(TYPE_OPT, Type.VALUE_PREFIX.name());
+    cfg.addOption(PREFIX_OPT, Base64.getEncoder().encodeToString(prefix));
+  }
+
+  /**
+   * Configures the iterator to return data whose value, decoded as UTF-8, entirely matches a
+   * regular expression.
+   */
+  public static void setValueRegex(IteratorSetting cfg, String regex) {
+    Pattern.compile(regex);
+    cfg.addOption(TYPE_OPT, Type.VALUE_REGEX.name());
+    cfg.addOption(REGEX_OPT, regex);
+  }
+
+  /**
+   * Configures the iterator to return data whose value is in a range. An empty start or end is
+   * treated as infinite.
+   */
+  public static void setValueRange(IteratorSetting cfg, byte[] start, boolean startInclusive,
+      byte[] end, boolean endInclusive) {
+    cfg.addOption(TYPE_OPT, Type.VALUE_RANGE.name());
+    cfg.addOption(START_OPT, Base64.getEncoder().encodeToString(start));
+    cfg.addOption(START_INCLUSIVE_OPT, startInclusive + "");
+    cfg.addOption(END_OPT, Base64.getEncoder().encodeToString(end));
+    cfg.addOption(END_INCLUSIVE_OPT, endInclusive + "");
+  }
+
+  /**
+   * Configures the iterator to skip the rest of a row after returning a number of columns. Since
+   * rows may be partially read before a seek, more columns than the maximum can be returned.
+   */
+  public static void setMaxColumnsPerRow(IteratorSetting cfg, int maxColumns) {
+    if (maxColumns <= 0) {
+      throw new IllegalArgumentException("maxColumns <= 0 : " + maxColumns);
+    }
+    cfg.addOption(TYPE_OPT, Type.MAX_COLUMNS.name());
+    cfg.addOption(MAX_COLUMNS_OPT, maxColumns + "");
+  }
+
+  /**
+   * Configures the iterator to return a deterministic sample of the rows.
+   */
+  public static void setRowSample(IteratorSetting cfg, double fraction) {
+    if (!(fraction > 0 && fraction <= 1)) {
+      throw new IllegalArgumentException("fraction not in (0, 1] : " + fraction);
+    }
+    cfg.addOption(TYPE_OPT, Type.ROW_SAMPLE.name());
+    cfg.addOption(FRACTION_OPT, fraction + "");
+  }
+}
@@ -42,6 +42,8 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
 
   static final String RETURN_READLOCK_PRESENT_OPT = "rrlpOpt";
 
+  static final String MAX_NEXTS_OPT = "maxNextsOpt";
+
   private static final ByteSequence NOTIFY_CF_BS =
       new ArrayByteSequence(ColumnConstants.NOTIFY_CF.toArray());
 
@@ -82,6 +84,8 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
     outer: while (source.hasTop() && readLockKey == null) {
       long invalidationTime = -1;
       long dataPointer = -1;
+      // set when the del lock entries of the column were skipped on the way to its locks
+      boolean delLocksSkipped = false;
 
       if (source.getTopKey().getColumnFamilyData().equals(NOTIFY_CF_BS)) {
         throw new IllegalStateException("seeing notifications during snapshot iteration");
@@ -107,7 +111,15 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
           if (dataPointer == -1) {
             if (ts <= snaptime) {
               dataPointer = timePtr;
-              source.skipToPrefix(curCol, ColumnConstants.DEL_LOCK_PREFIX);
+              if (returnReadLockPresent) {
+                source.skipToPrefix(curCol, ColumnConstants.DEL_LOCK_PREFIX);
+              } else {
+                // Del locks only matter when the column has a lock, which is rare for columns
+                // without recent writes. Skip straight to the locks and only come back for the del
+                // locks when needed, saving a seek when a column has a long history.
+                delLocksSkipped = true;
+                source.skipToPrefix(curCol, ColumnConstants.LOCK_PREFIX);
+              }
               continue;
             } else {
               source.skipToTimestamp(curCol, ColumnConstants.WRITE_PREFIX | snaptime);
@@ -134,6 +146,12 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
           continue;
         } else if (colType == ColumnConstants.LOCK_PREFIX) {
           if (ts > invalidationTime && ts <= snaptime) {
+            if (delLocksSkipped) {
+              // a del lock may supersede this lock, go back and read them
+              delLocksSkipped = false;
+              source.seekToPrefix(curCol, ColumnConstants.DEL_LOCK_PREFIX);
+              continue;
+            }
             // nothing supersedes this lock, therefore the column is locked
             return;
           } else {
@@ -181,7 +199,9 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
   @Override
   public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options,
       IteratorEnvironment env) throws IOException {
-    this.source = new TimestampSkippingIterator(source);
+    int maxNexts = Integer.parseInt(options.getOrDefault(MAX_NEXTS_OPT,
+        TimestampSkippingIterator.DEFAULT_MAX_NEXTS + ""));
+    this.source = new TimestampSkippingIterator(source, maxNexts);
     this.snaptime = Long.parseLong(options.get(TIMESTAMP_OPT));
     this.returnReadLockPresent =
         Boolean.parseBoolean(options.getOrDefault(RETURN_READLOCK_PRESENT_OPT, "false"));
@@ -285,4 +305,14 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
   public static void setReturnReadLockPresent(IteratorSetting cfg, boolean rrlp) {
     cfg.addOption(RETURN_READLOCK_PRESENT_OPT, rrlp + "");
   }
+
+  /**
+   * Sets the number of next calls made when skipping within a column before seeking.
+   */
+  public static void setMaxNexts(IteratorSetting cfg, int maxNexts) {
+    if (maxNexts < 0) {
+      throw new IllegalArgumentException();
+    }
+    cfg.addOption(MAX_NEXTS_OPT, maxNexts + "");
+  }
 }
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.Map;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
@@ -41,6 +42,10 @@ import org.slf4j.LoggerFactory;
  * The purpose of this iterator is to make seeking within a columns timestamp range efficient.
  * Accumulo's builtin deleting iterator gets in the way when trying to efficiently do these seeks.
  * Therefore this class attempts to remove that iterator via reflection.
+ *
+ * <p>
+ * Most columns only have a few versions and a seek costs much more than a next call, so each skip
+ * first tries a bounded number of next calls and only seeks if the target was not reached.
  */
 
 public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Value> {
@@ -54,10 +59,26 @@ public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Va
   private boolean removedDeletingIterator = false;
   private int removalFailures = 0;
 
+  public static final int DEFAULT_MAX_NEXTS = 10;
+
+  private final int maxNexts;
+
+  private long skipSeeks = 0;
+  private long seeksAvoided = 0;
+
   private static final Logger log = LoggerFactory.getLogger(TimestampSkippingIterator.class);
 
   public TimestampSkippingIterator(SortedKeyValueIterator<Key, Value> source) {
+    this(source, DEFAULT_MAX_NEXTS);
+  }
+
+  /**
+   * @param maxNexts The number of next calls a skip makes before it seeks. Zero always seeks.
+   */
+  public TimestampSkippingIterator(SortedKeyValueIterator<Key, Value> source, int maxNexts) {
+    Preconditions.checkArgument(maxNexts >= 0, "maxNexts must be non-negative : %s", maxNexts);
     this.source = source;
+    this.maxNexts = maxNexts;
   }
 
   @Override
@@ -82,17 +103,30 @@ public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Va
     while (source.hasTop()
         && curCol.equals(source.getTopKey(), PartialKey.ROW_COLFAM_COLQUAL_COLVIS)
         && timestamp < source.getTopKey().getTimestamp()) {
-      if (count == 10 && shouldSeek()) {
+      if (count >= maxNexts && shouldSeek()) {
         // seek to prefix
         Key seekKey = new Key(curCol);
         seekKey.setTimestamp(timestamp);
         Range newRange = new Range(seekKey, true, range.getEndKey(), range.isEndKeyInclusive());
+        skipSeeks++;
         seek(newRange);
-        break;
+        return;
       }
       source.next();
       count++;
     }
+    countSeekAvoided(count);
+  }
+
+  /**
+   * Counts a skip that reached its target with next calls only, if it would have otherwise sought.
+   * A skip whose first next call reached the target needs no seek, and a skip that can not seek
+   * because the deleting iterator was not removed avoids nothing.
+   */
+  private void countSeekAvoided(int nexts) {
+    if (nexts > 0 && shouldSeek()) {
+      seeksAvoided++;
+    }
   }
 
   public void skipToPrefix(Key curCol, long prefix) throws IOException {
@@ -101,12 +135,27 @@ public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Va
     skipToTimestamp(curCol, timestamp);
   }
 
+  /**
+   * Seeks to the first possible timestamp for the prefix in the column, even if the iterator is
+   * already past it.
+   */
+  public void seekToPrefix(Key curCol, long prefix) throws IOException {
+    Key seekKey = new Key(curCol);
+    seekKey.setTimestamp(prefix | ColumnConstants.TIMESTAMP_MASK);
+    if (range.beforeStartKey(seekKey)) {
+      // the range starts within the column
+      seek(range);
+    } else {
+      seek(new Range(seekKey, true, range.getEndKey(), range.isEndKeyInclusive()));
+    }
+  }
+
   public void skipColumn(Key curCol) throws IOException {
     source.next();
     int count = 0;
     while (source.hasTop()
         && curCol.equals(source.getTopKey(), PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
-      if (count == 10) {
+      if (count >= maxNexts) {
         Key seekKey = curCol.followingKey(PartialKey.ROW_COLFAM_COLQUAL_COLVIS);
         Range newRange;
         if (range.afterEndKey(seekKey)) {
@@ -116,12 +165,14 @@ public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Va
         } else {
           newRange = new Range(seekKey, true, range.getEndKey(), range.isEndKeyInclusive());
         }
+        skipSeeks++;
         seek(newRange);
-        break;
+        return;
       }
       source.next();
       count++;
     }
+    countSeekAvoided(count);
   }
 
   @SuppressWarnings("unchecked")
@@ -188,6 +239,21 @@ public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Va
     return false;
   }
 
+  /**
+   * @return the number of skips that had to seek
+   */
+  public long getSkipSeeks() {
+    return skipSeeks;
+  }
+
+  /**
+   * @return the number of skips that needed more than one next call to reach their target, but did
+   *         not seek
+   */
+  public long getSeeksAvoided() {
+    return seeksAvoided;
+  }
+
   @VisibleForTesting
   public final boolean shouldSeek() {
     /*
@@ -207,6 +273,9 @@ public class TimestampSkippingIterator implements SortedKeyValueIterator<Key, Va
       removedDeletingIterator |= removeDeletingIterator(source);
       if (!removedDeletingIterator) {
         removalFailures++;
+        if (removalFailures == 3) {
+          log.debug("Unable to remove deleting iterator, skips will only use next calls");
+        }
       }
     }
     source.seek(range, fams, inclusive);
@@ -46,5 +46,6 @@ public class ZookeeperPath {
 
   public static final String TWILL = "/twill";
   public static final String FINDERS = "/finders";
+  public static final String FINDER_RATES = "/finder-rates";
 
 }
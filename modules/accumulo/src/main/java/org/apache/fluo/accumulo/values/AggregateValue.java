@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.values;
+
+import org.apache.fluo.accumulo.util.ByteArrayUtil;
+
+/**
+ * A partial aggregate of the values of some cells. Values that are decimal longs encoded as UTF-8
+ * text are summed and tracked as the min and max, like {@link java.util.LongSummaryStatistics}.
+ * Other values are only counted.
+ */
+public class AggregateValue {
+  private long count;
+  private long numericCount;
+  private long sum;
+  private long min;
+  private long max;
+
+  public AggregateValue() {
+    clear();
+  }
+
+  public AggregateValue(byte[] data) {
+    count = ByteArrayUtil.decodeLong(data, 0);
+    numericCount = ByteArrayUtil.decodeLong(data, 8);
+    sum = ByteArrayUtil.decodeLong(data, 16);
+    min = ByteArrayUtil.decodeLong(data, 24);
+    max = ByteArrayUtil.decodeLong(data, 32);
+  }
+
+  public void clear() {
+    count = 0;
+    numericCount = 0;
+    sum = 0;
+    min = Long.MAX_VALUE;
+    max = Long.MIN_VALUE;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Adds the value of a cell. Parses the value the same way as {@link Long#parseLong(String)}, but
+   * without creating a string or an exception for values that are not numbers.
+   */
+  public void add(byte[] value) {
+    count++;
+
+    int len = value.length;
+    if (len == 0) {
+      return;
+    }
+
+    int i = 0;
+    boolean negative = false;
+    if (value[0] == '-' || value[0] == '+') {
+      negative = value[0] == '-';
+      if (len == 1) {
+        return;
+      }
+      i++;
+    }
+
+    // accumulate negatively to handle Long.MIN_VALUE, like Long.parseLong
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multmin = limit / 10;
+    long result = 0;
+    for (; i < len; i++) {
+      int digit = value[i] - '0';
+      if (digit < 0 || digit > 9 || result < multmin) {
+        return;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return;
+      }
+      result -= digit;
+    }
+
+    addNumber(negative ? result : -result);
+  }
+
+  private void addNumber(long number) {
+    numericCount++;
+    sum += number;
+    min = Math.min(min, number);
+    max = Math.max(max, number);
+  }
+
+  public void merge(AggregateValue other) {
+    count += other.count;
+    numericCount += other.numericCount;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getNumericCount() {
+    return numericCount;
+  }
+
+  public long getSum() {
+    return sum;
+  }
+
+  public long getMin() {
+    return min;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public byte[] encode() {
+    byte[] ba = new byte[40];
+    ByteArrayUtil.encode(ba, 0, count);
+    ByteArrayUtil.encode(ba, 8, numericCount);
+    ByteArrayUtil.encode(ba, 16, sum);
+    ByteArrayUtil.encode(ba, 24, min);
+    ByteArrayUtil.encode(ba, 32, max);
+    return ba;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count + " numericCount=" + numericCount + " sum=" + sum + " min=" + min
+        + " max=" + max;
+  }
+}
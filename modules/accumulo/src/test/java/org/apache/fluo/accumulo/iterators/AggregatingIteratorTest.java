@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.fluo.accumulo.util.ColumnConstants;
+import org.apache.fluo.accumulo.values.AggregateValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AggregatingIteratorTest {
+
+  private static AggregatingIterator newAI(TestData input, long snaptime) {
+    IteratorEnvironment env = TestIteratorEnv.create(IteratorScope.scan, true);
+
+    Map<String, String> options = new HashMap<>();
+    options.put(SnapshotIterator.TIMESTAMP_OPT, snaptime + "");
+
+    try {
+      SnapshotIterator si = new SnapshotIterator();
+      si.init(input.getIterator(), options, env);
+      AggregatingIterator ai = new AggregatingIterator();
+      ai.init(si, Collections.emptyMap(), env);
+      return ai;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Merges the partial aggregates and collects the locks returned by an aggregating iterator.
+   *
+   * @param reseek when true seek after every entry, like a tablet server does between batches
+   */
+  private static AggregateValue aggregate(SortedKeyValueIterator<Key, Value> iter, Range range,
+      boolean reseek, List<Key> locks) throws IOException {
+    AggregateValue total = new AggregateValue();
+    Key prev = null;
+
+    iter.seek(range, Collections.emptySet(), false);
+    while (iter.hasTop()) {
+      Key key = iter.getTopKey();
+      if (prev != null) {
+        Assert.assertTrue(prev.compareTo(key) < 0);
+      }
+      prev = new Key(key);
+
+      long colType = key.getTimestamp() & ColumnConstants.PREFIX_MASK;
+      if (colType == ColumnConstants.DATA_PREFIX) {
+        total.merge(new AggregateValue(iter.getTopValue().get()));
+      } else {
+        Assert.assertEquals(ColumnConstants.LOCK_PREFIX, colType);
+        locks.add(prev);
+      }
+
+      if (reseek) {
+        iter.seek(new Range(prev, false, range.getEndKey(), range.isEndKeyInclusive()),
+            Collections.emptySet(), false);
+      } else {
+        iter.next();
+      }
+    }
+
+    return total;
+  }
+
+  private static TestData newInput() {
+    TestData input = new TestData();
+    for (int r = 0; r < 10; r++) {
+      for (int c = 0; c < 3; c++) {
+        String col = "r" + r + " f q" + c;
+        input.add(col + " WRITE 16", "11");
+        input.add(col + " DATA 11", (r * 3 + c) + "");
+        // an older version that should not be aggregated
+        input.add(col + " WRITE 10", "5");
+        input.add(col + " DATA 5", "1000");
+      }
+    }
+    input.add("r5 f q3 WRITE 16", "11");
+    input.add("r5 f q3 DATA 11", "not a number");
+    return input;
+  }
+
+  @Test
+  public void testBasic() throws IOException {
+    for (boolean reseek : new boolean[] {false, true}) {
+      List<Key> locks = new ArrayList<>();
+      AggregateValue total = aggregate(newAI(newInput(), 20), new Range(), reseek, locks);
+
+      Assert.assertEquals(31, total.getCount());
+      Assert.assertEquals(30, total.getNumericCount());
+      Assert.assertEquals(435, total.getSum());
+      Assert.assertEquals(0, total.getMin());
+      Assert.assertEquals(29, total.getMax());
+      Assert.assertEquals(0, locks.size());
+    }
+
+    // the older versions are visible before the newer ones are committed
+    AggregateValue total =
+        aggregate(newAI(newInput(), 14), new Range(), false, new ArrayList<>());
+    Assert.assertEquals(30, total.getCount());
+    Assert.assertEquals(30000, total.getSum());
+
+    Assert.assertFalse(newAI(newInput(), 3).hasTop());
+  }
+
+  @Test
+  public void testRange() throws IOException {
+    Range range = new Range(new Key("r3"), true, new Key("r5", "f", "q1"), false);
+    AggregateValue total = aggregate(newAI(newInput(), 20), range, false, new ArrayList<>());
+    Assert.assertEquals(7, total.getCount());
+    Assert.assertEquals(9 + 10 + 11 + 12 + 13 + 14 + 15, total.getSum());
+  }
+
+  @Test
+  public void testLocks() throws IOException {
+    TestData input = newInput();
+    input.add("r2 f q1 LOCK 13", "r2 f q1");
+    input.add("r7 f q0 LOCK 13", "r2 f q1");
+    input.add("r7 f q1 LOCK 13", "r2 f q1");
+
+    for (boolean reseek : new boolean[] {false, true}) {
+      List<Key> locks = new ArrayList<>();
+      AggregateValue total = aggregate(newAI(input, 20), new Range(), reseek, locks);
+
+      // the locked columns are not aggregated
+      Assert.assertEquals(28, total.getCount());
+      Assert.assertEquals(435 - 7 - 21 - 22, total.getSum());
+      Assert.assertEquals(3, locks.size());
+      Assert.assertEquals("r2", locks.get(0).getRow().toString());
+      Assert.assertEquals("r7", locks.get(2).getRow().toString());
+    }
+  }
+}
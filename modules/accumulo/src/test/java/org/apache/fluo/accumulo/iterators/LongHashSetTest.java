@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongHashSetTest {
+
+  @Test
+  public void testBasic() {
+    LongHashSet set = new LongHashSet();
+
+    Assert.assertFalse(set.contains(5));
+    Assert.assertTrue(set.add(5));
+    Assert.assertFalse(set.add(5));
+    Assert.assertTrue(set.add(0));
+    Assert.assertTrue(set.contains(5));
+    Assert.assertTrue(set.contains(0));
+    Assert.assertFalse(set.contains(-1));
+    Assert.assertEquals(2, set.size());
+
+    Assert.assertTrue(set.remove(5));
+    Assert.assertFalse(set.remove(5));
+    Assert.assertFalse(set.remove(-1));
+    Assert.assertFalse(set.contains(5));
+    Assert.assertEquals(1, set.size());
+
+    set.clear();
+    Assert.assertFalse(set.contains(0));
+    Assert.assertEquals(0, set.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegative() {
+    new LongHashSet().add(-1);
+  }
+
+  @Test
+  public void testRandom() {
+    Random rand = new Random(42);
+
+    LongHashSet set = new LongHashSet();
+    HashSet<Long> expected = new HashSet<>();
+
+    for (int round = 0; round < 20; round++) {
+      // vary the size of the sets to exercise growing and shrinking on clear
+      int range = 1 << rand.nextInt(14);
+      int ops = rand.nextInt(4 * range + 1);
+      // timestamps that are close together, like those of one column
+      long base = rand.nextLong() & 0x1fffffffffffffffL;
+
+      for (int i = 0; i < ops; i++) {
+        long value = base + rand.nextInt(range);
+        if (rand.nextInt(3) == 0) {
+          Assert.assertEquals(expected.remove(value), set.remove(value));
+        } else {
+          Assert.assertEquals(expected.add(value), set.add(value));
+        }
+        Assert.assertEquals(expected.size(), set.size());
+      }
+
+      for (int i = 0; i < range; i++) {
+        Assert.assertEquals(expected.contains(base + i), set.contains(base + i));
+      }
+
+      set.clear();
+      expected.clear();
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
 
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
@@ -31,12 +32,16 @@ import org.junit.Test;
 
 public class NotificationIteratorTest {
   NotificationIterator newNI(TestData input, IteratorScope scope, boolean fullMajc) {
+    return newNI(input, scope, fullMajc, Collections.emptyMap());
+  }
+
+  NotificationIterator newNI(TestData input, IteratorScope scope, boolean fullMajc,
+      Map<String, String> opts) {
     NotificationIterator ni = new NotificationIterator();
 
     IteratorEnvironment env = TestIteratorEnv.create(scope, fullMajc);
 
     try {
-      Map<String, String> opts = Collections.emptyMap();
       ni.init(new SortedMapIterator(input.data), opts, env);
     } catch (IOException e) {
       throw new RuntimeException(e);
@@ -177,6 +182,55 @@ public class NotificationIteratorTest {
     }
   }
 
+  private Map<String, String> minTimestampOpts(long ts) {
+    IteratorSetting is = new IteratorSetting(11, NotificationIterator.class);
+    NotificationIterator.setMinTimestamp(is, ts);
+    return is.getOptions();
+  }
+
+  @Test
+  public void testMinTimestamp() {
+    TestData input = getTestData();
+
+    TestData output = new TestData(newNI(input, IteratorScope.scan, true, minTimestampOpts(0)));
+    TestData expected = new TestData();
+    expected.add("0 ntfy foo:bar 7", "");
+    expected.add("1 ntfy foo:bar 3", "");
+    expected.add("1 ntfy foo:baz 1", "");
+    expected.add("2 ntfy foo:baz 3", "");
+    expected.add("9 ntfy foo:bar 3", "");
+    Assert.assertEquals(expected, output);
+
+    output = new TestData(newNI(input, IteratorScope.scan, true, minTimestampOpts(2)));
+    expected = new TestData();
+    expected.add("0 ntfy foo:bar 7", "");
+    expected.add("1 ntfy foo:bar 3", "");
+    expected.add("2 ntfy foo:baz 3", "");
+    expected.add("9 ntfy foo:bar 3", "");
+    Assert.assertEquals(expected, output);
+
+    // only the newest notification for a column is considered, not older ones after it
+    output = new TestData(newNI(input, IteratorScope.scan, true, minTimestampOpts(3)));
+    expected = new TestData();
+    expected.add("0 ntfy foo:bar 7", "");
+    Assert.assertEquals(expected, output);
+
+    output = new TestData(newNI(input, IteratorScope.scan, true, minTimestampOpts(3)),
+        new Range("1", "9"));
+    Assert.assertEquals(new TestData(), output);
+
+    output = new TestData(newNI(input, IteratorScope.scan, true, minTimestampOpts(7)));
+    Assert.assertEquals(new TestData(), output);
+
+    // the option should be ignored by compactions
+    for (boolean fullMajc : new boolean[] {true, false}) {
+      TestData withOpt =
+          new TestData(newNI(input, IteratorScope.majc, fullMajc, minTimestampOpts(7)));
+      TestData withoutOpt = new TestData(newNI(input, IteratorScope.majc, fullMajc));
+      Assert.assertEquals(withoutOpt, withOpt);
+    }
+  }
+
   @Test
   public void testScans() {
     TestData input = getTestData();
@@ -319,4 +373,75 @@ public class NotificationIteratorTest {
 
     Assert.assertEquals(expected, output);
   }
+
+  @Test
+  public void testCoalesce() {
+    IteratorSetting cfg = new IteratorSetting(11, NotificationIterator.class);
+    NotificationIterator.setCoalesce(cfg);
+
+    for (IteratorScope scope : Arrays.asList(IteratorScope.minc, IteratorScope.majc)) {
+      TestData input = getTestData();
+
+      // the disorderly pattern of row 8 has runs of notifications between deletes, so its delete is
+      // dropped. Row 5 ends with a delete, which is still propagated.
+      TestData expected = new TestData();
+      expected.add("0 ntfy foo:bar 7", "");
+      expected.add("1 ntfy foo:bar 3", "");
+      expected.add("1 ntfy foo:baz 1", "");
+      expected.add("2 ntfy foo:baz 3", "");
+      expected.add("3 ntfy foo:baz 3 DEL", "");
+      expected.add("5 ntfy foo:baz 3 DEL", "");
+      expected.add("9 ntfy foo:bar 3", "");
+
+      TestData output = new TestData(newNI(input, scope, false, cfg.getOptions()));
+      Assert.assertEquals(expected, output);
+
+      // consecutive deletes are still propagated
+      input = new TestData();
+      input.add("0 ntfy foo:bar 9 DEL", "");
+      input.add("0 ntfy foo:bar 9", "");
+      input.add("0 ntfy foo:bar 8 DEL", "");
+      input.add("0 ntfy foo:bar 7 DEL", "");
+      input.add("0 ntfy foo:bar 6", "");
+
+      expected = new TestData();
+      expected.add("0 ntfy foo:bar 9 DEL", "");
+
+      output = new TestData(newNI(input, scope, false, cfg.getOptions()));
+      Assert.assertEquals(expected, output);
+    }
+
+    // has no effect on scans and full compactions
+    TestData input = getTestData();
+    Assert.assertEquals(new TestData(newNI(input, IteratorScope.scan)),
+        new TestData(newNI(input, IteratorScope.scan, true, cfg.getOptions())));
+    Assert.assertEquals(new TestData(newNI(input, IteratorScope.majc, true)),
+        new TestData(newNI(input, IteratorScope.majc, true, cfg.getOptions())));
+  }
+
+  @Test
+  public void testHotColumn() throws IOException {
+    TestData input = new TestData();
+    for (int i = 1; i <= 1000; i++) {
+      input.add("0 ntfy foo:bar " + i, "");
+      input.add("1 ntfy foo:bar " + i, "");
+    }
+    input.add("1 ntfy foo:bar 500 DEL", "");
+    input.add("2 ntfy foo:baz 3", "");
+
+    CountingIterator.Counter counter = new CountingIterator.Counter();
+    NotificationIterator ni = new NotificationIterator();
+    ni.init(new CountingIterator(counter, input.data), Collections.emptyMap(),
+        TestIteratorEnv.create(IteratorScope.scan, true));
+
+    TestData expected = new TestData();
+    expected.add("0 ntfy foo:bar 1000", "");
+    expected.add("1 ntfy foo:bar 1000", "");
+    expected.add("2 ntfy foo:baz 3", "");
+
+    // only the newest notification for each column is returned and the superseded notifications
+    // are skipped by seeking instead of reading them all
+    Assert.assertEquals(expected, new TestData(ni));
+    Assert.assertTrue(counter.nextCalls < 40);
+  }
 }
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ScanFilterIteratorTest {
+
+  private static IteratorSetting newSetting() {
+    return new IteratorSetting(11, ScanFilterIterator.class);
+  }
+
+  private static SortedKeyValueIterator<Key, Value> newIter(TestData input, long snaptime,
+      IteratorSetting... filters) {
+    IteratorEnvironment env = TestIteratorEnv.create(IteratorScope.scan, true);
+
+    Map<String, String> options = new HashMap<>();
+    options.put(SnapshotIterator.TIMESTAMP_OPT, snaptime + "");
+
+    try {
+      SortedKeyValueIterator<Key, Value> iter = new SnapshotIterator();
+      iter.init(input.getIterator(), options, env);
+      for (IteratorSetting filter : filters) {
+        ScanFilterIterator sfi = new ScanFilterIterator();
+        sfi.init(iter, filter.getOptions(), env);
+        iter = sfi;
+      }
+      return iter;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static TestData newInput() {
+    TestData input = new TestData();
+    String[] values = {"apple", "avocado", "banana", "cherry", "apricot"};
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < values.length; c++) {
+        input.add("r" + r + " f q" + c + " WRITE 16", "11");
+        input.add("r" + r + " f q" + c + " DATA 11", values[c] + r);
+      }
+    }
+    return input;
+  }
+
+  private static void check(TestData expected, TestData input, IteratorSetting... filters) {
+    Assert.assertEquals(expected, new TestData(newIter(input, 20, filters)));
+    // seeking to continue after every entry should not change the filtered data
+    Assert.assertEquals(expected, new TestData(newIter(input, 20, filters), new Range(), true));
+  }
+
+  @Test
+  public void testValuePrefix() {
+    IteratorSetting setting = newSetting();
+    ScanFilterIterator.setValuePrefix(setting, "ap".getBytes(UTF_8));
+
+    TestData expected = new TestData();
+    for (int r = 0; r < 3; r++) {
+      expected.add("r" + r + " f q0 DATA 11", "apple" + r);
+      expected.add("r" + r + " f q4 DATA 11", "apricot" + r);
+    }
+
+    check(expected, newInput(), setting);
+  }
+
+  @Test
+  public void testValueRegex() {
+    IteratorSetting setting = newSetting();
+    ScanFilterIterator.setValueRegex(setting, "[ab].*1");
+
+    TestData expected = new TestData();
+    expected.add("r1 f q0 DATA 11", "apple1");
+    expected.add("r1 f q1 DATA 11", "avocado1");
+    expected.add("r1 f q2 DATA 11", "banana1");
+    expected.add("r1 f q4 DATA 11", "apricot1");
+
+    check(expected, newInput(), setting);
+  }
+
+  @Test
+  public void testValueRange() {
+    IteratorSetting setting = newSetting();
+    ScanFilterIterator.setValueRange(setting, "avocado1".getBytes(UTF_8), false,
+        "banana1".getBytes(UTF_8), true);
+
+    TestData expected = new TestData();
+    expected.add("r2 f q1 DATA 11", "avocado2");
+    expected.add("r0 f q2 DATA 11", "banana0");
+    expected.add("r1 f q2 DATA 11", "banana1");
+
+    check(expected, newInput(), setting);
+
+    // empty end is infinite
+    setting = newSetting();
+    ScanFilterIterator.setValueRange(setting, "cherry".getBytes(UTF_8), true, new byte[0], false);
+
+    expected = new TestData();
+    for (int r = 0; r < 3; r++) {
+      expected.add("r" + r + " f q3 DATA 11", "cherry" + r);
+    }
+
+    check(expected, newInput(), setting);
+  }
+
+  @Test
+  public void testMaxColumns() {
+    IteratorSetting setting = newSetting();
+    ScanFilterIterator.setMaxColumnsPerRow(setting, 2);
+
+    TestData expected = new TestData();
+    for (int r = 0; r < 3; r++) {
+      expected.add("r" + r + " f q0 DATA 11", "apple" + r);
+      expected.add("r" + r + " f q1 DATA 11", "avocado" + r);
+    }
+
+    TestData input = newInput();
+    Assert.assertEquals(expected, new TestData(newIter(input, 20, setting)));
+
+    // limit the columns that pass a value filter
+    IteratorSetting prefix = newSetting();
+    ScanFilterIterator.setValuePrefix(prefix, "a".getBytes(UTF_8));
+    IteratorSetting max = newSetting();
+    ScanFilterIterator.setMaxColumnsPerRow(max, 1);
+
+    expected = new TestData();
+    for (int r = 0; r < 3; r++) {
+      expected.add("r" + r + " f q0 DATA 11", "apple" + r);
+    }
+    Assert.assertEquals(expected, new TestData(newIter(input, 20, prefix, max)));
+
+    // a range that ends in the middle of a row
+    Range range = new Range(null, true, new Key("r1", "f", "q1"), false);
+    expected = new TestData();
+    expected.add("r0 f q0 DATA 11", "apple0");
+    expected.add("r1 f q0 DATA 11", "apple1");
+    Assert.assertEquals(expected, new TestData(newIter(input, 20, max), range));
+  }
+
+  @Test
+  public void testLocksReturned() {
+    TestData input = newInput();
+    input.add("r1 f q2 LOCK 13", "r1 f q2");
+    input.add("r1 f q3 LOCK 13", "r1 f q2");
+
+    IteratorSetting prefix = newSetting();
+    ScanFilterIterator.setValuePrefix(prefix, "cherry".getBytes(UTF_8));
+
+    TestData expected = new TestData();
+    expected.add("r0 f q3 DATA 11", "cherry0");
+    expected.add("r1 f q2 LOCK 13", "r1 f q2");
+    expected.add("r1 f q3 LOCK 13", "r1 f q2");
+    expected.add("r2 f q3 DATA 11", "cherry2");
+
+    check(expected, input, prefix);
+
+    // locks do not count as columns
+    IteratorSetting max = newSetting();
+    ScanFilterIterator.setMaxColumnsPerRow(max, 3);
+
+    expected = new TestData();
+    expected.add("r0 f q0 DATA 11", "apple0");
+    expected.add("r0 f q1 DATA 11", "avocado0");
+    expected.add("r0 f q2 DATA 11", "banana0");
+    expected.add("r1 f q0 DATA 11", "apple1");
+    expected.add("r1 f q1 DATA 11", "avocado1");
+    expected.add("r1 f q2 LOCK 13", "r1 f q2");
+    expected.add("r1 f q3 LOCK 13", "r1 f q2");
+    expected.add("r1 f q4 DATA 11", "apricot1");
+    expected.add("r2 f q0 DATA 11", "apple2");
+    expected.add("r2 f q1 DATA 11", "avocado2");
+    expected.add("r2 f q2 DATA 11", "banana2");
+
+    Assert.assertEquals(expected, new TestData(newIter(input, 20, max)));
+  }
+
+  @Test
+  public void testRowSample() {
+    TestData input = new TestData();
+    for (int r = 0; r < 1000; r++) {
+      for (int c = 0; c < 3; c++) {
+        input.add(String.format("r%04d f q%d WRITE 16", r, c), "11");
+        input.add(String.format("r%04d f q%d DATA 11", r, c), "v");
+      }
+    }
+
+    IteratorSetting setting = newSetting();
+    ScanFilterIterator.setRowSample(setting, .25);
+
+    TestData expected = new TestData();
+    int sampled = 0;
+    for (int r = 0; r < 1000; r++) {
+      String row = String.format("r%04d", r);
+      long hash = ScanFilterIterator.hashRow(new ArrayByteSequence(row));
+      if ((hash >>> 11) * 0x1.0p-53 < .25) {
+        sampled++;
+        for (int c = 0; c < 3; c++) {
+          expected.add(row + " f q" + c + " DATA 11", "v");
+        }
+      }
+    }
+
+    Assert.assertTrue(sampled > 200 && sampled < 300);
+    check(expected, input, setting);
+
+    setting = newSetting();
+    ScanFilterIterator.setRowSample(setting, 1.0);
+    Assert.assertEquals(3000, new TestData(newIter(input, 20, setting)).data.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadFraction() {
+    ScanFilterIterator.setRowSample(newSetting(), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadMaxColumns() {
+    ScanFilterIterator.setMaxColumnsPerRow(newSetting(), 0);
+  }
+}
@@ -25,7 +25,8 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
-import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.fluo.accumulo.util.ColumnConstants;
 import org.junit.Assert;
 import org.junit.Test;
@@ -41,7 +42,7 @@ public class SnapshotIteratorTest {
     IteratorEnvironment env = TestIteratorEnv.create(IteratorScope.scan, true);
 
     try {
-      SortedKeyValueIterator<Key, Value> source = new SortedMapIterator(input.data);
+      SortedKeyValueIterator<Key, Value> source = input.getIterator();
       si.init(source, options, env);
     } catch (IOException e) {
       throw new RuntimeException(e);
@@ -49,6 +50,35 @@ public class SnapshotIteratorTest {
     return si;
   }
 
+  // Uses an iterator stack like a tablet server's, so the deleting iterator can be removed and
+  // seeks are used to skip entries.
+  SnapshotIterator newSIWithDeletingIterator(TestData input, long startTs,
+      boolean returnReadLocks, int maxNexts) {
+    SnapshotIterator si = new SnapshotIterator();
+
+    Map<String, String> options = new HashMap<>();
+    options.put(SnapshotIterator.RETURN_READLOCK_PRESENT_OPT, returnReadLocks + "");
+    options.put(SnapshotIterator.TIMESTAMP_OPT, startTs + "");
+    options.put(SnapshotIterator.MAX_NEXTS_OPT, maxNexts + "");
+
+    IteratorEnvironment env = TestIteratorEnv.create(IteratorScope.scan, true);
+
+    try {
+      WrappingIterator top = new WrappingIterator() {};
+      top.init(new DeletingIterator(input.getIterator(), false), options, env);
+      si.init(top, options, env);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return si;
+  }
+
+  SnapshotIterator newSIWithDeletingIterator(TestData input, long startTs,
+      boolean returnReadLocks) {
+    return newSIWithDeletingIterator(input, startTs, returnReadLocks,
+        TimestampSkippingIterator.DEFAULT_MAX_NEXTS);
+  }
+
   SnapshotIterator newSI(TestData input, long startTs) {
     return newSI(input, startTs, true);
   }
@@ -146,6 +176,144 @@ public class SnapshotIteratorTest {
     checkInput(input, expected, 23);
   }
 
+  @Test
+  public void testDelLockAfterLock() {
+    // when read locks are not returned the del locks are only read if a lock is seen
+
+    TestData input = new TestData();
+    input.add("0 f q DEL_LOCK 21", "0 ROLLBACK");
+    input.add("0 f q WRITE 16", "11");
+    input.add("0 f q RLOCK 19", " 0 f q");
+    input.add("0 f q LOCK 21", "1 f q");
+    input.add("0 f q DATA 21", "16");
+    input.add("0 f q DATA 11", "15");
+
+    input.add("1 f q DEL_LOCK 18", "0 ABORT");
+    input.add("1 f q WRITE 16", "11");
+    input.add("1 f q LOCK 21", "1 f q");
+    input.add("1 f q DATA 21", "16");
+    input.add("1 f q DATA 11", "15");
+
+    input.add("2 f q WRITE 16", "11");
+    input.add("2 f q LOCK 11", "1 f q");
+    input.add("2 f q DATA 11", "17");
+
+    TestData expected = new TestData();
+    expected.add("0 f q DATA 11", "15");
+    expected.add("1 f q DATA 11", "15");
+    expected.add("2 f q DATA 11", "17");
+    checkInput(input, expected, 20, false);
+
+    expected = new TestData();
+    expected.add("0 f q DATA 11", "15");
+    expected.add("1 f q LOCK 21", "1 f q");
+    expected.add("2 f q DATA 11", "17");
+    checkInput(input, expected, 23, false);
+
+    for (Range range : new Range[] {Range.exact("0"), Range.exact("1"),
+        new Range(new Key("1", "f", "q", ColumnConstants.LOCK_PREFIX | 21), null)}) {
+      TestData output = new TestData(newSI(input, 23, false), range);
+      expected = new TestData();
+      expected.addIfInRange("0 f q DATA 11", "15", range);
+      expected.addIfInRange("1 f q LOCK 21", "1 f q", range);
+      expected.addIfInRange("2 f q DATA 11", "17", range);
+      Assert.assertEquals(expected, output);
+    }
+  }
+
+  @Test
+  public void testColumnsWithLongHistory() {
+    TestData input = new TestData();
+
+    int numCols = 100;
+    for (int c = 0; c < numCols; c++) {
+      String col = String.format("%03d f q ", c);
+      for (int i = 0; i < 50; i++) {
+        int startTs = i * 10 + 1;
+        input.add(col + "DATA " + startTs, "" + i);
+        if (i % 3 == 0) {
+          input.add(col + "DEL_LOCK " + startTs, "0 ROLLBACK");
+        } else {
+          input.add(col + "WRITE " + (startTs + 5), "" + startTs);
+        }
+      }
+    }
+
+    TestData expected = new TestData();
+    for (int c = 0; c < numCols; c++) {
+      expected.add(String.format("%03d f q DATA 491", c), "49");
+    }
+
+    SnapshotIterator si = newSIWithDeletingIterator(input, 1000, true);
+    Assert.assertEquals(expected, new TestData(si, new Range()));
+    int readLockSeeks = input.counter.seeks;
+
+    input.counter.reset();
+    si = newSIWithDeletingIterator(input, 1000, false);
+    Assert.assertEquals(expected, new TestData(si, new Range()));
+
+    // Without read locks there is no need to look at the del locks of unlocked columns. This saves
+    // a seek per column when there are many del locks and writes to skip.
+    Assert.assertTrue(readLockSeeks >= numCols * 3);
+    Assert.assertTrue(input.counter.seeks <= numCols * 2 + 1);
+
+    // locks that are newer than the snapshot, not superseded, and rolled back
+    input.add("001 f q LOCK 1001", "1 f q");
+    input.add("002 f q LOCK 601", "1 f q");
+    input.add("003 f q LOCK 601", "1 f q");
+    input.add("003 f q DEL_LOCK 601", "0 ROLLBACK");
+
+    expected = new TestData();
+    for (int c = 0; c < numCols; c++) {
+      if (c == 2) {
+        expected.add("002 f q LOCK 601", "1 f q");
+      } else {
+        expected.add(String.format("%03d f q DATA 491", c), "49");
+      }
+    }
+
+    Assert.assertEquals(expected,
+        new TestData(newSIWithDeletingIterator(input, 1000, false), new Range()));
+    Assert.assertEquals(expected,
+        new TestData(newSIWithDeletingIterator(input, 1000, true), new Range()));
+  }
+
+  @Test
+  public void testMaxNexts() {
+    TestData input = new TestData();
+
+    for (int c = 0; c < 10; c++) {
+      String col = String.format("%03d f q ", c);
+      // columns with a few versions and columns with many
+      for (int i = 0; i < (c % 2 == 0 ? 3 : 30); i++) {
+        int startTs = i * 10 + 1;
+        input.add(col + "DATA " + startTs, "" + i);
+        input.add(col + "WRITE " + (startTs + 5), "" + startTs);
+      }
+    }
+
+    TestData expected = new TestData(newSI(input, 100), new Range());
+    Assert.assertEquals(10, expected.data.size());
+
+    int prevSeeks = Integer.MAX_VALUE;
+    for (int maxNexts : new int[] {0, 1, 10, 1000}) {
+      input.counter.reset();
+      TestData output =
+          new TestData(newSIWithDeletingIterator(input, 100, false, maxNexts), new Range());
+      Assert.assertEquals(expected, output);
+      Assert.assertTrue(input.counter.seeks <= prevSeeks);
+      prevSeeks = input.counter.seeks;
+    }
+
+    // only the initial seek is needed when skipping with next calls
+    Assert.assertEquals(1, prevSeeks);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMaxNexts() {
+    SnapshotIterator.setMaxNexts(null, -1);
+  }
+
   @Test
   public void testSeek() {
 
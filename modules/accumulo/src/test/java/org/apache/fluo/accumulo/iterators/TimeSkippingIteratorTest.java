@@ -26,6 +26,8 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -75,4 +77,112 @@ public class TimeSkippingIteratorTest {
     Assert.assertFalse(tsi.hasTop());
 
   }
+
+  @Test
+  public void testMaxNexts() throws IOException {
+    SortedMap<Key, Value> data = new TreeMap<>();
+
+    for (int i = 0; i < 5; i++) {
+      data.put(new Key("r1", "f1", "q0", i), new Value(("" + i).getBytes()));
+    }
+    for (int i = 0; i < 100; i++) {
+      data.put(new Key("r1", "f1", "q1", i), new Value(("" + i).getBytes()));
+    }
+
+    TimestampSkippingIterator tsi = newStack(data, TimestampSkippingIterator.DEFAULT_MAX_NEXTS);
+    tsi.seek(new Range(), Collections.<ByteSequence>emptySet(), false);
+
+    // a column with a few versions is skipped with next calls
+    tsi.skipColumn(new Key(tsi.getTopKey()));
+    Assert.assertEquals(new Key("r1", "f1", "q1", 99), tsi.getTopKey());
+    Assert.assertEquals(0, tsi.getSkipSeeks());
+    Assert.assertEquals(1, tsi.getSeeksAvoided());
+
+    Key curCol = new Key(tsi.getTopKey());
+    tsi.skipToTimestamp(curCol, 50);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 50), tsi.getTopKey());
+    Assert.assertEquals(1, tsi.getSkipSeeks());
+    Assert.assertEquals(1, tsi.getSeeksAvoided());
+
+    tsi.skipToTimestamp(curCol, 45);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 45), tsi.getTopKey());
+    Assert.assertEquals(1, tsi.getSkipSeeks());
+    Assert.assertEquals(2, tsi.getSeeksAvoided());
+
+    tsi.skipColumn(curCol);
+    Assert.assertFalse(tsi.hasTop());
+    Assert.assertEquals(2, tsi.getSkipSeeks());
+
+    // never make next calls before seeking
+    tsi = newStack(data, 0);
+    tsi.seek(new Range(), Collections.<ByteSequence>emptySet(), false);
+    tsi.skipColumn(new Key(tsi.getTopKey()));
+    Assert.assertEquals(new Key("r1", "f1", "q1", 99), tsi.getTopKey());
+    tsi.skipToTimestamp(new Key(tsi.getTopKey()), 97);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 97), tsi.getTopKey());
+    Assert.assertEquals(2, tsi.getSkipSeeks());
+    Assert.assertEquals(0, tsi.getSeeksAvoided());
+
+    // the next timestamp is reached without seeking, but a seek was never needed
+    tsi.skipToTimestamp(new Key(tsi.getTopKey()), 96);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 96), tsi.getTopKey());
+    Assert.assertEquals(2, tsi.getSkipSeeks());
+    Assert.assertEquals(0, tsi.getSeeksAvoided());
+  }
+
+  @Test
+  public void testSeeksAvoided() throws IOException {
+    SortedMap<Key, Value> data = new TreeMap<>();
+    for (int i = 0; i < 100; i++) {
+      data.put(new Key("r1", "f1", "q1", i), new Value(("" + i).getBytes()));
+    }
+
+    TimestampSkippingIterator tsi = newStack(data, TimestampSkippingIterator.DEFAULT_MAX_NEXTS);
+    tsi.seek(new Range(), Collections.<ByteSequence>emptySet(), false);
+    Key curCol = new Key(tsi.getTopKey());
+
+    // the first next call reaches the target
+    tsi.skipToTimestamp(curCol, 98);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 98), tsi.getTopKey());
+    Assert.assertEquals(0, tsi.getSkipSeeks());
+    Assert.assertEquals(0, tsi.getSeeksAvoided());
+
+    // next calls past other versions replace a seek
+    tsi.skipToTimestamp(curCol, 95);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 95), tsi.getTopKey());
+    Assert.assertEquals(0, tsi.getSkipSeeks());
+    Assert.assertEquals(1, tsi.getSeeksAvoided());
+
+    // The deleting iterator can not be removed from a source without one, so after a few seeks
+    // skips only use next calls. Those skips could not have sought, so they avoid nothing.
+    tsi = new TimestampSkippingIterator(new SortedMapIterator(data), 1);
+    tsi.seek(new Range(), Collections.<ByteSequence>emptySet(), false);
+    for (long ts = 90; ts >= 60; ts -= 10) {
+      tsi.skipToTimestamp(curCol, ts);
+      Assert.assertEquals(new Key("r1", "f1", "q1", ts), tsi.getTopKey());
+    }
+    Assert.assertFalse(tsi.shouldSeek());
+    long skipSeeks = tsi.getSkipSeeks();
+    long seeksAvoided = tsi.getSeeksAvoided();
+
+    tsi.skipToTimestamp(curCol, 50);
+    Assert.assertEquals(new Key("r1", "f1", "q1", 50), tsi.getTopKey());
+    Assert.assertEquals(skipSeeks, tsi.getSkipSeeks());
+    Assert.assertEquals(seeksAvoided, tsi.getSeeksAvoided());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMaxNexts() {
+    new TimestampSkippingIterator(new SortedMapIterator(new TreeMap<>()), -1);
+  }
+
+  // Uses an iterator stack like a tablet server's, so the deleting iterator can be removed and
+  // seeks are used to skip entries.
+  private static TimestampSkippingIterator newStack(SortedMap<Key, Value> data, int maxNexts)
+      throws IOException {
+    WrappingIterator top = new WrappingIterator() {};
+    top.init(new DeletingIterator(new SortedMapIterator(data), false), Collections.emptyMap(),
+        null);
+    return new TimestampSkippingIterator(top, maxNexts);
+  }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.values;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class AggregateValueTest {
+
+  private static boolean isNumeric(String value) {
+    AggregateValue av = new AggregateValue();
+    av.add(value.getBytes(UTF_8));
+    Assert.assertEquals(1, av.getCount());
+    if (av.getNumericCount() == 1) {
+      Assert.assertEquals(Long.parseLong(value), av.getSum());
+      return true;
+    }
+    return false;
+  }
+
+  @Test
+  public void testParse() {
+    String[] numbers = {"0", "7", "-7", "+7", "0012", "-0", "9223372036854775807",
+        "-9223372036854775808"};
+    for (String number : numbers) {
+      Assert.assertTrue(number, isNumeric(number));
+    }
+
+    String[] others = {"", "-", "+", "1.5", "1e3", " 1", "1 ", "abc", "12a",
+        "9223372036854775808", "-9223372036854775809", "99999999999999999999"};
+    for (String other : others) {
+      Assert.assertFalse(other, isNumeric(other));
+      try {
+        Long.parseLong(other);
+        Assert.fail(other);
+      } catch (NumberFormatException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testMergeAndEncode() {
+    AggregateValue av1 = new AggregateValue();
+    Assert.assertTrue(av1.isEmpty());
+    av1.add("5".getBytes(UTF_8));
+    av1.add("x".getBytes(UTF_8));
+    av1.add("-3".getBytes(UTF_8));
+
+    AggregateValue av2 = new AggregateValue(new AggregateValue().encode());
+    Assert.assertTrue(av2.isEmpty());
+    av2.add("10".getBytes(UTF_8));
+
+    av1.merge(new AggregateValue(av2.encode()));
+
+    AggregateValue decoded = new AggregateValue(av1.encode());
+    Assert.assertEquals(4, decoded.getCount());
+    Assert.assertEquals(3, decoded.getNumericCount());
+    Assert.assertEquals(12, decoded.getSum());
+    Assert.assertEquals(-3, decoded.getMin());
+    Assert.assertEquals(10, decoded.getMax());
+
+    decoded.clear();
+    Assert.assertTrue(decoded.isEmpty());
+    Assert.assertEquals(Long.MAX_VALUE, decoded.getMin());
+    Assert.assertEquals(Long.MIN_VALUE, decoded.getMax());
+  }
+}
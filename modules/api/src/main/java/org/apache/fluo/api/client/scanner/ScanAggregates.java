@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.api.client.scanner;
+
+import java.util.Objects;
+
+/**
+ * The count, sum, min and max of the cells a scan would return. Values that are decimal longs
+ * encoded as UTF-8 (like "42" or "-7") are numeric and included in the sum, min and max. Other
+ * values are only counted. Like {@link java.util.LongSummaryStatistics}, the sum overflows silently
+ * and the min and max are {@link Long#MAX_VALUE} and {@link Long#MIN_VALUE} when there are no
+ * numeric values.
+ *
+ * @see ScannerBuilder#aggregate()
+ * @since 1.2.0
+ */
+public final class ScanAggregates {
+
+  private final long count;
+  private final long numericCount;
+  private final long sum;
+  private final long min;
+  private final long max;
+
+  public ScanAggregates(long count, long numericCount, long sum, long min, long max) {
+    this.count = count;
+    this.numericCount = numericCount;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+  }
+
+  /**
+   * @return the number of cells
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return the number of cells with numeric values
+   */
+  public long getNumericCount() {
+    return numericCount;
+  }
+
+  /**
+   * @return the sum of the numeric values
+   */
+  public long getSum() {
+    return sum;
+  }
+
+  /**
+   * @return the minimum numeric value
+   */
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * @return the maximum numeric value
+   */
+  public long getMax() {
+    return max;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof ScanAggregates) {
+      ScanAggregates osa = (ScanAggregates) o;
+      return count == osa.count && numericCount == osa.numericCount && sum == osa.sum
+          && min == osa.min && max == osa.max;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(count, numericCount, sum, min, max);
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count + " numericCount=" + numericCount + " sum=" + sum + " min=" + min
+        + " max=" + max;
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.api.client.scanner;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Preconditions;
+import org.apache.fluo.api.data.Bytes;
+
+/**
+ * Restricts the cells returned by a scanner. Filters are run by Accumulo tablet servers after the
+ * snapshot value of each cell is determined, so cells that are filtered out are never sent to the
+ * client. Obtain instances using the static methods of this class. ScanFilter is immutable.
+ *
+ * @see ScannerBuilder#filter(ScanFilter...)
+ * @since 1.2.0
+ */
+public abstract class ScanFilter implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  // only the filters defined here can be run by tablet servers
+  private ScanFilter() {}
+
+  /**
+   * @param prefix only return cells with values that begin with this prefix
+   */
+  public static ScanFilter valuePrefix(Bytes prefix) {
+    return new ValuePrefix(prefix);
+  }
+
+  /**
+   * @param prefix only return cells with values that begin with this prefix (will be UTF-8
+   *        encoded)
+   */
+  public static ScanFilter valuePrefix(CharSequence prefix) {
+    return new ValuePrefix(Bytes.of(prefix));
+  }
+
+  /**
+   * @param regex only return cells with values that entirely match this Java regular expression.
+   *        Values are decoded as UTF-8 before matching.
+   */
+  public static ScanFilter valueRegex(String regex) {
+    return new ValueRegex(regex);
+  }
+
+  /**
+   * Only return cells with values within a range, using the same unsigned lexicographical order as
+   * {@link Bytes#compareTo(Bytes)}.
+   *
+   * @param start set to {@link Bytes#EMPTY} to indicate negative infinity
+   * @param end set to {@link Bytes#EMPTY} to indicate positive infinity
+   */
+  public static ScanFilter valueRange(Bytes start, boolean startInclusive, Bytes end,
+      boolean endInclusive) {
+    return new ValueRange(start, startInclusive, end, endInclusive);
+  }
+
+  /**
+   * Only return the first columns of each row, in sorted order, that pass the other filters.
+   *
+   * @param max maximum number of columns to return for each row, must be positive
+   */
+  public static ScanFilter maxColumnsPerRow(int max) {
+    return new MaxColumnsPerRow(max);
+  }
+
+  /**
+   * Only return a sample of the rows. Whether a row is part of the sample only depends on the row,
+   * so the same rows are sampled by every scan.
+   *
+   * @param fraction the fraction of rows to sample, must be greater than 0 and at most 1
+   */
+  public static ScanFilter sampleRows(double fraction) {
+    return new RowSample(fraction);
+  }
+
+  /**
+   * @since 1.2.0
+   */
+  public static final class ValuePrefix extends ScanFilter {
+    private static final long serialVersionUID = 1L;
+    private final Bytes prefix;
+
+    private ValuePrefix(Bytes prefix) {
+      this.prefix = Objects.requireNonNull(prefix);
+    }
+
+    public Bytes getPrefix() {
+      return prefix;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ValuePrefix && prefix.equals(((ValuePrefix) o).prefix);
+    }
+
+    @Override
+    public int hashCode() {
+      return prefix.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "valuePrefix(" + prefix + ")";
+    }
+  }
+
+  /**
+   * @since 1.2.0
+   */
+  public static final class ValueRegex extends ScanFilter {
+    private static final long serialVersionUID = 1L;
+    private final String regex;
+
+    private ValueRegex(String regex) {
+      // fail on the client instead of the tablet server
+      Pattern.compile(regex);
+      this.regex = regex;
+    }
+
+    public String getRegex() {
+      return regex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ValueRegex && regex.equals(((ValueRegex) o).regex);
+    }
+
+    @Override
+    public int hashCode() {
+      return regex.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "valueRegex(" + regex + ")";
+    }
+  }
+
+  /**
+   * @since 1.2.0
+   */
+  public static final class ValueRange extends ScanFilter {
+    private static final long serialVersionUID = 1L;
+    private final Bytes start;
+    private final boolean startInclusive;
+    private final Bytes end;
+    private final boolean endInclusive;
+
+    private ValueRange(Bytes start, boolean startInclusive, Bytes end, boolean endInclusive) {
+      this.start = Objects.requireNonNull(start);
+      this.startInclusive = startInclusive;
+      this.end = Objects.requireNonNull(end);
+      this.endInclusive = endInclusive;
+    }
+
+    public Bytes getStart() {
+      return start;
+    }
+
+    public boolean isStartInclusive() {
+      return startInclusive;
+    }
+
+    public Bytes getEnd() {
+      return end;
+    }
+
+    public boolean isEndInclusive() {
+      return endInclusive;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof ValueRange) {
+        ValueRange ovr = (ValueRange) o;
+        return start.equals(ovr.start) && startInclusive == ovr.startInclusive
+            && end.equals(ovr.end) && endInclusive == ovr.endInclusive;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(start, startInclusive, end, endInclusive);
+    }
+
+    @Override
+    public String toString() {
+      return "valueRange(" + (startInclusive ? "[" : "(") + start + "," + end
+          + (endInclusive ? "]" : ")") + ")";
+    }
+  }
+
+  /**
+   * @since 1.2.0
+   */
+  public static final class MaxColumnsPerRow extends ScanFilter {
+    private static final long serialVersionUID = 1L;
+    private final int max;
+
+    private MaxColumnsPerRow(int max) {
+      Preconditions.checkArgument(max > 0, "max must be positive : %s", max);
+      this.max = max;
+    }
+
+    public int getMax() {
+      return max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof MaxColumnsPerRow && max == ((MaxColumnsPerRow) o).max;
+    }
+
+    @Override
+    public int hashCode() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "maxColumnsPerRow(" + max + ")";
+    }
+  }
+
+  /**
+   * @since 1.2.0
+   */
+  public static final class RowSample extends ScanFilter {
+    private static final long serialVersionUID = 1L;
+    private final double fraction;
+
+    private RowSample(double fraction) {
+      Preconditions.checkArgument(fraction > 0 && fraction <= 1,
+          "fraction must be in (0, 1] : %s", fraction);
+      this.fraction = fraction;
+    }
+
+    public double getFraction() {
+      return fraction;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof RowSample && fraction == ((RowSample) o).fraction;
+    }
+
+    @Override
+    public int hashCode() {
+      return Double.hashCode(fraction);
+    }
+
+    @Override
+    public String toString() {
+      return "sampleRows(" + fraction + ")";
+    }
+  }
+}
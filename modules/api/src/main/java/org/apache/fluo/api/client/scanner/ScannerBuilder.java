@@ -141,11 +141,49 @@ public interface ScannerBuilder {
    */
   ScannerBuilder fetch(Collection<Column> columns);
 
+  /**
+   * Filters are run by tablet servers, so cells that do not pass every filter are not sent to the
+   * client. Calling this again replaces any previously set filters.
+   *
+   * @param filters restrict the scanner to cells that pass all of these filters
+   * @return self
+   * @since 1.2.0
+   */
+  default ScannerBuilder filter(ScanFilter... filters) {
+    throw new UnsupportedOperationException("Scan filters not supported by this implementation");
+  }
+
+  /**
+   * Filters are run by tablet servers, so cells that do not pass every filter are not sent to the
+   * client. Calling this again replaces any previously set filters.
+   *
+   * @param filters restrict the scanner to cells that pass all of these filters
+   * @return self
+   * @since 1.2.0
+   */
+  default ScannerBuilder filter(Collection<ScanFilter> filters) {
+    return filter(filters.toArray(new ScanFilter[filters.size()]));
+  }
+
   /**
    * @return a new scanner created with any previously set restrictions
    */
   CellScanner build();
 
+  /**
+   * Aggregates the cells within any previously set restrictions. The cells are aggregated by
+   * tablet servers and only the partial aggregates of each tablet are sent to the client, so this
+   * is much cheaper than aggregating the cells of a {@link CellScanner}. The aggregates are
+   * consistent with the snapshot, just like a scanner.
+   *
+   * @return the aggregates of the cells
+   * @throws IllegalArgumentException if a {@link ScanFilter#maxColumnsPerRow(int)} filter was set
+   * @since 1.2.0
+   */
+  default ScanAggregates aggregate() {
+    throw new UnsupportedOperationException("Aggregation not supported by this implementation");
+  }
+
   /**
    * Call this to build a row scanner.
    *
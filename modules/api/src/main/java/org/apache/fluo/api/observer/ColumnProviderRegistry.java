@@ -15,10 +15,12 @@
 
 package org.apache.fluo.api.observer;
 
+import java.util.Set;
 import java.util.function.BiConsumer;
 
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.observer.Observer.NotificationType;
+import org.apache.fluo.api.observer.ObserverProvider.Registry.IdentityOption;
 import org.apache.fluo.api.observer.ObserverProvider.Registry.ObserverArgument;
 
 // Intentionally package private
@@ -41,6 +43,11 @@ class ColumnProviderRegistry implements ObserverProvider.Registry.ObserverArgume
     return this;
   }
 
+  @Override
+  public IdentityOption withPrefetch(Set<Column> columns) {
+    return this;
+  }
+
   @Override
   public void useObserver(Observer observer) {
     colRegistry.accept(col, nt);
@@ -15,6 +15,7 @@
 
 package org.apache.fluo.api.observer;
 
+import java.util.Set;
 import java.util.function.BiConsumer;
 
 import org.apache.fluo.api.client.FluoClient;
@@ -111,6 +112,16 @@ public interface ObserverProvider {
        * the column name is used.
        */
       ObserverArgument withId(String identity);
+
+      /**
+       * Optionally declare the columns the observer will read from the row that triggered it.
+       * Workers may read these columns for queued notifications before the observer is called, so
+       * that the observer's reads of them do not have to wait on Accumulo. Declaring columns the
+       * observer does not read only wastes work.
+       *
+       * @since 1.2.0
+       */
+      IdentityOption withPrefetch(Set<Column> columns);
     }
 
     /**
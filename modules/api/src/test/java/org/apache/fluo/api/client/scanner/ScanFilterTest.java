@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.api.client.scanner;
+
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.fluo.api.data.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScanFilterTest {
+
+  @Test
+  public void testEquality() {
+    Assert.assertEquals(ScanFilter.valuePrefix("ab"), ScanFilter.valuePrefix(Bytes.of("ab")));
+    Assert.assertEquals(ScanFilter.valuePrefix("ab").hashCode(),
+        ScanFilter.valuePrefix(Bytes.of("ab")).hashCode());
+    Assert.assertNotEquals(ScanFilter.valuePrefix("ab"), ScanFilter.valueRegex("ab"));
+    Assert.assertEquals(ScanFilter.valueRegex("a.*"), ScanFilter.valueRegex("a.*"));
+    Assert.assertEquals(ScanFilter.valueRange(Bytes.of("a"), true, Bytes.EMPTY, false),
+        ScanFilter.valueRange(Bytes.of("a"), true, Bytes.EMPTY, false));
+    Assert.assertNotEquals(ScanFilter.valueRange(Bytes.of("a"), true, Bytes.EMPTY, false),
+        ScanFilter.valueRange(Bytes.of("a"), false, Bytes.EMPTY, false));
+    Assert.assertEquals(ScanFilter.maxColumnsPerRow(3), ScanFilter.maxColumnsPerRow(3));
+    Assert.assertNotEquals(ScanFilter.maxColumnsPerRow(3), ScanFilter.maxColumnsPerRow(4));
+    Assert.assertEquals(ScanFilter.sampleRows(.5), ScanFilter.sampleRows(.5));
+    Assert.assertNotEquals(ScanFilter.sampleRows(.5), ScanFilter.sampleRows(.25));
+  }
+
+  @Test
+  public void testToString() {
+    Assert.assertEquals("valuePrefix(ab)", ScanFilter.valuePrefix("ab").toString());
+    Assert.assertEquals("valueRange([a,b))",
+        ScanFilter.valueRange(Bytes.of("a"), true, Bytes.of("b"), false).toString());
+    Assert.assertEquals("maxColumnsPerRow(3)", ScanFilter.maxColumnsPerRow(3).toString());
+  }
+
+  @Test(expected = PatternSyntaxException.class)
+  public void testBadRegex() {
+    ScanFilter.valueRegex("a(");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadMaxColumns() {
+    ScanFilter.maxColumnsPerRow(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadFraction() {
+    ScanFilter.sampleRows(1.5);
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.TransactionImpl;
+import org.apache.fluo.core.impl.TransactionImpl.CommitData;
+import org.apache.fluo.core.oracle.Stamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.fluo.benchmark.MiniFluoState.DATA_COL;
+import static org.apache.fluo.benchmark.MiniFluoState.VALUE;
+
+/**
+ * Measures the latency of each phase of the commit protocol in isolation. Each benchmark method
+ * times a single phase, the phases before it are run during per invocation setup and the phases
+ * after it are run during per invocation tear down so that no locks are left behind.
+ *
+ * <p>
+ * The phases map to the commit steps in {@link TransactionImpl} as follows :
+ *
+ * <UL>
+ * <LI>lock : LockPrimaryStep and LockOtherStep
+ * <LI>commitStamp : the oracle request made by GetCommitStampStep
+ * <LI>commitPrimary : WriteNotificationsStep and CommitPrimaryStep
+ * <LI>finishCommit : DeleteLocksStep and FinishCommitStep
+ * </UL>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CommitStepBenchmark {
+
+  @State(Scope.Thread)
+  public static class TxState {
+
+    /**
+     * The number of rows written by each transaction, one of which will be the primary.
+     */
+    @Param({"1", "10"})
+    public int rowsPerTx;
+
+    private Environment env;
+    private TransactionImpl tx;
+    private CommitData cd;
+    private Stamp commitStamp;
+    private boolean locked;
+    private boolean primaryCommitted;
+    private boolean finished;
+
+    void init(MiniFluoState state) {
+      env = state.getEnvironment();
+      tx = new TransactionImpl(env);
+      for (int i = 0; i < rowsPerTx; i++) {
+        tx.set(state.nextRow(), DATA_COL, VALUE);
+      }
+      cd = tx.createCommitData();
+      commitStamp = null;
+      locked = false;
+      primaryCommitted = false;
+      finished = false;
+    }
+
+    void lock() {
+      Preconditions.checkState(tx.preCommit(cd), "Unexpected collision");
+      locked = true;
+    }
+
+    void getCommitStamp() {
+      commitStamp = env.getSharedResources().getOracleClient().getStamp();
+    }
+
+    void commitPrimary() {
+      Preconditions.checkState(tx.commitPrimaryColumn(cd, commitStamp), "Unexpected collision");
+      primaryCommitted = true;
+    }
+
+    void finishCommit(MiniFluoState state) {
+      tx.finishCommit(cd, commitStamp);
+      state.waitForAsyncFlush();
+      finished = true;
+    }
+
+    /**
+     * Runs whatever commit phases were not run yet and closes the transaction.
+     */
+    void complete(MiniFluoState state) {
+      if (!locked) {
+        lock();
+      }
+      if (commitStamp == null) {
+        getCommitStamp();
+      }
+      if (!primaryCommitted) {
+        commitPrimary();
+      }
+      if (!finished) {
+        finishCommit(state);
+      }
+      tx.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class LockState extends TxState {
+    @Setup(Level.Invocation)
+    public void setUp(MiniFluoState state) {
+      init(state);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(MiniFluoState state) {
+      complete(state);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class LockedState extends TxState {
+    @Setup(Level.Invocation)
+    public void setUp(MiniFluoState state) {
+      init(state);
+      lock();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(MiniFluoState state) {
+      complete(state);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class StampedState extends TxState {
+    @Setup(Level.Invocation)
+    public void setUp(MiniFluoState state) {
+      init(state);
+      lock();
+      getCommitStamp();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(MiniFluoState state) {
+      complete(state);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PrimaryCommittedState extends TxState {
+    @Setup(Level.Invocation)
+    public void setUp(MiniFluoState state) {
+      init(state);
+      lock();
+      getCommitStamp();
+      commitPrimary();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(MiniFluoState state) {
+      complete(state);
+    }
+  }
+
+  @Benchmark
+  public void lock(LockState txState) {
+    txState.lock();
+  }
+
+  @Benchmark
+  public void commitStamp(LockedState txState) {
+    txState.getCommitStamp();
+  }
+
+  @Benchmark
+  public void commitPrimary(StampedState txState) {
+    txState.commitPrimary();
+  }
+
+  @Benchmark
+  public void finishCommit(PrimaryCommittedState txState, MiniFluoState state) {
+    txState.finishCommit(state);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.fluo.accumulo.iterators.GarbageCollectionIterator;
+import org.apache.fluo.accumulo.util.ColumnConstants;
+import org.apache.fluo.accumulo.values.DelLockValue;
+import org.apache.fluo.accumulo.values.WriteValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures the time {@link GarbageCollectionIterator} takes to compact synthetic column histories,
+ * without MiniFluo. Each column has the data, write and tx done entries of committed transactions,
+ * with some rolled back transactions mixed in. Half of the transactions are older than the oldest
+ * active timestamp, so their versions can be dropped.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GarbageCollectionIteratorBenchmark {
+
+  private static final int TOTAL_TRANSACTIONS = 200_000;
+  private static final byte[] FAMILY = "f".getBytes(UTF_8);
+  private static final byte[] QUALIFIER = "q".getBytes(UTF_8);
+  private static final byte[] EMPTY = new byte[0];
+
+  @State(Scope.Thread)
+  public static class Histories {
+
+    /**
+     * The number of transactions that wrote to each column.
+     */
+    @Param({"1", "10", "100"})
+    public int versionsPerColumn;
+
+    @Param({"true", "false"})
+    public boolean fullMajc;
+
+    private SortedMap<Key, Value> data;
+    private IteratorSetting gcSetting;
+    private IteratorEnvironment env;
+
+    private static void put(SortedMap<Key, Value> data, byte[] row, long prefix, long ts,
+        byte[] val) {
+      data.put(new Key(row, FAMILY, QUALIFIER, EMPTY, prefix | ts), new Value(val));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      data = new TreeMap<>();
+      int numColumns = TOTAL_TRANSACTIONS / versionsPerColumn;
+      for (int c = 0; c < numColumns; c++) {
+        byte[] row = String.format("r%08d", c).getBytes(UTF_8);
+        for (int v = 0; v < versionsPerColumn; v++) {
+          long startTs = 10L * v + 1;
+          put(data, row, ColumnConstants.DATA_PREFIX, startTs, ("v" + v).getBytes(UTF_8));
+          if (v % 10 == 9) {
+            put(data, row, ColumnConstants.DEL_LOCK_PREFIX, startTs,
+                DelLockValue.encodeRollback(true, true));
+          } else {
+            long commitTs = startTs + 5;
+            put(data, row, ColumnConstants.WRITE_PREFIX, commitTs,
+                WriteValue.encode(startTs, true, false));
+            put(data, row, ColumnConstants.TX_DONE_PREFIX, commitTs, EMPTY);
+          }
+        }
+      }
+
+      gcSetting = new IteratorSetting(10, GarbageCollectionIterator.class);
+      GarbageCollectionIterator.setGcTimestamp(gcSetting, 10L * versionsPerColumn / 2);
+
+      // only the scope methods are used by the iterator
+      env = (IteratorEnvironment) Proxy.newProxyInstance(IteratorEnvironment.class.getClassLoader(),
+          new Class<?>[] {IteratorEnvironment.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getIteratorScope":
+                return IteratorScope.majc;
+              case "isFullMajorCompaction":
+                return fullMajc;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+  }
+
+  /**
+   * @return the number of entries kept, so that the work is not optimized away
+   */
+  @Benchmark
+  public long compact(Histories histories) throws IOException {
+    GarbageCollectionIterator gci = new GarbageCollectionIterator();
+    gci.init(new SortedMapIterator(histories.data), histories.gcSetting.getOptions(),
+        histories.env);
+    gci.seek(new Range(), Collections.emptySet(), false);
+
+    long kept = 0;
+    while (gci.hasTop()) {
+      kept++;
+      gci.next();
+    }
+    return kept;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.fluo.api.client.FluoFactory;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.mini.MiniFluo;
+import org.apache.fluo.api.observer.ObserverProvider;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.TransactionImpl;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static org.apache.fluo.api.observer.Observer.NotificationType.WEAK;
+
+/**
+ * Starts a MiniFluo instance (with its own MiniAccumulo) that is shared by all threads of a
+ * benchmark trial. Benchmarks drive {@link TransactionImpl} directly through the
+ * {@link Environment} created here so that the client side tracing and loader layers are not
+ * measured.
+ */
+@State(Scope.Benchmark)
+public class MiniFluoState {
+
+  public static final Column DATA_COL = new Column("data", "v");
+  public static final Column WEAK_COL = new Column("ntfy", "weak");
+  public static final Bytes VALUE = Bytes.of("0123456789abcdef0123456789abcdef");
+
+  /**
+   * The number of rows written during setup that read benchmarks use as existing data.
+   */
+  public static final int NUM_PRELOADED_ROWS = 1000;
+
+  public static class BenchObserverProvider implements ObserverProvider {
+    @Override
+    public void provide(Registry or, Context ctx) {
+      // the observer does nothing, it only exists so that weak notifications can be set
+      or.forColumn(WEAK_COL, WEAK).useObserver((tx, row, col) -> {
+      });
+    }
+  }
+
+  private final AtomicLong rowCounter = new AtomicLong(0);
+
+  private File dataDir;
+  private MiniFluo miniFluo;
+  private Environment env;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dataDir = Files.createTempDirectory("fluo-benchmark").toFile();
+
+    FluoConfiguration config = new FluoConfiguration();
+    config.setApplicationName("benchmark");
+    config.setMiniDataDir(dataDir.getAbsolutePath());
+    config.setMiniStartAccumulo(true);
+    config.setObserverProvider(BenchObserverProvider.class);
+
+    miniFluo = FluoFactory.newMiniFluo(config);
+    env = new Environment(new FluoConfiguration(miniFluo.getClientConfiguration()));
+
+    try (TransactionImpl tx = new TransactionImpl(env)) {
+      for (int i = 0; i < NUM_PRELOADED_ROWS; i++) {
+        tx.set(preloadedRow(i), DATA_COL, VALUE);
+      }
+      tx.commit();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    env.close();
+    miniFluo.close();
+    FileUtils.deleteQuietly(dataDir);
+  }
+
+  public Environment getEnvironment() {
+    return env;
+  }
+
+  /**
+   * @return a row that has never been written, so that concurrent benchmark threads never collide
+   */
+  public Bytes nextRow() {
+    return Bytes.of(String.format("w%016x", rowCounter.getAndIncrement()));
+  }
+
+  public static Bytes preloadedRow(int i) {
+    return Bytes.of(String.format("p%08d", Math.floorMod(i, NUM_PRELOADED_ROWS)));
+  }
+
+  /**
+   * Blocks until asynchronously written mutations, like those written by the final commit steps,
+   * are flushed to Accumulo.
+   */
+  public void waitForAsyncFlush() {
+    env.getSharedResources().getBatchWriter().waitForAsyncFlush();
+  }
+}
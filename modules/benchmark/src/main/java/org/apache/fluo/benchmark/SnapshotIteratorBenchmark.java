@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iterators.system.DeletingIterator;
+import org.apache.fluo.accumulo.iterators.SnapshotIterator;
+import org.apache.fluo.accumulo.util.ColumnConstants;
+import org.apache.fluo.accumulo.values.DelLockValue;
+import org.apache.fluo.accumulo.values.WriteValue;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures snapshot reads of columns with long histories by running {@link SnapshotIterator}
+ * directly over an in memory map, without MiniFluo. Besides the time, the seeks and cells of each
+ * scan are reported as secondary results so that seeks per cell can be compared. Returning read
+ * locks forces the iterator to read the del locks of every column.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SnapshotIteratorBenchmark {
+
+  private static final int TOTAL_TRANSACTIONS = 200_000;
+  private static final byte[] FAMILY = "f".getBytes(UTF_8);
+  private static final byte[] QUALIFIER = "q".getBytes(UTF_8);
+  private static final byte[] EMPTY = new byte[0];
+
+  /**
+   * Counts the seeks made by the snapshot iterator.
+   */
+  private static class SeekCountingIterator extends SortedMapIterator {
+
+    private long seeks = 0;
+
+    SeekCountingIterator(SortedMap<Key, Value> map) {
+      super(map);
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+        throws IOException {
+      seeks++;
+      super.seek(range, columnFamilies, inclusive);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Histories {
+
+    /**
+     * The number of transactions that wrote to each column.
+     */
+    @Param({"1", "10", "100"})
+    public int versionsPerColumn;
+
+    @Param({"true", "false"})
+    public boolean returnReadLocks;
+
+    /**
+     * The number of next calls made to skip within a column before seeking.
+     */
+    @Param({"0", "10", "100"})
+    public int maxNexts;
+
+    private SortedMap<Key, Value> data;
+    private IteratorSetting snapshotSetting;
+    private IteratorEnvironment env;
+
+    private static void put(SortedMap<Key, Value> data, byte[] row, long prefix, long ts,
+        byte[] val) {
+      data.put(new Key(row, FAMILY, QUALIFIER, EMPTY, prefix | ts), new Value(val));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      data = new TreeMap<>();
+      int numColumns = TOTAL_TRANSACTIONS / versionsPerColumn;
+      for (int c = 0; c < numColumns; c++) {
+        byte[] row = String.format("r%08d", c).getBytes(UTF_8);
+        for (int v = 0; v < versionsPerColumn; v++) {
+          long startTs = 10L * v + 1;
+          put(data, row, ColumnConstants.DATA_PREFIX, startTs, ("v" + v).getBytes(UTF_8));
+          if (v % 3 == 2) {
+            put(data, row, ColumnConstants.DEL_LOCK_PREFIX, startTs,
+                DelLockValue.encodeRollback(true, true));
+          } else {
+            put(data, row, ColumnConstants.WRITE_PREFIX, startTs + 5,
+                WriteValue.encode(startTs, true, false));
+          }
+        }
+      }
+
+      snapshotSetting = new IteratorSetting(10, SnapshotIterator.class);
+      SnapshotIterator.setSnaptime(snapshotSetting, 10L * versionsPerColumn + 10);
+      SnapshotIterator.setReturnReadLockPresent(snapshotSetting, returnReadLocks);
+      SnapshotIterator.setMaxNexts(snapshotSetting, maxNexts);
+
+      env = (IteratorEnvironment) Proxy.newProxyInstance(IteratorEnvironment.class.getClassLoader(),
+          new Class<?>[] {IteratorEnvironment.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getIteratorScope")) {
+              return IteratorScope.scan;
+            }
+            throw new UnsupportedOperationException(method.getName());
+          });
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ScanCounters {
+    public long seeks;
+    public long cells;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      seeks = 0;
+      cells = 0;
+    }
+  }
+
+  @Benchmark
+  public long scan(Histories histories, ScanCounters counters) throws IOException {
+    SeekCountingIterator source = new SeekCountingIterator(histories.data);
+
+    // Mimic the iterators of a tablet server, the snapshot iterator only seeks within a column
+    // after it removes the deleting iterator.
+    WrappingIterator top = new WrappingIterator() {};
+    top.init(new DeletingIterator(source, false), Collections.emptyMap(), histories.env);
+
+    SnapshotIterator si = new SnapshotIterator();
+    si.init(top, histories.snapshotSetting.getOptions(), histories.env);
+    si.seek(new Range(), Collections.emptySet(), false);
+
+    long cells = 0;
+    while (si.hasTop()) {
+      cells++;
+      si.next();
+    }
+
+    counters.seeks += source.seeks;
+    counters.cells += cells;
+    return cells;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.core.impl.TransactionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.fluo.benchmark.MiniFluoState.DATA_COL;
+import static org.apache.fluo.benchmark.MiniFluoState.VALUE;
+import static org.apache.fluo.benchmark.MiniFluoState.WEAK_COL;
+
+/**
+ * Measures the throughput and latency distribution of complete transactions (reads followed by
+ * commit) for common transaction shapes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+  /**
+   * Number of rows written by {@link #multiRow(MiniFluoState)}
+   */
+  @Param({"10"})
+  public int rowsPerTx;
+
+  private static Bytes randomPreloadedRow() {
+    return MiniFluoState
+        .preloadedRow(ThreadLocalRandom.current().nextInt(MiniFluoState.NUM_PRELOADED_ROWS));
+  }
+
+  @Benchmark
+  public void singleRow(MiniFluoState state) {
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      tx.set(state.nextRow(), DATA_COL, VALUE);
+      tx.commit();
+    }
+  }
+
+  @Benchmark
+  public void multiRow(MiniFluoState state) {
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      for (int i = 0; i < rowsPerTx; i++) {
+        tx.set(state.nextRow(), DATA_COL, VALUE);
+      }
+      tx.commit();
+    }
+  }
+
+  @Benchmark
+  public Bytes readOnly(MiniFluoState state) {
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      return tx.get(randomPreloadedRow(), DATA_COL);
+    }
+  }
+
+  @Benchmark
+  public Map<Bytes, Map<Column, Bytes>> readMultiRow(MiniFluoState state) {
+    List<Bytes> rows = new ArrayList<>(rowsPerTx);
+    for (int i = 0; i < rowsPerTx; i++) {
+      rows.add(randomPreloadedRow());
+    }
+
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      return tx.get(rows, ImmutableSet.of(DATA_COL));
+    }
+  }
+
+  @Benchmark
+  public void readWrite(MiniFluoState state) {
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      Bytes val = tx.get(randomPreloadedRow(), DATA_COL);
+      tx.set(state.nextRow(), DATA_COL, val);
+      tx.commit();
+    }
+  }
+
+  @Benchmark
+  public void readLock(MiniFluoState state) {
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      // read locks on the preloaded rows do not collide with each other
+      Bytes val = tx.withReadLock().get(randomPreloadedRow(), DATA_COL);
+      tx.set(state.nextRow(), DATA_COL, val);
+      tx.commit();
+    }
+  }
+
+  @Benchmark
+  public void weakNotification(MiniFluoState state) {
+    try (TransactionImpl tx = new TransactionImpl(state.getEnvironment())) {
+      Bytes row = state.nextRow();
+      tx.set(row, DATA_COL, VALUE);
+      tx.setWeakNotification(row, WEAK_COL);
+      tx.commit();
+    }
+  }
+}
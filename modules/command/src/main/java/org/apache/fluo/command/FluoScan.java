@@ -45,6 +45,11 @@ public class FluoScan {
     @Parameter(names = "-p", description = "Row prefix to scan")
     private String rowPrefix;
 
+    @Parameter(names = "--value-regex",
+        description = "Only show cells whose entire value matches this regular expression. "
+            + "The expression is evaluated by tablet servers. Can not be used with --raw.")
+    private String valueRegex;
+
     @Parameter(names = {"-esc", "--escape-non-ascii"}, help = true,
         description = "Hex encode non ascii bytes", arity = 1)
     public boolean hexEncNonAscii = true;
@@ -78,8 +83,8 @@ public class FluoScan {
     }
 
     public ScanUtil.ScanOpts getScanOpts() {
-      return new ScanUtil.ScanOpts(startRow, endRow, columns, exactRow, rowPrefix, help,
-          hexEncNonAscii, scanAccumuloTable);
+      return new ScanUtil.ScanOpts(startRow, endRow, columns, exactRow, rowPrefix, valueRegex,
+          help, hexEncNonAscii, scanAccumuloTable);
     }
 
     public static ScanOptions parse(String[] args) {
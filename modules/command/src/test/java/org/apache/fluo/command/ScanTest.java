@@ -15,7 +15,10 @@
 
 package org.apache.fluo.command;
 
+import java.util.Collections;
+
 import com.beust.jcommander.JCommander;
+import org.apache.fluo.api.client.scanner.ScanFilter;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.api.data.Span;
@@ -34,7 +37,8 @@ public class ScanTest {
     JCommander jcommand = new JCommander(options);
     jcommand.parse(args.split(" "));
     ScanUtil.ScanOpts opts = options.getScanOpts();
-    return new SnapshotScanner.Opts(ScanUtil.getSpan(opts), ScanUtil.getColumns(opts), false);
+    return new SnapshotScanner.Opts(ScanUtil.getSpan(opts), ScanUtil.getColumns(opts), false,
+        ScanUtil.getFilters(opts));
   }
 
   @Test
@@ -72,6 +76,11 @@ public class ScanTest {
     Assert.assertEquals(Span.exact("exactRow"), config.getSpan());
     Assert.assertEquals(0, config.getColumns().size());
 
+    config = parseArgs("-a app -p myprefix --value-regex v.*");
+    Assert.assertEquals(Span.prefix("myprefix"), config.getSpan());
+    Assert.assertEquals(Collections.singletonList(ScanFilter.valueRegex("v.*")),
+        config.getFilters());
+
     config = parseArgs("-a app -c cf1:cq1,cf2:cq2");
     Assert.assertEquals(RowColumn.EMPTY, config.getSpan().getStart());
     Assert.assertEquals(RowColumn.EMPTY, config.getSpan().getEnd());
@@ -103,5 +112,11 @@ public class ScanTest {
       Assert.fail();
     } catch (IllegalArgumentException e) {
     }
+
+    try {
+      parseArgs("-a app --value-regex v(");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+    }
   }
 }
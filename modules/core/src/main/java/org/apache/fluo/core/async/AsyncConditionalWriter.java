@@ -15,41 +15,122 @@
 
 package org.apache.fluo.core.async;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableList.Builder;
+import com.codahale.metrics.Gauge;
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.accumulo.core.client.ConditionalWriter;
 import org.apache.accumulo.core.client.ConditionalWriter.Result;
 import org.apache.accumulo.core.data.ConditionalMutation;
 import org.apache.fluo.core.impl.Environment;
 import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.util.AdaptiveLimit;
 import org.apache.fluo.core.util.FluoExecutors;
-import org.apache.fluo.core.util.Limit;
 
+/**
+ * Writes conditional mutations asynchronously. Mutations passed to concurrent calls to
+ * {@link #apply(Collection)} are grouped into a single call to the {@link ConditionalWriter}, so
+ * that many small concurrently committing transactions share RPCs. A group is written as soon as a
+ * thread is available to write it, optionally after waiting a configured delay for more mutations.
+ *
+ * <p>
+ * Results returned by the ConditionalWriter contain copies of the mutations written, so results are
+ * matched to callers by row. Mutations from different callers for the same row are never placed in
+ * the same group.
+ */
 public class AsyncConditionalWriter {
 
   private final ConditionalWriter cw;
   private final ExecutorService es;
-  private final Limit semaphore;
+  private final AdaptiveLimit semaphore;
+  private final long groupDelayNanos;
+  private final int groupMaxMutations;
 
+  private final ConcurrentLinkedDeque<Batch> pending = new ConcurrentLinkedDeque<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+  private volatile boolean closed = false;
+  // set while a flush waits for more mutations, so it can be woken when its group is full
+  private volatile Thread waitingFlush = null;
 
-  public AsyncConditionalWriter(Environment env, ConditionalWriter cw) {
-    this.cw = cw;
-    int numThreads = env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_CW_THREADS,
-        FluoConfigurationImpl.ASYNC_CW_THREADS_DEFAULT);
-    int permits = env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_CW_LIMIT,
-        FluoConfigurationImpl.ASYNC_CW_LIMIT_DEFAULT);
-    this.es = FluoExecutors.newFixedThreadPool(numThreads, "asyncCw");
+  // the mutations passed to a single call to apply()
+  private class Batch {
+    final Collection<ConditionalMutation> mutations;
+    final CompletableFuture<Iterator<Result>> future = new CompletableFuture<>();
+    final long startTime = System.nanoTime();
+    final List<Result> results;
+
+    Batch(Collection<ConditionalMutation> mutations) {
+      this.mutations = mutations;
+      this.results = new ArrayList<>(mutations.size());
+    }
+
+    void addResult(Result result) {
+      results.add(result);
+      if (results.size() == mutations.size()) {
+        semaphore.release(mutations.size(), System.nanoTime() - startTime);
+        future.complete(Collections.unmodifiableList(results).iterator());
+      }
+    }
+
+    void fail(Throwable t) {
+      if (!future.isDone()) {
+        semaphore.release(mutations.size());
+        future.completeExceptionally(t);
+      }
+    }
+  }
+
+  /**
+   * @param name used to identify this writer in metrics
+   */
+  public AsyncConditionalWriter(Environment env, ConditionalWriter cw, String name) {
     // the conditional writer currently has not memory limits... give it too much and it blows out
     // memory.. need to fix this in conditional writer
     // for now this needs to be memory based
-    this.semaphore = new Limit(permits);
+    this(cw,
+        FluoExecutors.newFixedThreadPool(
+            env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_CW_THREADS,
+                FluoConfigurationImpl.ASYNC_CW_THREADS_DEFAULT),
+            "asyncCw"),
+        AdaptiveLimit.create(
+            env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_CW_LIMIT,
+                FluoConfigurationImpl.ASYNC_CW_LIMIT_DEFAULT),
+            FluoConfigurationImpl.getAdaptiveLimits(env.getConfiguration())),
+        FluoConfigurationImpl.getAsyncCwGroupDelay(env.getConfiguration(), TimeUnit.NANOSECONDS),
+        FluoConfigurationImpl.getAsyncCwGroupMaxMutations(env.getConfiguration()));
+
+    env.getSharedResources().getMetricRegistry()
+        .register(env.getMetricNames().getAsyncCwLimit(name), new Gauge<Integer>() {
+          @Override
+          public Integer getValue() {
+            return semaphore.permits();
+          }
+        });
+  }
+
+  @VisibleForTesting
+  AsyncConditionalWriter(ConditionalWriter cw, ExecutorService es, AdaptiveLimit semaphore,
+      long groupDelayNanos, int groupMaxMutations) {
+    this.cw = cw;
+    this.es = es;
+    this.semaphore = semaphore;
+    this.groupDelayNanos = groupDelayNanos;
+    this.groupMaxMutations = groupMaxMutations;
   }
 
   public CompletableFuture<Iterator<Result>> apply(Collection<ConditionalMutation> input) {
@@ -58,27 +139,157 @@ public class AsyncConditionalWriter {
     }
 
     semaphore.acquire(input.size());
-    Iterator<Result> iter = cw.write(input.iterator());
-    return CompletableFuture.supplyAsync(() -> {
+    Batch batch = new Batch(input);
+    pending.add(batch);
+    if (closed) {
+      failPending(new IllegalStateException("Conditional writer is closed"));
+    } else {
+      scheduleFlush();
+      Thread waiter = waitingFlush;
+      if (waiter != null) {
+        LockSupport.unpark(waiter);
+      }
+    }
+    return batch.future;
+  }
+
+  private void scheduleFlush() {
+    if (flushScheduled.compareAndSet(false, true)) {
       try {
-        Builder<Result> imlb = ImmutableList.builder();
-        while (iter.hasNext()) {
-          Result result = iter.next();
-          imlb.add(result);
+        es.execute(this::flush);
+      } catch (RuntimeException e) {
+        flushScheduled.set(false);
+        failPending(e);
+      }
+    }
+  }
+
+  private void failPending(Throwable t) {
+    Batch batch;
+    while ((batch = pending.poll()) != null) {
+      batch.fail(t);
+    }
+  }
+
+  private void flush() {
+    Batch first = pending.peek();
+    if (first != null && groupDelayNanos > 0) {
+      long deadline = first.startTime + groupDelayNanos;
+      long now;
+      waitingFlush = Thread.currentThread();
+      try {
+        while (countPending() < groupMaxMutations && (now = System.nanoTime()) < deadline) {
+          LockSupport.parkNanos(deadline - now);
         }
-        return imlb.build().iterator();
       } finally {
-        semaphore.release(input.size());
+        waitingFlush = null;
+      }
+    }
+
+    // allow another flush to be scheduled before draining, so that mutations added while this
+    // group is written are not stranded
+    flushScheduled.set(false);
+
+    List<Batch> group = new ArrayList<>();
+    Map<ByteBuffer, Batch> rows = new HashMap<>();
+    List<Batch> deferred = new ArrayList<>();
+    int numMutations = 0;
+    Batch batch;
+    while (numMutations < groupMaxMutations && (batch = pending.poll()) != null) {
+      if (addToGroup(batch, rows)) {
+        group.add(batch);
+        numMutations += batch.mutations.size();
+      } else {
+        deferred.add(batch);
+      }
+    }
+
+    for (int i = deferred.size() - 1; i >= 0; i--) {
+      pending.addFirst(deferred.get(i));
+    }
+
+    if (!pending.isEmpty()) {
+      scheduleFlush();
+    }
+
+    if (group.isEmpty()) {
+      return;
+    }
+
+    write(group, rows);
+  }
+
+  /**
+   * @return false if the batch has a row that another batch in the group has
+   */
+  private boolean addToGroup(Batch batch, Map<ByteBuffer, Batch> rows) {
+    Set<ByteBuffer> batchRows = new HashSet<>();
+    for (ConditionalMutation cm : batch.mutations) {
+      ByteBuffer row = ByteBuffer.wrap(cm.getRow());
+      Batch other = rows.get(row);
+      if (other != null && other != batch) {
+        return false;
       }
-    }, es);
+      batchRows.add(row);
+    }
+
+    for (ByteBuffer row : batchRows) {
+      rows.put(row, batch);
+    }
+
+    return true;
+  }
+
+  private int countPending() {
+    int count = 0;
+    for (Batch batch : pending) {
+      count += batch.mutations.size();
+      if (count >= groupMaxMutations) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  private void write(List<Batch> group, Map<ByteBuffer, Batch> rows) {
+    try {
+      Iterator<Result> iter;
+      if (group.size() == 1) {
+        iter = cw.write(group.get(0).mutations.iterator());
+      } else {
+        iter = cw.write(group.stream().flatMap(b -> b.mutations.stream()).iterator());
+      }
+
+      while (iter.hasNext()) {
+        Result result = iter.next();
+        if (group.size() == 1) {
+          group.get(0).addResult(result);
+        } else {
+          rows.get(ByteBuffer.wrap(result.getMutation().getRow())).addResult(result);
+        }
+      }
+
+      for (Batch batch : group) {
+        batch.fail(new IllegalStateException("Missing conditional writer results"));
+      }
+    } catch (Exception e) {
+      for (Batch batch : group) {
+        batch.fail(e);
+      }
+    }
   }
 
   public void close() {
+    closed = true;
     es.shutdownNow();
     try {
       es.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
+    } finally {
+      // flush tasks that never ran were discarded by shutdownNow(), so nothing will write the
+      // mutations still queued
+      failPending(new IllegalStateException("Conditional writer is closed"));
     }
   }
 }
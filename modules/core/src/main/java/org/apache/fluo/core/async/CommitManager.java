@@ -22,7 +22,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import com.codahale.metrics.Gauge;
 import org.apache.fluo.core.impl.Environment;
 import org.apache.fluo.core.impl.FluoConfigurationImpl;
-import org.apache.fluo.core.util.Limit;
+import org.apache.fluo.core.util.AdaptiveLimit;
 import org.apache.fluo.core.worker.TxResult;
 import org.slf4j.LoggerFactory;
 
@@ -37,13 +37,22 @@ import org.slf4j.LoggerFactory;
 
 public class CommitManager {
 
-  private Limit memoryLimit;
+  private AdaptiveLimit memoryLimit;
   private AtomicInteger commitingTransactions;
 
   public CommitManager(final Environment env) {
-    memoryLimit = new Limit(FluoConfigurationImpl.getTxCommitMemory(env.getConfiguration()));
+    memoryLimit = AdaptiveLimit.create(FluoConfigurationImpl.getTxCommitMemory(env
+        .getConfiguration()), FluoConfigurationImpl.getAdaptiveLimits(env.getConfiguration()));
     commitingTransactions = new AtomicInteger(0);
 
+    env.getSharedResources().getMetricRegistry()
+        .register(env.getMetricNames().getCommitMemoryLimit(), new Gauge<Integer>() {
+          @Override
+          public Integer getValue() {
+            return memoryLimit.permits();
+          }
+        });
+
     env.getSharedResources().getMetricRegistry()
         .register(env.getMetricNames().getCommitsProcessing(), new Gauge<Integer>() {
           @Override
@@ -61,13 +70,18 @@ public class CommitManager {
     private final int size;
     private final AtomicBoolean finished = new AtomicBoolean(false);
     private final String alias;
+    private final long startTime = System.nanoTime();
 
     private void finish(TxResult status) {
       if (finished.compareAndSet(false, true)) {
         commitingTransactions.decrementAndGet();
         tx.getStats().setCommitFinishTime(System.currentTimeMillis());
         tx.getStats().report(status.toString(), alias);
-        memoryLimit.release(size);
+        if (status == TxResult.COMMITTED) {
+          memoryLimit.release(size, System.nanoTime() - startTime);
+        } else {
+          memoryLimit.release(size);
+        }
         try {
           tx.close();
         } catch (Exception e) {
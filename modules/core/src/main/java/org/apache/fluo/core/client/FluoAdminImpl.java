@@ -299,6 +299,10 @@ public class FluoAdminImpl implements FluoAdmin {
     // the order relative to gc iter should not matter
     IteratorSetting ntfyIter =
         new IteratorSetting(11, ColumnConstants.NOTIFY_CF.toString(), NotificationIterator.class);
+    if (config.getBoolean(FluoConfigurationImpl.NTFY_COALESCE_PROP,
+        FluoConfigurationImpl.NTFY_COALESCE_DEFAULT)) {
+      NotificationIterator.setCoalesce(ntfyIter);
+    }
 
     for (IteratorSetting setting : new IteratorSetting[] {gcIter, ntfyIter}) {
       for (IteratorScope scope : EnumSet.of(IteratorUtil.IteratorScope.majc,
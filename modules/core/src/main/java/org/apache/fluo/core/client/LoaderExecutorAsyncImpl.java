@@ -31,6 +31,8 @@ import org.apache.fluo.api.metrics.MetricsReporter;
 import org.apache.fluo.core.async.AsyncCommitObserver;
 import org.apache.fluo.core.async.AsyncTransaction;
 import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.impl.TimestampBatcher;
 import org.apache.fluo.core.impl.TransactionImpl;
 import org.apache.fluo.core.log.TracingTransaction;
 import org.apache.fluo.core.util.Counter;
@@ -45,6 +47,7 @@ public class LoaderExecutorAsyncImpl implements LoaderExecutor {
 
   private final AtomicReference<Throwable> exceptionRef = new AtomicReference<>(null);
   private final Environment env;
+  private final TimestampBatcher timestampBatcher;
 
   private final Counter commiting = new Counter();
 
@@ -61,6 +64,9 @@ public class LoaderExecutorAsyncImpl implements LoaderExecutor {
     Loader loader;
     private AtomicBoolean done = new AtomicBoolean(false);
     private String identity;
+    // a batched start timestamp is only used if it was requested from the oracle after this time,
+    // so the transaction sees everything committed before the loader was executed or retried
+    private volatile long requestTime = System.nanoTime();
 
     private void close() {
       txi = null;
@@ -103,13 +109,15 @@ public class LoaderExecutorAsyncImpl implements LoaderExecutor {
     @Override
     public void commitFailed(String msg) {
       txi = null;
+      requestTime = System.nanoTime();
       // retry transaction
       executor.submit(this);
     }
 
     @Override
     public void run() {
-      txi = new TransactionImpl(env);
+      txi = new TransactionImpl(env,
+          timestampBatcher.allocateTimestamp(Long.MIN_VALUE, requestTime).getTxTimestamp());
 
       if (TracingTransaction.isTracingEnabled()) {
         txi = new TracingTransaction(txi, loader.getClass(), identity);
@@ -178,8 +186,13 @@ public class LoaderExecutorAsyncImpl implements LoaderExecutor {
     if (numThreads == 0) {
       this.executor = MoreExecutors.sameThreadExecutor();
     } else {
-      this.executor = FluoExecutors.newFixedThreadPool(numThreads, "loader");
+      this.executor = FluoExecutors.newFixedThreadPool(numThreads, "loader",
+          FluoConfigurationImpl.getLoaderVirtualThreads(config));
     }
+
+    // permits taken from the semaphore are loaders queued and waiting to start a transaction
+    this.timestampBatcher =
+        new TimestampBatcher(env, () -> semaphoreSize - semaphore.availablePermits());
   }
 
   @Override
@@ -233,6 +246,8 @@ public class LoaderExecutorAsyncImpl implements LoaderExecutor {
         }
       }
 
+      timestampBatcher.close();
+
       if (exceptionRef.get() != null) {
         throw new RuntimeException(exceptionRef.get());
       }
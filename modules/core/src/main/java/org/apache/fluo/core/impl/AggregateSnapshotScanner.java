@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.google.common.base.Preconditions;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.fluo.accumulo.iterators.AggregatingIterator;
+import org.apache.fluo.accumulo.util.ColumnConstants;
+import org.apache.fluo.accumulo.values.AggregateValue;
+import org.apache.fluo.api.client.scanner.ScanAggregates;
+import org.apache.fluo.api.client.scanner.ScanFilter;
+import org.apache.fluo.core.util.SpanUtil;
+import org.apache.fluo.core.util.UtilWaitThread;
+
+/**
+ * Aggregates the cells of a snapshot using an {@link AggregatingIterator} on each tablet and
+ * merges the partial aggregates. Columns that were locked are aggregated again after their locks
+ * are resolved, the same way {@link ParallelSnapshotScanner} rereads locked columns.
+ */
+public class AggregateSnapshotScanner {
+
+  private final Environment env;
+  private final SnapshotScanner.Opts opts;
+  private final long startTs;
+  private final TxStats stats;
+  private List<Range> rangesToScan = new ArrayList<>();
+
+  AggregateSnapshotScanner(Environment env, SnapshotScanner.Opts opts, long startTs,
+      TxStats stats) {
+    for (ScanFilter filter : opts.getFilters()) {
+      // the server side column limit is not exact and columns are reread after locks
+      Preconditions.checkArgument(!(filter instanceof ScanFilter.MaxColumnsPerRow),
+          "Can not aggregate with filter %s", filter);
+    }
+    this.env = env;
+    this.opts = opts;
+    this.startTs = startTs;
+    this.stats = stats;
+    rangesToScan.add(SpanUtil.toRange(opts.getSpan()));
+  }
+
+  private BatchScanner setupBatchScanner() {
+    BatchScanner scanner;
+    try {
+      scanner = env.getConnector().createBatchScanner(env.getTable(), env.getAuthorizations(),
+          FluoConfigurationImpl.getSnapshotAggregateThreads(env.getConfiguration()));
+    } catch (TableNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+
+    scanner.clearColumns();
+    scanner.clearScanIterators();
+    scanner.setRanges(rangesToScan);
+
+    SnapshotScanner.setupScanner(env, scanner, opts.getColumns(), startTs, false);
+    SnapshotScanner.setupFilters(scanner, opts.getFilters());
+    scanner.addScanIterator(new IteratorSetting(11 + opts.getFilters().size(), "aggregate",
+        AggregatingIterator.class));
+
+    return scanner;
+  }
+
+  private void scan(AggregateValue total, List<Entry<Key, Value>> locks) {
+    BatchScanner bs = setupBatchScanner();
+    try {
+      for (Entry<Key, Value> entry : bs) {
+        long colType = entry.getKey().getTimestamp() & ColumnConstants.PREFIX_MASK;
+
+        if (colType == ColumnConstants.LOCK_PREFIX) {
+          locks.add(entry);
+        } else if (colType == ColumnConstants.DATA_PREFIX) {
+          total.merge(new AggregateValue(entry.getValue().get()));
+        } else {
+          throw new IllegalArgumentException("Unexpected column type " + colType);
+        }
+      }
+    } finally {
+      bs.close();
+    }
+  }
+
+  public ScanAggregates aggregate() {
+    long waitTime = SnapshotScanner.INITIAL_WAIT_TIME;
+    long startTime = System.currentTimeMillis();
+
+    AggregateValue total = new AggregateValue();
+
+    while (true) {
+      List<Entry<Key, Value>> locks = new ArrayList<>();
+
+      scan(total, locks);
+
+      if (locks.isEmpty()) {
+        return new ScanAggregates(total.getCount(), total.getNumericCount(), total.getSum(),
+            total.getMin(), total.getMax());
+      }
+
+      boolean resolvedAll = LockResolver.resolveLocks(env, startTs, stats, locks, startTime);
+
+      if (!resolvedAll) {
+        UtilWaitThread.sleep(waitTime);
+        stats.incrementLockWaitTime(waitTime);
+        waitTime = Math.min(SnapshotScanner.MAX_WAIT_TIME, waitTime * 2);
+      }
+
+      // nothing was aggregated for the locked columns, so only rescan them
+      rangesToScan = new ArrayList<>(locks.size());
+      for (Entry<Key, Value> entry : locks) {
+        Key start = new Key(entry.getKey());
+        start.setTimestamp(Long.MAX_VALUE);
+        Key end = new Key(entry.getKey());
+        end.setTimestamp(Long.MIN_VALUE);
+        rangesToScan.add(new Range(start, true, end, true));
+      }
+    }
+  }
+}
@@ -0,0 +1,454 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+
+/**
+ * A write buffer for transactions that change a lot of data. Keys and values are appended to large
+ * byte arrays and found using an open addressing hash table of longs, so the buffer holds a few
+ * large objects instead of several small objects per row column. Only the rows are kept as objects,
+ * in order to group row columns by row.
+ *
+ * <p>
+ * Overwritten and removed entries are not reclaimed until the buffer is cleared. Objects are
+ * created for keys and values as they are read, so reading is slower than with
+ * {@link HeapWriteBuffer}.
+ */
+class ArenaWriteBuffer implements WriteBuffer {
+
+  static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private static final long EMPTY = -1;
+  private static final long REMOVED = -2;
+
+  private static final byte LIVE = 1;
+  private static final byte DEAD = 0;
+
+  private static class RowEntries {
+    long[] addrs = new long[4];
+    int count = 0;
+    int live = 0;
+
+    void add(long addr) {
+      if (count == addrs.length) {
+        addrs = Arrays.copyOf(addrs, count * 2);
+      }
+      addrs[count++] = addr;
+    }
+  }
+
+  // special values are stored as an index into this array and are returned by identity
+  private final Bytes[] specialValues;
+  private final int chunkSize;
+
+  private final List<byte[]> chunks = new ArrayList<>();
+  private byte[] chunk;
+  private int chunkPos;
+
+  private long[] slots;
+  private int[] hashes;
+  private int usedSlots = 0;
+
+  private final Map<Bytes, RowEntries> rows = new LinkedHashMap<>();
+  private int numEntries = 0;
+  private long size = 0;
+
+  ArenaWriteBuffer(Bytes... specialValues) {
+    this(DEFAULT_CHUNK_SIZE, specialValues);
+  }
+
+  ArenaWriteBuffer(int chunkSize, Bytes... specialValues) {
+    Preconditions.checkArgument(chunkSize > 0);
+    this.chunkSize = chunkSize;
+    this.specialValues = specialValues;
+    initSlots(1024);
+  }
+
+  private void initSlots(int capacity) {
+    slots = new long[capacity];
+    Arrays.fill(slots, EMPTY);
+    hashes = new int[capacity];
+    usedSlots = 0;
+  }
+
+  private static int hash(Bytes row, Column col) {
+    int h = 31 * row.hashCode() + col.hashCode();
+    // spread the bits because the table size is a power of two
+    return h ^ (h >>> 16);
+  }
+
+  private static int readInt(byte[] b, int off) {
+    return ((b[off] & 0xff) << 24) | ((b[off + 1] & 0xff) << 16) | ((b[off + 2] & 0xff) << 8)
+        | (b[off + 3] & 0xff);
+  }
+
+  private static void writeInt(byte[] b, int off, int v) {
+    b[off] = (byte) (v >>> 24);
+    b[off + 1] = (byte) (v >>> 16);
+    b[off + 2] = (byte) (v >>> 8);
+    b[off + 3] = (byte) v;
+  }
+
+  private static int writeBytes(byte[] b, int off, Bytes bytes) {
+    writeInt(b, off, bytes.length());
+    bytes.copyTo(b, off + 4);
+    return off + 4 + bytes.length();
+  }
+
+  private byte[] chunk(long addr) {
+    return chunks.get((int) (addr >>> 32));
+  }
+
+  private static int offset(long addr) {
+    return (int) addr;
+  }
+
+  private static boolean contentEquals(Bytes bytes, byte[] b, int off, int len) {
+    if (bytes.length() != len) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (bytes.byteAt(i) != b[off + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compares the key at addr with each field of the row and column. Stops at the first field that
+   * differs.
+   */
+  private boolean keyEquals(long addr, Bytes row, Column col) {
+    byte[] b = chunk(addr);
+    int off = offset(addr) + 1;
+
+    if (!contentEquals(row, b, off + 4, readInt(b, off))) {
+      return false;
+    }
+    off = skip(b, off);
+
+    if (!contentEquals(col.getFamily(), b, off + 4, readInt(b, off))) {
+      return false;
+    }
+    off = skip(b, off);
+
+    if (!contentEquals(col.getQualifier(), b, off + 4, readInt(b, off))) {
+      return false;
+    }
+    off = skip(b, off);
+
+    return contentEquals(col.getVisibility(), b, off + 4, readInt(b, off));
+  }
+
+  private static int skip(byte[] b, int off) {
+    return off + 4 + readInt(b, off);
+  }
+
+  private static Bytes readBytes(byte[] b, int off) {
+    return Bytes.of(b, off + 4, readInt(b, off));
+  }
+
+  private int valueOffset(long addr) {
+    byte[] b = chunk(addr);
+    int off = offset(addr) + 1;
+    for (int i = 0; i < 4; i++) {
+      off = skip(b, off);
+    }
+    return off;
+  }
+
+  private Bytes readValue(long addr) {
+    byte[] b = chunk(addr);
+    int off = valueOffset(addr);
+    int len = readInt(b, off);
+    if (len < 0) {
+      return specialValues[-len - 1];
+    }
+    return Bytes.of(b, off + 4, len);
+  }
+
+  private long entrySize(long addr) {
+    byte[] b = chunk(addr);
+    int start = offset(addr) + 1;
+    int off = valueOffset(addr);
+    int valLen = readInt(b, off);
+    int rowLen = readInt(b, start);
+    long colSize = off - start - 16 - rowLen;
+    return colSize + (valLen < 0 ? specialValues[-valLen - 1].length() : valLen);
+  }
+
+  private Column readColumn(long addr) {
+    byte[] b = chunk(addr);
+    int off = skip(b, offset(addr) + 1);
+    Bytes fam = readBytes(b, off);
+    off = skip(b, off);
+    Bytes qual = readBytes(b, off);
+    off = skip(b, off);
+    Bytes vis = readBytes(b, off);
+    return new Column(fam, qual, vis);
+  }
+
+  private boolean isLive(long addr) {
+    return chunk(addr)[offset(addr)] == LIVE;
+  }
+
+  private void markDead(long addr) {
+    chunk(addr)[offset(addr)] = DEAD;
+  }
+
+  /**
+   * @return the slot index of the key if present, otherwise -(empty slot index + 1)
+   */
+  private int findSlot(int hash, Bytes row, Column col) {
+    int mask = slots.length - 1;
+    int i = hash & mask;
+    while (true) {
+      long addr = slots[i];
+      if (addr == EMPTY) {
+        return -(i + 1);
+      }
+      if (addr != REMOVED && hashes[i] == hash && keyEquals(addr, row, col)) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  private void resizeSlots() {
+    long[] oldSlots = slots;
+    int[] oldHashes = hashes;
+
+    int capacity = slots.length;
+    // when most used slots are removed entries, rehashing into the same capacity drops them
+    if (numEntries * 4 >= capacity) {
+      capacity *= 2;
+    }
+    initSlots(capacity);
+
+    int mask = capacity - 1;
+    for (int i = 0; i < oldSlots.length; i++) {
+      long addr = oldSlots[i];
+      if (addr != EMPTY && addr != REMOVED) {
+        int j = oldHashes[i] & mask;
+        while (slots[j] != EMPTY) {
+          j = (j + 1) & mask;
+        }
+        slots[j] = addr;
+        hashes[j] = oldHashes[i];
+        usedSlots++;
+      }
+    }
+  }
+
+  private long append(Bytes row, Column col, Bytes val) {
+    // special values are stored as a negative length
+    int valLen = 0;
+    for (int i = 0; i < specialValues.length; i++) {
+      if (val == specialValues[i]) {
+        valLen = -(i + 1);
+        break;
+      }
+    }
+
+    Bytes fam = col.getFamily();
+    Bytes qual = col.getQualifier();
+    Bytes vis = col.getVisibility();
+
+    long entryLen = 1L + 20 + row.length() + fam.length() + qual.length() + vis.length()
+        + (valLen < 0 ? 0 : val.length());
+    Preconditions.checkArgument(entryLen <= Integer.MAX_VALUE, "Entry too large");
+
+    if (chunk == null || chunkPos + entryLen > chunk.length) {
+      chunk = new byte[(int) Math.max(chunkSize, entryLen)];
+      chunks.add(chunk);
+      chunkPos = 0;
+    }
+
+    long addr = ((long) (chunks.size() - 1) << 32) | chunkPos;
+
+    byte[] b = chunk;
+    int off = chunkPos;
+    b[off++] = LIVE;
+    off = writeBytes(b, off, row);
+    off = writeBytes(b, off, fam);
+    off = writeBytes(b, off, qual);
+    off = writeBytes(b, off, vis);
+
+    if (valLen < 0) {
+      writeInt(b, off, valLen);
+      off += 4;
+    } else {
+      off = writeBytes(b, off, val);
+    }
+
+    chunkPos = off;
+    return addr;
+  }
+
+  @Override
+  public Bytes get(Bytes row, Column col) {
+    int slot = findSlot(hash(row, col), row, col);
+    if (slot < 0) {
+      return null;
+    }
+    return readValue(slots[slot]);
+  }
+
+  @Override
+  public Map<Column, Bytes> getRow(Bytes row) {
+    RowEntries entries = rows.get(row);
+    if (entries == null) {
+      return null;
+    }
+    return materialize(entries);
+  }
+
+  private Map<Column, Bytes> materialize(RowEntries entries) {
+    Map<Column, Bytes> ret = new HashMap<>();
+    for (int i = 0; i < entries.count; i++) {
+      long addr = entries.addrs[i];
+      if (isLive(addr)) {
+        ret.put(readColumn(addr), readValue(addr));
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public void put(Bytes row, Column col, Bytes val) {
+    int hash = hash(row, col);
+    int slot = findSlot(hash, row, col);
+
+    long addr = append(row, col, val);
+    size += HeapWriteBuffer.size(col, val);
+
+    RowEntries entries = rows.get(row);
+    if (entries == null) {
+      entries = new RowEntries();
+      rows.put(row, entries);
+      size += row.length();
+    }
+    entries.add(addr);
+
+    if (slot >= 0) {
+      long oldAddr = slots[slot];
+      size -= entrySize(oldAddr);
+      markDead(oldAddr);
+      slots[slot] = addr;
+    } else {
+      slot = -slot - 1;
+      slots[slot] = addr;
+      hashes[slot] = hash;
+      usedSlots++;
+      numEntries++;
+      entries.live++;
+      if (usedSlots * 2 > slots.length) {
+        resizeSlots();
+      }
+    }
+  }
+
+  @Override
+  public Bytes remove(Bytes row, Column col) {
+    int slot = findSlot(hash(row, col), row, col);
+    if (slot < 0) {
+      return null;
+    }
+
+    long addr = slots[slot];
+    Bytes prev = readValue(addr);
+    size -= entrySize(addr);
+    markDead(addr);
+    slots[slot] = REMOVED;
+    numEntries--;
+
+    RowEntries entries = rows.get(row);
+    if (--entries.live == 0) {
+      rows.remove(row);
+      size -= row.length();
+    }
+
+    return prev;
+  }
+
+  @Override
+  public Iterable<Entry<Bytes, Map<Column, Bytes>>> rows() {
+    return () -> {
+      Iterator<Entry<Bytes, RowEntries>> iter = rows.entrySet().iterator();
+      return Iterators.transform(iter, entry -> new AbstractMap.SimpleImmutableEntry<>(entry
+          .getKey(), materialize(entry.getValue())));
+    };
+  }
+
+  @Override
+  public Set<Bytes> rowSet() {
+    return Collections.unmodifiableSet(rows.keySet());
+  }
+
+  @Override
+  public int numRows() {
+    return rows.size();
+  }
+
+  @Override
+  public int numEntries() {
+    return numEntries;
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of bytes allocated to hold entries
+   */
+  long getAllocated() {
+    long allocated = 0;
+    for (byte[] c : chunks) {
+      allocated += c.length;
+    }
+    return allocated;
+  }
+
+  @Override
+  public void clear() {
+    chunks.clear();
+    chunk = null;
+    chunkPos = 0;
+    rows.clear();
+    initSlots(1024);
+    numEntries = 0;
+    size = 0;
+  }
+}
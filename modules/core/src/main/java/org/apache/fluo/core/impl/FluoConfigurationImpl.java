@@ -17,7 +17,9 @@ package org.apache.fluo.core.impl;
 
 import java.util.concurrent.TimeUnit;
 
+import org.apache.fluo.accumulo.iterators.TimestampSkippingIterator;
 import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.core.util.FluoThreadFactory;
 
 /**
  * Contains implementation-related Fluo properties that should not be exposed in the API in
@@ -32,6 +34,43 @@ public class FluoConfigurationImpl {
   public static final String WORKER_PARTITION_GROUP_SIZE =
       FLUO_IMPL_PREFIX + ".worker.finder.partition.groupSize";
   public static final int WORKER_PARTITION_GROUP_SIZE_DEFAULT = 7;
+  // How tablets and notifications are divided between workers. "modulus" deals tablets to groups
+  // round robin and divides notifications in a group by hash modulus the group size. "rendezvous"
+  // uses rendezvous hashing to assign workers and tablets to groups and hash buckets of
+  // notifications to the workers in a group, so a worker joining or leaving moves only a small
+  // part of the work. All workers must use the same strategy.
+  public static final String WORKER_PARTITION_STRATEGY_PROP =
+      FLUO_IMPL_PREFIX + ".worker.finder.partition.strategy";
+  public static final String WORKER_PARTITION_STRATEGY_DEFAULT = "modulus";
+
+  public static String getWorkerPartitionStrategy(FluoConfiguration conf) {
+    String strategy =
+        conf.getString(WORKER_PARTITION_STRATEGY_PROP, WORKER_PARTITION_STRATEGY_DEFAULT);
+    if (!strategy.equals("modulus") && !strategy.equals("rendezvous")) {
+      throw new IllegalArgumentException(
+          "Bad value for " + WORKER_PARTITION_STRATEGY_PROP + " " + strategy);
+    }
+    return strategy;
+  }
+
+  // When true, workers publish the rate of new notifications in each tablet and tablets are
+  // assigned to groups by load instead of count. Hot tablets are split between groups and cold
+  // tablets are packed together. Requires the rendezvous partition strategy.
+  public static final String WORKER_PARTITION_LOAD_BALANCING_PROP =
+      FLUO_IMPL_PREFIX + ".worker.finder.partition.loadBalancing";
+  public static final boolean WORKER_PARTITION_LOAD_BALANCING_DEFAULT = false;
+
+  public static boolean getWorkerPartitionLoadBalancing(FluoConfiguration conf) {
+    boolean loadBalancing = conf.getBoolean(WORKER_PARTITION_LOAD_BALANCING_PROP,
+        WORKER_PARTITION_LOAD_BALANCING_DEFAULT);
+    if (loadBalancing && !getWorkerPartitionStrategy(conf).equals("rendezvous")) {
+      throw new IllegalArgumentException("Bad value for " + WORKER_PARTITION_LOAD_BALANCING_PROP
+          + " " + loadBalancing + ", it requires " + WORKER_PARTITION_STRATEGY_PROP
+          + "=rendezvous");
+    }
+    return loadBalancing;
+  }
+
   public static final String METRICS_RESERVOIR_PROP = FLUO_IMPL_PREFIX + ".metrics.reservoir";
   public static final String NTFY_FINDER_MIN_SLEEP_TIME_PROP =
       FLUO_IMPL_PREFIX + ".worker.finder.minSleep";
@@ -40,6 +79,75 @@ public class FluoConfigurationImpl {
       FLUO_IMPL_PREFIX + ".worker.finder.maxSleep";
   public static final int NTFY_FINDER_MAX_SLEEP_TIME_DEFAULT = 5 * 60 * 1000;
 
+  // Number of tablets a worker scans for notifications concurrently. Each tablet is still scanned
+  // by a single thread.
+  public static final String NTFY_FINDER_SCAN_THREADS_PROP =
+      FLUO_IMPL_PREFIX + ".worker.finder.scan.threads";
+  public static final int NTFY_FINDER_SCAN_THREADS_DEFAULT = 1;
+
+  // Every this many scans of a tablet for notifications is a full scan. The scans in between only
+  // look for notifications newer than any seen before, which skips notifications that are already
+  // queued or being processed. Notifications written by transactions that got their commit
+  // timestamp earlier, but wrote later, may not be found until the next full scan. Setting this to
+  // 1 makes every scan a full scan.
+  public static final String NTFY_FINDER_FULL_SCAN_INTERVAL_PROP =
+      FLUO_IMPL_PREFIX + ".worker.finder.full.scan.interval";
+  public static final int NTFY_FINDER_FULL_SCAN_INTERVAL_DEFAULT = 1;
+
+  public static int getNtfyFinderFullScanInterval(FluoConfiguration conf) {
+    int interval =
+        conf.getInt(NTFY_FINDER_FULL_SCAN_INTERVAL_PROP, NTFY_FINDER_FULL_SCAN_INTERVAL_DEFAULT);
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Bad value for " + NTFY_FINDER_FULL_SCAN_INTERVAL_PROP
+          + " " + interval);
+    }
+    return interval;
+  }
+
+  // When true, partial compactions drop notification deletes for columns that are notified many
+  // times between deletes, instead of only for columns where notifications and deletes alternate.
+  // This is set on the table when the application is initialized.
+  public static final String NTFY_COALESCE_PROP = FLUO_IMPL_PREFIX + ".notification.coalesce";
+  public static final boolean NTFY_COALESCE_DEFAULT = false;
+
+  public static int getNtfyFinderScanThreads(FluoConfiguration conf) {
+    int threads = conf.getInt(NTFY_FINDER_SCAN_THREADS_PROP, NTFY_FINDER_SCAN_THREADS_DEFAULT);
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Bad value for " + NTFY_FINDER_SCAN_THREADS_PROP + " "
+          + threads);
+    }
+    return threads;
+  }
+
+  // When true, transactions committed by observers in a worker pass the notifications they wrote
+  // directly to the worker's notification finder. Notifications the worker is responsible for are
+  // queued immediately instead of waiting for the next scan of their tablet.
+  public static final String NTFY_FINDER_HINTS_PROP = FLUO_IMPL_PREFIX + ".worker.finder.hints";
+  public static final boolean NTFY_FINDER_HINTS_DEFAULT = false;
+
+  // When true, a worker thread that starts processing a notification also processes the other
+  // queued notifications for the same row in the same transaction. Each notification is still
+  // acknowledged separately, but the row's observers share a start timestamp, reads and commit.
+  // Only enable this when observers of the same row do not set the same columns.
+  public static final String WORKER_ROW_BATCHING_PROP = FLUO_IMPL_PREFIX + ".worker.row.batching";
+  public static final boolean WORKER_ROW_BATCHING_DEFAULT = false;
+
+  // Max memory used to track the notifications queued in a worker. When this is full, scanning for
+  // notifications waits for queued notifications to be processed and notifications passed directly
+  // from committed transactions are dropped, to be found by a later scan.
+  public static final String WORKER_NTFY_QUEUE_MEMORY_PROP =
+      FLUO_IMPL_PREFIX + ".worker.notification.queue.memory";
+  public static final long WORKER_NTFY_QUEUE_MEMORY_DEFAULT = 1 << 24;
+
+  public static long getWorkerNotificationQueueMemory(FluoConfiguration conf) {
+    long m = conf.getLong(WORKER_NTFY_QUEUE_MEMORY_PROP, WORKER_NTFY_QUEUE_MEMORY_DEFAULT);
+    if (m <= 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + WORKER_NTFY_QUEUE_MEMORY_PROP + " " + m);
+    }
+    return m;
+  }
+
   public static final String ACCUMULO_JARS_REGEX_PROP = FLUO_IMPL_PREFIX + ".accumulo.jars.regex";
   public static final String ACCUMULO_JARS_REGEX_DEFAULT = "^fluo-(api|accumulo).*";
 
@@ -104,6 +212,200 @@ public class FluoConfigurationImpl {
     return m;
   }
 
+  // Max number of start timestamps that loaders and workers retrieve from the oracle in a single
+  // request when many transactions are waiting to start. Setting this to 1 disables batching.
+  public static final String TX_START_BATCH_SIZE_PROP = FLUO_IMPL_PREFIX + ".tx.start.batch.size";
+  public static final int TX_START_BATCH_SIZE_DEFAULT = 32;
+
+  // Batched start timestamps that are not used within this time are released, so that
+  // transactions do not start with an old snapshot and garbage collection is not held back.
+  public static final String TX_START_BATCH_MAX_AGE_PROP =
+      FLUO_IMPL_PREFIX + ".tx.start.batch.maxAge.ms";
+  public static final long TX_START_BATCH_MAX_AGE_DEFAULT = 100;
+
+  public static int getTxStartBatchSize(FluoConfiguration conf) {
+    int size = conf.getInt(TX_START_BATCH_SIZE_PROP, TX_START_BATCH_SIZE_DEFAULT);
+    if (size <= 0) {
+      throw new IllegalArgumentException("Bad value for " + TX_START_BATCH_SIZE_PROP + " " + size);
+    }
+    return size;
+  }
+
+  public static long getTxStartBatchMaxAge(FluoConfiguration conf, TimeUnit tu) {
+    long millis = conf.getLong(TX_START_BATCH_MAX_AGE_PROP, TX_START_BATCH_MAX_AGE_DEFAULT);
+    if (millis < 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + TX_START_BATCH_MAX_AGE_PROP + " " + millis);
+    }
+    return tu.convert(millis, TimeUnit.MILLISECONDS);
+  }
+
+  // Max number of row columns a transaction caches from its reads. Repeated reads of a cached row
+  // column within a transaction do not go to Accumulo. Setting this to 0 disables the cache.
+  public static final String TX_READ_CACHE_MAX_CELLS_PROP =
+      FLUO_IMPL_PREFIX + ".tx.read.cache.max.cells";
+  public static final int TX_READ_CACHE_MAX_CELLS_DEFAULT = 100_000;
+
+  public static int getTxReadCacheMaxCells(FluoConfiguration conf) {
+    int max = conf.getInt(TX_READ_CACHE_MAX_CELLS_PROP, TX_READ_CACHE_MAX_CELLS_DEFAULT);
+    if (max < 0) {
+      throw new IllegalArgumentException("Bad value for " + TX_READ_CACHE_MAX_CELLS_PROP + " "
+          + max);
+    }
+    return max;
+  }
+
+  // When true, get methods return values set or deleted earlier in the same transaction instead of
+  // the snapshot value.
+  public static final String TX_READ_OWN_WRITES_PROP = FLUO_IMPL_PREFIX + ".tx.read.own.writes";
+  public static final boolean TX_READ_OWN_WRITES_DEFAULT = false;
+
+  // Number of next calls snapshot scans make on a tablet server to skip over the versions of a
+  // column before seeking. Seeks are much more expensive than next calls, but skipping over a
+  // column with many versions using only next calls is slower. Setting this to 0 always seeks.
+  public static final String SNAPSHOT_SCAN_MAX_NEXTS_PROP =
+      FLUO_IMPL_PREFIX + ".snapshot.scan.max.nexts";
+  public static final int SNAPSHOT_SCAN_MAX_NEXTS_DEFAULT =
+      TimestampSkippingIterator.DEFAULT_MAX_NEXTS;
+
+  public static int getSnapshotScanMaxNexts(FluoConfiguration conf) {
+    int max = conf.getInt(SNAPSHOT_SCAN_MAX_NEXTS_PROP, SNAPSHOT_SCAN_MAX_NEXTS_DEFAULT);
+    if (max < 0) {
+      throw new IllegalArgumentException("Bad value for " + SNAPSHOT_SCAN_MAX_NEXTS_PROP + " "
+          + max);
+    }
+    return max;
+  }
+
+  // Number of threads an aggregating snapshot scan uses to aggregate tablets concurrently. Each
+  // tablet's partial aggregate is computed by its tablet server, so more threads mostly help scans
+  // over many tablets.
+  public static final String SNAPSHOT_AGGREGATE_THREADS_PROP =
+      FLUO_IMPL_PREFIX + ".snapshot.aggregate.threads";
+  public static final int SNAPSHOT_AGGREGATE_THREADS_DEFAULT = 4;
+
+  public static int getSnapshotAggregateThreads(FluoConfiguration conf) {
+    int threads = conf.getInt(SNAPSHOT_AGGREGATE_THREADS_PROP, SNAPSHOT_AGGREGATE_THREADS_DEFAULT);
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Bad value for " + SNAPSHOT_AGGREGATE_THREADS_PROP + " "
+          + threads);
+    }
+    return threads;
+  }
+
+  // Once a transaction has set this many row columns, its changes are moved into a compact buffer
+  // that stores keys and values in large byte arrays instead of many small objects. Setting this to
+  // 0 disables the compact buffer.
+  public static final String TX_WRITE_BUFFER_ARENA_THRESHOLD_PROP =
+      FLUO_IMPL_PREFIX + ".tx.write.buffer.arena.threshold";
+  public static final int TX_WRITE_BUFFER_ARENA_THRESHOLD_DEFAULT = 0;
+
+  public static int getTxWriteBufferArenaThreshold(FluoConfiguration conf) {
+    int threshold =
+        conf.getInt(TX_WRITE_BUFFER_ARENA_THRESHOLD_PROP, TX_WRITE_BUFFER_ARENA_THRESHOLD_DEFAULT);
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Bad value for " + TX_WRITE_BUFFER_ARENA_THRESHOLD_PROP
+          + " " + threshold);
+    }
+    return threshold;
+  }
+
+  // Max number of queued notifications that can have their transaction started and prefetch columns
+  // read ahead of being processed. Only applies to observers that declare prefetch columns. Setting
+  // this to 0 disables prefetching.
+  public static final String WORKER_PREFETCH_MAX_PROP = FLUO_IMPL_PREFIX + ".worker.prefetch.max";
+  public static final int WORKER_PREFETCH_MAX_DEFAULT = 32;
+
+  public static int getWorkerPrefetchMax(FluoConfiguration conf) {
+    int max = conf.getInt(WORKER_PREFETCH_MAX_PROP, WORKER_PREFETCH_MAX_DEFAULT);
+    if (max < 0) {
+      throw new IllegalArgumentException("Bad value for " + WORKER_PREFETCH_MAX_PROP + " " + max);
+    }
+    return max;
+  }
+
+  // A transaction started by prefetching that waited in the queue longer than this is closed and a
+  // new one started when the notification is processed, so observers do not work on an old
+  // snapshot that is more likely to conflict.
+  public static final String WORKER_PREFETCH_MAX_AGE_PROP =
+      FLUO_IMPL_PREFIX + ".worker.prefetch.maxAge.ms";
+  public static final long WORKER_PREFETCH_MAX_AGE_DEFAULT = 1000;
+
+  public static long getWorkerPrefetchMaxAge(FluoConfiguration conf, TimeUnit tu) {
+    long millis = conf.getLong(WORKER_PREFETCH_MAX_AGE_PROP, WORKER_PREFETCH_MAX_AGE_DEFAULT);
+    if (millis < 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + WORKER_PREFETCH_MAX_AGE_PROP + " " + millis);
+    }
+    return tu.convert(millis, TimeUnit.MILLISECONDS);
+  }
+
+  // When true, workers process notifications on virtual threads. fluo.worker.num.threads still
+  // bounds how many notifications are processed at once, but can be set much higher because
+  // observers blocked on reads do not each hold a platform thread. Requires Java 21 or later.
+  public static final String WORKER_VIRTUAL_THREADS_PROP =
+      FLUO_IMPL_PREFIX + ".worker.virtual.threads";
+  public static final boolean WORKER_VIRTUAL_THREADS_DEFAULT = false;
+
+  public static boolean getWorkerVirtualThreads(FluoConfiguration conf) {
+    return getVirtualThreads(conf, WORKER_VIRTUAL_THREADS_PROP, WORKER_VIRTUAL_THREADS_DEFAULT);
+  }
+
+  // When true, loaders are run on virtual threads. fluo.loader.num.threads still bounds how many
+  // loaders run at once. Requires Java 21 or later.
+  public static final String LOADER_VIRTUAL_THREADS_PROP =
+      FLUO_IMPL_PREFIX + ".loader.virtual.threads";
+  public static final boolean LOADER_VIRTUAL_THREADS_DEFAULT = false;
+
+  public static boolean getLoaderVirtualThreads(FluoConfiguration conf) {
+    return getVirtualThreads(conf, LOADER_VIRTUAL_THREADS_PROP, LOADER_VIRTUAL_THREADS_DEFAULT);
+  }
+
+  private static boolean getVirtualThreads(FluoConfiguration conf, String prop, boolean dflt) {
+    boolean virtual = conf.getBoolean(prop, dflt);
+    if (virtual && !FluoThreadFactory.supportsVirtualThreads()) {
+      throw new IllegalArgumentException(
+          "Bad value for " + prop + " " + virtual + ", virtual threads require Java 21 or later");
+    }
+    return virtual;
+  }
+
+  // When true, worker threads are shared fairly between observers instead of always processing the
+  // oldest queued notification, so an observer with many notifications can not starve the others.
+  public static final String WORKER_FAIR_SCHEDULING_PROP =
+      FLUO_IMPL_PREFIX + ".worker.fair.scheduling";
+  public static final boolean WORKER_FAIR_SCHEDULING_DEFAULT = false;
+
+  // Prefix of the relative share of worker threads an observer gets with fair scheduling. The
+  // observer id is appended to the prefix.
+  public static final String WORKER_OBSERVER_WEIGHT_PREFIX =
+      FLUO_IMPL_PREFIX + ".worker.observer.weight.";
+  public static final int WORKER_OBSERVER_WEIGHT_DEFAULT = 1;
+
+  public static int getWorkerObserverWeight(FluoConfiguration conf, String observerId) {
+    String prop = WORKER_OBSERVER_WEIGHT_PREFIX + observerId;
+    int weight = conf.getInt(prop, WORKER_OBSERVER_WEIGHT_DEFAULT);
+    if (weight <= 0 || weight > 1 << 20) {
+      throw new IllegalArgumentException("Bad value for " + prop + " " + weight);
+    }
+    return weight;
+  }
+
+  // Prefix of the max number of worker threads that can process an observer's notifications at
+  // once with fair scheduling. The observer id is appended to the prefix. 0 means no limit.
+  public static final String WORKER_OBSERVER_MAX_THREADS_PREFIX =
+      FLUO_IMPL_PREFIX + ".worker.observer.max.threads.";
+  public static final int WORKER_OBSERVER_MAX_THREADS_DEFAULT = 0;
+
+  public static int getWorkerObserverMaxThreads(FluoConfiguration conf, String observerId) {
+    String prop = WORKER_OBSERVER_MAX_THREADS_PREFIX + observerId;
+    int max = conf.getInt(prop, WORKER_OBSERVER_MAX_THREADS_DEFAULT);
+    if (max < 0) {
+      throw new IllegalArgumentException("Bad value for " + prop + " " + max);
+    }
+    return max;
+  }
+
   public static final String TX_INFO_CACHE_WEIGHT = FLUO_IMPL_PREFIX + ".tx.failed.cache.weight.mb";
   public static final long TX_INFO_CACHE_WEIGHT_DEFAULT = 10_000_000;
 
@@ -225,6 +527,43 @@ public class FluoConfigurationImpl {
   public static final String ASYNC_CW_LIMIT = FLUO_IMPL_PREFIX + ".async.cw.limit";
   public static final int ASYNC_CW_LIMIT_DEFAULT = 100000;
 
+  // Mutations from concurrently committing transactions are written together. These control how
+  // long a group waits for more mutations before being written and the max size of a group. A delay
+  // of 0 writes a group as soon as a thread is available.
+  public static final String ASYNC_CW_GROUP_DELAY_PROP =
+      FLUO_IMPL_PREFIX + ".async.cw.group.delay.us";
+  public static final long ASYNC_CW_GROUP_DELAY_DEFAULT = 0;
+  public static final String ASYNC_CW_GROUP_MAX_MUTATIONS_PROP =
+      FLUO_IMPL_PREFIX + ".async.cw.group.max.mutations";
+  public static final int ASYNC_CW_GROUP_MAX_MUTATIONS_DEFAULT = 10000;
+
+  public static long getAsyncCwGroupDelay(FluoConfiguration conf, TimeUnit tu) {
+    long micros = conf.getLong(ASYNC_CW_GROUP_DELAY_PROP, ASYNC_CW_GROUP_DELAY_DEFAULT);
+    if (micros < 0) {
+      throw new IllegalArgumentException("Bad value for " + ASYNC_CW_GROUP_DELAY_PROP + " "
+          + micros);
+    }
+    return tu.convert(micros, TimeUnit.MICROSECONDS);
+  }
+
+  public static int getAsyncCwGroupMaxMutations(FluoConfiguration conf) {
+    int max = conf.getInt(ASYNC_CW_GROUP_MAX_MUTATIONS_PROP, ASYNC_CW_GROUP_MAX_MUTATIONS_DEFAULT);
+    if (max <= 0) {
+      throw new IllegalArgumentException("Bad value for " + ASYNC_CW_GROUP_MAX_MUTATIONS_PROP + " "
+          + max);
+    }
+    return max;
+  }
+
+  // When true, the async conditional writer limit and the commit memory limit are treated as
+  // initial values and adjusted based on observed latency.
+  public static final String ADAPTIVE_LIMITS_PROP = FLUO_IMPL_PREFIX + ".limits.adaptive";
+  public static final boolean ADAPTIVE_LIMITS_DEFAULT = false;
+
+  public static boolean getAdaptiveLimits(FluoConfiguration conf) {
+    return conf.getBoolean(ADAPTIVE_LIMITS_PROP, ADAPTIVE_LIMITS_DEFAULT);
+  }
+
   public static final String ASYNC_COMMIT_THREADS = FLUO_IMPL_PREFIX + ".tx.commit.threads.async";
   public static final int ASYNC_COMMIT_THREADS_DEFAULT = 8;
 
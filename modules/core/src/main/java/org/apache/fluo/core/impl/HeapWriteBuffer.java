@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+
+/**
+ * A write buffer that keeps changes in nested hash maps.
+ */
+class HeapWriteBuffer implements WriteBuffer {
+
+  private final Map<Bytes, Map<Column, Bytes>> updates = new HashMap<>();
+  private int numEntries = 0;
+  private long size = 0;
+
+  /**
+   * @return the size of a column and value, rows are only counted once regardless of how many
+   *         columns they have
+   */
+  static long size(Column col, Bytes val) {
+    return (long) col.getFamily().length() + col.getQualifier().length()
+        + col.getVisibility().length() + val.length();
+  }
+
+  @Override
+  public Bytes get(Bytes row, Column col) {
+    Map<Column, Bytes> cols = updates.get(row);
+    if (cols == null) {
+      return null;
+    }
+    return cols.get(col);
+  }
+
+  @Override
+  public Map<Column, Bytes> getRow(Bytes row) {
+    return updates.get(row);
+  }
+
+  @Override
+  public void put(Bytes row, Column col, Bytes val) {
+    Map<Column, Bytes> cols = updates.get(row);
+    if (cols == null) {
+      cols = new HashMap<>();
+      updates.put(row, cols);
+      size += row.length();
+    }
+
+    Bytes prev = cols.put(col, val);
+    if (prev == null) {
+      numEntries++;
+    } else {
+      size -= size(col, prev);
+    }
+    size += size(col, val);
+  }
+
+  @Override
+  public Bytes remove(Bytes row, Column col) {
+    Map<Column, Bytes> cols = updates.get(row);
+    if (cols == null) {
+      return null;
+    }
+
+    Bytes prev = cols.remove(col);
+    if (prev != null) {
+      numEntries--;
+      size -= size(col, prev);
+      if (cols.isEmpty()) {
+        updates.remove(row);
+        size -= row.length();
+      }
+    }
+    return prev;
+  }
+
+  @Override
+  public Iterable<Entry<Bytes, Map<Column, Bytes>>> rows() {
+    return updates.entrySet();
+  }
+
+  @Override
+  public Set<Bytes> rowSet() {
+    return Collections.unmodifiableSet(updates.keySet());
+  }
+
+  @Override
+  public int numRows() {
+    return updates.size();
+  }
+
+  @Override
+  public int numEntries() {
+    return numEntries;
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    updates.clear();
+    numEntries = 0;
+    size = 0;
+  }
+}
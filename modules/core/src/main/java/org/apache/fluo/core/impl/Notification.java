@@ -91,7 +91,19 @@ public class Notification {
   }
 
   public static void configureScanner(Scanner scanner) {
+    configureScanner(scanner, -1);
+  }
+
+  /**
+   * @param minTimestamp If non-negative, only notifications with a timestamp greater than this are
+   *        returned.
+   */
+  public static void configureScanner(Scanner scanner, long minTimestamp) {
     scanner.fetchColumnFamily(ByteUtil.toText(ColumnConstants.NOTIFY_CF));
-    scanner.addScanIterator(new IteratorSetting(11, NotificationIterator.class));
+    IteratorSetting iterCfg = new IteratorSetting(11, NotificationIterator.class);
+    if (minTimestamp >= 0) {
+      NotificationIterator.setMinTimestamp(iterCfg, minTimestamp);
+    }
+    scanner.addScanIterator(iterCfg);
   }
 }
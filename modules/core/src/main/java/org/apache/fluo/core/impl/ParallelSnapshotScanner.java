@@ -39,7 +39,6 @@ import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.core.util.ByteUtil;
 import org.apache.fluo.core.util.CachedBytesConverter;
 import org.apache.fluo.core.util.CachedColumnConverter;
-import org.apache.fluo.core.util.ColumnUtil;
 import org.apache.fluo.core.util.UtilWaitThread;
 
 public class ParallelSnapshotScanner {
@@ -68,7 +67,12 @@ public class ParallelSnapshotScanner {
 
   ParallelSnapshotScanner(Collection<RowColumn> cells, Environment env, long startTs, TxStats stats,
       Map<Bytes, Set<Column>> readLocksSeen) {
+    Set<Bytes> cellRows = new HashSet<>();
+    Set<Column> cellColumns = new HashSet<>();
     for (RowColumn rc : cells) {
+      cellRows.add(rc.getRow());
+      cellColumns.add(rc.getColumn());
+
       byte[] r = rc.getRow().toArray();
       byte[] cf = rc.getColumn().getFamily().toArray();
       byte[] cq = rc.getColumn().getQualifier().toArray();
@@ -84,8 +88,8 @@ public class ParallelSnapshotScanner {
     this.env = env;
     this.startTs = startTs;
     this.stats = stats;
-    this.rowConverter = ByteUtil::toBytes;
-    this.columnConverter = ColumnUtil::convert;
+    this.rowConverter = new CachedBytesConverter(cellRows);
+    this.columnConverter = new CachedColumnConverter(cellColumns);
     this.readLocksSeen = readLocksSeen;
   }
 
@@ -105,7 +109,7 @@ public class ParallelSnapshotScanner {
 
     if (rangesToScan.size() > 0) {
       scanner.setRanges(rangesToScan);
-      SnapshotScanner.setupScanner(scanner, Collections.<Column>emptySet(), startTs, true);
+      SnapshotScanner.setupScanner(env, scanner, Collections.<Column>emptySet(), startTs, true);
     } else if (rows != null) {
       List<Range> ranges = new ArrayList<>(rows.size());
 
@@ -115,7 +119,7 @@ public class ParallelSnapshotScanner {
 
       scanner.setRanges(ranges);
 
-      SnapshotScanner.setupScanner(scanner, columns, startTs, true);
+      SnapshotScanner.setupScanner(env, scanner, columns, startTs, true);
     } else {
       return null;
     }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+
+/**
+ * Caches the values a transaction reads. Because a transaction reads from a snapshot, reading a
+ * row column again within the transaction will always return the same value. The absence of a value
+ * is cached also. This class is not thread safe.
+ */
+class ReadCache {
+
+  // compared by identity to mark row columns that were read and had no value
+  static final Bytes ABSENT =
+      Bytes.of("special absent value 2b1b7a8a5d3b3d5e5ba8bc32e4e5e1b7c0b0d8e6");
+
+  private final Map<Bytes, Map<Column, Bytes>> cache = new HashMap<>();
+  private final int maxCells;
+  private int numCells = 0;
+
+  /**
+   * @param maxCells Once this many cells are cached, nothing more will be added. Zero disables
+   *        caching.
+   */
+  ReadCache(int maxCells) {
+    this.maxCells = maxCells;
+  }
+
+  static boolean isAbsent(Bytes val) {
+    return val == ABSENT;
+  }
+
+  /**
+   * @return the cached value, {@link #ABSENT} if the row column is known to have no value, or null
+   *         if nothing is cached
+   */
+  Bytes get(Bytes row, Column col) {
+    Map<Column, Bytes> cols = cache.get(row);
+    if (cols == null) {
+      return null;
+    }
+    return cols.get(col);
+  }
+
+  /**
+   * Adds cached values for the requested columns to the result map.
+   *
+   * @return the requested columns that are not cached
+   */
+  Set<Column> get(Bytes row, Set<Column> columns, Map<Column, Bytes> result) {
+    Map<Column, Bytes> cols = cache.get(row);
+    if (cols == null) {
+      return columns;
+    }
+
+    Set<Column> missing = null;
+    for (Column col : columns) {
+      Bytes val = cols.get(col);
+      if (val == null) {
+        if (missing == null) {
+          missing = new HashSet<>();
+        }
+        missing.add(col);
+      } else if (!isAbsent(val)) {
+        result.put(col, val);
+      }
+    }
+
+    return missing == null ? Collections.emptySet() : missing;
+  }
+
+  /**
+   * Caches the values read for a set of columns. Any column in the set without a value in the map
+   * is cached as absent.
+   */
+  void put(Bytes row, Set<Column> columnsRead, Map<Column, Bytes> found) {
+    if (numCells >= maxCells) {
+      return;
+    }
+
+    Map<Column, Bytes> cols = cache.computeIfAbsent(row, k -> new HashMap<>());
+    for (Column col : columnsRead) {
+      Bytes val = found.get(col);
+      if (cols.put(col, val == null ? ABSENT : val) == null) {
+        numCells++;
+      }
+    }
+  }
+
+  void put(Bytes row, Column col, Bytes val) {
+    if (numCells >= maxCells) {
+      return;
+    }
+
+    Map<Column, Bytes> cols = cache.computeIfAbsent(row, k -> new HashMap<>());
+    if (cols.put(col, val == null ? ABSENT : val) == null) {
+      numCells++;
+    }
+  }
+
+  void clear() {
+    cache.clear();
+    numCells = 0;
+  }
+}
@@ -15,9 +15,11 @@
 
 package org.apache.fluo.core.impl;
 
+import java.util.Collection;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import com.codahale.metrics.MetricRegistry;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -61,6 +63,7 @@ public class SharedResources implements AutoCloseable {
   private ExecutorService asyncCommitExecutor;
   private ExecutorService syncCommitExecutor;
   private CommitManager commitManager;
+  private volatile Consumer<Collection<Notification>> notificationHintConsumer = null;
 
 
   public SharedResources(Environment env) throws TableNotFoundException {
@@ -92,9 +95,6 @@ public class SharedResources implements AutoCloseable {
     commitThreads = env.getConfiguration().getInt(FluoConfigurationImpl.SYNC_COMMIT_THREADS,
         FluoConfigurationImpl.SYNC_COMMIT_THREADS_DEFAULT);
     syncCommitExecutor = FluoExecutors.newFixedThreadPool(commitThreads, "sync-commits");
-
-    acw = new AsyncConditionalWriter(env, cw);
-    bulkAcw = new AsyncConditionalWriter(env, bulkCw);
   }
 
   public SharedBatchWriter getBatchWriter() {
@@ -203,9 +203,13 @@ public class SharedResources implements AutoCloseable {
     if (oracleClient != null) {
       oracleClient.close();
     }
-    acw.close();
+    if (acw != null) {
+      acw.close();
+    }
     cw.close();
-    bulkAcw.close();
+    if (bulkAcw != null) {
+      bulkAcw.close();
+    }
     bulkCw.close();
     sbw.close();
     try {
@@ -230,14 +234,37 @@ public class SharedResources implements AutoCloseable {
     return asyncCommitExecutor;
   }
 
-  public AsyncConditionalWriter getAsyncConditionalWriter() {
+  public synchronized AsyncConditionalWriter getAsyncConditionalWriter() {
+    checkIfClosed();
+    if (acw == null) {
+      acw = new AsyncConditionalWriter(env, cw, "default");
+    }
     return acw;
   }
 
-  public AsyncConditionalWriter getBulkAsyncConditionalWriter() {
+  public synchronized AsyncConditionalWriter getBulkAsyncConditionalWriter() {
+    checkIfClosed();
+    if (bulkAcw == null) {
+      bulkAcw = new AsyncConditionalWriter(env, bulkCw, "bulk");
+    }
     return bulkAcw;
   }
 
+  /**
+   * Sets the consumer that is passed the notifications written by each transaction that commits
+   * using these resources. Set to null to stop passing notifications.
+   */
+  public void setNotificationHintConsumer(Consumer<Collection<Notification>> consumer) {
+    this.notificationHintConsumer = consumer;
+  }
+
+  /**
+   * @return the consumer of committed notifications or null if there is none
+   */
+  public Consumer<Collection<Notification>> getNotificationHintConsumer() {
+    return notificationHintConsumer;
+  }
+
   public synchronized CommitManager getCommitManager() {
     checkIfClosed();
     if (commitManager == null) {
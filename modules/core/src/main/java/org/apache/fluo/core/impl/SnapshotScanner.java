@@ -17,21 +17,29 @@ package org.apache.fluo.core.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.OptionalInt;
 import java.util.function.Consumer;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Value;
+import org.apache.fluo.accumulo.iterators.ScanFilterIterator;
 import org.apache.fluo.accumulo.iterators.SnapshotIterator;
 import org.apache.fluo.accumulo.util.ColumnConstants;
+import org.apache.fluo.api.client.scanner.ScanFilter;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.api.data.Span;
@@ -51,11 +59,18 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
     private final Span span;
     private final Collection<Column> columns;
     private final boolean showReadLocks;
+    private final List<ScanFilter> filters;
 
     public Opts(Span span, Collection<Column> columns, boolean showReadLocks) {
+      this(span, columns, showReadLocks, Collections.emptyList());
+    }
+
+    public Opts(Span span, Collection<Column> columns, boolean showReadLocks,
+        Collection<ScanFilter> filters) {
       this.span = span;
       this.columns = ImmutableSet.copyOf(columns);
       this.showReadLocks = showReadLocks;
+      this.filters = ImmutableList.copyOf(filters);
     }
 
     public Span getSpan() {
@@ -69,6 +84,10 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
     public boolean getShowReadLocks() {
       return showReadLocks;
     }
+
+    public List<ScanFilter> getFilters() {
+      return filters;
+    }
   }
 
   private final long startTs;
@@ -83,8 +102,8 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
 
 
 
-  static void setupScanner(ScannerBase scanner, Collection<Column> columns, long startTs,
-      boolean showReadLocks) {
+  static void setupScanner(Environment env, ScannerBase scanner, Collection<Column> columns,
+      long startTs, boolean showReadLocks) {
     for (Column col : columns) {
       if (col.isQualifierSet()) {
         scanner.fetchColumn(ByteUtil.toText(col.getFamily()), ByteUtil.toText(col.getQualifier()));
@@ -96,9 +115,83 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
     IteratorSetting iterConf = new IteratorSetting(10, SnapshotIterator.class);
     SnapshotIterator.setSnaptime(iterConf, startTs);
     SnapshotIterator.setReturnReadLockPresent(iterConf, showReadLocks);
+    SnapshotIterator.setMaxNexts(iterConf,
+        FluoConfigurationImpl.getSnapshotScanMaxNexts(env.getConfiguration()));
     scanner.addScanIterator(iterConf);
   }
 
+  private static int filterOrder(ScanFilter filter) {
+    if (filter instanceof ScanFilter.RowSample) {
+      return 0;
+    } else if (filter instanceof ScanFilter.MaxColumnsPerRow) {
+      return 2;
+    }
+    return 1;
+  }
+
+  /**
+   * Adds an iterator for each filter after the snapshot iterator. Rows are sampled first because it
+   * is the cheapest filter, and columns are limited last so only columns that pass the other
+   * filters are counted.
+   */
+  static void setupFilters(ScannerBase scanner, Collection<ScanFilter> filters) {
+    List<ScanFilter> sorted = new ArrayList<>(filters);
+    sorted.sort(Comparator.comparingInt(SnapshotScanner::filterOrder));
+
+    int priority = 11;
+    for (ScanFilter filter : sorted) {
+      IteratorSetting iterConf =
+          new IteratorSetting(priority, "scanFilter" + priority, ScanFilterIterator.class);
+      if (filter instanceof ScanFilter.ValuePrefix) {
+        ScanFilterIterator.setValuePrefix(iterConf,
+            ((ScanFilter.ValuePrefix) filter).getPrefix().toArray());
+      } else if (filter instanceof ScanFilter.ValueRegex) {
+        ScanFilterIterator.setValueRegex(iterConf, ((ScanFilter.ValueRegex) filter).getRegex());
+      } else if (filter instanceof ScanFilter.ValueRange) {
+        ScanFilter.ValueRange vr = (ScanFilter.ValueRange) filter;
+        ScanFilterIterator.setValueRange(iterConf, vr.getStart().toArray(),
+            vr.isStartInclusive(), vr.getEnd().toArray(), vr.isEndInclusive());
+      } else if (filter instanceof ScanFilter.MaxColumnsPerRow) {
+        ScanFilterIterator.setMaxColumnsPerRow(iterConf,
+            ((ScanFilter.MaxColumnsPerRow) filter).getMax());
+      } else if (filter instanceof ScanFilter.RowSample) {
+        ScanFilterIterator.setRowSample(iterConf, ((ScanFilter.RowSample) filter).getFraction());
+      } else {
+        throw new IllegalArgumentException("Unknown filter " + filter);
+      }
+      scanner.addScanIterator(iterConf);
+      priority++;
+    }
+  }
+
+  /**
+   * The server side column limit can be exceeded when a scan is reseeked in the middle of a row,
+   * like after resolving a lock, so the limit is also enforced here.
+   */
+  private static Iterator<Entry<Key, Value>> limitColumns(Iterator<Entry<Key, Value>> iter,
+      int max) {
+    return new AbstractIterator<Entry<Key, Value>>() {
+      private Key curRow = null;
+      private int count = 0;
+
+      @Override
+      protected Entry<Key, Value> computeNext() {
+        while (iter.hasNext()) {
+          Entry<Key, Value> entry = iter.next();
+          if (curRow == null || !curRow.equals(entry.getKey(), PartialKey.ROW)) {
+            curRow = entry.getKey();
+            count = 0;
+          }
+          if (count < max) {
+            count++;
+            return entry;
+          }
+        }
+        return endOfData();
+      }
+    };
+  }
+
   private class SnapIter implements Iterator<Entry<Key, Value>> {
 
     private Iterator<Entry<Key, Value>> iterator;
@@ -121,7 +214,9 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
       scanner.clearScanIterators();
       scanner.setRange(SpanUtil.toRange(snapIterConfig.getSpan()));
 
-      setupScanner(scanner, snapIterConfig.getColumns(), startTs, snapIterConfig.showReadLocks);
+      setupScanner(env, scanner, snapIterConfig.getColumns(), startTs,
+          snapIterConfig.showReadLocks);
+      setupFilters(scanner, snapIterConfig.getFilters());
 
       this.iterator = scanner.iterator();
     }
@@ -147,7 +242,8 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
     }
 
     private void resetScanner(Span span) {
-      snapIterConfig = new Opts(span, snapIterConfig.columns, snapIterConfig.showReadLocks);
+      snapIterConfig = new Opts(span, snapIterConfig.columns, snapIterConfig.showReadLocks,
+          snapIterConfig.filters);
       setUpIterator();
     }
 
@@ -253,6 +349,13 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
 
   @Override
   public Iterator<Entry<Key, Value>> iterator() {
-    return new SnapIter(config);
+    Iterator<Entry<Key, Value>> iter = new SnapIter(config);
+    OptionalInt maxColumns = config.getFilters().stream()
+        .filter(f -> f instanceof ScanFilter.MaxColumnsPerRow)
+        .mapToInt(f -> ((ScanFilter.MaxColumnsPerRow) f).getMax()).min();
+    if (maxColumns.isPresent()) {
+      iter = limitColumns(iter, maxColumns.getAsInt());
+    }
+    return iter;
   }
 }
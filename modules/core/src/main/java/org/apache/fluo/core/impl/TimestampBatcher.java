@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.fluo.core.oracle.Stamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocates start timestamps for transactions. When transactions are queued waiting to start, a
+ * single request to the Oracle retrieves a timestamp for each of them instead of making one request
+ * per transaction.
+ *
+ * <p>
+ * A batched timestamp is only given to a transaction that requested one before the batch was
+ * requested from the Oracle and whose snapshot must be newer than a given timestamp, so a batched
+ * timestamp is never older than one the transaction would have gotten from the Oracle. Otherwise a
+ * new timestamp is retrieved.
+ *
+ * <p>
+ * Batched timestamps are registered with the {@link TimestampTracker} when allocated, so the
+ * transaction that uses one must remove it from the tracker when done (which
+ * {@link TransactionImpl#close()} does). Timestamps that are not used within the configured max age
+ * are removed from the tracker and dropped by a timer, so an idle batcher does not hold back
+ * garbage collection for longer than about twice the max age.
+ */
+public class TimestampBatcher implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(TimestampBatcher.class);
+
+  /**
+   * The methods of {@link TimestampTracker} used to allocate and release timestamps.
+   */
+  interface Tracker {
+    Stamp allocateTimestamp();
+
+    List<Stamp> allocateTimestamps(int n);
+
+    void removeTimestamp(long ts);
+  }
+
+  private final Tracker tracker;
+  private final IntSupplier waitingSupplier;
+  private final int maxBatchSize;
+  private final long maxAgeNanos;
+  private final Timer timer;
+
+  private final ArrayDeque<Stamp> stamps = new ArrayDeque<>();
+  // when the request for the batched stamps was made
+  private long allocationTime;
+  private boolean batchInProgress = false;
+  private boolean closed = false;
+
+  /**
+   * @param waitingSupplier supplies the number of transactions currently waiting to start, used to
+   *        size batches
+   */
+  public TimestampBatcher(Environment env, IntSupplier waitingSupplier) {
+    this(new Tracker() {
+      private final TimestampTracker tt = env.getSharedResources().getTimestampTracker();
+
+      @Override
+      public Stamp allocateTimestamp() {
+        return tt.allocateTimestamp();
+      }
+
+      @Override
+      public List<Stamp> allocateTimestamps(int n) {
+        return tt.allocateTimestamps(n);
+      }
+
+      @Override
+      public void removeTimestamp(long ts) {
+        tt.removeTimestamp(ts);
+      }
+    }, waitingSupplier, FluoConfigurationImpl.getTxStartBatchSize(env.getConfiguration()),
+        FluoConfigurationImpl.getTxStartBatchMaxAge(env.getConfiguration(),
+            TimeUnit.NANOSECONDS));
+  }
+
+  @VisibleForTesting
+  TimestampBatcher(Tracker tracker, IntSupplier waitingSupplier, int maxBatchSize,
+      long maxAgeNanos) {
+    this.tracker = Objects.requireNonNull(tracker);
+    this.waitingSupplier = Objects.requireNonNull(waitingSupplier);
+    this.maxBatchSize = maxBatchSize;
+    this.maxAgeNanos = maxAgeNanos;
+
+    TimerTask tt = new TimerTask() {
+      @Override
+      public void run() {
+        try {
+          releaseExpired();
+        } catch (Exception e) {
+          log.error("Failed to release expired timestamps", e);
+        }
+      }
+    };
+    long periodMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(maxAgeNanos));
+    this.timer = new Timer("TimestampBatcher timer", true);
+    timer.schedule(tt, periodMs, periodMs);
+  }
+
+  /**
+   * @param minTimestamp the returned timestamp will be greater than this, for example the timestamp
+   *        of the notification a transaction is processing
+   * @param requestTime the value of {@link System#nanoTime()} when the transaction was requested. A
+   *        batched timestamp is only returned if its batch was requested from the Oracle after this
+   *        time.
+   * @return A start timestamp that is being tracked by the {@link TimestampTracker}
+   */
+  public Stamp allocateTimestamp(long minTimestamp, long requestTime) {
+    int batchSize;
+
+    synchronized (this) {
+      Preconditions.checkState(!closed, "batcher closed");
+
+      if (!stamps.isEmpty() && System.nanoTime() - allocationTime > maxAgeNanos) {
+        releaseUnused();
+      }
+
+      Stamp stamp = stamps.peek();
+      if (stamp != null && stamp.getTxTimestamp() > minTimestamp
+          && allocationTime - requestTime >= 0) {
+        return stamps.poll();
+      }
+
+      // the batched stamps are too old for this transaction and for any requested after it, so
+      // replace them with a new batch
+      batchSize = Math.min(maxBatchSize, waitingSupplier.getAsInt() + 1);
+
+      // only one thread fetches a batch at a time, other threads get a single timestamp which the
+      // oracle client will still combine with other concurrent requests
+      if (batchSize <= 1 || batchInProgress) {
+        batchSize = 1;
+      } else {
+        batchInProgress = true;
+      }
+    }
+
+    if (batchSize == 1) {
+      return tracker.allocateTimestamp();
+    }
+
+    long batchRequestTime = System.nanoTime();
+    List<Stamp> batch;
+    try {
+      batch = tracker.allocateTimestamps(batchSize);
+    } finally {
+      synchronized (this) {
+        batchInProgress = false;
+      }
+    }
+
+    synchronized (this) {
+      // any stamps left from the previous batch are older than the new ones, so release them to
+      // keep the stamps handed out in order
+      releaseUnused();
+      if (closed) {
+        for (Stamp unused : batch.subList(1, batch.size())) {
+          tracker.removeTimestamp(unused.getTxTimestamp());
+        }
+      } else {
+        stamps.addAll(batch.subList(1, batch.size()));
+        allocationTime = batchRequestTime;
+      }
+    }
+
+    return batch.get(0);
+  }
+
+  private synchronized void releaseExpired() {
+    if (!stamps.isEmpty() && System.nanoTime() - allocationTime > maxAgeNanos) {
+      releaseUnused();
+    }
+  }
+
+  private void releaseUnused() {
+    Stamp unused;
+    while ((unused = stamps.poll()) != null) {
+      tracker.removeTimestamp(unused.getTxTimestamp());
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      timer.cancel();
+      releaseUnused();
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package org.apache.fluo.core.impl;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.SortedSet;
@@ -123,37 +124,67 @@ public class TimestampTracker implements AutoCloseable {
    * Allocate a timestamp
    */
   public Stamp allocateTimestamp() {
+    beginAllocations(1);
 
-    synchronized (this) {
-      Preconditions.checkState(!closed, "tracker closed ");
-
-      if (node == null) {
-        Preconditions.checkState(allocationsInProgress == 0,
-            "expected allocationsInProgress == 0 when node == null");
-        Preconditions.checkState(!updatingZk, "unexpected concurrent ZK update");
+    try {
+      Stamp ts = getTimestamp();
 
-        createZkNode(getTimestamp().getTxTimestamp());
+      synchronized (this) {
+        timestamps.add(ts.getTxTimestamp());
       }
 
-      allocationsInProgress++;
+      return ts;
+    } catch (RuntimeException re) {
+      synchronized (this) {
+        allocationsInProgress--;
+      }
+      throw re;
     }
+  }
+
+  /**
+   * Allocate a block of contiguous timestamps using a single request to the Oracle. Each timestamp
+   * returned must eventually be passed to {@link #removeTimestamp(long)}.
+   *
+   * @param n The number of timestamps to allocate
+   */
+  public List<Stamp> allocateTimestamps(int n) {
+    Preconditions.checkArgument(n > 0, "number of timestamps must be positive : %s", n);
+
+    beginAllocations(n);
 
     try {
-      Stamp ts = getTimestamp();
+      List<Stamp> stamps = env.getSharedResources().getOracleClient().getStamps(n);
 
       synchronized (this) {
-        timestamps.add(ts.getTxTimestamp());
+        for (Stamp stamp : stamps) {
+          timestamps.add(stamp.getTxTimestamp());
+        }
       }
 
-      return ts;
+      return stamps;
     } catch (RuntimeException re) {
       synchronized (this) {
-        allocationsInProgress--;
+        allocationsInProgress -= n;
       }
       throw re;
     }
   }
 
+  private synchronized void beginAllocations(int n) {
+    Preconditions.checkState(!closed, "tracker closed ");
+
+    if (node == null) {
+      Preconditions.checkState(allocationsInProgress == 0,
+          "expected allocationsInProgress == 0 when node == null");
+      Preconditions.checkState(!updatingZk, "unexpected concurrent ZK update");
+
+      createZkNode(getTimestamp().getTxTimestamp());
+    }
+
+    allocationsInProgress += n;
+  }
+
   /**
    * Remove a timestamp (of completed transaction)
    */
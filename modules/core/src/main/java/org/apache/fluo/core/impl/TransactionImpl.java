@@ -26,6 +26,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
@@ -60,6 +62,7 @@ import org.apache.fluo.accumulo.values.ReadLockValue;
 import org.apache.fluo.api.client.AbstractTransactionBase;
 import org.apache.fluo.api.client.Snapshot;
 import org.apache.fluo.api.client.SnapshotBase;
+import org.apache.fluo.api.client.scanner.ScanFilter;
 import org.apache.fluo.api.client.scanner.ScannerBuilder;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
@@ -77,6 +80,7 @@ import org.apache.fluo.core.exceptions.StaleScanException;
 import org.apache.fluo.core.impl.scanner.ScannerBuilderImpl;
 import org.apache.fluo.core.oracle.Stamp;
 import org.apache.fluo.core.util.ByteUtil;
+import org.apache.fluo.core.util.CachedColumnConverter;
 import org.apache.fluo.core.util.ColumnUtil;
 import org.apache.fluo.core.util.ConditionalFlutation;
 import org.apache.fluo.core.util.FluoCondition;
@@ -84,6 +88,8 @@ import org.apache.fluo.core.util.Flutation;
 import org.apache.fluo.core.util.Hex;
 import org.apache.fluo.core.util.SpanUtil;
 import org.apache.fluo.core.util.UtilWaitThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.apache.fluo.accumulo.util.ColumnConstants.PREFIX_MASK;
 import static org.apache.fluo.accumulo.util.ColumnConstants.RLOCK_PREFIX;
@@ -95,6 +101,8 @@ import static org.apache.fluo.api.observer.Observer.NotificationType.WEAK;
  */
 public class TransactionImpl extends AbstractTransactionBase implements AsyncTransaction, Snapshot {
 
+  private static final Logger log = LoggerFactory.getLogger(TransactionImpl.class);
+
   public static final byte[] EMPTY = new byte[0];
   public static final Bytes EMPTY_BS = Bytes.of(EMPTY);
   private static final Bytes DELETE =
@@ -124,15 +132,21 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   }
 
   private final long startTs;
-  private final Map<Bytes, Map<Column, Bytes>> updates = new HashMap<>();
+  private WriteBuffer updates = new HeapWriteBuffer();
+  private final int arenaThreshold;
   private final Map<Bytes, Set<Column>> weakNotifications = new HashMap<>();
   private final Set<Column> observedColumns;
   private final Environment env;
   private final Map<Bytes, Set<Column>> columnsRead = new HashMap<>();
+  private long columnsReadSize = 0;
   // Tracks row columns that were observed to have had a read lock in the past.
   private final Map<Bytes, Set<Column>> readLocksSeen = new HashMap<>();
   private final TxStats stats;
+  private final ReadCache readCache;
+  private final boolean readOwnWrites;
   private Notification notification;
+  // strong notifications acknowledged by this transaction, all are on the row of notification
+  private final Map<Column, Notification> triggers = new HashMap<>();
   private Notification weakNotification;
   private TransactorNode tnode = null;
   private TxStatus status = TxStatus.OPEN;
@@ -144,6 +158,13 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     this.env = env;
     this.stats = new TxStats(env);
     this.startTs = startTs;
+    this.readCache =
+        new ReadCache(FluoConfigurationImpl.getTxReadCacheMaxCells(env.getConfiguration()));
+    this.readOwnWrites = env.getConfiguration().getBoolean(
+        FluoConfigurationImpl.TX_READ_OWN_WRITES_PROP,
+        FluoConfigurationImpl.TX_READ_OWN_WRITES_DEFAULT);
+    this.arenaThreshold =
+        FluoConfigurationImpl.getTxWriteBufferArenaThreshold(env.getConfiguration());
     this.observedColumns = env.getConfiguredObservers().getObservedColumns(STRONG);
 
     if (trigger != null
@@ -154,9 +175,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     }
 
     if (notification != null) {
-      Map<Column, Bytes> colUpdates = new HashMap<>();
-      colUpdates.put(notification.getColumn(), NTFY_VAL);
-      updates.put(notification.getRow(), colUpdates);
+      triggers.put(notification.getColumn(), notification);
+      updates.put(notification.getRow(), notification.getColumn(), NTFY_VAL);
     }
   }
 
@@ -179,15 +199,45 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   @Override
   public Bytes get(Bytes row, Column column) {
     checkIfOpen();
-    // TODO cache? precache?
     return get(row, Collections.singleton(column)).get(column);
   }
 
   @Override
   public Map<Column, Bytes> get(Bytes row, Set<Column> columns) {
     checkIfOpen();
-    return getImpl(row, columns, kve -> {
-    });
+
+    Map<Column, Bytes> ret = new HashMap<>();
+    Set<Column> uncached = readCache.get(row, columns, ret);
+
+    stats.incrementReadCacheHits(columns.size() - uncached.size());
+
+    if (!uncached.isEmpty()) {
+      Map<Column, Bytes> read = getImpl(row, uncached, kve -> {
+      });
+      readCache.put(row, uncached, read);
+      ret.putAll(read);
+    }
+
+    updateColumnsRead(row, columns);
+
+    applyOwnWrites(row, columns, ret);
+
+    return ret;
+  }
+
+  /**
+   * Reads columns into the read cache ahead of an observer running in this transaction. Unlike
+   * {@link #get(Bytes, Set)}, the columns are not recorded as read, so they do not add to the
+   * columns checked on commit unless the observer reads them.
+   */
+  public void prefetch(Bytes row, Set<Column> columns) {
+    checkIfOpen();
+
+    Set<Column> uncached = readCache.get(row, columns, new HashMap<>());
+    if (!uncached.isEmpty()) {
+      readCache.put(row, uncached, getImpl(row, uncached, kve -> {
+      }));
+    }
   }
 
   @Override
@@ -200,15 +250,48 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     env.getSharedResources().getVisCache().validate(columns);
 
-    ParallelSnapshotScanner pss =
-        new ParallelSnapshotScanner(rows, columns, env, startTs, stats, readLocksSeen);
+    Map<Bytes, Map<Column, Bytes>> ret = new HashMap<>();
+    List<Bytes> rowsToRead = new ArrayList<>();
+
+    for (Bytes row : rows) {
+      Map<Column, Bytes> cached = new HashMap<>();
+      if (readCache.get(row, columns, cached).isEmpty()) {
+        stats.incrementReadCacheHits(columns.size());
+        if (!cached.isEmpty()) {
+          ret.put(row, cached);
+        }
+      } else {
+        rowsToRead.add(row);
+      }
+    }
+
+    if (!rowsToRead.isEmpty()) {
+      ParallelSnapshotScanner pss =
+          new ParallelSnapshotScanner(rowsToRead, columns, env, startTs, stats, readLocksSeen);
 
-    Map<Bytes, Map<Column, Bytes>> ret = pss.scan();
+      Map<Bytes, Map<Column, Bytes>> read = pss.scan();
+
+      for (Bytes row : rowsToRead) {
+        readCache.put(row, columns, read.getOrDefault(row, Collections.emptyMap()));
+      }
+
+      ret.putAll(read);
+    }
 
     for (Entry<Bytes, Map<Column, Bytes>> entry : ret.entrySet()) {
       updateColumnsRead(entry.getKey(), entry.getValue().keySet());
     }
 
+    if (readOwnWrites) {
+      for (Bytes row : rows) {
+        Map<Column, Bytes> rowRet = ret.computeIfAbsent(row, k -> new HashMap<>());
+        applyOwnWrites(row, columns, rowRet);
+        if (rowRet.isEmpty()) {
+          ret.remove(row);
+        }
+      }
+    }
+
     return ret;
   }
 
@@ -220,22 +303,79 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       return Collections.emptyMap();
     }
 
-    ParallelSnapshotScanner pss =
-        new ParallelSnapshotScanner(rowColumns, env, startTs, stats, readLocksSeen);
-
-    Map<Bytes, Map<Column, Bytes>> scan = pss.scan();
     Map<RowColumn, Bytes> ret = new HashMap<>();
+    List<RowColumn> toRead = new ArrayList<>();
 
-    for (Entry<Bytes, Map<Column, Bytes>> entry : scan.entrySet()) {
-      updateColumnsRead(entry.getKey(), entry.getValue().keySet());
-      for (Entry<Column, Bytes> colVal : entry.getValue().entrySet()) {
-        ret.put(new RowColumn(entry.getKey(), colVal.getKey()), colVal.getValue());
+    for (RowColumn rc : rowColumns) {
+      Bytes val = readCache.get(rc.getRow(), rc.getColumn());
+      if (val == null) {
+        toRead.add(rc);
+      } else {
+        stats.incrementReadCacheHits(1);
+        if (!ReadCache.isAbsent(val)) {
+          updateColumnsRead(rc.getRow(), Collections.singleton(rc.getColumn()));
+          ret.put(rc, val);
+        }
+      }
+    }
+
+    if (!toRead.isEmpty()) {
+      ParallelSnapshotScanner pss =
+          new ParallelSnapshotScanner(toRead, env, startTs, stats, readLocksSeen);
+
+      Map<Bytes, Map<Column, Bytes>> scan = pss.scan();
+
+      for (RowColumn rc : toRead) {
+        Map<Column, Bytes> rowVals = scan.get(rc.getRow());
+        readCache.put(rc.getRow(), rc.getColumn(), rowVals == null ? null : rowVals.get(rc
+            .getColumn()));
+      }
+
+      for (Entry<Bytes, Map<Column, Bytes>> entry : scan.entrySet()) {
+        updateColumnsRead(entry.getKey(), entry.getValue().keySet());
+        for (Entry<Column, Bytes> colVal : entry.getValue().entrySet()) {
+          ret.put(new RowColumn(entry.getKey(), colVal.getKey()), colVal.getValue());
+        }
+      }
+    }
+
+    if (readOwnWrites) {
+      for (RowColumn rc : rowColumns) {
+        Bytes val = updates.get(rc.getRow(), rc.getColumn());
+        if (val != null && isWrite(val)) {
+          if (isDelete(val)) {
+            ret.remove(rc);
+          } else {
+            ret.put(rc, val);
+          }
+        }
       }
     }
 
     return ret;
   }
 
+  /**
+   * When configured to read its own writes, replaces snapshot values with values this transaction
+   * set or deleted.
+   */
+  private void applyOwnWrites(Bytes row, Set<Column> columns, Map<Column, Bytes> ret) {
+    if (!readOwnWrites) {
+      return;
+    }
+
+    for (Column col : columns) {
+      Bytes val = updates.get(row, col);
+      if (val != null && isWrite(val)) {
+        if (isDelete(val)) {
+          ret.remove(col);
+        } else {
+          ret.put(col, val);
+        }
+      }
+    }
+  }
+
   private Map<Column, Bytes> getImpl(Bytes row, Set<Column> columns,
       Consumer<Entry<Key, Value>> locksSeen) {
 
@@ -268,10 +408,11 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     Map<Column, Bytes> ret = new HashMap<>();
     Set<Column> readLockCols = null;
+    CachedColumnConverter columnConverter = new CachedColumnConverter(columns);
 
     for (Entry<Key, Value> kve : new SnapshotScanner(env, opts, startTs, stats, locksSeen)) {
 
-      Column col = ColumnUtil.convert(kve.getKey());
+      Column col = columnConverter.apply(kve.getKey());
       if (shouldCopy && !columns.contains(col)) {
         continue;
       }
@@ -286,9 +427,6 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       }
     }
 
-    // only update columns read after successful read
-    updateColumnsRead(row, columns);
-
     return ret;
   }
 
@@ -303,8 +441,14 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     if (colsRead == null) {
       colsRead = new HashSet<>();
       columnsRead.put(row, colsRead);
+      columnsReadSize += row.length();
+    }
+    for (Column c : columns) {
+      if (colsRead.add(c)) {
+        columnsReadSize +=
+            c.getFamily().length() + c.getQualifier().length() + c.getVisibility().length();
+      }
     }
-    colsRead.addAll(columns);
   }
 
   void setReadLock(Bytes row, Column col) {
@@ -318,13 +462,49 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     env.getSharedResources().getVisCache().validate(col);
 
-    Map<Column, Bytes> colUpdates = updates.computeIfAbsent(row, k -> new HashMap<>());
-    Bytes curVal = colUpdates.get(col);
+    Bytes curVal = updates.get(row, col);
     if (curVal != null && (isWrite(curVal) || isDelete(curVal))) {
       throw new AlreadySetException("Attemped read lock after write lock " + row + " " + col);
     }
 
-    colUpdates.put(col, RLOCK_VAL);
+    putUpdate(row, col, RLOCK_VAL);
+  }
+
+  private void putUpdate(Bytes row, Column col, Bytes val) {
+    updates.put(row, col, val);
+
+    if (arenaThreshold > 0 && updates.numEntries() >= arenaThreshold
+        && updates instanceof HeapWriteBuffer) {
+      // large transactions move their changes into a buffer that creates far fewer objects
+      WriteBuffer arena = new ArenaWriteBuffer(DELETE, NTFY_VAL, RLOCK_VAL);
+      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.rows()) {
+        for (Entry<Column, Bytes> colUpdate : rowUpdates.getValue().entrySet()) {
+          arena.put(rowUpdates.getKey(), colUpdate.getKey(), colUpdate.getValue());
+        }
+      }
+      updates = arena;
+    }
+  }
+
+  /**
+   * Adds a notification on the same row as the strong notification that triggered this
+   * transaction. Like the original trigger, it is acknowledged and deleted when this transaction
+   * commits and committing fails if it was already acknowledged. This allows the observers of
+   * multiple notifications on a row to share a transaction.
+   */
+  public void addTrigger(Notification trigger) {
+    checkIfOpen();
+    Objects.requireNonNull(trigger);
+    Preconditions.checkState(notification != null, "Transaction has no strong trigger");
+    Preconditions.checkArgument(notification.getRow().equals(trigger.getRow()),
+        "Trigger not on row %s", notification.getRow());
+    Preconditions.checkArgument(observedColumns.contains(trigger.getColumn()),
+        "Column not configured for strong notifications %s", trigger.getColumn());
+    Preconditions.checkArgument(updates.get(trigger.getRow(), trigger.getColumn()) == null,
+        "Column already set %s", trigger.getColumn());
+
+    triggers.put(trigger.getColumn(), trigger);
+    putUpdate(trigger.getRow(), trigger.getColumn(), NTFY_VAL);
   }
 
   @Override
@@ -345,13 +525,11 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     env.getSharedResources().getVisCache().validate(col);
 
-    Map<Column, Bytes> colUpdates = updates.computeIfAbsent(row, k -> new HashMap<>());
-
-    Bytes curVal = colUpdates.get(col);
+    Bytes curVal = updates.get(row, col);
     if (curVal != null && isWrite(curVal)) {
       throw new AlreadySetException("Value already set " + row + " " + col);
     }
-    colUpdates.put(col, value);
+    putUpdate(row, col, value);
   }
 
   @Override
@@ -387,9 +565,10 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       Bytes primaryRow, Column primaryColumn, boolean isTriggerRow) {
     IteratorSetting iterConf = new IteratorSetting(10, PrewriteIterator.class);
     PrewriteIterator.setSnaptime(iterConf, startTs);
-    boolean isTrigger = isTriggerRow && col.equals(notification.getColumn());
+    Notification trigger = isTriggerRow ? triggers.get(col) : null;
+    boolean isTrigger = trigger != null;
     if (isTrigger) {
-      PrewriteIterator.enableAckCheck(iterConf, notification.getTimestamp());
+      PrewriteIterator.enableAckCheck(iterConf, trigger.getTimestamp());
     }
 
     if (isReadLock(val)) {
@@ -413,7 +592,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
           ReadLockValue.encode(primaryRow, primaryColumn, getTransactorID()));
     } else {
       cm.put(col, ColumnConstants.LOCK_PREFIX | startTs, LockValue.encode(primaryRow, primaryColumn,
-          isWrite(val), isDelete(val), isTriggerRow, getTransactorID()));
+          isWrite(val), isDelete(val), isTrigger, getTransactorID()));
     }
 
     return cm;
@@ -437,6 +616,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     private HashSet<Bytes> acceptedRows;
     private Map<Bytes, Set<Column>> rejected = null;
+    // notifications written by this transaction, only tracked when something consumes them
+    private List<Notification> writtenNotifications = null;
 
     private void addPrimaryToRejected() {
       rejected = Collections.singletonMap(prow, Collections.singleton(pcol));
@@ -574,6 +755,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     for (Entry<Bytes, Set<Column>> entry : columnsToRead.entrySet()) {
       getImpl(entry.getKey(), entry.getValue(), locksSeen);
+      // only update columns read after successful read
+      updateColumnsRead(entry.getKey(), entry.getValue());
     }
   }
 
@@ -601,8 +784,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
             continue;
           }
 
-          if (!isReadLock(updates.getOrDefault(entry.getKey(), Collections.emptyMap())
-              .getOrDefault(candidate, EMPTY_BS))) {
+          if (!isReadLock(updates.get(entry.getKey(), candidate))) {
             if (colsToCheck == null) {
               colsToCheck = new HashSet<>();
             }
@@ -663,14 +845,15 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
         Column col = new Column(Bytes.of(cu.getColumnFamily()), Bytes.of(cu.getColumnQualifier()),
             Bytes.of(cu.getColumnVisibility()));
 
-        if (notification.getColumn().equals(col)) {
+        Notification trigger = triggers.get(col);
+        if (trigger != null) {
           // check to see if ACK exist after notification
-          Key startKey = SpanUtil.toKey(notification.getRowColumn());
+          Key startKey = SpanUtil.toKey(trigger.getRowColumn());
           startKey.setTimestamp(
               ColumnConstants.ACK_PREFIX | (Long.MAX_VALUE & ColumnConstants.TIMESTAMP_MASK));
 
-          Key endKey = SpanUtil.toKey(notification.getRowColumn());
-          endKey.setTimestamp(ColumnConstants.ACK_PREFIX | (notification.getTimestamp() + 1));
+          Key endKey = SpanUtil.toKey(trigger.getRowColumn());
+          endKey.setTimestamp(ColumnConstants.ACK_PREFIX | (trigger.getTimestamp() + 1));
 
           Range range = new Range(startKey, endKey);
 
@@ -688,8 +871,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
           // TODO could use iterator that stops after 1st ACK. thought of using versioning iter but
           // it scans to ACK
           if (scanner.iterator().hasNext()) {
-            env.getSharedResources().getBatchWriter()
-                .writeMutationAsync(notification.newDelete(env));
+            env.getSharedResources().getBatchWriter().writeMutationAsync(trigger.newDelete(env));
             return true;
           }
         }
@@ -717,6 +899,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       updates.clear();
       weakNotification = null;
       columnsRead.clear();
+      columnsReadSize = 0;
     }
   }
 
@@ -800,30 +983,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   @Override
   public int getSize() {
-    // TODO could calculate as items are added/set
-    int size = 0;
-
-    for (Entry<Bytes, Map<Column, Bytes>> entry : updates.entrySet()) {
-      size += entry.getKey().length();
-      for (Entry<Column, Bytes> entry2 : entry.getValue().entrySet()) {
-        Column c = entry2.getKey();
-        size += c.getFamily().length();
-        size += c.getQualifier().length();
-        size += c.getVisibility().length();
-        size += entry2.getValue().length();
-      }
-    }
-
-    for (Entry<Bytes, Set<Column>> entry : columnsRead.entrySet()) {
-      size += entry.getKey().length();
-      for (Column c : entry.getValue()) {
-        size += c.getFamily().length();
-        size += c.getQualifier().length();
-        size += c.getVisibility().length();
-      }
-    }
-
-    return size;
+    // both sizes are calculated as items are set or read
+    return (int) Math.min(Integer.MAX_VALUE, updates.getSize() + columnsReadSize);
   }
 
   abstract class CommitStep {
@@ -1007,17 +1168,20 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     @Override
     public Collection<ConditionalMutation> createMutations(CommitData cd) {
 
-      ArrayList<ConditionalMutation> mutations = new ArrayList<>();
+      ArrayList<ConditionalMutation> mutations = new ArrayList<>(updates.numRows());
 
-      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.entrySet()) {
+      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.sortedRows()) {
         ConditionalFlutation cm = null;
+        // other notifications on the trigger row are locked here, so also check they were not acked
+        boolean isTriggerRow = isTriggerRow(rowUpdates.getKey());
 
         for (Entry<Column, Bytes> colUpdates : rowUpdates.getValue().entrySet()) {
           if (cm == null) {
             cm = prewrite(rowUpdates.getKey(), colUpdates.getKey(), colUpdates.getValue(), cd.prow,
-                cd.pcol, false);
+                cd.pcol, isTriggerRow);
           } else {
-            prewrite(cm, colUpdates.getKey(), colUpdates.getValue(), cd.prow, cd.pcol, false);
+            prewrite(cm, colUpdates.getKey(), colUpdates.getValue(), cd.prow, cd.pcol,
+                isTriggerRow);
           }
         }
 
@@ -1045,7 +1209,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
         if (result.getStatus() == Status.ACCEPTED) {
           cd.acceptedRows.add(row);
         } else {
-          cd.addToRejected(row, updates.get(row).keySet());
+          cd.addToRejected(row, updates.getRow(row).keySet());
         }
       }
 
@@ -1105,9 +1269,9 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       Flutation m;
 
       ArrayList<Mutation> mutations = new ArrayList<>(cd.acceptedRows.size());
-      for (Bytes row : cd.acceptedRows) {
+      for (Bytes row : new TreeSet<>(cd.acceptedRows)) {
         m = new Flutation(env, row);
-        for (Entry<Column, Bytes> entry : updates.get(row).entrySet()) {
+        for (Entry<Column, Bytes> entry : updates.getRow(row).entrySet()) {
           if (isReadLock(entry.getValue())) {
             m.put(entry.getKey(),
                 ColumnConstants.RLOCK_PREFIX | ReadLockUtil.encodeTs(startTs, true),
@@ -1220,15 +1384,22 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     @Override
     public Collection<Mutation> createMutations(CommitData cd) {
       long commitTs = getStats().getCommitTs();
-      HashMap<Bytes, Mutation> mutations = new HashMap<>();
+      // sorted so that the mutations for each tablet are grouped together
+      TreeMap<Bytes, Mutation> mutations = new TreeMap<>();
+      List<Notification> written =
+          env.getSharedResources().getNotificationHintConsumer() == null ? null
+              : new ArrayList<>();
 
       if (observedColumns.contains(cd.pcol) && isWrite(cd.pval) && !isDelete(cd.pval)) {
         Flutation m = new Flutation(env, cd.prow);
         Notification.put(env, m, cd.pcol, commitTs);
         mutations.put(cd.prow, m);
+        if (written != null) {
+          written.add(new Notification(cd.prow, cd.pcol, commitTs));
+        }
       }
 
-      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.entrySet()) {
+      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.rows()) {
 
         for (Entry<Column, Bytes> colUpdates : rowUpdates.getValue().entrySet()) {
           if (observedColumns.contains(colUpdates.getKey())) {
@@ -1240,6 +1411,9 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
                 mutations.put(rowUpdates.getKey(), m);
               }
               Notification.put(env, m, colUpdates.getKey(), commitTs);
+              if (written != null) {
+                written.add(new Notification(rowUpdates.getKey(), colUpdates.getKey(), commitTs));
+              }
             }
           }
         }
@@ -1253,8 +1427,16 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
         }
         for (Column col : entry.getValue()) {
           Notification.put(env, m, col, commitTs);
+          if (written != null) {
+            written.add(new Notification(entry.getKey(), col, commitTs));
+          }
         }
       }
+
+      if (written != null && !written.isEmpty()) {
+        cd.writtenNotifications = written;
+      }
+
       return mutations.values();
     }
 
@@ -1267,7 +1449,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       long commitTs = getStats().getCommitTs();
       IteratorSetting iterConf = new IteratorSetting(10, PrewriteIterator.class);
       PrewriteIterator.setSnaptime(iterConf, startTs);
-      boolean isTrigger = isTriggerRow(cd.prow) && cd.pcol.equals(notification.getColumn());
+      boolean isTrigger = isTriggerRow(cd.prow) && triggers.containsKey(cd.pcol);
 
       Condition lockCheck =
           new FluoCondition(env, cd.pcol).setIterators(iterConf).setValue(LockValue.encode(cd.prow,
@@ -1350,13 +1532,13 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     @Override
     public Collection<Mutation> createMutations(CommitData cd) {
       long commitTs = getStats().getCommitTs();
-      ArrayList<Mutation> mutations = new ArrayList<>(updates.size() + 1);
-      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.entrySet()) {
+      ArrayList<Mutation> mutations = new ArrayList<>(updates.numRows() + 1);
+      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.sortedRows()) {
         Flutation m = new Flutation(env, rowUpdates.getKey());
         boolean isTriggerRow = isTriggerRow(rowUpdates.getKey());
         for (Entry<Column, Bytes> colUpdates : rowUpdates.getValue().entrySet()) {
-          ColumnUtil.commitColumn(env,
-              isTriggerRow && colUpdates.getKey().equals(notification.getColumn()), false,
+          ColumnUtil.commitColumn(env, isTriggerRow && triggers.containsKey(colUpdates.getKey()),
+              false,
               colUpdates.getKey(), isWrite(colUpdates.getValue()), isDelete(colUpdates.getValue()),
               isReadLock(colUpdates.getValue()), startTs, commitTs, observedColumns, m);
         }
@@ -1375,6 +1557,21 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     CompletableFuture<Boolean> getMainOp(CommitData cd) {
       return super.getMainOp(cd).thenApply(b -> {
         Preconditions.checkArgument(b);
+        if (cd.writtenNotifications != null) {
+          // the transaction is fully committed, so processing these notifications will not
+          // encounter its locks
+          Consumer<Collection<Notification>> hintConsumer =
+              env.getSharedResources().getNotificationHintConsumer();
+          if (hintConsumer != null) {
+            try {
+              hintConsumer.accept(cd.writtenNotifications);
+            } catch (RuntimeException e) {
+              // the transaction committed, scanning will find the notifications
+              log.warn("Failed to pass notifications written by transaction " + startTs
+                  + " to the worker", e);
+            }
+          }
+        }
         cd.commitObserver.committed();
         return true;
       });
@@ -1394,8 +1591,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
         afterFlushMutations.add(weakNotification.newDelete(env, startTs));
       }
 
-      if (notification != null) {
-        afterFlushMutations.add(notification.newDelete(env, startTs));
+      for (Notification trigger : triggers.values()) {
+        afterFlushMutations.add(trigger.newDelete(env, startTs));
       }
 
       return afterFlushMutations;
@@ -1424,16 +1621,14 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   private CommitData setUpBeginCommitAsync(CommitData cd, AsyncCommitObserver commitCallback,
       RowColumn primary) {
-    if (updates.size() == 0) {
+    if (updates.numRows() == 0) {
       // TODO do async
       deleteWeakRow();
       commitCallback.committed();
       return null;
     }
 
-    for (Map<Column, Bytes> cols : updates.values()) {
-      stats.incrementEntriesSet(cols.size());
-    }
+    stats.incrementEntriesSet(updates.numEntries());
 
     Bytes primRow = null;
     Column primCol = null;
@@ -1449,7 +1644,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       primCol = notification.getColumn();
     } else {
 
-      outer: for (Entry<Bytes, Map<Column, Bytes>> entry : updates.entrySet()) {
+      outer: for (Entry<Bytes, Map<Column, Bytes>> entry : updates.rows()) {
         for (Entry<Column, Bytes> entry2 : entry.getValue().entrySet()) {
           if (!isReadLock(entry2.getValue())) {
             primRow = entry.getKey();
@@ -1469,12 +1664,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     // get a primary column
     cd.prow = primRow;
-    Map<Column, Bytes> colSet = updates.get(cd.prow);
     cd.pcol = primCol;
-    cd.pval = colSet.remove(primCol);
-    if (colSet.size() == 0) {
-      updates.remove(cd.prow);
-    }
+    cd.pval = updates.remove(cd.prow, primCol);
 
     cd.commitObserver = commitCallback;
 
@@ -1523,8 +1714,19 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   }
 
   public SnapshotScanner newSnapshotScanner(Span span, Collection<Column> columns) {
-    return new SnapshotScanner(env, new SnapshotScanner.Opts(span, columns, false), startTs, stats,
-        kve -> {
+    return newSnapshotScanner(span, columns, Collections.emptyList());
+  }
+
+  public SnapshotScanner newSnapshotScanner(Span span, Collection<Column> columns,
+      Collection<ScanFilter> filters) {
+    return new SnapshotScanner(env, new SnapshotScanner.Opts(span, columns, false, filters),
+        startTs, stats, kve -> {
         });
   }
+
+  public AggregateSnapshotScanner newAggregateScanner(Span span, Collection<Column> columns,
+      Collection<ScanFilter> filters) {
+    return new AggregateSnapshotScanner(env,
+        new SnapshotScanner.Opts(span, columns, false, filters), startTs, stats);
+  }
 }
@@ -35,6 +35,8 @@ public class TxStats {
   private long lockWaitTime = 0;
   private long entriesReturned = 0;
   private long entriesSet = 0;
+  // number of row columns returned from the transaction's read cache instead of Accumulo
+  private long readCacheHits = 0;
   private long collisions = -1;
   // number of entries recovered from other transactions
   private long recovered = 0;
@@ -61,6 +63,10 @@ public class TxStats {
     return entriesSet;
   }
 
+  public long getReadCacheHits() {
+    return readCacheHits;
+  }
+
   public long getTime() {
     return finishCommitTime - startTime;
   }
@@ -119,6 +125,10 @@ public class TxStats {
     entriesSet += l;
   }
 
+  void incrementReadCacheHits(long l) {
+    readCacheHits += l;
+  }
+
   void incrementCollisions(long c) {
     collisions += c;
   }
@@ -157,6 +167,9 @@ public class TxStats {
     }
     registry.meter(names.getTxEntriesSet(alias)).mark(getEntriesSet());
     registry.meter(names.getTxEntriesRead(alias)).mark(getEntriesReturned());
+    if (getReadCacheHits() > 0) {
+      registry.meter(names.getTxReadCacheHits(alias)).mark(getReadCacheHits());
+    }
     if (getTimedOutLocks() > 0) {
       registry.meter(names.getTxLocksTimedout(alias)).mark(getTimedOutLocks());
     }
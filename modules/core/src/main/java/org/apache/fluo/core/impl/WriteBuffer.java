@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.collect.Iterators;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+
+/**
+ * Holds the changes a transaction will make when it commits. Special values, like the one used to
+ * mark a delete, are compared by identity and an implementation must return the same special value
+ * object that was put.
+ */
+interface WriteBuffer {
+
+  /**
+   * @return the value for the row and column or null if there is none
+   */
+  Bytes get(Bytes row, Column col);
+
+  /**
+   * @return the columns and values for a row or null if there are none. Changes to the returned map
+   *         may not be reflected in the buffer.
+   */
+  Map<Column, Bytes> getRow(Bytes row);
+
+  void put(Bytes row, Column col, Bytes val);
+
+  /**
+   * @return the removed value or null if there was none
+   */
+  Bytes remove(Bytes row, Column col);
+
+  /**
+   * @return each row and its columns and values
+   */
+  Iterable<Entry<Bytes, Map<Column, Bytes>>> rows();
+
+  /**
+   * @return an unmodifiable view of the rows in the buffer
+   */
+  Set<Bytes> rowSet();
+
+  /**
+   * @return each row and its columns and values in sorted row order. Because tablets hold
+   *         contiguous ranges of rows, mutations created in this order are grouped by tablet.
+   */
+  default Iterable<Entry<Bytes, Map<Column, Bytes>>> sortedRows() {
+    List<Bytes> sorted = new ArrayList<>(rowSet());
+    Collections.sort(sorted);
+    return () -> Iterators.transform(sorted.iterator(),
+        row -> new AbstractMap.SimpleImmutableEntry<>(row, getRow(row)));
+  }
+
+  int numRows();
+
+  int numEntries();
+
+  /**
+   * @return the number of bytes of row, column and value data in the buffer
+   */
+  long getSize();
+
+  void clear();
+}
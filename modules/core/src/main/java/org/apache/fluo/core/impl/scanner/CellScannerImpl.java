@@ -21,7 +21,6 @@ import java.util.Map.Entry;
 import java.util.function.Function;
 
 import com.google.common.collect.Iterators;
-import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
@@ -29,30 +28,17 @@ import org.apache.fluo.api.client.scanner.CellScanner;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumnValue;
-import org.apache.fluo.core.util.ByteUtil;
+import org.apache.fluo.core.util.CachedBytesConverter;
 import org.apache.fluo.core.util.CachedColumnConverter;
-import org.apache.fluo.core.util.ColumnUtil;
 
 public class CellScannerImpl implements CellScanner {
 
   private Iterable<Entry<Key, Value>> snapshot;
-  private Function<Key, Column> columnConverter;
-
-  private static final ByteSequence EMPTY_BS = new ArrayByteSequence(new byte[0]);
-  private ByteSequence prevRowBs = EMPTY_BS;
-  private Bytes prevRowBytes = Bytes.EMPTY;
-
-  private RowColumnValue entry2rcv(Entry<Key, Value> entry) {
-
-    ByteSequence rowBS = entry.getKey().getRowData();
-    Bytes row;
-    if (prevRowBs.equals(rowBS)) {
-      row = prevRowBytes;
-    } else {
-      prevRowBs = rowBS;
-      prevRowBytes = row = ByteUtil.toBytes(rowBS);
-    }
+  private Collection<Column> columns;
 
+  private static RowColumnValue entry2rcv(Entry<Key, Value> entry,
+      Function<ByteSequence, Bytes> rowConverter, Function<Key, Column> columnConverter) {
+    Bytes row = rowConverter.apply(entry.getKey().getRowData());
     Column col = columnConverter.apply(entry.getKey());
     Bytes val = Bytes.of(entry.getValue().get());
     return new RowColumnValue(row, col, val);
@@ -60,15 +46,15 @@ public class CellScannerImpl implements CellScanner {
 
   CellScannerImpl(Iterable<Entry<Key, Value>> snapshot, Collection<Column> columns) {
     this.snapshot = snapshot;
-    if (columns.size() == 0) {
-      columnConverter = ColumnUtil::convert;
-    } else {
-      columnConverter = new CachedColumnConverter(columns);
-    }
+    this.columns = columns;
   }
 
   @Override
   public Iterator<RowColumnValue> iterator() {
-    return Iterators.transform(snapshot.iterator(), this::entry2rcv);
+    // converters are not thread safe, so create new ones for each iterator
+    Function<ByteSequence, Bytes> rowConverter = new CachedBytesConverter();
+    Function<Key, Column> columnConverter = new CachedColumnConverter(columns);
+    return Iterators.transform(snapshot.iterator(),
+        e -> entry2rcv(e, rowConverter, columnConverter));
   }
 }
@@ -28,24 +28,21 @@ import org.apache.fluo.api.client.scanner.ColumnScanner;
 import org.apache.fluo.api.client.scanner.RowScanner;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.core.util.CachedColumnConverter;
-import org.apache.fluo.core.util.ColumnUtil;
 
 public class RowScannerImpl implements RowScanner {
 
   private Iterable<Entry<Key, Value>> snapshot;
-  private Function<Key, Column> columnConverter;
+  private Collection<Column> columns;
 
   RowScannerImpl(Iterable<Entry<Key, Value>> snapshot, Collection<Column> columns) {
     this.snapshot = snapshot;
-    if (columns.size() == 0) {
-      columnConverter = ColumnUtil::convert;
-    } else {
-      columnConverter = new CachedColumnConverter(columns);
-    }
+    this.columns = columns;
   }
 
   @Override
   public Iterator<ColumnScanner> iterator() {
+    // converter is not thread safe, so create a new one for each iterator
+    Function<Key, Column> columnConverter = new CachedColumnConverter(columns);
     RowIterator rowiter = new RowIterator(snapshot.iterator());
     return Iterators.transform(rowiter, e -> new ColumnScannerImpl(e, columnConverter));
   }
@@ -20,10 +20,13 @@ import java.util.Collections;
 import java.util.Objects;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.apache.fluo.api.client.scanner.CellScanner;
 import org.apache.fluo.api.client.scanner.RowScanner;
 import org.apache.fluo.api.client.scanner.RowScannerBuilder;
+import org.apache.fluo.api.client.scanner.ScanAggregates;
+import org.apache.fluo.api.client.scanner.ScanFilter;
 import org.apache.fluo.api.client.scanner.ScannerBuilder;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.Span;
@@ -37,6 +40,7 @@ public class ScannerBuilderImpl implements ScannerBuilder {
   private TransactionImpl tx;
   private Span span = EMPTY_SPAN;
   private Collection<Column> columns = Collections.emptyList();
+  private Collection<ScanFilter> filters = Collections.emptyList();
 
   public ScannerBuilderImpl(TransactionImpl tx) {
     this.tx = tx;
@@ -71,18 +75,30 @@ public class ScannerBuilderImpl implements ScannerBuilder {
     return this;
   }
 
+  @Override
+  public ScannerBuilder filter(ScanFilter... filters) {
+    Objects.requireNonNull(filters);
+    this.filters = ImmutableList.copyOf(filters);
+    return this;
+  }
+
   @Override
   public CellScanner build() {
-    SnapshotScanner snapScanner = tx.newSnapshotScanner(span, columns);
+    SnapshotScanner snapScanner = tx.newSnapshotScanner(span, columns, filters);
     return new CellScannerImpl(snapScanner, columns);
   }
 
+  @Override
+  public ScanAggregates aggregate() {
+    return tx.newAggregateScanner(span, columns, filters).aggregate();
+  }
+
   @Override
   public RowScannerBuilder byRow() {
     return new RowScannerBuilder() {
       @Override
       public RowScanner build() {
-        SnapshotScanner snapScanner = tx.newSnapshotScanner(span, columns);
+        SnapshotScanner snapScanner = tx.newSnapshotScanner(span, columns, filters);
         return new RowScannerImpl(snapScanner, columns);
       }
     };
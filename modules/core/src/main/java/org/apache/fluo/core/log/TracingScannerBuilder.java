@@ -19,10 +19,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.apache.fluo.api.client.scanner.CellScanner;
 import org.apache.fluo.api.client.scanner.RowScanner;
 import org.apache.fluo.api.client.scanner.RowScannerBuilder;
+import org.apache.fluo.api.client.scanner.ScanAggregates;
+import org.apache.fluo.api.client.scanner.ScanFilter;
 import org.apache.fluo.api.client.scanner.ScannerBuilder;
 import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.api.data.Column;
@@ -39,6 +42,7 @@ public class TracingScannerBuilder implements ScannerBuilder {
 
   private Span span = EMPTY_SPAN;
   private Collection<Column> columns = Collections.emptyList();
+  private Collection<ScanFilter> filters = Collections.emptyList();
 
   private final ScannerBuilder wrappedBuilder;
   private final long txid;
@@ -72,11 +76,23 @@ public class TracingScannerBuilder implements ScannerBuilder {
     return this;
   }
 
+  @Override
+  public ScannerBuilder filter(ScanFilter... filters) {
+    Objects.requireNonNull(filters);
+    this.filters = ImmutableList.copyOf(filters);
+    wrappedBuilder.filter(this.filters);
+    return this;
+  }
+
+  private String filtersToString() {
+    return filters.isEmpty() ? "" : ".filter(" + filters + ")";
+  }
+
   @Override
   public CellScanner build() {
-    String scanId = Integer.toHexString(Math.abs(Objects.hash(span, columns, txid)));
-    log.trace("txid: {} scanId: {} scanner().over({}).fetch({}).build()", txid, scanId,
-        Hex.encNonAscii(span), Hex.encNonAscii(columns));
+    String scanId = Integer.toHexString(Math.abs(Objects.hash(span, columns, filters, txid)));
+    log.trace("txid: {} scanId: {} scanner().over({}).fetch({}){}.build()", txid, scanId,
+        Hex.encNonAscii(span), Hex.encNonAscii(columns), filtersToString());
     if (TracingCellScanner.log.isTraceEnabled()) {
       return new TracingCellScanner(wrappedBuilder.build(), txid, scanId);
     } else {
@@ -84,14 +100,23 @@ public class TracingScannerBuilder implements ScannerBuilder {
     }
   }
 
+  @Override
+  public ScanAggregates aggregate() {
+    String scanId = Integer.toHexString(Math.abs(Objects.hash(span, columns, filters, txid)));
+    ScanAggregates aggregates = wrappedBuilder.aggregate();
+    log.trace("txid: {} scanId: {} scanner().over({}).fetch({}){}.aggregate() -> {}", txid,
+        scanId, Hex.encNonAscii(span), Hex.encNonAscii(columns), filtersToString(), aggregates);
+    return aggregates;
+  }
+
   @Override
   public RowScannerBuilder byRow() {
-    String scanId = Integer.toHexString(Math.abs(Objects.hash(span, columns, txid)));
+    String scanId = Integer.toHexString(Math.abs(Objects.hash(span, columns, filters, txid)));
     return new RowScannerBuilder() {
       @Override
       public RowScanner build() {
-        log.trace("txid: {} scanId: {} scanner().over({}).fetch({}).byRow().build()", txid, scanId,
-            Hex.encNonAscii(span), Hex.encNonAscii(columns));
+        log.trace("txid: {} scanId: {} scanner().over({}).fetch({}){}.byRow().build()", txid,
+            scanId, Hex.encNonAscii(span), Hex.encNonAscii(columns), filtersToString());
         if (TracingCellScanner.log.isTraceEnabled()) {
           return new TracingRowScanner(wrappedBuilder.byRow().build(), txid, scanId);
         } else {
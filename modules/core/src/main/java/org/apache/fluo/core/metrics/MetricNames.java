@@ -36,16 +36,27 @@ public class MetricNames {
   private final String txCollisions;
   private final String txEntriesSet;
   private final String txEntriesRead;
+  private final String txReadCacheHits;
   private final String txLocksTimedOut;
   private final String txLocksDead;
   private final String txStatusPrefix;
+  private final String observerQueued;
+  private final String observerRunning;
   private final String txCommitting;
+  private final String commitMemoryLimit;
+  private final String asyncCwLimitPrefix;
 
   private final String notificationsQueued;
+  private final String notificationsHinted;
+  private final String notificationsBatched;
+  private final String notificationsDiscarded;
+  private final String notificationTrackerContention;
 
   private final String oracleResponseTime;
   private final String oracleClientStamps;
   private final String oracleServerStamps;
+  private final String oracleServerStampsRate;
+  private final String oracleServerReservationStalls;
 
   public MetricNames(String metricsReporterId, String appName) {
     Preconditions.checkArgument(!appName.contains("."),
@@ -62,18 +73,29 @@ public class MetricNames {
     txCollisions = classMetric + "tx_collisions";
     txEntriesSet = classMetric + "tx_entries_set";
     txEntriesRead = classMetric + "tx_entries_read";
+    txReadCacheHits = classMetric + "tx_read_cache_hits";
     txLocksTimedOut = classMetric + "tx_locks_timedout";
     txLocksDead = classMetric + "tx_locks_dead";
     txStatusPrefix = classMetric + "tx_status_"; // status appended to metric name
+    observerQueued = classMetric + "observer_queued";
+    observerRunning = classMetric + "observer_running";
 
     // System-wide metrics
     // FORMAT: fluo.system.APPLICATION.REPORTER_ID.METRIC
     final String systemMetric = SYSTEM_PREFIX + "." + appName + "." + metricsReporterId + ".";
     txCommitting = systemMetric + "transactor_committing";
+    commitMemoryLimit = systemMetric + "transactor_commit_memory_limit";
+    asyncCwLimitPrefix = systemMetric + "async_cw_limit_"; // writer name appended to metric name
     notificationsQueued = systemMetric + "worker_notifications_queued";
+    notificationsHinted = systemMetric + "worker_notifications_hinted";
+    notificationsBatched = systemMetric + "worker_notifications_batched";
+    notificationsDiscarded = systemMetric + "worker_notifications_discarded";
+    notificationTrackerContention = systemMetric + "worker_notification_tracker_contention";
     oracleResponseTime = systemMetric + "oracle_response_time";
     oracleClientStamps = systemMetric + "oracle_client_stamps";
     oracleServerStamps = systemMetric + "oracle_server_stamps";
+    oracleServerStampsRate = systemMetric + "oracle_server_stamps_rate";
+    oracleServerReservationStalls = systemMetric + "oracle_server_reservation_stalls";
   }
 
   public String getTxLockWaitTime(String className) {
@@ -100,6 +122,10 @@ public class MetricNames {
     return txEntriesRead + "." + className;
   }
 
+  public String getTxReadCacheHits(String className) {
+    return txReadCacheHits + "." + className;
+  }
+
   public String getTxLocksTimedout(String className) {
     return txLocksTimedOut + "." + className;
   }
@@ -112,10 +138,42 @@ public class MetricNames {
     return txStatusPrefix + status + "." + className;
   }
 
+  public String getObserverQueued(String observerId) {
+    return observerQueued + "." + observerId;
+  }
+
+  public String getObserverRunning(String observerId) {
+    return observerRunning + "." + observerId;
+  }
+
+  public String getCommitMemoryLimit() {
+    return commitMemoryLimit;
+  }
+
+  public String getAsyncCwLimit(String writerName) {
+    return asyncCwLimitPrefix + writerName;
+  }
+
   public String getNotificationQueued() {
     return notificationsQueued;
   }
 
+  public String getNotificationsHinted() {
+    return notificationsHinted;
+  }
+
+  public String getNotificationsBatched() {
+    return notificationsBatched;
+  }
+
+  public String getNotificationsDiscarded() {
+    return notificationsDiscarded;
+  }
+
+  public String getNotificationTrackerContention() {
+    return notificationTrackerContention;
+  }
+
   public String getOracleResponseTime() {
     return oracleResponseTime;
   }
@@ -128,6 +186,14 @@ public class MetricNames {
     return oracleServerStamps;
   }
 
+  public String getOracleServerStampsRate() {
+    return oracleServerStampsRate;
+  }
+
+  public String getOracleServerReservationStalls() {
+    return oracleServerReservationStalls;
+  }
+
   public String getCommitsProcessing() {
     return txCommitting;
   }
@@ -15,6 +15,9 @@
 
 package org.apache.fluo.core.observer;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.observer.Observer;
 
@@ -23,6 +26,13 @@ public interface Observers extends AutoCloseable {
 
   Observer getObserver(Column col);
 
+  /**
+   * @return columns the observer for the given column will read from the row that triggered it
+   */
+  default Set<Column> getPrefetchColumns(Column col) {
+    return Collections.emptySet();
+  }
+
   void returnObserver(Observer o);
 
   @Override
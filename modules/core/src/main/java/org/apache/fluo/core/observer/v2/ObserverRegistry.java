@@ -16,7 +16,9 @@
 package org.apache.fluo.core.observer.v2;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,6 +36,7 @@ public class ObserverRegistry implements ObserverProvider.Registry {
 
   Map<Column, Observer> observers;
   Map<Column, String> aliases;
+  Map<Column, Set<Column>> prefetchColumns;
   private Set<Column> strongColumns;
   private Set<Column> weakColumns;
 
@@ -43,6 +46,7 @@ public class ObserverRegistry implements ObserverProvider.Registry {
     private Column col;
     private NotificationType ntfyType;
     private String alias;
+    private Set<Column> prefetch = Collections.emptySet();
 
     FluentRegistration(Column col, NotificationType ntfyType) {
       this.col = col;
@@ -51,12 +55,12 @@ public class ObserverRegistry implements ObserverProvider.Registry {
 
     @Override
     public void useObserver(Observer observer) {
-      register(col, ntfyType, alias, observer);
+      register(col, ntfyType, alias, prefetch, observer);
     }
 
     @Override
     public void useStrObserver(StringObserver observer) {
-      register(col, ntfyType, alias, observer);
+      register(col, ntfyType, alias, prefetch, observer);
     }
 
     @Override
@@ -64,11 +68,18 @@ public class ObserverRegistry implements ObserverProvider.Registry {
       this.alias = alias;
       return this;
     }
+
+    @Override
+    public IdentityOption withPrefetch(Set<Column> columns) {
+      this.prefetch = Collections.unmodifiableSet(new HashSet<>(columns));
+      return this;
+    }
   }
 
   ObserverRegistry(Set<Column> strongColumns, Set<Column> weakColumns) {
     this.observers = new HashMap<>();
     this.aliases = new HashMap<>();
+    this.prefetchColumns = new HashMap<>();
     this.strongColumns = strongColumns;
     this.weakColumns = weakColumns;
   }
@@ -78,7 +89,8 @@ public class ObserverRegistry implements ObserverProvider.Registry {
     return new FluentRegistration(observedColumn, ntfyType);
   }
 
-  private void register(Column col, NotificationType nt, String alias, Observer obs) {
+  private void register(Column col, NotificationType nt, String alias, Set<Column> prefetch,
+      Observer obs) {
     try {
       Method closeMethod = obs.getClass().getMethod("close");
       if (!closeMethod.getDeclaringClass().equals(Observer.class)) {
@@ -107,6 +119,9 @@ public class ObserverRegistry implements ObserverProvider.Registry {
 
     observers.put(col, obs);
     aliases.put(col, alias);
+    if (!prefetch.isEmpty()) {
+      prefetchColumns.put(col, prefetch);
+    }
   }
 
 }
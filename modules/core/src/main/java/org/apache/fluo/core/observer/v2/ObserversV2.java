@@ -15,6 +15,7 @@
 
 package org.apache.fluo.core.observer.v2;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +33,7 @@ class ObserversV2 implements Observers {
 
   Map<Column, Observer> observers;
   Map<Column, String> aliases;
+  Map<Column, Set<Column>> prefetchColumns;
 
   public ObserversV2(Environment env, JsonObservers jco, Set<Column> strongColumns,
       Set<Column> weakColumns) {
@@ -46,6 +48,7 @@ class ObserversV2 implements Observers {
 
     this.observers = or.observers;
     this.aliases = or.aliases;
+    this.prefetchColumns = or.prefetchColumns;
     this.observers.forEach((k, v) -> aliases.computeIfAbsent(k, col -> Hex.encNonAscii(col, ":")));
 
     // the following check ensures observers are provided for all previously configured columns
@@ -62,6 +65,11 @@ class ObserversV2 implements Observers {
     return observers.get(col);
   }
 
+  @Override
+  public Set<Column> getPrefetchColumns(Column col) {
+    return prefetchColumns.getOrDefault(col, Collections.emptySet());
+  }
+
   @Override
   public void returnObserver(Observer o) {}
 
@@ -17,6 +17,7 @@ package org.apache.fluo.core.oracle;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
@@ -27,6 +28,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.Timer.Context;
+import com.google.common.base.Preconditions;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
@@ -69,9 +71,19 @@ public class OracleClient implements AutoCloseable {
   private Participant currentLeader;
 
   private static final class TimeRequest {
+    // number of contiguous stamps requested, stampRef and cf are set to the first one
+    final int numStamps;
     CountDownLatch cdl = new CountDownLatch(1);
     AtomicReference<Stamp> stampRef = new AtomicReference<>();
     CompletableFuture<Stamp> cf = null;
+
+    TimeRequest() {
+      this(1);
+    }
+
+    TimeRequest(int numStamps) {
+      this.numStamps = numStamps;
+    }
   }
 
   private class TimestampRetriever extends LeaderSelectorListenerAdapter
@@ -164,6 +176,11 @@ public class OracleClient implements AutoCloseable {
           request.add(trh);
           queue.drainTo(request);
 
+          int numStamps = 0;
+          for (TimeRequest tr : request) {
+            numStamps += tr.numStamps;
+          }
+
           long txStampsStart;
           long gcStamp;
 
@@ -179,7 +196,7 @@ public class OracleClient implements AutoCloseable {
 
               final Context timerContext = responseTimer.time();
 
-              Stamps stamps = localClient.getTimestamps(env.getFluoApplicationID(), request.size());
+              Stamps stamps = localClient.getTimestamps(env.getFluoApplicationID(), numStamps);
               txStampsStart = stamps.txStampsStart;
               gcStamp = stamps.gcStamp;
 
@@ -189,7 +206,7 @@ public class OracleClient implements AutoCloseable {
                 continue;
               }
 
-              stampsHistogram.update(request.size());
+              stampsHistogram.update(numStamps);
               timerContext.close();
 
               break;
@@ -202,9 +219,10 @@ public class OracleClient implements AutoCloseable {
             }
           }
 
-          for (int i = 0; i < request.size(); i++) {
-            TimeRequest tr = request.get(i);
-            Stamp stampRes = new Stamp(txStampsStart + i, gcStamp);
+          long nextStamp = txStampsStart;
+          for (TimeRequest tr : request) {
+            Stamp stampRes = new Stamp(nextStamp, gcStamp);
+            nextStamp += tr.numStamps;
             tr.stampRef.set(stampRes);
             if (tr.cf == null) {
               tr.cdl.countDown();
@@ -355,6 +373,28 @@ public class OracleClient implements AutoCloseable {
     checkClosed();
 
     TimeRequest tr = new TimeRequest();
+    waitForStamps(tr);
+    return tr.stampRef.get();
+  }
+
+  /**
+   * Retrieves a block of contiguous time stamps from Oracle using a single request. This is cheaper
+   * than calling {@link #getStamp()} n times when starting many transactions at once. Throws
+   * {@link FluoException} if timed out or interrupted.
+   *
+   * @param n The number of stamps to retrieve, must be positive
+   * @return A list of n stamps in increasing order that all share the same gc timestamp
+   */
+  public List<Stamp> getStamps(int n) {
+    checkClosed();
+    Preconditions.checkArgument(n > 0, "number of stamps must be positive : %s", n);
+
+    TimeRequest tr = new TimeRequest(n);
+    waitForStamps(tr);
+    return toList(tr.stampRef.get(), n);
+  }
+
+  private void waitForStamps(TimeRequest tr) {
     try {
       queue.put(tr);
       int timeout = env.getConfiguration().getConnectionRetryTimeout();
@@ -378,7 +418,15 @@ public class OracleClient implements AutoCloseable {
     } catch (InterruptedException e) {
       throw new FluoException("Interrupted while retrieving timestamp from Oracle", e);
     }
-    return tr.stampRef.get();
+  }
+
+  private static List<Stamp> toList(Stamp first, int n) {
+    List<Stamp> stamps = new ArrayList<>(n);
+    stamps.add(first);
+    for (int i = 1; i < n; i++) {
+      stamps.add(new Stamp(first.getTxTimestamp() + i, first.getGcTimestamp()));
+    }
+    return stamps;
   }
 
   public CompletableFuture<Stamp> getStampAsync() {
@@ -395,6 +443,24 @@ public class OracleClient implements AutoCloseable {
     return cf;
   }
 
+  /**
+   * Asynchronous version of {@link #getStamps(int)}
+   */
+  public CompletableFuture<List<Stamp>> getStampsAsync(int n) {
+    checkClosed();
+    Preconditions.checkArgument(n > 0, "number of stamps must be positive : %s", n);
+
+    TimeRequest tr = new TimeRequest(n);
+    CompletableFuture<Stamp> cf = new CompletableFuture<>();
+    tr.cf = cf;
+    try {
+      queue.put(tr);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    return cf.thenApply(first -> toList(first, n));
+  }
+
   /**
    * Return the oracle that the current client is connected to.
    */
@@ -20,8 +20,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
 
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import org.apache.curator.framework.CuratorFramework;
@@ -41,6 +43,7 @@ import org.apache.fluo.core.metrics.MetricsUtil;
 import org.apache.fluo.core.thrift.OracleService;
 import org.apache.fluo.core.thrift.Stamps;
 import org.apache.fluo.core.util.CuratorUtil;
+import org.apache.fluo.core.util.FluoExecutors;
 import org.apache.fluo.core.util.Halt;
 import org.apache.fluo.core.util.HostUtil;
 import org.apache.fluo.core.util.PortUtils;
@@ -65,6 +68,11 @@ import org.slf4j.LoggerFactory;
  * timestamp.
  * 
  * <p>
+ * Timestamps are handed out from a block that was reserved in Zookeeper. Handing out timestamps is
+ * lock free and the next block is reserved in the background before the current block runs out, so
+ * requests only wait on Zookeeper when the background reservation can not keep up.
+ *
+ * <p>
  * If multiple oracle servers are run, they will choose a leader and clients will automatically
  * connect to that leader. If the leader goes down, the client will automatically fail over to the
  * next leader. In the case where an oracle fails over, the next oracle will begin a new block of
@@ -76,6 +84,8 @@ public class OracleServer extends LeaderSelectorListenerAdapter
   private static final Logger log = LoggerFactory.getLogger(OracleServer.class);
 
   private final Histogram stampsHistogram;
+  private final Meter stampsMeter;
+  private final com.codahale.metrics.Timer reservationStallTimer;
 
   public static final long ORACLE_MAX_READ_BUFFER_BYTES = 2048;
 
@@ -83,9 +93,10 @@ public class OracleServer extends LeaderSelectorListenerAdapter
 
   private Thread serverThread;
   private THsHaServer server;
-  private volatile long currentTs = 0;
-  private volatile long maxTs = 0;
+  private volatile StampAllocator stampAllocator;
   private volatile boolean started = false;
+
+  private ExecutorService reservationExecutor;
   private int port = 0;
 
   private LeaderSelector leaderSelector;
@@ -143,7 +154,7 @@ public class OracleServer extends LeaderSelectorListenerAdapter
       if (nodeFound) {
         updateAdvertisedGcTimestamp(oldestTs);
       } else {
-        updateAdvertisedGcTimestamp(currentTs);
+        updateAdvertisedGcTimestamp(stampAllocator.getCurrent());
       }
     }
 
@@ -163,7 +174,7 @@ public class OracleServer extends LeaderSelectorListenerAdapter
       TimerTask logTask = new TimerTask() {
         @Override
         public void run() {
-          log.info("Current timestamp: {}", currentTs);
+          log.info("Current timestamp: {}", stampAllocator.getCurrent());
         }
       };
 
@@ -188,28 +199,46 @@ public class OracleServer extends LeaderSelectorListenerAdapter
     this.env = env;
     stampsHistogram = MetricsUtil.getHistogram(env.getConfiguration(),
         env.getSharedResources().getMetricRegistry(), env.getMetricNames().getOracleServerStamps());
+    stampsMeter = env.getSharedResources().getMetricRegistry()
+        .meter(env.getMetricNames().getOracleServerStampsRate());
+    reservationStallTimer = MetricsUtil.getTimer(env.getConfiguration(),
+        env.getSharedResources().getMetricRegistry(),
+        env.getMetricNames().getOracleServerReservationStalls());
     this.cnxnListener = new CuratorCnxnListener();
     this.maxTsPath = ZookeeperPath.ORACLE_MAX_TIMESTAMP;
     this.oraclePath = ZookeeperPath.ORACLE_SERVER;
   }
 
-  private void allocateTimestamp() throws Exception {
-    Stat stat = new Stat();
-    byte[] d = curatorFramework.getData().storingStatIn(stat).forPath(maxTsPath);
+  /**
+   * Stores the max reserved timestamp in Zookeeper.
+   */
+  private class ZookeeperMaxTimestampStore implements StampAllocator.MaxTimestampStore {
+    @Override
+    public long read() throws Exception {
+      return LongUtil.fromByteArray(curatorFramework.getData().forPath(maxTsPath));
+    }
 
-    // TODO check that d is expected
-    // TODO check that still server when setting
-    // TODO make num allocated variable... when a server first starts allocate a small amount... the
-    // longer it runs and the busier it is, allocate bigger blocks
+    @Override
+    public long reserve(long minMaxTs, long size) throws Exception {
+      Stat stat = new Stat();
+      byte[] d = curatorFramework.getData().storingStatIn(stat).forPath(maxTsPath);
 
-    long newMax = Long.parseLong(new String(d)) + 1000;
+      // TODO check that d is expected
+      // TODO check that still server when setting
 
-    curatorFramework.setData().withVersion(stat.getVersion()).forPath(maxTsPath,
-        LongUtil.toByteArray(newMax));
-    maxTs = newMax;
+      long newMax = LongUtil.fromByteArray(d) + size;
+      if (newMax <= minMaxTs) {
+        newMax = minMaxTs + size;
+      }
 
-    if (!isLeader) {
-      throw new IllegalStateException();
+      curatorFramework.setData().withVersion(stat.getVersion()).forPath(maxTsPath,
+          LongUtil.toByteArray(newMax));
+
+      if (!isLeader) {
+        throw new IllegalStateException();
+      }
+
+      return newMax;
     }
   }
 
@@ -217,13 +246,13 @@ public class OracleServer extends LeaderSelectorListenerAdapter
   public Stamps getTimestamps(String id, int num) throws TException {
     long start = getTimestampsImpl(id, num);
 
-    // do this outside of sync
     stampsHistogram.update(num);
+    stampsMeter.mark(num);
 
     return new Stamps(start, gcTsTracker.advertisedGcTimetamp);
   }
 
-  private synchronized long getTimestampsImpl(String id, int num) throws TException {
+  private long getTimestampsImpl(String id, int num) throws TException {
     if (!started) {
       throw new IllegalStateException("Received timestamp request but Oracle has not started");
     }
@@ -239,14 +268,7 @@ public class OracleServer extends LeaderSelectorListenerAdapter
     }
 
     try {
-      while (num + currentTs >= maxTs) {
-        allocateTimestamp();
-      }
-
-      long tmp = currentTs;
-      currentTs += num;
-
-      return tmp;
+      return stampAllocator.allocate(num);
     } catch (Exception e) {
       throw new TException(e);
     }
@@ -312,6 +334,8 @@ public class OracleServer extends LeaderSelectorListenerAdapter
       throw new IllegalStateException();
     }
 
+    reservationExecutor = FluoExecutors.newFixedThreadPool(1, "oracle-ts-reserve");
+
     final InetSocketAddress addr = startServer();
 
     curatorFramework = CuratorUtil.newAppCurator(env.getConfiguration());
@@ -351,6 +375,8 @@ public class OracleServer extends LeaderSelectorListenerAdapter
         gcTsTracker.stop();
       }
 
+      reservationExecutor.shutdownNow();
+
       started = false;
 
       currentLeader = null;
@@ -409,10 +435,10 @@ public class OracleServer extends LeaderSelectorListenerAdapter
         }
       }
 
-      synchronized (this) {
-        byte[] d = curatorFramework.getData().forPath(maxTsPath);
-        currentTs = maxTs = LongUtil.fromByteArray(d);
-      }
+      StampAllocator allocator = new StampAllocator(new ZookeeperMaxTimestampStore(),
+          reservationExecutor, reservationStallTimer, System::currentTimeMillis);
+      allocator.start();
+      stampAllocator = allocator;
 
       gcTsTracker = new GcTimestampTracker();
       gcTsTracker.start();
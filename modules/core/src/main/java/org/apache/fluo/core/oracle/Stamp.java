@@ -15,6 +15,7 @@
 
 package org.apache.fluo.core.oracle;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import org.apache.fluo.accumulo.util.ColumnConstants;
 
@@ -22,7 +23,8 @@ public class Stamp {
   private final long txStamp;
   private final long gcStamp;
 
-  Stamp(long stamp, long gcStamp) {
+  @VisibleForTesting
+  public Stamp(long stamp, long gcStamp) {
     long b = stamp & ColumnConstants.PREFIX_MASK;
     Preconditions.checkArgument(b == 0, "timestamp prefix should be zero");
     long c = gcStamp & ColumnConstants.PREFIX_MASK;
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.oracle;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out timestamps for the {@link OracleServer} from a block reserved in a
+ * {@link MaxTimestampStore}. Handing out timestamps is lock free and the next block is reserved in
+ * the background before the current block runs out, so requests only wait on the store when the
+ * background reservation can not keep up.
+ */
+class StampAllocator {
+
+  private static final Logger log = LoggerFactory.getLogger(StampAllocator.class);
+
+  /**
+   * Persists the max timestamp that was reserved, so that no timestamp is handed out twice after
+   * the oracle restarts or fails over.
+   */
+  interface MaxTimestampStore {
+    /**
+     * @return the max timestamp reserved so far
+     */
+    long read() throws Exception;
+
+    /**
+     * Atomically adds size to the stored max timestamp. If that would not be greater than
+     * minMaxTs, the stored max timestamp is set to minMaxTs plus size instead.
+     *
+     * @return the new max timestamp
+     */
+    long reserve(long minMaxTs, long size) throws Exception;
+  }
+
+  // The min and max number of timestamps reserved at a time. The number reserved doubles when a
+  // block is used up quickly.
+  static final long MIN_RESERVATION_SIZE = 1000;
+  static final long MAX_RESERVATION_SIZE = 1_000_000;
+  static final long RESERVATION_GROWTH_PERIOD_MS = 1000;
+
+  private final MaxTimestampStore store;
+  private final Executor reservationExecutor;
+  private final Timer reservationStallTimer;
+  private final LongSupplier clock;
+
+  private final AtomicLong currentTs = new AtomicLong(0);
+  private volatile long maxTs = 0;
+
+  // serializes reserving timestamps in the store, never held while handing out timestamps
+  private final Object reservationLock = new Object();
+  private volatile long reservationSize = MIN_RESERVATION_SIZE;
+  private long lastReservationTime = 0;
+  private final AtomicBoolean reservationQueued = new AtomicBoolean(false);
+
+  /**
+   * @param clock supplies the current time in millis, used to decide how much to reserve
+   */
+  StampAllocator(MaxTimestampStore store, Executor reservationExecutor,
+      Timer reservationStallTimer, LongSupplier clock) {
+    this.store = store;
+    this.reservationExecutor = reservationExecutor;
+    this.reservationStallTimer = reservationStallTimer;
+    this.clock = clock;
+  }
+
+  /**
+   * Starts handing out timestamps after the max timestamp in the store, which is past anything a
+   * previous oracle could have handed out.
+   */
+  void start() throws Exception {
+    synchronized (reservationLock) {
+      maxTs = store.read();
+      currentTs.set(maxTs);
+    }
+  }
+
+  /**
+   * Reserves a new block of timestamps in the store, if the current block does not extend past the
+   * given timestamp. Must be called while holding the reservation lock.
+   */
+  private void reserveTimestamps(long minMaxTs) throws Exception {
+    if (maxTs > minMaxTs) {
+      // another thread already reserved enough
+      return;
+    }
+
+    long now = clock.getAsLong();
+    if (now - lastReservationTime < RESERVATION_GROWTH_PERIOD_MS) {
+      reservationSize = Math.min(MAX_RESERVATION_SIZE, reservationSize * 2);
+    } else {
+      reservationSize = MIN_RESERVATION_SIZE;
+    }
+    lastReservationTime = now;
+
+    maxTs = store.reserve(minMaxTs, reservationSize);
+  }
+
+  /**
+   * Reserves the next block of timestamps in a background thread when less than half of the current
+   * block remains.
+   */
+  private void maybeReserveAhead(long nextTs) {
+    long max = maxTs;
+    if (max - nextTs < reservationSize / 2 && reservationQueued.compareAndSet(false, true)) {
+      try {
+        reservationExecutor.execute(() -> {
+          reservationQueued.set(false);
+          try {
+            synchronized (reservationLock) {
+              reserveTimestamps(max);
+            }
+          } catch (Exception e) {
+            log.warn("Failed to reserve timestamps in background", e);
+          }
+        });
+      } catch (RuntimeException e) {
+        // executor was shutdown, requests will reserve when they run out
+        reservationQueued.set(false);
+      }
+    }
+  }
+
+  /**
+   * @return the first of num contiguous timestamps that were never handed out before
+   */
+  long allocate(int num) throws Exception {
+    while (true) {
+      long cur = currentTs.get();
+      long next = cur + num;
+
+      if (next < maxTs) {
+        if (currentTs.compareAndSet(cur, next)) {
+          maybeReserveAhead(next);
+          return cur;
+        }
+      } else {
+        // the current block is used up, must wait for the store
+        try (Context ctx = reservationStallTimer.time()) {
+          synchronized (reservationLock) {
+            reserveTimestamps(next);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the next timestamp that will be handed out
+   */
+  long getCurrent() {
+    return currentTs.get();
+  }
+
+  /**
+   * @return the max timestamp reserved, timestamps handed out are always less than this
+   */
+  long getMaxTs() {
+    return maxTs;
+  }
+
+  long getReservationSize() {
+    return reservationSize;
+  }
+}
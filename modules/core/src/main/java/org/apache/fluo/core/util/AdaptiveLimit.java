@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.util;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link Limit} that adjusts its permits based on the latency of the work done with them, using
+ * additive increase and multiplicative decrease (AIMD). The lowest latency seen recently is used as
+ * a baseline. When the smoothed latency rises well above the baseline, work is queuing somewhere
+ * and the permits are decreased. When latency is near the baseline and the permits are being used,
+ * the permits are slowly increased. Permits are adjusted at most once per window, where a window
+ * ends when a number of permits equal to the current limit have been released.
+ */
+public class AdaptiveLimit extends Limit {
+
+  private static final double BACKOFF_RATIO = 0.9;
+  private static final double LATENCY_TOLERANCE = 2.0;
+  private static final double SMOOTHING = 0.2;
+  // number of samples after which the baseline latency is reset to the lowest latency seen in them
+  private static final int BASELINE_SAMPLES = 1000;
+
+  private final int minPermits;
+  private final int maxPermits;
+  private final int increaseStep;
+
+  private double smoothedLatency = -1;
+  private long baselineLatency = Long.MAX_VALUE;
+  private long windowMinLatency = Long.MAX_VALUE;
+  private int samples = 0;
+  private long releasedInWindow = 0;
+  private boolean saturatedInWindow = false;
+
+  public AdaptiveLimit(int initialPermits, int minPermits, int maxPermits) {
+    super(initialPermits);
+    Preconditions.checkArgument(0 < minPermits && minPermits <= initialPermits
+        && initialPermits <= maxPermits, "Bad permits min:%s initial:%s max:%s", minPermits,
+        initialPermits, maxPermits);
+    this.minPermits = minPermits;
+    this.maxPermits = maxPermits;
+    this.increaseStep = Math.max(1, initialPermits / 10);
+  }
+
+  /**
+   * Creates a limit that adapts between a tenth and ten times the initial permits when adaptive is
+   * true, otherwise creates a limit that always has the initial permits.
+   */
+  public static AdaptiveLimit create(int initialPermits, boolean adaptive) {
+    if (adaptive) {
+      return new AdaptiveLimit(initialPermits, Math.max(1, initialPermits / 10),
+          (int) Math.min(Integer.MAX_VALUE, initialPermits * 10L));
+    } else {
+      return new AdaptiveLimit(initialPermits, initialPermits, initialPermits);
+    }
+  }
+
+  /**
+   * Releases permits and records how long the work done with them took.
+   */
+  public synchronized void release(int num, long latencyNanos) {
+    if (leased >= permits / 2) {
+      saturatedInWindow = true;
+    }
+
+    release(num);
+
+    if (minPermits == maxPermits) {
+      return;
+    }
+
+    if (smoothedLatency < 0) {
+      smoothedLatency = latencyNanos;
+    } else {
+      smoothedLatency = SMOOTHING * latencyNanos + (1 - SMOOTHING) * smoothedLatency;
+    }
+
+    baselineLatency = Math.min(baselineLatency, latencyNanos);
+    windowMinLatency = Math.min(windowMinLatency, latencyNanos);
+    if (++samples >= BASELINE_SAMPLES) {
+      // let the baseline rise if conditions changed
+      baselineLatency = windowMinLatency;
+      windowMinLatency = Long.MAX_VALUE;
+      samples = 0;
+    }
+
+    releasedInWindow += num;
+    if (releasedInWindow < permits) {
+      return;
+    }
+
+    if (smoothedLatency > baselineLatency * LATENCY_TOLERANCE) {
+      setPermits(Math.max(minPermits, (int) (permits * BACKOFF_RATIO)));
+    } else if (saturatedInWindow) {
+      setPermits((int) Math.min(maxPermits, (long) permits + increaseStep));
+    }
+
+    releasedInWindow = 0;
+    saturatedInWindow = false;
+  }
+}
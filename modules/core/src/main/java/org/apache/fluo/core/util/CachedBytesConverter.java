@@ -23,9 +23,18 @@ import java.util.function.Function;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.fluo.api.data.Bytes;
 
+/**
+ * Converts ByteSequences to Bytes, returning a known Bytes object instead of a copy when possible.
+ * Consecutive equal sequences, like the row of each key in a scan, convert to the same object.
+ */
 public class CachedBytesConverter implements Function<ByteSequence, Bytes> {
 
   private Map<ByteSequence, Bytes> bs2bCache = new HashMap<>();
+  // a copy of the previous sequence, callers may reuse the buffer of the sequence they pass in
+  private ByteSequence prevBs = null;
+  private Bytes prevBytes = null;
+
+  public CachedBytesConverter() {}
 
   public CachedBytesConverter(Collection<Bytes> bytesCollection) {
     for (Bytes bytes : bytesCollection) {
@@ -39,10 +48,17 @@ public class CachedBytesConverter implements Function<ByteSequence, Bytes> {
       return Bytes.EMPTY;
     }
 
+    if (prevBs != null && prevBs.equals(bs)) {
+      return prevBytes;
+    }
+
     Bytes b = bs2bCache.get(bs);
     if (b == null) {
-      return ByteUtil.toBytes(bs);
+      b = ByteUtil.toBytes(bs);
     }
+
+    prevBs = ByteUtil.toByteSequence(b);
+    prevBytes = b;
     return b;
   }
 }
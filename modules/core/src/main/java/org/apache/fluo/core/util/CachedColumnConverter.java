@@ -16,6 +16,7 @@
 package org.apache.fluo.core.util;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -25,9 +26,25 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
 
+/**
+ * Converts Accumulo keys to Columns, returning the same Column object for keys with the same
+ * column. Lookups compare the key's data in place, so converting a key for a known column allocates
+ * no Bytes or Column objects. Besides the columns it is created with, this converter remembers a
+ * bounded number of the columns it sees, so scans that do not fetch specific columns also avoid
+ * creating a Column for every key.
+ */
 public class CachedColumnConverter implements Function<Key, Column> {
+
+  public static final int DEFAULT_MAX_LEARNED = 1000;
+
   private Map<ColumnKey, Column> colCache = new HashMap<>();
   private ColumnKey resuableKey = new ColumnKey();
+  private final int maxLearned;
+  private int learned = 0;
+
+  // reuse family bytes for consecutive keys that have the same family
+  private ByteSequence prevFamilyBs = null;
+  private Bytes prevFamily = null;
 
   private static class ColumnKey {
     private ByteSequence family;
@@ -72,10 +89,22 @@ public class CachedColumnConverter implements Function<Key, Column> {
     }
   }
 
+  public CachedColumnConverter() {
+    this(Collections.emptyList(), DEFAULT_MAX_LEARNED);
+  }
+
   public CachedColumnConverter(Collection<Column> cols) {
+    this(cols, DEFAULT_MAX_LEARNED);
+  }
+
+  /**
+   * @param maxLearned max number of columns, other than those passed in, to remember
+   */
+  public CachedColumnConverter(Collection<Column> cols, int maxLearned) {
     for (Column col : cols) {
       colCache.put(new ColumnKey(col), col);
     }
+    this.maxLearned = maxLearned;
   }
 
   @Override
@@ -89,10 +118,22 @@ public class CachedColumnConverter implements Function<Key, Column> {
     Column col = colCache.get(resuableKey);
 
     if (col == null) {
-      Bytes f = ByteUtil.toBytes(family);
+      Bytes f;
+      if (prevFamilyBs != null && prevFamilyBs.equals(family)) {
+        f = prevFamily;
+      } else {
+        f = ByteUtil.toBytes(family);
+        prevFamilyBs = ByteUtil.toByteSequence(f);
+        prevFamily = f;
+      }
       Bytes q = ByteUtil.toBytes(qualifier);
       Bytes v = ByteUtil.toBytes(vis);
-      return new Column(f, q, v);
+      col = new Column(f, q, v);
+
+      if (learned < maxLearned) {
+        colCache.put(new ColumnKey(col), col);
+        learned++;
+      }
     }
 
     return col;
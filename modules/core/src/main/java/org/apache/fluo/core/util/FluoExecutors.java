@@ -25,13 +25,27 @@ import org.slf4j.LoggerFactory;
 
 public class FluoExecutors {
   public static ExecutorService newFixedThreadPool(int numThreads, String name) {
-    return newFixedThreadPool(numThreads, new LinkedBlockingQueue<Runnable>(), name);
+    return newFixedThreadPool(numThreads, name, false);
+  }
+
+  /**
+   * @param virtual if true the pool uses virtual threads, which requires Java 21 or later. The
+   *        number of threads then bounds how many tasks run at once without the memory cost of as
+   *        many platform threads.
+   */
+  public static ExecutorService newFixedThreadPool(int numThreads, String name, boolean virtual) {
+    return newFixedThreadPool(numThreads, new LinkedBlockingQueue<Runnable>(), name, virtual);
   }
 
   public static ThreadPoolExecutor newFixedThreadPool(int numThreads, BlockingQueue<Runnable> queue,
       String name) {
+    return newFixedThreadPool(numThreads, queue, name, false);
+  }
+
+  public static ThreadPoolExecutor newFixedThreadPool(int numThreads, BlockingQueue<Runnable> queue,
+      String name, boolean virtual) {
     ThreadPoolExecutor tpe = new ThreadPoolExecutor(numThreads, numThreads, 0L,
-        TimeUnit.MILLISECONDS, queue, new FluoThreadFactory(name)) {
+        TimeUnit.MILLISECONDS, queue, new FluoThreadFactory(name, virtual)) {
       @Override
       protected void afterExecute(Runnable r, Throwable t) {
         if (t != null) {
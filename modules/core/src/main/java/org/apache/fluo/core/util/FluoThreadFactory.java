@@ -25,19 +25,58 @@ public class FluoThreadFactory implements ThreadFactory {
 
   private String poolName;
   private int poolId;
+  private ThreadFactory virtualFactory;
+
+  // Virtual threads are looked up reflectively because Fluo is built for Java 8
+  private static class VirtualThreads {
+    static final ThreadFactory FACTORY = createFactory();
+
+    private static ThreadFactory createFactory() {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      } catch (ReflectiveOperationException e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * @return true if the running JVM supports virtual threads
+   */
+  public static boolean supportsVirtualThreads() {
+    return VirtualThreads.FACTORY != null;
+  }
 
   public FluoThreadFactory(String poolName) {
+    this(poolName, false);
+  }
+
+  /**
+   * @param virtual if true create virtual threads, which requires Java 21 or later
+   */
+  public FluoThreadFactory(String poolName, boolean virtual) {
     this.poolName = poolName;
     this.poolId = poolCount.incrementAndGet();
+    if (virtual) {
+      if (!supportsVirtualThreads()) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+      }
+      this.virtualFactory = VirtualThreads.FACTORY;
+    }
   }
 
   @Override
   public Thread newThread(Runnable r) {
-    Thread t = new Thread(r);
+    Thread t = virtualFactory == null ? new Thread(r) : virtualFactory.newThread(r);
     String name =
         String.format("Fluo-%04d-%03d-%s", poolId, threadCount.incrementAndGet(), poolName);
     t.setName(name);
-    t.setDaemon(true);
+    if (virtualFactory == null) {
+      // virtual threads are always daemon threads
+      t.setDaemon(true);
+    }
     return t;
   }
 }
@@ -58,4 +58,17 @@ public class Limit {
   public synchronized int leased() {
     return leased;
   }
+
+  public synchronized int permits() {
+    return permits;
+  }
+
+  protected synchronized void setPermits(int permits) {
+    Preconditions.checkArgument(permits > 0, "permits <= 0 : %s", permits);
+    boolean increased = permits > this.permits;
+    this.permits = permits;
+    if (increased) {
+      notifyAll();
+    }
+  }
 }
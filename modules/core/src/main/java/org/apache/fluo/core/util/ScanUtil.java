@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
 import com.google.common.collect.Iterables;
 import org.apache.accumulo.core.client.Connector;
@@ -29,6 +30,7 @@ import org.apache.fluo.api.client.FluoClient;
 import org.apache.fluo.api.client.FluoFactory;
 import org.apache.fluo.api.client.Snapshot;
 import org.apache.fluo.api.client.scanner.CellScanner;
+import org.apache.fluo.api.client.scanner.ScanFilter;
 import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
@@ -89,6 +91,18 @@ public class ScanUtil {
     return columns;
   }
 
+  public static Collection<ScanFilter> getFilters(ScanOpts options) {
+    if (options.getValueRegex() == null) {
+      return Collections.emptyList();
+    }
+
+    try {
+      return Collections.singletonList(ScanFilter.valueRegex(options.getValueRegex()));
+    } catch (PatternSyntaxException e) {
+      throw new IllegalArgumentException("Failed to scan!  Bad value regex " + e.getMessage(), e);
+    }
+  }
+
   public static void scanFluo(ScanOpts options, FluoConfiguration sConfig) {
 
     try (FluoClient client = FluoFactory.newClient(sConfig)) {
@@ -96,15 +110,17 @@ public class ScanUtil {
 
         Span span = null;
         Collection<Column> columns = null;
+        Collection<ScanFilter> filters = null;
         try {
           span = getSpan(options);
           columns = getColumns(options);
+          filters = getFilters(options);
         } catch (IllegalArgumentException e) {
           System.err.println(e.getMessage());
           System.exit(-1);
         }
 
-        CellScanner cellScanner = s.scanner().over(span).fetch(columns).build();
+        CellScanner cellScanner = s.scanner().over(span).fetch(columns).filter(filters).build();
 
         StringBuilder sb = new StringBuilder();
         for (RowColumnValue rcv : cellScanner) {
@@ -145,6 +161,11 @@ public class ScanUtil {
     Span span = null;
     Collection<Column> columns = null;
     try {
+      if (options.getValueRegex() != null) {
+        // raw values include Fluo's internal lock, write and ack entries, so a regex would not
+        // filter the same cells as a Fluo scan
+        throw new IllegalArgumentException("You cannot specify a value regex with a raw scan!");
+      }
       span = getSpan(options);
       columns = getColumns(options);
     } catch (IllegalArgumentException e) {
@@ -180,17 +201,26 @@ public class ScanUtil {
     private List<String> columns;
     private String exactRow;
     private String rowPrefix;
+    private String valueRegex;
     public boolean help;
     public boolean hexEncNonAscii = true;
     public boolean scanAccumuloTable = false;
 
     public ScanOpts(String startRow, String endRow, List<String> columns, String exactRow,
         String rowPrefix, boolean help, boolean hexEncNonAscii, boolean scanAccumuloTable) {
+      this(startRow, endRow, columns, exactRow, rowPrefix, null, help, hexEncNonAscii,
+          scanAccumuloTable);
+    }
+
+    public ScanOpts(String startRow, String endRow, List<String> columns, String exactRow,
+        String rowPrefix, String valueRegex, boolean help, boolean hexEncNonAscii,
+        boolean scanAccumuloTable) {
       this.startRow = startRow;
       this.endRow = endRow;
       this.columns = columns;
       this.exactRow = exactRow;
       this.rowPrefix = rowPrefix;
+      this.valueRegex = valueRegex;
       this.help = help;
       this.hexEncNonAscii = hexEncNonAscii;
       this.scanAccumuloTable = scanAccumuloTable;
@@ -218,5 +248,9 @@ public class ScanUtil {
       }
       return columns;
     }
+
+    public String getValueRegex() {
+      return valueRegex;
+    }
   }
 }
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread pool queue that fairly shares threads between groups of tasks, like the tasks for each
+ * observer. Each group has its own queue ordered by the tasks' natural order. Threads take from the
+ * group with the lowest virtual time, and taking a task advances its group's virtual time in
+ * inverse proportion to the group's weight. A group already running its max number of tasks is
+ * skipped until one of them finishes.
+ *
+ * <p>
+ * Tasks must be Comparable and {@link #finished(Runnable)} must be called after a task taken from
+ * this queue has run.
+ */
+class FairTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+  // the virtual time taking a task adds to a group with a weight of 1
+  private static final long STRIDE = 1 << 20;
+
+  private static class Group {
+    final PriorityQueue<Runnable> tasks = new PriorityQueue<>();
+    final long stride;
+    final int maxRunning;
+    long pass = 0;
+    int running = 0;
+
+    Group(int weight, int maxRunning) {
+      this.stride = STRIDE / weight;
+      this.maxRunning = maxRunning;
+    }
+
+    boolean canRun() {
+      return !tasks.isEmpty() && (maxRunning == 0 || running < maxRunning);
+    }
+  }
+
+  private final Function<Runnable, String> groupFunction;
+  private final ToIntFunction<String> weightFunction;
+  private final ToIntFunction<String> maxRunningFunction;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition canRun = lock.newCondition();
+  private final Map<String, Group> groups = new HashMap<>();
+  private final Map<Runnable, Group> running = new IdentityHashMap<>();
+  // the virtual time of the group last taken from
+  private long virtualTime = 0;
+  private int size = 0;
+
+  /**
+   * @param groupFunction returns the group of a task
+   * @param weightFunction returns the weight of a group, which must be between 1 and 2^20
+   * @param maxRunningFunction returns the max number of tasks a group can run at once, or 0 for no
+   *        limit
+   * @param knownGroups groups created up front, so a bad weight or limit for them fails here
+   *        instead of when their first task is queued. Other groups are created as needed.
+   */
+  FairTaskQueue(Function<Runnable, String> groupFunction, ToIntFunction<String> weightFunction,
+      ToIntFunction<String> maxRunningFunction, Collection<String> knownGroups) {
+    this.groupFunction = groupFunction;
+    this.weightFunction = weightFunction;
+    this.maxRunningFunction = maxRunningFunction;
+    for (String name : knownGroups) {
+      getGroup(name);
+    }
+  }
+
+  private Group getGroup(String name) {
+    Group group = groups.get(name);
+    if (group == null) {
+      int weight = weightFunction.applyAsInt(name);
+      int maxRunning = maxRunningFunction.applyAsInt(name);
+      if (weight < 1 || weight > STRIDE) {
+        throw new IllegalArgumentException("Bad weight for " + name + " " + weight);
+      }
+      if (maxRunning < 0) {
+        throw new IllegalArgumentException("Bad max running for " + name + " " + maxRunning);
+      }
+      group = new Group(weight, maxRunning);
+      groups.put(name, group);
+    }
+    return group;
+  }
+
+  private Group select() {
+    Group selected = null;
+    for (Group group : groups.values()) {
+      if (group.canRun() && (selected == null || group.pass < selected.pass)) {
+        selected = group;
+      }
+    }
+    return selected;
+  }
+
+  private Runnable take(Group group) {
+    Runnable task = group.tasks.poll();
+    size--;
+    virtualTime = group.pass;
+    group.pass += group.stride;
+    group.running++;
+    running.put(task, group);
+    if (select() != null) {
+      canRun.signal();
+    }
+    return task;
+  }
+
+  @Override
+  public boolean offer(Runnable task) {
+    Objects.requireNonNull(task);
+    String name = groupFunction.apply(task);
+    lock.lock();
+    try {
+      Group group = getGroup(name);
+      if (group.tasks.isEmpty()) {
+        // a group that was idle does not get to catch up on the time it was idle
+        group.pass = Math.max(group.pass, virtualTime);
+      }
+      group.tasks.add(task);
+      size++;
+      canRun.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(Runnable task) {
+    offer(task);
+  }
+
+  @Override
+  public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+    return offer(task);
+  }
+
+  @Override
+  public Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      Group group;
+      while ((group = select()) == null) {
+        canRun.await();
+      }
+      return take(group);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      Group group;
+      while ((group = select()) == null) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = canRun.awaitNanos(nanos);
+      }
+      return take(group);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll() {
+    lock.lock();
+    try {
+      Group group = select();
+      return group == null ? null : take(group);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable peek() {
+    lock.lock();
+    try {
+      Group group = select();
+      return group == null ? null : group.tasks.peek();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Must be called when a task taken from this queue is done running, so its group can run
+   * another task. Does nothing for tasks that were not taken from this queue.
+   */
+  public void finished(Runnable task) {
+    lock.lock();
+    try {
+      Group group = running.remove(task);
+      if (group != null) {
+        group.running--;
+        if (group.canRun()) {
+          canRun.signal();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      for (Group group : groups.values()) {
+        if (group.tasks.remove(o)) {
+          size--;
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of queued tasks in the group
+   */
+  public int getQueued(String name) {
+    lock.lock();
+    try {
+      Group group = groups.get(name);
+      return group == null ? 0 : group.tasks.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of tasks in the group that were taken and have not finished
+   */
+  public int getRunning(String name) {
+    lock.lock();
+    try {
+      Group group = groups.get(name);
+      return group == null ? 0 : group.running;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> c, int maxElements) {
+    // drains queued tasks regardless of fairness or limits, as is done when a pool shuts down
+    lock.lock();
+    try {
+      int drained = 0;
+      for (Group group : groups.values()) {
+        while (drained < maxElements && !group.tasks.isEmpty()) {
+          c.add(group.tasks.poll());
+          size--;
+          drained++;
+        }
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return an iterator over a snapshot of the queued tasks
+   */
+  @Override
+  public Iterator<Runnable> iterator() {
+    List<Runnable> snapshot;
+    lock.lock();
+    try {
+      snapshot = new ArrayList<>(size);
+      for (Group group : groups.values()) {
+        snapshot.addAll(group.tasks);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    Iterator<Runnable> iter = snapshot.iterator();
+    return new Iterator<Runnable>() {
+      private Runnable last;
+
+      @Override
+      public boolean hasNext() {
+        return iter.hasNext();
+      }
+
+      @Override
+      public Runnable next() {
+        last = iter.next();
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        FairTaskQueue.this.remove(last);
+        last = null;
+      }
+    };
+  }
+}
@@ -15,30 +15,50 @@
 
 package org.apache.fluo.core.worker;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.api.observer.Observer.NotificationType;
 import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.impl.Notification;
+import org.apache.fluo.core.impl.TimestampBatcher;
 import org.apache.fluo.core.observer.Observers;
+import org.apache.fluo.core.oracle.Stamp;
 import org.apache.fluo.core.util.FluoExecutors;
 import org.apache.fluo.core.util.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.apache.fluo.api.observer.Observer.NotificationType.STRONG;
+
 public class NotificationProcessor implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(NotificationProcessor.class);
@@ -47,15 +67,63 @@ public class NotificationProcessor implements AutoCloseable {
   private ThreadPoolExecutor executor;
   private Environment env;
   private Observers observers;
-  private PriorityBlockingQueue<Runnable> queue;
+  private BlockingQueue<Runnable> queue;
+  // only set when fair scheduling is enabled
+  private FairTaskQueue fairQueue;
+  private TimestampBatcher timestampBatcher;
+  private ExecutorService prefetchExecutor;
+  // limits the number of queued notifications with a transaction started ahead of processing
+  private Semaphore prefetchPermits;
+  // nanos a prefetched transaction can wait before it is replaced with a new one
+  private final long prefetchMaxAge;
+  // when true, queued notifications for the same row are processed in one transaction
+  private final boolean rowBatching;
+  private final Set<Column> strongColumns;
+  private final Meter batchedMeter;
+  // notifications dropped because this worker was no longer responsible for them
+  private final Meter discardedMeter;
 
   public NotificationProcessor(Environment env) {
     int numThreads = env.getConfiguration().getWorkerThreads();
     this.env = env;
-    this.queue = new PriorityBlockingQueue<>();
-    this.executor = FluoExecutors.newFixedThreadPool(numThreads, queue, "ntfyProc");
-    this.tracker = new NotificationTracker();
+    FluoConfiguration conf = env.getConfiguration();
     this.observers = env.getConfiguredObservers().getObservers(env);
+    if (conf.getBoolean(FluoConfigurationImpl.WORKER_FAIR_SCHEDULING_PROP,
+        FluoConfigurationImpl.WORKER_FAIR_SCHEDULING_DEFAULT)) {
+      // validates the weight and max threads configured for each observer
+      this.fairQueue = new FairTaskQueue(r -> ((FutureNotificationTask) r).observerId,
+          id -> FluoConfigurationImpl.getWorkerObserverWeight(conf, id),
+          id -> FluoConfigurationImpl.getWorkerObserverMaxThreads(conf, id), getObserverIds());
+      this.queue = fairQueue;
+    } else {
+      this.queue = new PriorityBlockingQueue<>();
+    }
+    boolean virtual = FluoConfigurationImpl.getWorkerVirtualThreads(conf);
+    this.executor = FluoExecutors.newFixedThreadPool(numThreads, queue, "ntfyProc", virtual);
+    if (fairQueue != null) {
+      // the pool runs tasks submitted before all its threads exist without queuing them, which
+      // would bypass the per observer limits
+      executor.prestartAllCoreThreads();
+    }
+    this.prefetchExecutor =
+        FluoExecutors.newFixedThreadPool(numThreads, "ntfyPrefetch", virtual);
+    this.prefetchPermits =
+        new Semaphore(FluoConfigurationImpl.getWorkerPrefetchMax(env.getConfiguration()));
+    this.prefetchMaxAge = FluoConfigurationImpl.getWorkerPrefetchMaxAge(env.getConfiguration(),
+        TimeUnit.NANOSECONDS);
+    this.rowBatching = env.getConfiguration().getBoolean(
+        FluoConfigurationImpl.WORKER_ROW_BATCHING_PROP,
+        FluoConfigurationImpl.WORKER_ROW_BATCHING_DEFAULT);
+    this.strongColumns = env.getConfiguredObservers().getObservedColumns(STRONG);
+    this.batchedMeter = env.getSharedResources().getMetricRegistry()
+        .meter(env.getMetricNames().getNotificationsBatched());
+    this.discardedMeter = env.getSharedResources().getMetricRegistry()
+        .meter(env.getMetricNames().getNotificationsDiscarded());
+    this.tracker = new NotificationTracker(
+        env.getSharedResources().getMetricRegistry()
+            .counter(env.getMetricNames().getNotificationTrackerContention()),
+        FluoConfigurationImpl.getWorkerNotificationQueueMemory(conf));
+    this.timestampBatcher = new TimestampBatcher(env, () -> queue.size());
     env.getSharedResources().getMetricRegistry()
         .register(env.getMetricNames().getNotificationQueued(), new Gauge<Integer>() {
           @Override
@@ -63,86 +131,262 @@ public class NotificationProcessor implements AutoCloseable {
             return queue.size();
           }
         });
+    if (fairQueue != null) {
+      registerObserverGauges();
+    }
+  }
+
+  private Set<String> getObserverIds() {
+    Set<String> observerIds = new HashSet<>();
+    for (NotificationType ntfyType : NotificationType.values()) {
+      for (Column col : env.getConfiguredObservers().getObservedColumns(ntfyType)) {
+        String observerId = observers.getObserverId(col);
+        if (observerId != null) {
+          observerIds.add(observerId);
+        }
+      }
+    }
+    return observerIds;
   }
 
-  // little utility class that tracks all notifications in queue
+  private void registerObserverGauges() {
+    MetricRegistry registry = env.getSharedResources().getMetricRegistry();
+    for (String observerId : getObserverIds()) {
+      registry.register(env.getMetricNames().getObserverQueued(observerId),
+          (Gauge<Integer>) () -> fairQueue.getQueued(observerId));
+      registry.register(env.getMetricNames().getObserverRunning(observerId),
+          (Gauge<Integer>) () -> fairQueue.getRunning(observerId));
+    }
+  }
+
+  // little utility class that tracks all notifications in queue. Notifications are spread across
+  // lock stripes by row, so worker threads and the thread adding notifications rarely contend.
   private class NotificationTracker {
-    private Map<RowColumn, Future<?>> queuedWork = new HashMap<>();
-    private Set<RowColumn> recentlyDeleted = new HashSet<>();
-    private long sizeInBytes = 0;
-    private Map<Long, Predicate<RowColumn>> memoryPredicates = new HashMap<>();
-    private Predicate<RowColumn> memoryPredicate = rc -> false;
-    private static final long MAX_SIZE = 1 << 24;
+    private static final int NUM_STRIPES = 64;
+
+    private class Stripe {
+      private final ReentrantLock lock = new ReentrantLock();
+      private final Map<RowColumn, FutureNotificationTask> queuedWork = new HashMap<>();
+      // only maintained when row batching is enabled
+      private final Map<Bytes, Set<Column>> queuedRows = new HashMap<>();
+      private final Set<RowColumn> recentlyDeleted = new HashSet<>();
+      private long sizeInBytes = 0;
+
+      void lock() {
+        if (!lock.tryLock()) {
+          contention.inc();
+          lock.lock();
+        }
+      }
+
+      void unlock() {
+        lock.unlock();
+      }
+    }
+
+    private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+    private final AtomicLong sizeInBytes = new AtomicLong(0);
+    private final long maxSize;
+    // threads adding notifications wait on this while the tracker is full
+    private final Object sizeMonitor = new Object();
+    private final Counter contention;
+
+    private final Map<Long, Predicate<RowColumn>> memoryPredicates = new HashMap<>();
+    private volatile Predicate<RowColumn> memoryPredicate = rc -> false;
     private long nextSessionId = 0;
 
+    NotificationTracker(Counter contention, long maxSize) {
+      this.contention = contention;
+      this.maxSize = maxSize;
+      for (int i = 0; i < stripes.length; i++) {
+        stripes[i] = new Stripe();
+      }
+    }
+
+    private Stripe getStripe(Bytes row) {
+      int hash = row.hashCode();
+      return stripes[(hash ^ (hash >>> 16)) & (NUM_STRIPES - 1)];
+    }
+
     private long size(RowColumn rowCol) {
       Column col = rowCol.getColumn();
       return (long) rowCol.getRow().length() + col.getFamily().length()
           + col.getQualifier().length() + col.getVisibility().length();
     }
 
-    public synchronized boolean add(RowColumn rowCol, Future<?> task) {
+    public boolean isTracked(RowColumn rowCol) {
+      return isTracked(getStripe(rowCol.getRow()), rowCol);
+    }
 
-      if (queuedWork.containsKey(rowCol) || recentlyDeleted.contains(rowCol)) {
-        return false;
+    private boolean isTracked(Stripe stripe, RowColumn rowCol) {
+      stripe.lock();
+      try {
+        return stripe.queuedWork.containsKey(rowCol) || stripe.recentlyDeleted.contains(rowCol);
+      } finally {
+        stripe.unlock();
       }
+    }
 
-      while (sizeInBytes > MAX_SIZE) {
-        try {
-          wait(1000);
-        } catch (InterruptedException e) {
-          throw new RuntimeException(e);
+    private boolean isFull() {
+      return sizeInBytes.get() > maxSize;
+    }
+
+    private void waitForSpace() {
+      synchronized (sizeMonitor) {
+        while (isFull()) {
+          try {
+            sizeMonitor.wait(1000);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
         }
       }
+    }
 
-      if (queuedWork.containsKey(rowCol) || recentlyDeleted.contains(rowCol)) {
+    private void releaseSpace(long size) {
+      if (sizeInBytes.getAndAdd(-size) > maxSize) {
+        synchronized (sizeMonitor) {
+          sizeMonitor.notifyAll();
+        }
+      }
+    }
+
+    /**
+     * @param wait when true waits for space if the tracker is full, otherwise returns false
+     */
+    public boolean add(RowColumn rowCol, FutureNotificationTask task, boolean wait) {
+      Stripe stripe = getStripe(rowCol.getRow());
+
+      if (isTracked(stripe, rowCol)) {
         return false;
       }
 
-      queuedWork.put(rowCol, task);
-      sizeInBytes += size(rowCol);
-      return true;
+      if (wait) {
+        waitForSpace();
+      } else if (isFull()) {
+        return false;
+      }
+
+      stripe.lock();
+      try {
+        if (stripe.queuedWork.containsKey(rowCol) || stripe.recentlyDeleted.contains(rowCol)) {
+          return false;
+        }
+
+        stripe.queuedWork.put(rowCol, task);
+        if (rowBatching) {
+          stripe.queuedRows.computeIfAbsent(rowCol.getRow(), k -> new HashSet<>())
+              .add(rowCol.getColumn());
+        }
+        long size = size(rowCol);
+        stripe.sizeInBytes += size;
+        sizeInBytes.addAndGet(size);
+        return true;
+      } finally {
+        stripe.unlock();
+      }
     }
 
-    public synchronized void remove(RowColumn rowCol) {
-      if (queuedWork.remove(rowCol) != null) {
+    public void remove(RowColumn rowCol) {
+      Stripe stripe = getStripe(rowCol.getRow());
+      long size = size(rowCol);
+
+      stripe.lock();
+      try {
+        if (stripe.queuedWork.remove(rowCol) == null) {
+          return;
+        }
+
+        // read while holding the stripe lock, see finishAddingNotifications()
         if (memoryPredicate.test(rowCol)) {
-          recentlyDeleted.add(rowCol);
+          stripe.recentlyDeleted.add(rowCol);
         }
-        sizeInBytes -= size(rowCol);
-        notify();
+        if (rowBatching) {
+          Set<Column> cols = stripe.queuedRows.get(rowCol.getRow());
+          cols.remove(rowCol.getColumn());
+          if (cols.isEmpty()) {
+            stripe.queuedRows.remove(rowCol.getRow());
+          }
+        }
+        stripe.sizeInBytes -= size;
+      } finally {
+        stripe.unlock();
       }
+
+      releaseSpace(size);
     }
 
-    public synchronized void clear() {
-      for (Future<?> task : queuedWork.values()) {
-        task.cancel(false);
-      }
+    public void clear() {
+      for (Stripe stripe : stripes) {
+        long size;
+        stripe.lock();
+        try {
+          for (Future<?> task : stripe.queuedWork.values()) {
+            task.cancel(false);
+          }
+
+          stripe.queuedWork.clear();
+          stripe.queuedRows.clear();
+          size = stripe.sizeInBytes;
+          stripe.sizeInBytes = 0;
+        } finally {
+          stripe.unlock();
+        }
 
-      queuedWork.clear();
-      sizeInBytes = 0;
-      notify();
+        releaseSpace(size);
+      }
     }
 
-    public synchronized boolean requeue(RowColumn rowCol, FutureTask<?> ft) {
-      if (!queuedWork.containsKey(rowCol)) {
-        return false;
+    /**
+     * @return the queued tasks for the given row, other than the task for the given column
+     */
+    public List<FutureNotificationTask> getQueued(Bytes row, Column exclude) {
+      Stripe stripe = getStripe(row);
+      stripe.lock();
+      try {
+        Set<Column> cols = stripe.queuedRows.get(row);
+        if (cols == null || cols.size() == 1) {
+          return Collections.emptyList();
+        }
+
+        List<FutureNotificationTask> tasks = new ArrayList<>(cols.size() - 1);
+        for (Column col : cols) {
+          if (!col.equals(exclude)) {
+            tasks.add(stripe.queuedWork.get(new RowColumn(row, col)));
+          }
+        }
+        return tasks;
+      } finally {
+        stripe.unlock();
       }
+    }
 
-      queuedWork.put(rowCol, ft);
+    public boolean requeue(RowColumn rowCol, FutureNotificationTask ft) {
+      Stripe stripe = getStripe(rowCol.getRow());
+      stripe.lock();
+      try {
+        if (!stripe.queuedWork.containsKey(rowCol)) {
+          return false;
+        }
 
-      return true;
+        stripe.queuedWork.put(rowCol, ft);
+
+        return true;
+      } finally {
+        stripe.unlock();
+      }
     }
 
     private void resetMemoryPredicate() {
-      memoryPredicate = null;
+      Predicate<RowColumn> combined = null;
       for (Predicate<RowColumn> p : this.memoryPredicates.values()) {
-        if (memoryPredicate == null) {
-          memoryPredicate = p;
+        if (combined == null) {
+          combined = p;
         } else {
-          memoryPredicate = p.or(memoryPredicate);
+          combined = p.or(combined);
         }
       }
+      memoryPredicate = combined;
     }
 
     public synchronized long beginAddingNotifications(Predicate<RowColumn> memoryPredicate) {
@@ -155,8 +399,17 @@ public class NotificationProcessor implements AutoCloseable {
     public synchronized void finishAddingNotifications(long sessionId) {
       this.memoryPredicates.remove(sessionId);
       if (memoryPredicates.size() == 0) {
-        recentlyDeleted.clear();
+        // Set the predicate before clearing. A concurrent remove() either adds to a stripe before
+        // it is cleared or sees the new predicate.
         memoryPredicate = rc -> false;
+        for (Stripe stripe : stripes) {
+          stripe.lock();
+          try {
+            stripe.recentlyDeleted.clear();
+          } finally {
+            stripe.unlock();
+          }
+        }
       } else {
         resetMemoryPredicate();
       }
@@ -169,22 +422,39 @@ public class NotificationProcessor implements AutoCloseable {
     Notification notification;
     NotificationFinder notificationFinder;
     WorkTaskAsync workTask;
+    // false for requeued notifications, which are retried on their own
+    final boolean batchable;
+    // set by the task that processes this notification, which may be the task for another column
+    final AtomicBoolean claimed = new AtomicBoolean(false);
 
-    NotificationProcessingTask(Notification n, NotificationFinder nf, WorkTaskAsync wt) {
+    NotificationProcessingTask(Notification n, NotificationFinder nf, WorkTaskAsync wt,
+        boolean batchable) {
       this.notification = n;
       this.notificationFinder = nf;
       this.workTask = wt;
+      this.batchable = batchable && rowBatching && strongColumns.contains(n.getColumn());
     }
 
     @Override
     public void run() {
       try {
+        if (!claimed.compareAndSet(false, true)) {
+          // was processed in the transaction of another notification for the same row
+          workTask.discard();
+          return;
+        }
+
         // Its possible that while the notification was in the queue the situation changed and it
         // should no longer be processed by this worker. So ask as late as possible if this
         // notification should be processed.
         if (notificationFinder.shouldProcess(notification)) {
+          if (batchable) {
+            addRowToBatch(this);
+          }
           workTask.run();
         } else {
+          workTask.discard();
+          discardedMeter.mark();
           notificationProcessed(notification);
         }
       } catch (Exception e) {
@@ -198,10 +468,44 @@ public class NotificationProcessor implements AutoCloseable {
       implements Comparable<FutureNotificationTask> {
 
     private final Notification notification;
+    private final WorkTaskAsync workTask;
+    private final NotificationProcessingTask processingTask;
+    private final String observerId;
+    // true while this task holds a prefetch permit
+    private final AtomicBoolean prefetching = new AtomicBoolean(false);
+
+    public FutureNotificationTask(Notification n, NotificationFinder nf, WorkTaskAsync wt,
+        boolean batchable) {
+      this(new NotificationProcessingTask(n, nf, wt, batchable));
+    }
 
-    public FutureNotificationTask(Notification n, NotificationFinder nf, WorkTaskAsync wt) {
-      super(new NotificationProcessingTask(n, nf, wt), null);
-      this.notification = n;
+    private FutureNotificationTask(NotificationProcessingTask processingTask) {
+      super(processingTask, null);
+      this.notification = processingTask.notification;
+      this.workTask = processingTask.workTask;
+      this.processingTask = processingTask;
+      this.observerId = observers.getObserverId(notification.getColumn());
+    }
+
+    @Override
+    public void run() {
+      try {
+        super.run();
+      } finally {
+        if (fairQueue != null) {
+          fairQueue.finished(this);
+        }
+      }
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        workTask.discard();
+      }
+      if (prefetching.getAndSet(false)) {
+        prefetchPermits.release();
+      }
     }
 
     @Override
@@ -226,12 +530,37 @@ public class NotificationProcessor implements AutoCloseable {
 
     public boolean addNotification(final NotificationFinder notificationFinder,
         final Notification notification) {
+      return addNotification(notificationFinder, notification, true);
+    }
+
+    /**
+     * Adds a notification like {@link #addNotification(NotificationFinder, Notification)}, except
+     * that it does not wait when too many notifications are queued.
+     *
+     * @return false if the notification was not added, because it was already queued or too many
+     *         notifications are queued
+     */
+    public boolean offerNotification(final NotificationFinder notificationFinder,
+        final Notification notification) {
+      return addNotification(notificationFinder, notification, false);
+    }
+
+    private boolean addNotification(NotificationFinder notificationFinder,
+        Notification notification, boolean waitForSpace) {
+
+      // A hot column is found by every scan while it is queued, so avoid creating tasks for it.
+      if (tracker.isTracked(notification.getRowColumn())) {
+        return false;
+      }
+
+      Set<Column> prefetchColumns = observers.getPrefetchColumns(notification.getColumn());
 
       WorkTaskAsync workTask = new WorkTaskAsync(NotificationProcessor.this, notificationFinder,
-          env, notification, observers);
-      FutureTask<?> ft = new FutureNotificationTask(notification, notificationFinder, workTask);
+          env, notification, observers, prefetchColumns);
+      FutureNotificationTask ft =
+          new FutureNotificationTask(notification, notificationFinder, workTask, true);
 
-      if (!tracker.add(notification.getRowColumn(), ft)) {
+      if (!tracker.add(notification.getRowColumn(), ft, waitForSpace)) {
         return false;
       }
 
@@ -242,6 +571,10 @@ public class NotificationProcessor implements AutoCloseable {
         throw rje;
       }
 
+      if (!prefetchColumns.isEmpty()) {
+        prefetch(ft);
+      }
+
       return true;
     }
 
@@ -260,12 +593,69 @@ public class NotificationProcessor implements AutoCloseable {
     return new Session(memoryPredicate);
   }
 
+  /**
+   * Starts the transaction for a queued notification and reads the columns its observer declared it
+   * will read, if a worker thread has not already started processing it.
+   */
+  private void prefetch(FutureNotificationTask ft) {
+    if (ft.isDone() || !prefetchPermits.tryAcquire()) {
+      return;
+    }
+
+    ft.prefetching.set(true);
+    if (ft.isDone()) {
+      // the task may have finished before the flag was set, in which case done() did not release
+      if (ft.prefetching.getAndSet(false)) {
+        prefetchPermits.release();
+      }
+      return;
+    }
+
+    try {
+      prefetchExecutor.execute(ft.workTask::prefetch);
+    } catch (RejectedExecutionException rje) {
+      // processor is closing
+    }
+  }
+
+  /**
+   * Claims the other queued notifications for the row of the given task, which is about to run,
+   * and adds them to its transaction. Notifications for columns with weak observers and requeued
+   * notifications are never batched.
+   */
+  private void addRowToBatch(NotificationProcessingTask task) {
+    Notification notification = task.notification;
+    int added = 0;
+    for (FutureNotificationTask ft : tracker.getQueued(notification.getRow(),
+        notification.getColumn())) {
+      NotificationProcessingTask other = ft.processingTask;
+      if (!other.batchable || !other.claimed.compareAndSet(false, true)) {
+        continue;
+      }
+
+      // the other task will do nothing when it runs, so it must be handled here
+      other.workTask.discard();
+      if (other.notificationFinder.shouldProcess(other.notification)) {
+        task.workTask.addToBatch(other.notification);
+        added++;
+      } else {
+        discardedMeter.mark();
+        notificationProcessed(other.notification);
+      }
+    }
+
+    if (added > 0) {
+      batchedMeter.mark(added);
+    }
+  }
+
   public void requeueNotification(final NotificationFinder notificationFinder,
       final Notification notification) {
 
     WorkTaskAsync workTask =
         new WorkTaskAsync(this, notificationFinder, env, notification, observers);
-    FutureTask<?> ft = new FutureNotificationTask(notification, notificationFinder, workTask);
+    FutureNotificationTask ft =
+        new FutureNotificationTask(notification, notificationFinder, workTask, false);
 
     if (tracker.requeue(notification.getRowColumn(), ft)) {
       try {
@@ -277,6 +667,24 @@ public class NotificationProcessor implements AutoCloseable {
     }
   }
 
+  /**
+   * Allocates a start timestamp for a transaction processing a notification. Timestamps are
+   * retrieved from the oracle in batches sized by the number of queued notifications.
+   *
+   * @see TimestampBatcher#allocateTimestamp(long, long)
+   */
+  Stamp allocateTimestamp(long minTimestamp, long requestTime) {
+    return timestampBatcher.allocateTimestamp(minTimestamp, requestTime);
+  }
+
+  /**
+   * @return nanos a transaction started by prefetching can wait in the queue before it is closed
+   *         and a new one started
+   */
+  long getPrefetchMaxAge() {
+    return prefetchMaxAge;
+  }
+
   public void notificationProcessed(final Notification notification) {
     tracker.remove(notification.getRowColumn());
   }
@@ -292,7 +700,11 @@ public class NotificationProcessor implements AutoCloseable {
 
   @Override
   public void close() {
-    executor.shutdownNow();
+    for (Runnable r : executor.shutdownNow()) {
+      // closes any transactions started by prefetching
+      ((Future<?>) r).cancel(false);
+    }
+    prefetchExecutor.shutdownNow();
     observers.close();
 
     try {
@@ -302,5 +714,7 @@ public class NotificationProcessor implements AutoCloseable {
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
+
+    timestampBatcher.close();
   }
 }
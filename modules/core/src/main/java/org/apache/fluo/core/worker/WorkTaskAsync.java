@@ -15,6 +15,15 @@
 
 package org.apache.fluo.core.worker;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.observer.Observer;
 import org.apache.fluo.core.async.AsyncCommitObserver;
 import org.apache.fluo.core.async.AsyncTransaction;
@@ -24,6 +33,7 @@ import org.apache.fluo.core.impl.Notification;
 import org.apache.fluo.core.impl.TransactionImpl;
 import org.apache.fluo.core.log.TracingTransaction;
 import org.apache.fluo.core.observer.Observers;
+import org.apache.fluo.core.oracle.Stamp;
 import org.apache.fluo.core.util.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,19 +47,44 @@ public class WorkTaskAsync implements Runnable {
   private Observers observers;
   private NotificationFinder notificationFinder;
 
-  private NotificationProcessor notificationProcessor;
+  private Processor notificationProcessor;
+  // other notifications for the same row that are processed in this task's transaction
+  private final List<Notification> batched = new ArrayList<>();
+
+  private final Set<Column> prefetchColumns;
+  // set when a transaction is started for this task, either by prefetch() or run()
+  private final AtomicBoolean txStarted = new AtomicBoolean(false);
+  private final long queuedTime = System.nanoTime();
+  private final CompletableFuture<TransactionImpl> prefetchedTx = new CompletableFuture<>();
+  // when prefetch() started its transaction, only read after prefetchedTx completes
+  private long prefetchTime;
+
+  /**
+   * The methods of {@link NotificationProcessor} used by a task.
+   */
+  interface Processor {
+    Stamp allocateTimestamp(long minTimestamp, long requestTime);
+
+    long getPrefetchMaxAge();
+
+    void notificationProcessed(Notification notification);
+
+    void requeueNotification(NotificationFinder notificationFinder, Notification notification);
+  }
 
   class WorkTaskCommitObserver implements AsyncCommitObserver {
 
     @Override
     public void committed() {
       notificationProcessor.notificationProcessed(notification);
+      for (Notification n : batched) {
+        notificationProcessor.notificationProcessed(n);
+      }
     }
 
     @Override
     public void failed(Throwable t) {
-      notificationFinder.failedToProcess(notification, TxResult.ERROR);
-      notificationProcessor.notificationProcessed(notification);
+      failedToProcess();
       log.error("Failed to process work " + Hex.encNonAscii(notification), t);
     }
 
@@ -57,21 +92,163 @@ public class WorkTaskAsync implements Runnable {
     public void alreadyAcknowledged() {
       notificationFinder.failedToProcess(notification, TxResult.AACKED);
       notificationProcessor.notificationProcessed(notification);
+      // the other notifications may not have been acknowledged, so process them on their own
+      for (Notification n : batched) {
+        notificationProcessor.requeueNotification(notificationFinder, n);
+      }
     }
 
     @Override
     public void commitFailed(String msg) {
+      // Retry batched notifications on their own. If one was already acknowledged, retrying it in
+      // the same batch would fail every time.
       notificationProcessor.requeueNotification(notificationFinder, notification);
+      for (Notification n : batched) {
+        notificationProcessor.requeueNotification(notificationFinder, n);
+      }
     }
   }
 
   WorkTaskAsync(NotificationProcessor notificationProcessor, NotificationFinder notificationFinder,
       Environment env, Notification notification, Observers observers) {
+    this(notificationProcessor, notificationFinder, env, notification, observers,
+        Collections.emptySet());
+  }
+
+  WorkTaskAsync(NotificationProcessor notificationProcessor, NotificationFinder notificationFinder,
+      Environment env, Notification notification, Observers observers,
+      Set<Column> prefetchColumns) {
+    this(new Processor() {
+      @Override
+      public Stamp allocateTimestamp(long minTimestamp, long requestTime) {
+        return notificationProcessor.allocateTimestamp(minTimestamp, requestTime);
+      }
+
+      @Override
+      public long getPrefetchMaxAge() {
+        return notificationProcessor.getPrefetchMaxAge();
+      }
+
+      @Override
+      public void notificationProcessed(Notification notification) {
+        notificationProcessor.notificationProcessed(notification);
+      }
+
+      @Override
+      public void requeueNotification(NotificationFinder notificationFinder,
+          Notification notification) {
+        notificationProcessor.requeueNotification(notificationFinder, notification);
+      }
+    }, notificationFinder, env, notification, observers, prefetchColumns);
+  }
+
+  @VisibleForTesting
+  WorkTaskAsync(Processor notificationProcessor, NotificationFinder notificationFinder,
+      Environment env, Notification notification, Observers observers,
+      Set<Column> prefetchColumns) {
     this.notificationProcessor = notificationProcessor;
     this.notificationFinder = notificationFinder;
     this.env = env;
     this.notification = notification;
     this.observers = observers;
+    this.prefetchColumns = prefetchColumns;
+  }
+
+  /**
+   * Adds a notification for the same row to be processed in this task's transaction. Must be called
+   * before {@link #run()}.
+   */
+  void addToBatch(Notification n) {
+    batched.add(n);
+  }
+
+  private void failedToProcess() {
+    notificationFinder.failedToProcess(notification, TxResult.ERROR);
+    notificationProcessor.notificationProcessed(notification);
+    for (Notification n : batched) {
+      notificationFinder.failedToProcess(n, TxResult.ERROR);
+      notificationProcessor.notificationProcessed(n);
+    }
+  }
+
+  /**
+   * @return the newest timestamp of the notifications processed by this task. The transaction must
+   *         start after it to see the writes that caused the notifications.
+   */
+  private long maxNotificationTimestamp() {
+    long max = notification.getTimestamp();
+    for (Notification n : batched) {
+      max = Math.max(max, n.getTimestamp());
+    }
+    return max;
+  }
+
+  private TransactionImpl newTransaction(long minTimestamp, long requestTime) {
+    return new TransactionImpl(env, notification,
+        notificationProcessor.allocateTimestamp(minTimestamp, requestTime).getTxTimestamp());
+  }
+
+  /**
+   * Starts the transaction for this task and reads the prefetch columns into its read cache. Does
+   * nothing if {@link #run()} already started the transaction.
+   */
+  void prefetch() {
+    if (!txStarted.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      // notifications may still be added to the batch, so only this task's notification is known
+      prefetchTime = System.nanoTime();
+      TransactionImpl tx = newTransaction(notification.getTimestamp(), queuedTime);
+      try {
+        tx.prefetch(notification.getRow(), prefetchColumns);
+      } catch (Exception e) {
+        // the observer will do this read itself and see the problem
+        log.debug("Failed to prefetch columns for " + Hex.encNonAscii(notification), e);
+      }
+      prefetchedTx.complete(tx);
+    } catch (Exception e) {
+      prefetchedTx.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Closes the transaction started by {@link #prefetch()} when this task will not be run.
+   */
+  void discard() {
+    if (!txStarted.compareAndSet(false, true)) {
+      prefetchedTx.thenAccept(TransactionImpl::close);
+    }
+  }
+
+  private TransactionImpl getTransaction() {
+    if (txStarted.compareAndSet(false, true)) {
+      return newTransaction(maxNotificationTimestamp(), queuedTime);
+    }
+
+    TransactionImpl tx = prefetchedTx.join();
+    long minTimestamp = maxNotificationTimestamp();
+    if (tx.getStartTimestamp() <= minTimestamp) {
+      // a notification added to the batch after prefetching is newer than the prefetched snapshot
+      tx.close();
+      return newTransaction(minTimestamp, queuedTime);
+    }
+    if (System.nanoTime() - prefetchTime > notificationProcessor.getPrefetchMaxAge()) {
+      // the task waited in the queue so long that the prefetched snapshot is likely to conflict
+      tx.close();
+      return newTransaction(minTimestamp, System.nanoTime());
+    }
+    return tx;
+  }
+
+  private void process(AsyncTransaction atx, Notification n) throws Exception {
+    Observer observer = observers.getObserver(n.getColumn());
+    try {
+      observer.process(atx, n.getRow(), n.getColumn());
+    } finally {
+      observers.returnObserver(observer);
+    }
   }
 
   @Override
@@ -79,17 +256,26 @@ public class WorkTaskAsync implements Runnable {
     Observer observer = observers.getObserver(notification.getColumn());
     String observerId = observers.getObserverId(notification.getColumn());
     try {
-      AsyncTransaction atx = new TransactionImpl(env, notification);
+      AsyncTransaction atx;
+      try {
+        // getTransaction() also throws if prefetch() failed to start the transaction. Any failure
+        // must release this task's notifications, or they stay tracked and are never queued again.
+        TransactionImpl tx = getTransaction();
+        for (Notification n : batched) {
+          tx.addTrigger(n);
+        }
 
-      if (TracingTransaction.isTracingEnabled()) {
-        atx = new TracingTransaction(atx, notification, observer.getClass(), observerId);
-      }
+        atx = tx;
+        if (TracingTransaction.isTracingEnabled()) {
+          atx = new TracingTransaction(atx, notification, observer.getClass(), observerId);
+        }
 
-      try {
         observer.process(atx, notification.getRow(), notification.getColumn());
+        for (Notification n : batched) {
+          process(atx, n);
+        }
       } catch (Exception e) {
-        notificationFinder.failedToProcess(notification, TxResult.ERROR);
-        notificationProcessor.notificationProcessed(notification);
+        failedToProcess();
         throw e;
       }
 
@@ -15,7 +15,11 @@
 
 package org.apache.fluo.core.worker.finder.hash;
 
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 class PartitionInfo {
 
@@ -25,15 +29,34 @@ class PartitionInfo {
   private final int myGroupSize;
   private final int numWorkers;
   private final RangeSet myGroupsRanges;
+  private final int numBuckets;
+  private final BitSet myBuckets;
+  // the buckets this worker processes in tablets whose buckets are split between groups
+  private final Map<TableRange, BitSet> myTabletBuckets;
 
   PartitionInfo(int myId, int myGroupId, int myGroupSize, int totalGroups, int totalWorkers,
       List<TableRange> groupsRanges) {
+    this(myId, myGroupId, myGroupSize, totalGroups, totalWorkers, groupsRanges, 0, null);
+  }
+
+  PartitionInfo(int myId, int myGroupId, int myGroupSize, int totalGroups, int totalWorkers,
+      List<TableRange> groupsRanges, int numBuckets, BitSet myBuckets) {
+    this(myId, myGroupId, myGroupSize, totalGroups, totalWorkers, groupsRanges, numBuckets,
+        myBuckets, Collections.emptyMap());
+  }
+
+  PartitionInfo(int myId, int myGroupId, int myGroupSize, int totalGroups, int totalWorkers,
+      List<TableRange> groupsRanges, int numBuckets, BitSet myBuckets,
+      Map<TableRange, BitSet> myTabletBuckets) {
     this.myIdInGroup = myId;
     this.myGroupId = myGroupId;
     this.myGroupSize = myGroupSize;
     this.numGroups = totalGroups;
     this.numWorkers = totalWorkers;
     this.myGroupsRanges = new RangeSet(groupsRanges);
+    this.numBuckets = numBuckets;
+    this.myBuckets = myBuckets;
+    this.myTabletBuckets = myTabletBuckets;
   }
 
   /**
@@ -78,13 +101,39 @@ class PartitionInfo {
     return myGroupsRanges;
   }
 
+  /**
+   * @return the number of hash buckets notifications are divided into within a group, or 0 if
+   *         notifications are divided using the worker's id in its group
+   */
+  public int getNumBuckets() {
+    return numBuckets;
+  }
+
+  /**
+   * @return the hash buckets of notifications this worker processes, or null if notifications are
+   *         divided using the worker's id in its group
+   */
+  public BitSet getMyBuckets() {
+    return myBuckets;
+  }
+
+  /**
+   * @return the hash buckets of notifications this worker processes in the given tablet, or null if
+   *         notifications are divided using the worker's id in its group
+   */
+  public BitSet getMyBuckets(TableRange tablet) {
+    return myTabletBuckets.getOrDefault(tablet, myBuckets);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o instanceof PartitionInfo) {
       PartitionInfo other = (PartitionInfo) o;
       return other.myGroupId == myGroupId && other.myIdInGroup == myIdInGroup
           && other.numGroups == numGroups && other.myGroupSize == myGroupSize
-          && other.numWorkers == numWorkers && other.myGroupsRanges.equals(myGroupsRanges);
+          && other.numWorkers == numWorkers && other.myGroupsRanges.equals(myGroupsRanges)
+          && other.numBuckets == numBuckets && Objects.equals(other.myBuckets, myBuckets)
+          && other.myTabletBuckets.equals(myTabletBuckets);
     }
     return false;
   }
@@ -97,7 +146,8 @@ class PartitionInfo {
   @Override
   public String toString() {
     return String.format(
-        "workers:%d  groups:%d  groupSize:%d  groupId:%d  idInGroup:%d  #tablets:%d", numWorkers,
-        numGroups, myGroupSize, myGroupId, myIdInGroup, myGroupsRanges.size());
+        "workers:%d  groups:%d  groupSize:%d  groupId:%d  idInGroup:%d  #tablets:%d  #buckets:%d",
+        numWorkers, numGroups, myGroupSize, myGroupId, myIdInGroup, myGroupsRanges.size(),
+        myBuckets == null ? 0 : myBuckets.cardinality());
   }
 }
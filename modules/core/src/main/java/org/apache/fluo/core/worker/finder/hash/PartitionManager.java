@@ -17,10 +17,14 @@ package org.apache.fluo.core.worker.finder.hash;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
@@ -50,6 +54,8 @@ import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.impl.Notification;
 import org.apache.fluo.core.util.ByteUtil;
 import org.apache.fluo.core.util.FluoThreadFactory;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +72,17 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  * a table. However, it limits the number of workers that will scan a portion of a table for
  * notifications. This limitation is important for scaling, even if there are 1,000 workers there
  * will never be more than 7 to 13 workers scanning a portion of the table.
+ *
+ * <p>
+ * With the rendezvous strategy, workers and tablets are assigned to groups and hash buckets of
+ * notifications are assigned to the workers in a group using rendezvous hashing with bounded
+ * loads. This keeps the assignments balanced while a worker joining or leaving moves only a small
+ * part of the tablets and notifications, so fewer queued notifications are discarded.
+ *
+ * <p>
+ * When also balancing by load, each worker periodically publishes the rate of new notifications in
+ * its tablets and the first worker turns these into tablet weights. Groups are then assigned
+ * tablets by weight and the buckets of a tablet too hot for one group are split between groups.
  */
 public class PartitionManager {
 
@@ -76,6 +93,10 @@ public class PartitionManager {
   private final PathChildrenCache childrenCache;
   private final PersistentEphemeralNode myESNode;
   private final int groupSize;
+  private final boolean rendezvous;
+  private final boolean loadBalancing;
+  // stored in each worker's node, so workers can check they agree on how to partition
+  private final String nodeData;
   private long paritionSetTime;
   private PartitionInfo partitionInfo;
   private final ScheduledExecutorService schedExecutor;
@@ -90,6 +111,16 @@ public class PartitionManager {
 
   private static final long STABILIZE_TIME = TimeUnit.SECONDS.toMillis(60);
 
+  // The number of hash buckets the rendezvous strategy divides the notifications of a group into.
+  // All workers must use the same number.
+  static final int NUM_BUCKETS = 1024;
+
+  // how much more than its share of the tablet weights a group may be assigned
+  private static final double WEIGHT_SLACK = .1;
+
+  // how often workers publish the rate of new notifications in their tablets, when load balancing
+  private static final long LOAD_REPORT_TIME = TimeUnit.SECONDS.toMillis(60);
+
   private class FindersListener implements PathChildrenCacheListener {
 
     @Override
@@ -150,6 +181,218 @@ public class PartitionManager {
         groupsTablets);
   }
 
+  // the SplitMix64 finalizer, which is specified so that all workers compute the same scores
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Assigns items to nodes using rendezvous hashing with bounded loads. In the given order, each
+   * item goes to the node with the highest score for it that does not yet have its share of the
+   * items. Every node ends up with the same number of items, give or take one.
+   *
+   * @param items hashes of the items
+   * @param nodes hashes of the nodes
+   * @return the index of the node assigned to each item
+   */
+  static int[] assign(int[] items, int[] nodes) {
+    int base = items.length / nodes.length;
+    // the number of nodes that can still be assigned one more than the base number of items
+    int extra = items.length % nodes.length;
+    int[] counts = new int[nodes.length];
+    int[] assignment = new int[items.length];
+
+    for (int i = 0; i < items.length; i++) {
+      int best = -1;
+      long bestScore = 0;
+      for (int n = 0; n < nodes.length; n++) {
+        if (counts[n] < base || (counts[n] == base && extra > 0)) {
+          long score = mix(((long) items[i] << 32) | (nodes[n] & 0xffffffffL));
+          if (best == -1 || score > bestScore) {
+            best = n;
+            bestScore = score;
+          }
+        }
+      }
+
+      if (counts[best] == base) {
+        extra--;
+      }
+      counts[best]++;
+      assignment[i] = best;
+    }
+
+    return assignment;
+  }
+
+  static PartitionInfo getRendezvousGroupInfo(String me, SortedSet<String> children,
+      Collection<TableRange> tablets, int groupSize) {
+    return getRendezvousGroupInfo(me, children, tablets, groupSize, null);
+  }
+
+  /**
+   * @param tabletWeights the relative load of each tablet, as computed by
+   *        {@link TabletLoads#computeWeights(Map, Collection)}. When null, each group is assigned
+   *        the same number of tablets.
+   */
+  static PartitionInfo getRendezvousGroupInfo(String me, SortedSet<String> children,
+      Collection<TableRange> tablets, int groupSize, Map<TableRange, Double> tabletWeights) {
+
+    int numGroups = Math.max(1, children.size() / groupSize);
+    int[] groupIds = new int[numGroups];
+    for (int i = 0; i < numGroups; i++) {
+      groupIds[i] = i;
+    }
+
+    List<String> workers = new ArrayList<>(children);
+    int[] workerGroups = assign(workers.stream().mapToInt(String::hashCode).toArray(), groupIds);
+    int myGroupId = workerGroups[workers.indexOf(me)];
+
+    List<String> members = new ArrayList<>();
+    for (int i = 0; i < workers.size(); i++) {
+      if (workerGroups[i] == myGroupId) {
+        members.add(workers.get(i));
+      }
+    }
+    int myId = members.indexOf(me);
+
+    List<TableRange> rangesCopy = new ArrayList<>(tablets);
+    Collections.sort(rangesCopy);
+    List<TableRange> groupsTablets = new ArrayList<>();
+    Map<TableRange, BitSet> groupsTabletBuckets = new HashMap<>();
+    if (tabletWeights == null) {
+      int[] tabletGroups =
+          assign(rangesCopy.stream().mapToInt(TableRange::hashCode).toArray(), groupIds);
+      for (int i = 0; i < rangesCopy.size(); i++) {
+        if (tabletGroups[i] == myGroupId) {
+          groupsTablets.add(rangesCopy.get(i));
+        }
+      }
+    } else {
+      assignWeighted(rangesCopy, tabletWeights, numGroups, myGroupId, groupsTablets,
+          groupsTabletBuckets);
+    }
+
+    int[] buckets = new int[NUM_BUCKETS];
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      buckets[i] = i;
+    }
+    int[] bucketOwners = assign(buckets, members.stream().mapToInt(String::hashCode).toArray());
+    BitSet myBuckets = new BitSet(NUM_BUCKETS);
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      if (bucketOwners[i] == myId) {
+        myBuckets.set(i);
+      }
+    }
+
+    Map<TableRange, BitSet> myTabletBuckets = new HashMap<>();
+    groupsTabletBuckets.forEach((tablet, tabletBuckets) -> {
+      BitSet myBucketsInTablet = (BitSet) myBuckets.clone();
+      myBucketsInTablet.and(tabletBuckets);
+      myTabletBuckets.put(tablet, myBucketsInTablet);
+    });
+
+    return new PartitionInfo(myId, myGroupId, members.size(), numGroups, children.size(),
+        groupsTablets, NUM_BUCKETS, myBuckets, myTabletBuckets);
+  }
+
+  private static class TabletSlice {
+    final TableRange tablet;
+    final int tabletIndex;
+    final int slice;
+    final int numSlices;
+    final double weight;
+
+    TabletSlice(TableRange tablet, int tabletIndex, int slice, int numSlices, double weight) {
+      this.tablet = tablet;
+      this.tabletIndex = tabletIndex;
+      this.slice = slice;
+      this.numSlices = numSlices;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Assigns sorted tablets to groups so that the groups have about the same total weight. A tablet
+   * weighing more than a group's share is split into slices, each with the buckets whose number
+   * modulo the number of slices is the slice's number, and the slices go to different groups. From
+   * heaviest to lightest, each slice goes to the group with the highest rendezvous score for it
+   * that still has room. So light tablets fill in around heavy ones and the assignment does not
+   * depend on which workers are in the groups.
+   */
+  private static void assignWeighted(List<TableRange> tablets, Map<TableRange, Double> weights,
+      int numGroups, int myGroupId, List<TableRange> groupsTablets,
+      Map<TableRange, BitSet> groupsTabletBuckets) {
+
+    double total = 0;
+    for (TableRange tablet : tablets) {
+      total += weights.getOrDefault(tablet, 1.0);
+    }
+    double share = total / numGroups;
+
+    List<TabletSlice> slices = new ArrayList<>();
+    for (int i = 0; i < tablets.size(); i++) {
+      TableRange tablet = tablets.get(i);
+      double weight = weights.getOrDefault(tablet, 1.0);
+      int numSlices = 1;
+      if (weight > share) {
+        numSlices = (int) Math.min(numGroups, Math.ceil(weight / share));
+      }
+      for (int s = 0; s < numSlices; s++) {
+        slices.add(new TabletSlice(tablet, i, s, numSlices, weight / numSlices));
+      }
+    }
+    slices.sort(Comparator.comparingDouble((TabletSlice ts) -> ts.weight).reversed()
+        .thenComparingInt(ts -> ts.tabletIndex).thenComparingInt(ts -> ts.slice));
+
+    double capacity = share * (1 + WEIGHT_SLACK);
+    double[] loads = new double[numGroups];
+    for (TabletSlice ts : slices) {
+      int item = ts.tablet.hashCode() * 31 + ts.slice;
+      int best = -1;
+      long bestScore = 0;
+      for (int g = 0; g < numGroups; g++) {
+        if (loads[g] + ts.weight <= capacity) {
+          long score = mix(((long) item << 32) | g);
+          if (best == -1 || score > bestScore) {
+            best = g;
+            bestScore = score;
+          }
+        }
+      }
+
+      if (best == -1) {
+        // no group has room, so use the least loaded
+        best = 0;
+        for (int g = 1; g < numGroups; g++) {
+          if (loads[g] < loads[best]) {
+            best = g;
+          }
+        }
+      }
+
+      loads[best] += ts.weight;
+
+      if (best == myGroupId) {
+        if (ts.numSlices == 1) {
+          groupsTablets.add(ts.tablet);
+        } else {
+          BitSet tabletBuckets = groupsTabletBuckets.get(ts.tablet);
+          if (tabletBuckets == null) {
+            tabletBuckets = new BitSet(NUM_BUCKETS);
+            groupsTabletBuckets.put(ts.tablet, tabletBuckets);
+            groupsTablets.add(ts.tablet);
+          }
+          for (int b = ts.slice; b < NUM_BUCKETS; b += ts.numSlices) {
+            tabletBuckets.set(b);
+          }
+        }
+      }
+    }
+  }
+
   private void updatePartitionInfo() {
     try {
       String me = myESNode.getActualPath();
@@ -160,12 +403,15 @@ public class PartitionManager {
       me = ZKPaths.getNodeFromPath(me);
 
       byte[] zkSplitData = null;
+      byte[] zkLoadData = null;
       SortedSet<String> children = new TreeSet<>();
       Set<String> groupSizes = new HashSet<>();
       for (ChildData childData : childrenCache.getCurrentData()) {
         String node = ZKPaths.getNodeFromPath(childData.getPath());
         if (node.equals("splits")) {
           zkSplitData = childData.getData();
+        } else if (node.equals("loads")) {
+          zkLoadData = childData.getData();
         } else {
           children.add(node);
           groupSizes.add(new String(childData.getData(), UTF_8));
@@ -187,9 +433,9 @@ public class PartitionManager {
         return;
       }
 
-      // ensure all workers agree on the group size
-      if (groupSizes.size() != 1 || !groupSizes.contains(groupSize + "")) {
-        log.warn("Group size disagreement " + groupSize + " " + groupSizes
+      // ensure all workers agree on the group size and partitioning strategy
+      if (groupSizes.size() != 1 || !groupSizes.contains(nodeData)) {
+        log.warn("Group size disagreement " + nodeData + " " + groupSizes
             + ", cannot gather tablet and notification partitioning info.");
         setPartitionInfo(null); // disable this worker from processing notifications
         scheduleRetry();
@@ -200,7 +446,16 @@ public class PartitionManager {
       SerializedSplits.deserialize(zkSplits::add, zkSplitData);
 
       Collection<TableRange> tableRanges = TableRange.toTabletRanges(zkSplits);
-      PartitionInfo newPI = getGroupInfo(me, children, tableRanges, groupSize);
+      PartitionInfo newPI;
+      if (rendezvous) {
+        Map<TableRange, Double> tabletWeights = null;
+        if (loadBalancing && zkLoadData != null) {
+          tabletWeights = TabletLoads.deserialize(zkLoadData);
+        }
+        newPI = getRendezvousGroupInfo(me, children, tableRanges, groupSize, tabletWeights);
+      } else {
+        newPI = getGroupInfo(me, children, tableRanges, groupSize);
+      }
 
       setPartitionInfo(newPI);
     } catch (InterruptedException e) {
@@ -222,6 +477,90 @@ public class PartitionManager {
     schedExecutor.schedule(this::updatePartitionInfo, 0, TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Sums the notification rates published by all workers and updates the tablet weights in
+   * ZooKeeper when they changed enough. Only called by the first worker.
+   */
+  private void updateTabletLoads() throws Exception {
+    ChildData splitData = childrenCache.getCurrentData(ZookeeperPath.FINDERS + "/splits");
+    if (splitData == null || curator.checkExists().forPath(ZookeeperPath.FINDER_RATES) == null) {
+      return;
+    }
+
+    List<Bytes> zkSplits = new ArrayList<>();
+    SerializedSplits.deserialize(zkSplits::add, splitData.getData());
+    Collection<TableRange> tablets = TableRange.toTabletRanges(zkSplits);
+
+    Map<TableRange, Double> rates = new HashMap<>();
+    for (String worker : curator.getChildren().forPath(ZookeeperPath.FINDER_RATES)) {
+      byte[] data;
+      try {
+        data = curator.getData().forPath(ZookeeperPath.FINDER_RATES + "/" + worker);
+      } catch (KeeperException.NoNodeException e) {
+        continue; // the worker went away
+      }
+      TabletLoads.deserialize(data)
+          .forEach((tablet, rate) -> rates.merge(tablet, rate, Double::sum));
+    }
+
+    Map<TableRange, Double> weights = TabletLoads.computeWeights(rates, tablets);
+    if (weights == null) {
+      return;
+    }
+
+    ChildData loadData = childrenCache.getCurrentData(ZookeeperPath.FINDERS + "/loads");
+    Map<TableRange, Double> currentWeights =
+        loadData == null ? null : TabletLoads.deserialize(loadData.getData());
+    if (!TabletLoads.shouldUpdate(currentWeights, weights)) {
+      return;
+    }
+
+    byte[] serializedWeights = TabletLoads.serialize(weights);
+    if (serializedWeights.length > TabletLoads.MAX_SIZE) {
+      log.warn("Too many tablets to balance notification processing by load, tablets : "
+          + tablets.size());
+      return;
+    }
+
+    if (loadData == null) {
+      curator.create().forPath(ZookeeperPath.FINDERS + "/loads", serializedWeights);
+    } else {
+      curator.setData().forPath(ZookeeperPath.FINDERS + "/loads", serializedWeights);
+    }
+  }
+
+  boolean isLoadBalancing() {
+    return loadBalancing;
+  }
+
+  long getLoadReportTime() {
+    return Math.min(maxSleepTime, LOAD_REPORT_TIME);
+  }
+
+  /**
+   * Publishes the rate at which this worker found new notifications in each of its tablets, so
+   * that the first worker can compute tablet weights.
+   */
+  void reportTabletRates(Map<TableRange, Double> rates) {
+    String me = myESNode.getActualPath();
+    if (me == null) {
+      return;
+    }
+
+    String path = ZookeeperPath.FINDER_RATES + "/" + ZKPaths.getNodeFromPath(me);
+    byte[] data = TabletLoads.serialize(rates);
+    try {
+      try {
+        curator.setData().forPath(path, data);
+      } catch (KeeperException.NoNodeException e) {
+        curator.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(path,
+            data);
+      }
+    } catch (Exception e) {
+      log.warn("Failed to publish tablet notification rates", e);
+    }
+  }
+
   private class CheckTabletsTask implements Runnable {
     @Override
     public void run() {
@@ -258,6 +597,10 @@ public class PartitionManager {
               curator.setData().forPath(ZookeeperPath.FINDERS + "/splits", currSplitData);
             }
           }
+
+          if (loadBalancing) {
+            updateTabletLoads();
+          }
         }
       } catch (InterruptedException e) {
         log.debug("Interrupted while checking table split points.", e);
@@ -278,9 +621,18 @@ public class PartitionManager {
 
       groupSize = env.getConfiguration().getInt(FluoConfigurationImpl.WORKER_PARTITION_GROUP_SIZE,
           FluoConfigurationImpl.WORKER_PARTITION_GROUP_SIZE_DEFAULT);
+      rendezvous = FluoConfigurationImpl.getWorkerPartitionStrategy(env.getConfiguration())
+          .equals("rendezvous");
+      loadBalancing = FluoConfigurationImpl.getWorkerPartitionLoadBalancing(env.getConfiguration());
+      // workers using the modulus strategy store only the group size, as older workers did
+      if (rendezvous) {
+        nodeData = groupSize + ":rendezvous" + (loadBalancing ? ":load" : "");
+      } else {
+        nodeData = "" + groupSize;
+      }
 
       myESNode = new PersistentEphemeralNode(curator, Mode.EPHEMERAL_SEQUENTIAL,
-          ZookeeperPath.FINDERS + "/" + ZK_FINDER_PREFIX, ("" + groupSize).getBytes(UTF_8));
+          ZookeeperPath.FINDERS + "/" + ZK_FINDER_PREFIX, nodeData.getBytes(UTF_8));
       myESNode.start();
       myESNode.waitForInitialCreate(1, TimeUnit.MINUTES);
 
@@ -336,6 +688,16 @@ public class PartitionManager {
   }
 
   public void stop() {
+    if (loadBalancing) {
+      String me = myESNode.getActualPath();
+      if (me != null) {
+        try {
+          curator.delete().forPath(ZookeeperPath.FINDER_RATES + "/" + ZKPaths.getNodeFromPath(me));
+        } catch (Exception e) {
+          log.debug("Error deleting tablet notification rates", e);
+        }
+      }
+    }
     try {
       myESNode.close();
     } catch (IOException e) {
@@ -357,13 +719,27 @@ public class PartitionManager {
         new ArrayByteSequence(cfcq), divisor, remainder);
   }
 
+  @VisibleForTesting
+  static boolean shouldProcess(Notification notification, int numBuckets, BitSet buckets) {
+    byte[] cfcq = NotificationUtil.encodeCol(notification.getColumn());
+    return buckets.get(NotificationHashFilter.getBucket(
+        ByteUtil.toByteSequence(notification.getRow()), new ArrayByteSequence(cfcq), numBuckets));
+  }
+
   public boolean shouldProcess(Notification notification) {
     PartitionInfo pi = getPartitionInfo();
     if (pi == null) {
       return false;
     }
 
-    return pi.getMyGroupsRanges().getContaining(notification.getRow()) != null
-        && shouldProcess(notification, pi.getMyGroupSize(), pi.getMyIdInGroup());
+    TableRange tablet = pi.getMyGroupsRanges().getContaining(notification.getRow());
+    if (tablet == null) {
+      return false;
+    }
+
+    if (pi.getMyBuckets() != null) {
+      return shouldProcess(notification, pi.getNumBuckets(), pi.getMyBuckets(tablet));
+    }
+    return shouldProcess(notification, pi.getMyGroupSize(), pi.getMyIdInGroup());
   }
 }
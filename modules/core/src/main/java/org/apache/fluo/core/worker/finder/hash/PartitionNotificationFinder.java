@@ -15,22 +15,31 @@
 
 package org.apache.fluo.core.worker.finder.hash;
 
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.codahale.metrics.Meter;
 import org.apache.fluo.core.impl.Environment;
 import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.impl.Notification;
+import org.apache.fluo.core.util.FluoExecutors;
 import org.apache.fluo.core.worker.NotificationFinder;
 import org.apache.fluo.core.worker.NotificationProcessor;
+import org.apache.fluo.core.worker.NotificationProcessor.Session;
 import org.apache.fluo.core.worker.TxResult;
 
 public class PartitionNotificationFinder implements NotificationFinder {
 
   private PartitionManager partitionManager;
   private Thread scanThread;
+  private ExecutorService scanExecutor;
   private NotificationProcessor processor;
   private Environment env;
   private AtomicBoolean stopped;
+  private Meter hintedMeter;
 
   @Override
   public void init(Environment env, NotificationProcessor processor) {
@@ -51,20 +60,61 @@ public class PartitionNotificationFinder implements NotificationFinder {
 
     partitionManager = new PartitionManager(env, minSleepTime, maxSleepTime);
 
-    scanThread = new Thread(
-        new ScanTask(this, processor, partitionManager, env, stopped, minSleepTime, maxSleepTime));
+    int scanThreads = FluoConfigurationImpl.getNtfyFinderScanThreads(env.getConfiguration());
+    if (scanThreads > 1) {
+      scanExecutor = FluoExecutors.newFixedThreadPool(scanThreads, "ntfyScan");
+    }
+
+    scanThread = new Thread(new ScanTask(this, processor, partitionManager, env, stopped,
+        minSleepTime, maxSleepTime, scanExecutor));
     scanThread.setName(getClass().getSimpleName() + " " + ScanTask.class.getSimpleName());
     scanThread.setDaemon(true);
     scanThread.start();
+
+    if (env.getConfiguration().getBoolean(FluoConfigurationImpl.NTFY_FINDER_HINTS_PROP,
+        FluoConfigurationImpl.NTFY_FINDER_HINTS_DEFAULT)) {
+      hintedMeter = env.getSharedResources().getMetricRegistry()
+          .meter(env.getMetricNames().getNotificationsHinted());
+      env.getSharedResources().setNotificationHintConsumer(this::queueHinted);
+    }
+  }
+
+  /**
+   * Queues notifications that were just committed by a transaction running in this process, if this
+   * worker is responsible for them. Other notifications are found by scanning, as usual.
+   */
+  private void queueHinted(Collection<Notification> notifications) {
+    if (stopped.get()) {
+      return;
+    }
+
+    // Notifications were just written, so there is no need to remember ones deleted while adding.
+    // This runs on the thread committing the transaction, so hints are dropped instead of waiting
+    // when too many notifications are queued.
+    try (Session session = processor.beginAddingNotifications(rc -> false)) {
+      for (Notification notification : notifications) {
+        if (partitionManager.shouldProcess(notification)
+            && session.offerNotification(this, notification)) {
+          hintedMeter.mark();
+        }
+      }
+    } catch (RejectedExecutionException e) {
+      // processor is shutting down, scanning will find the notifications later
+    }
   }
 
   @Override
   public void stop() {
     stopped.set(true);
+    env.getSharedResources().setNotificationHintConsumer(null);
 
     scanThread.interrupt();
     try {
       scanThread.join();
+      if (scanExecutor != null) {
+        scanExecutor.shutdownNow();
+        scanExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      }
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
@@ -19,21 +19,25 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
-import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.fluo.accumulo.iterators.NotificationHashFilter;
 import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.impl.Notification;
 import org.apache.fluo.core.util.UtilWaitThread;
 import org.apache.fluo.core.worker.NotificationFinder;
@@ -53,6 +57,10 @@ public class ScanTask implements Runnable {
   private final AtomicBoolean stopped;
   private final Map<TableRange, TabletData> rangeData;
   private final Environment env;
+  private final ExecutorService scanExecutor;
+  private final int fullScanInterval;
+  private PartitionInfo lastPartition;
+  private long lastRateReport = System.currentTimeMillis();
 
   private long minSleepTime;
   private long maxSleepTime;
@@ -60,7 +68,20 @@ public class ScanTask implements Runnable {
   ScanTask(NotificationFinder finder, NotificationProcessor proccessor,
       PartitionManager partitionManager, Environment env, AtomicBoolean stopped, long minSleepTime,
       long maxSleepTime) {
+    this(finder, proccessor, partitionManager, env, stopped, minSleepTime, maxSleepTime, null);
+  }
+
+  /**
+   * @param scanExecutor When non null, tablets are scanned concurrently using this executor.
+   *        Otherwise tablets are scanned one at a time by the thread running this task.
+   */
+  ScanTask(NotificationFinder finder, NotificationProcessor proccessor,
+      PartitionManager partitionManager, Environment env, AtomicBoolean stopped, long minSleepTime,
+      long maxSleepTime, ExecutorService scanExecutor) {
     this.finder = finder;
+    this.scanExecutor = scanExecutor;
+    this.fullScanInterval =
+        FluoConfigurationImpl.getNtfyFinderFullScanInterval(env.getConfiguration());
     this.rangeData = new HashMap<>();
 
     this.env = env;
@@ -96,44 +117,48 @@ public class ScanTask implements Runnable {
           rangeSet.add(t);
         });
         Collections.shuffle(ranges, rand);
-        rangeData.keySet().retainAll(rangeSet);
+        if (partition.equals(lastPartition)) {
+          rangeData.keySet().retainAll(rangeSet);
+        } else {
+          // The notifications this worker is responsible for in a tablet may have changed, so the
+          // high water marks no longer cover them. Start over with full scans.
+          rangeData.clear();
+          lastPartition = partition;
+          lastRateReport = System.currentTimeMillis();
+        }
 
         long minRetryTime = maxSleepTime + System.currentTimeMillis();
         ScanCounts ntfyCounts = new ScanCounts();
-        int tabletsScanned = 0;
         try {
-          for (TableRange tabletRange : ranges) {
-            TabletData tabletData = rangeData.computeIfAbsent(tabletRange, tr -> new TabletData());
-            if (System.currentTimeMillis() >= tabletData.retryTime) {
-              ScanCounts counts;
-              PartitionInfo pi = partitionManager.getPartitionInfo();
-              if (partition.equals(pi)) {
-                try (Session session =
-                    proccessor.beginAddingNotifications(rc -> tabletRange.contains(rc.getRow()))) {
-                  // notifications could have been asynchronously queued for deletion. Let that
-                  // happen 1st before scanning
-                  env.getSharedResources().getBatchWriter().waitForAsyncFlush();
-
-                  counts = scan(session, partition, tabletRange.getRange());
-                  tabletsScanned++;
+          if (scanExecutor == null) {
+            for (TableRange tabletRange : ranges) {
+              TabletData tabletData =
+                  rangeData.computeIfAbsent(tabletRange, tr -> new TabletData());
+              if (System.currentTimeMillis() >= tabletData.retryTime) {
+                long minTimestamp = tabletData.getScanMinTimestamp(fullScanInterval);
+                ScanCounts counts = scanTablet(partition, tabletRange, minTimestamp);
+                if (counts == null) {
+                  break;
+                }
+                tabletData.updateScanCount(counts.added, maxSleepTime);
+                tabletData.updateHighWaterMark(minTimestamp, counts.maxTimestamp);
+                ntfyCounts.add(counts);
+                if (stopped.get()) {
+                  break;
                 }
-              } else {
-                break;
-              }
-              tabletData.updateScanCount(counts.added, maxSleepTime);
-              ntfyCounts.added += counts.added;
-              ntfyCounts.seen += counts.seen;
-              if (stopped.get()) {
-                break;
               }
-            }
 
-            minRetryTime = Math.min(tabletData.retryTime, minRetryTime);
+              minRetryTime = Math.min(tabletData.retryTime, minRetryTime);
+            }
+          } else {
+            minRetryTime = scanTabletsConcurrently(partition, ranges, ntfyCounts, minRetryTime);
           }
         } catch (PartitionInfoChangedException mpce) {
           // nothing to do
         }
 
+        reportRates();
+
         long sleepTime;
         if (!partition.equals(partitionManager.getPartitionInfo())) {
           sleepTime = minSleepTime;
@@ -144,7 +169,7 @@ public class ScanTask implements Runnable {
         qSize = proccessor.size();
 
         log.debug("Scanned {} of {} tablets. Notifications added: {} seen: {} queued: {}",
-            tabletsScanned, ranges.size(), ntfyCounts.added, ntfyCounts.seen, qSize);
+            ntfyCounts.tablets, ranges.size(), ntfyCounts.added, ntfyCounts.seen, qSize);
 
         if (!stopped.get()) {
           UtilWaitThread.sleep(sleepTime, stopped);
@@ -160,6 +185,26 @@ public class ScanTask implements Runnable {
     }
   }
 
+  /**
+   * Periodically publishes the rate at which new notifications were found in each tablet, when
+   * partitioning by load.
+   */
+  private void reportRates() {
+    long now = System.currentTimeMillis();
+    long elapsed = now - lastRateReport;
+    if (!partitionManager.isLoadBalancing() || elapsed < partitionManager.getLoadReportTime()) {
+      return;
+    }
+
+    Map<TableRange, Double> rates = new HashMap<>();
+    rangeData.forEach((tablet, tabletData) -> {
+      rates.put(tablet, tabletData.addedSinceReport * 1000.0 / elapsed);
+      tabletData.addedSinceReport = 0;
+    });
+    partitionManager.reportTabletRates(rates);
+    lastRateReport = now;
+  }
+
   private boolean isInterruptedException(Exception e) {
     boolean wasInt = false;
     Throwable cause = e;
@@ -175,18 +220,112 @@ public class ScanTask implements Runnable {
   private static class ScanCounts {
     int seen = 0;
     int added = 0;
+    int tablets = 0;
+    long maxTimestamp = -1;
+
+    void add(ScanCounts counts) {
+      seen += counts.seen;
+      added += counts.added;
+      tablets += counts.tablets;
+    }
+  }
+
+  /**
+   * Scans a tablet for notifications within a session, so that notifications deleted while scanning
+   * are not queued.
+   *
+   * @return null if the partition info changed before scanning started
+   */
+  private ScanCounts scanTablet(PartitionInfo partition, TableRange tabletRange,
+      long minTimestamp) throws TableNotFoundException {
+    if (!partition.equals(partitionManager.getPartitionInfo())) {
+      return null;
+    }
+
+    try (Session session =
+        proccessor.beginAddingNotifications(rc -> tabletRange.contains(rc.getRow()))) {
+      // notifications could have been asynchronously queued for deletion. Let that
+      // happen 1st before scanning
+      env.getSharedResources().getBatchWriter().waitForAsyncFlush();
+
+      ScanCounts counts = scan(session, partition, tabletRange, minTimestamp);
+      counts.tablets = 1;
+      return counts;
+    }
+  }
+
+  /**
+   * Submits a scan for each tablet that is ready to be scanned and waits for all of them. Each
+   * tablet has its own session with the processor, the same as when scanning serially.
+   *
+   * @return the min retry time of all tablets
+   */
+  private long scanTabletsConcurrently(PartitionInfo partition, List<TableRange> ranges,
+      ScanCounts ntfyCounts, long minRetryTime) throws Exception {
+    long now = System.currentTimeMillis();
+    Map<TableRange, Future<ScanCounts>> futures = new LinkedHashMap<>();
+    Map<TableRange, Long> minTimestamps = new HashMap<>();
+
+    try {
+      for (TableRange tabletRange : ranges) {
+        TabletData tabletData = rangeData.computeIfAbsent(tabletRange, tr -> new TabletData());
+        if (now >= tabletData.retryTime) {
+          long minTimestamp = tabletData.getScanMinTimestamp(fullScanInterval);
+          minTimestamps.put(tabletRange, minTimestamp);
+          futures.put(tabletRange, scanExecutor.submit(() -> {
+            if (stopped.get()) {
+              return null;
+            }
+            return scanTablet(partition, tabletRange, minTimestamp);
+          }));
+        } else {
+          minRetryTime = Math.min(tabletData.retryTime, minRetryTime);
+        }
+      }
+
+      for (Entry<TableRange, Future<ScanCounts>> entry : futures.entrySet()) {
+        ScanCounts counts;
+        try {
+          counts = entry.getValue().get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof PartitionInfoChangedException) {
+            counts = null;
+          } else {
+            throw e;
+          }
+        }
+
+        TabletData tabletData = rangeData.get(entry.getKey());
+        if (counts != null) {
+          tabletData.updateScanCount(counts.added, maxSleepTime);
+          tabletData.updateHighWaterMark(minTimestamps.get(entry.getKey()), counts.maxTimestamp);
+          ntfyCounts.add(counts);
+        }
+        minRetryTime = Math.min(tabletData.retryTime, minRetryTime);
+      }
+    } finally {
+      // only has an effect when an exception occurred
+      futures.values().forEach(f -> f.cancel(true));
+    }
+
+    return minRetryTime;
   }
 
-  private ScanCounts scan(Session session, PartitionInfo pi, Range range)
-      throws TableNotFoundException {
+  private ScanCounts scan(Session session, PartitionInfo pi, TableRange tabletRange,
+      long minTimestamp) throws TableNotFoundException {
     Scanner scanner = env.getConnector().createScanner(env.getTable(), env.getAuthorizations());
 
-    scanner.setRange(range);
+    scanner.setRange(tabletRange.getRange());
 
-    Notification.configureScanner(scanner);
+    Notification.configureScanner(scanner, minTimestamp);
 
     IteratorSetting iterCfg = new IteratorSetting(30, "nhf", NotificationHashFilter.class);
-    NotificationHashFilter.setModulusParams(iterCfg, pi.getMyGroupSize(), pi.getMyIdInGroup());
+    if (pi.getMyBuckets() != null) {
+      NotificationHashFilter.setBucketParams(iterCfg, pi.getNumBuckets(),
+          pi.getMyBuckets(tabletRange));
+    } else {
+      NotificationHashFilter.setModulusParams(iterCfg, pi.getMyGroupSize(), pi.getMyIdInGroup());
+    }
     scanner.addScanIterator(iterCfg);
 
     ScanCounts counts = new ScanCounts();
@@ -202,7 +341,10 @@ public class ScanTask implements Runnable {
 
       counts.seen++;
 
-      if (session.addNotification(finder, Notification.from(entry.getKey()))) {
+      Notification notification = Notification.from(entry.getKey());
+      counts.maxTimestamp = Math.max(counts.maxTimestamp, notification.getTimestamp());
+
+      if (session.addNotification(finder, notification)) {
         counts.added++;
       }
     }
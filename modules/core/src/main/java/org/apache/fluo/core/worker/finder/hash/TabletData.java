@@ -18,8 +18,35 @@ package org.apache.fluo.core.worker.finder.hash;
 class TabletData {
   long retryTime = 0;
   long sleepTime = 0;
+  // the newest notification timestamp seen while scanning the tablet, -1 if unknown
+  long highWaterMark = -1;
+  int scansSinceFullScan = 0;
+  // new notifications found since the last time rates were reported
+  long addedSinceReport = 0;
+
+  /**
+   * @return the timestamp after which the next scan should look for notifications or -1 if the next
+   *         scan should be a full scan
+   */
+  long getScanMinTimestamp(int fullScanInterval) {
+    if (highWaterMark < 0 || scansSinceFullScan + 1 >= fullScanInterval) {
+      return -1;
+    }
+    return highWaterMark;
+  }
+
+  void updateHighWaterMark(long scanMinTimestamp, long maxTimestampSeen) {
+    if (scanMinTimestamp < 0) {
+      scansSinceFullScan = 0;
+    } else {
+      scansSinceFullScan++;
+    }
+    highWaterMark = Math.max(highWaterMark, maxTimestampSeen);
+  }
 
   public void updateScanCount(int count, long maxSleep) {
+    addedSinceReport += count;
+
     if (count == 0) {
       // remember if a tablet is empty an do not retry it for a bit... the more times empty, the
       // longer the retry
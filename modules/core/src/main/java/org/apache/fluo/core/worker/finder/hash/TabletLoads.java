@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker.finder.hash;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Bytes.BytesBuilder;
+
+/**
+ * Serializes the per tablet notification rates workers publish in ZooKeeper and computes the
+ * tablet weights used to balance load between groups of workers.
+ */
+class TabletLoads {
+
+  static final int MAX_SIZE = 1 << 18;
+
+  // Weights are relative to the average tablet, which has a weight of 1. They are powers of two
+  // between these bounds, so that small changes in rates do not change the weights.
+  static final double MIN_WEIGHT = 1.0 / 16;
+  static final double MAX_WEIGHT = 1 << 20;
+
+  private static void writeRow(DataOutputStream dos, Bytes row) throws IOException {
+    if (row == null) {
+      dos.writeInt(-1);
+    } else {
+      dos.writeInt(row.length());
+      row.writeTo(dos);
+    }
+  }
+
+  private static Bytes readRow(DataInputStream dis, BytesBuilder builder) throws IOException {
+    int len = dis.readInt();
+    if (len < 0) {
+      return null;
+    }
+    builder.setLength(0);
+    builder.append(dis, len);
+    return builder.toBytes();
+  }
+
+  static byte[] serialize(Map<TableRange, Double> loads) {
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      GZIPOutputStream gzOut = new GZIPOutputStream(baos);
+      BufferedOutputStream bos = new BufferedOutputStream(gzOut, 1 << 16);
+      DataOutputStream dos = new DataOutputStream(bos);
+
+      dos.writeInt(loads.size());
+      for (Entry<TableRange, Double> entry : loads.entrySet()) {
+        writeRow(dos, entry.getKey().getPrevEndRow());
+        writeRow(dos, entry.getKey().getEndRow());
+        dos.writeDouble(entry.getValue());
+      }
+
+      dos.close();
+
+      return baos.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static Map<TableRange, Double> deserialize(byte[] serializedLoads) {
+    try {
+      ByteArrayInputStream bais = new ByteArrayInputStream(serializedLoads);
+      GZIPInputStream gzis = new GZIPInputStream(bais);
+      DataInputStream dis = new DataInputStream(gzis);
+
+      int numTablets = dis.readInt();
+      Map<TableRange, Double> loads = new HashMap<>();
+      BytesBuilder builder = Bytes.builder();
+
+      for (int i = 0; i < numTablets; i++) {
+        Bytes prevEndRow = readRow(dis, builder);
+        Bytes endRow = readRow(dis, builder);
+        loads.put(new TableRange(prevEndRow, endRow), dis.readDouble());
+      }
+
+      return loads;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Computes the weight of each tablet from the rate of new notifications found in it.
+   *
+   * @param rates the sum of the rates reported by all workers for each tablet
+   * @return null if no notifications were found in any tablet
+   */
+  static Map<TableRange, Double> computeWeights(Map<TableRange, Double> rates,
+      Collection<TableRange> tablets) {
+    double total = 0;
+    for (TableRange tablet : tablets) {
+      total += rates.getOrDefault(tablet, 0.0);
+    }
+
+    if (total <= 0) {
+      return null;
+    }
+
+    double mean = total / tablets.size();
+    Map<TableRange, Double> weights = new HashMap<>();
+    for (TableRange tablet : tablets) {
+      double rate = rates.getOrDefault(tablet, 0.0);
+      double weight = MIN_WEIGHT;
+      if (rate > 0) {
+        weight = Math.pow(2, Math.round(Math.log(rate / mean) / Math.log(2)));
+        weight = Math.max(MIN_WEIGHT, Math.min(MAX_WEIGHT, weight));
+      }
+      weights.put(tablet, weight);
+    }
+
+    return weights;
+  }
+
+  /**
+   * Determines if the weights changed enough to be worth the work moved by repartitioning.
+   */
+  static boolean shouldUpdate(Map<TableRange, Double> current, Map<TableRange, Double> proposed) {
+    if (current == null || !current.keySet().equals(proposed.keySet())) {
+      return true;
+    }
+
+    for (Entry<TableRange, Double> entry : proposed.entrySet()) {
+      double ratio = entry.getValue() / current.get(entry.getKey());
+      if (ratio >= 4 || ratio <= .25) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
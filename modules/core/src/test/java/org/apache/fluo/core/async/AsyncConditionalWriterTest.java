@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.async;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.fluo.core.util.AdaptiveLimit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests grouping of concurrent calls in AsyncConditionalWriter
+ */
+public class AsyncConditionalWriterTest {
+
+  /**
+   * Records the rows of each write. The first write blocks until {@link #unblock()} is called, so
+   * that tests can queue mutations while a group is being written. Results are returned in reverse
+   * order and with copies of the mutations, so they can only be matched to callers by row.
+   */
+  private static class TestWriter implements ConditionalWriter {
+    final List<List<String>> writes = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    final CountDownLatch firstWriteBlocked;
+
+    TestWriter(boolean blockFirstWrite) {
+      firstWriteBlocked = new CountDownLatch(blockFirstWrite ? 1 : 0);
+    }
+
+    void unblock() {
+      firstWriteBlocked.countDown();
+    }
+
+    @Override
+    public Iterator<Result> write(Iterator<ConditionalMutation> mutations) {
+      List<String> rows = new ArrayList<>();
+      List<Result> results = new ArrayList<>();
+      while (mutations.hasNext()) {
+        ConditionalMutation cm = mutations.next();
+        String row = new String(cm.getRow(), StandardCharsets.UTF_8);
+        rows.add(row);
+        if (!row.startsWith("lost")) {
+          Status status = row.startsWith("reject") ? Status.REJECTED : Status.ACCEPTED;
+          results.add(0, new Result(status, new ConditionalMutation(cm), "ts1"));
+        }
+      }
+      writes.add(rows);
+
+      firstWriteStarted.countDown();
+      try {
+        firstWriteBlocked.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+
+      if (rows.contains("fail")) {
+        throw new RuntimeException("write failed");
+      }
+
+      return results.iterator();
+    }
+
+    @Override
+    public Result write(ConditionalMutation mutation) {
+      return write(Collections.singletonList(mutation).iterator()).next();
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static List<ConditionalMutation> mutations(String... rows) {
+    List<ConditionalMutation> mutations = new ArrayList<>();
+    for (String row : rows) {
+      mutations.add(new ConditionalMutation(row));
+    }
+    return mutations;
+  }
+
+  private static List<String> rows(String... rows) {
+    return Arrays.asList(rows);
+  }
+
+  private static List<Status> statuses(CompletableFuture<Iterator<Result>> future)
+      throws Exception {
+    List<Status> statuses = new ArrayList<>();
+    Iterator<Result> results = future.get(30, TimeUnit.SECONDS);
+    while (results.hasNext()) {
+      statuses.add(results.next().getStatus());
+    }
+    return statuses;
+  }
+
+  private static Throwable failure(CompletableFuture<Iterator<Result>> future) throws Exception {
+    try {
+      future.get(30, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+    Assert.fail("Expected failure");
+    return null;
+  }
+
+  private static AsyncConditionalWriter newWriter(TestWriter tw, AdaptiveLimit limit,
+      long groupDelayNanos, int groupMaxMutations) {
+    return new AsyncConditionalWriter(tw, Executors.newFixedThreadPool(1), limit, groupDelayNanos,
+        groupMaxMutations);
+  }
+
+  @Test
+  public void testGroupsConcurrentCalls() throws Exception {
+    TestWriter tw = new TestWriter(true);
+    AdaptiveLimit limit = AdaptiveLimit.create(100, false);
+    AsyncConditionalWriter acw = newWriter(tw, limit, 0, 1000);
+
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    tw.firstWriteStarted.await();
+
+    // queued while the first group is written, so should be written together
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(mutations("b", "reject1"));
+    CompletableFuture<Iterator<Result>> f3 = acw.apply(mutations("reject2", "c", "d"));
+    CompletableFuture<Iterator<Result>> f4 = acw.apply(mutations());
+    Assert.assertEquals(6, limit.leased());
+
+    tw.unblock();
+
+    Assert.assertEquals(Arrays.asList(Status.ACCEPTED), statuses(f1));
+    Assert.assertEquals(Arrays.asList(Status.REJECTED, Status.ACCEPTED), statuses(f2));
+    Assert.assertEquals(Arrays.asList(Status.ACCEPTED, Status.ACCEPTED, Status.REJECTED),
+        statuses(f3));
+    Assert.assertEquals(Arrays.asList(), statuses(f4));
+
+    Assert.assertEquals(Arrays.asList(rows("a"), rows("b", "reject1", "reject2", "c", "d")),
+        tw.writes);
+    Assert.assertEquals(0, limit.leased());
+
+    acw.close();
+  }
+
+  @Test
+  public void testSameRowNotGrouped() throws Exception {
+    TestWriter tw = new TestWriter(true);
+    AsyncConditionalWriter acw = newWriter(tw, AdaptiveLimit.create(100, false), 0, 1000);
+
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    tw.firstWriteStarted.await();
+
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(mutations("b", "c"));
+    CompletableFuture<Iterator<Result>> f3 = acw.apply(mutations("c", "d"));
+    CompletableFuture<Iterator<Result>> f4 = acw.apply(mutations("e"));
+
+    tw.unblock();
+
+    Assert.assertEquals(1, statuses(f1).size());
+    Assert.assertEquals(2, statuses(f2).size());
+    Assert.assertEquals(2, statuses(f3).size());
+    Assert.assertEquals(1, statuses(f4).size());
+
+    // the batch that shares row c is written in the next group, ahead of later batches
+    Assert.assertEquals(Arrays.asList(rows("a"), rows("b", "c", "e"), rows("c", "d")), tw.writes);
+
+    acw.close();
+  }
+
+  @Test
+  public void testMaxMutations() throws Exception {
+    TestWriter tw = new TestWriter(true);
+    AsyncConditionalWriter acw = newWriter(tw, AdaptiveLimit.create(100, false), 0, 3);
+
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    tw.firstWriteStarted.await();
+
+    List<CompletableFuture<Iterator<Result>>> futures = new ArrayList<>();
+    futures.add(acw.apply(mutations("b", "c")));
+    futures.add(acw.apply(mutations("d")));
+    futures.add(acw.apply(mutations("e")));
+    futures.add(acw.apply(mutations("f", "g", "h", "i")));
+
+    tw.unblock();
+
+    Assert.assertEquals(1, statuses(f1).size());
+    for (CompletableFuture<Iterator<Result>> future : futures) {
+      statuses(future);
+    }
+
+    // a group stops taking batches once it has the max, but does not split a batch
+    Assert.assertEquals(
+        Arrays.asList(rows("a"), rows("b", "c", "d"), rows("e", "f", "g", "h", "i")), tw.writes);
+
+    acw.close();
+  }
+
+  @Test
+  public void testFlushOnSize() throws Exception {
+    TestWriter tw = new TestWriter(false);
+    AsyncConditionalWriter acw =
+        newWriter(tw, AdaptiveLimit.create(100, false), TimeUnit.HOURS.toNanos(1), 3);
+
+    long t1 = System.nanoTime();
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(mutations("b", "c"));
+
+    Assert.assertEquals(1, statuses(f1).size());
+    Assert.assertEquals(2, statuses(f2).size());
+    Assert.assertTrue(System.nanoTime() - t1 < TimeUnit.MINUTES.toNanos(1));
+    Assert.assertEquals(Arrays.asList(rows("a", "b", "c")), tw.writes);
+
+    acw.close();
+  }
+
+  @Test
+  public void testFlushOnTimeout() throws Exception {
+    TestWriter tw = new TestWriter(false);
+    AsyncConditionalWriter acw =
+        newWriter(tw, AdaptiveLimit.create(100, false), TimeUnit.MILLISECONDS.toNanos(50), 1000);
+
+    long t1 = System.nanoTime();
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(mutations("b"));
+
+    Assert.assertEquals(1, statuses(f1).size());
+    Assert.assertEquals(1, statuses(f2).size());
+    Assert.assertTrue(System.nanoTime() - t1 >= TimeUnit.MILLISECONDS.toNanos(50));
+    Assert.assertEquals(Arrays.asList(rows("a", "b")), tw.writes);
+
+    acw.close();
+  }
+
+  @Test
+  public void testFailures() throws Exception {
+    TestWriter tw = new TestWriter(true);
+    AdaptiveLimit limit = AdaptiveLimit.create(100, false);
+    AsyncConditionalWriter acw = newWriter(tw, limit, 0, 1000);
+
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    tw.firstWriteStarted.await();
+
+    // every caller in a group that fails is failed
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(mutations("b"));
+    CompletableFuture<Iterator<Result>> f3 = acw.apply(mutations("fail"));
+
+    tw.unblock();
+
+    Assert.assertEquals(1, statuses(f1).size());
+    Assert.assertEquals("write failed", failure(f2).getMessage());
+    Assert.assertEquals("write failed", failure(f3).getMessage());
+
+    // only the caller missing results is failed
+    CompletableFuture<Iterator<Result>> f4 = acw.apply(mutations("c", "lost1"));
+    Assert.assertTrue(failure(f4) instanceof IllegalStateException);
+    CompletableFuture<Iterator<Result>> f5 = acw.apply(mutations("d"));
+    Assert.assertEquals(1, statuses(f5).size());
+
+    Assert.assertEquals(0, limit.leased());
+
+    acw.close();
+  }
+
+  @Test
+  public void testCloseWithPending() throws Exception {
+    TestWriter tw = new TestWriter(true);
+    AdaptiveLimit limit = AdaptiveLimit.create(100, false);
+    AsyncConditionalWriter acw = newWriter(tw, limit, 0, 1000);
+
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(mutations("a"));
+    tw.firstWriteStarted.await();
+
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(mutations("b"));
+    CompletableFuture<Iterator<Result>> f3 = acw.apply(mutations("c"));
+
+    // interrupts the blocked write and fails the groups that were never written
+    acw.close();
+
+    Assert.assertNotNull(failure(f1));
+    Assert.assertTrue(failure(f2) instanceof IllegalStateException);
+    Assert.assertTrue(failure(f3) instanceof IllegalStateException);
+    Assert.assertTrue(failure(acw.apply(mutations("d"))) instanceof IllegalStateException);
+
+    Assert.assertEquals(Arrays.asList(rows("a")), tw.writes);
+    Assert.assertEquals(0, limit.leased());
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.fluo.core.oracle.Stamp;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimestampBatcherTest {
+
+  private static class TestTracker implements TimestampBatcher.Tracker {
+    long nextTs = 1;
+    final Set<Long> tracked = new TreeSet<>();
+    final List<Integer> requests = new ArrayList<>();
+
+    @Override
+    public synchronized Stamp allocateTimestamp() {
+      return allocateTimestamps(1).get(0);
+    }
+
+    @Override
+    public synchronized List<Stamp> allocateTimestamps(int n) {
+      requests.add(n);
+      List<Stamp> stamps = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        tracked.add(nextTs);
+        stamps.add(new Stamp(nextTs++, 0));
+      }
+      return stamps;
+    }
+
+    @Override
+    public synchronized void removeTimestamp(long ts) {
+      Assert.assertTrue(tracked.remove(ts));
+    }
+
+    synchronized Set<Long> getTracked() {
+      return new TreeSet<>(tracked);
+    }
+  }
+
+  private static final long MAX_AGE = TimeUnit.HOURS.toNanos(1);
+
+  private static long allocate(TimestampBatcher batcher, long requestTime) {
+    return batcher.allocateTimestamp(Long.MIN_VALUE, requestTime).getTxTimestamp();
+  }
+
+  private static Set<Long> set(Long... timestamps) {
+    return new TreeSet<>(Arrays.asList(timestamps));
+  }
+
+  @Test
+  public void testBatching() {
+    TestTracker tracker = new TestTracker();
+    AtomicInteger waiting = new AtomicInteger(5);
+    TimestampBatcher batcher = new TimestampBatcher(tracker, waiting::get, 4, MAX_AGE);
+
+    long requestTime = System.nanoTime();
+    // batch size is limited by the max
+    for (long expected = 1; expected <= 4; expected++) {
+      Assert.assertEquals(expected, allocate(batcher, requestTime));
+    }
+    Assert.assertEquals(Arrays.asList(4), tracker.requests);
+
+    waiting.set(1);
+    Assert.assertEquals(5, allocate(batcher, requestTime));
+    Assert.assertEquals(6, allocate(batcher, requestTime));
+    Assert.assertEquals(Arrays.asList(4, 2), tracker.requests);
+
+    // nothing is waiting, so no batch is needed
+    waiting.set(0);
+    Assert.assertEquals(7, allocate(batcher, requestTime));
+    Assert.assertEquals(Arrays.asList(4, 2, 1), tracker.requests);
+
+    // the transactions that were given timestamps remove them from the tracker
+    Assert.assertEquals(set(1L, 2L, 3L, 4L, 5L, 6L, 7L), tracker.getTracked());
+
+    batcher.close();
+  }
+
+  @Test
+  public void testMinTimestamp() {
+    TestTracker tracker = new TestTracker();
+    TimestampBatcher batcher = new TimestampBatcher(tracker, () -> 4, 32, MAX_AGE);
+
+    long requestTime = System.nanoTime();
+    Assert.assertEquals(1, batcher.allocateTimestamp(0, requestTime).getTxTimestamp());
+    Assert.assertEquals(2, batcher.allocateTimestamp(1, requestTime).getTxTimestamp());
+
+    // the batched timestamps 3 to 5 are not newer than 3, so a new batch replaces them
+    Assert.assertEquals(6, batcher.allocateTimestamp(3, requestTime).getTxTimestamp());
+    Assert.assertEquals(Arrays.asList(5, 5), tracker.requests);
+    Assert.assertEquals(set(1L, 2L, 6L, 7L, 8L, 9L, 10L), tracker.getTracked());
+
+    Assert.assertEquals(7, batcher.allocateTimestamp(0, requestTime).getTxTimestamp());
+
+    batcher.close();
+    Assert.assertEquals(set(1L, 2L, 6L, 7L), tracker.getTracked());
+  }
+
+  @Test
+  public void testRequestTime() throws Exception {
+    TestTracker tracker = new TestTracker();
+    TimestampBatcher batcher = new TimestampBatcher(tracker, () -> 4, 32, MAX_AGE);
+
+    long requestTime1 = System.nanoTime();
+    Assert.assertEquals(1, allocate(batcher, requestTime1));
+
+    Thread.sleep(1);
+
+    // requested after the batch was allocated, so a new batch is allocated and the old one released
+    long requestTime2 = System.nanoTime();
+    Assert.assertEquals(6, allocate(batcher, requestTime2));
+    Assert.assertEquals(Arrays.asList(5, 5), tracker.requests);
+    Assert.assertEquals(set(1L, 6L, 7L, 8L, 9L, 10L), tracker.getTracked());
+
+    // timestamps are always handed out in order
+    Assert.assertEquals(7, allocate(batcher, requestTime1));
+    Assert.assertEquals(8, allocate(batcher, requestTime2));
+
+    batcher.close();
+    Assert.assertEquals(set(1L, 6L, 7L, 8L), tracker.getTracked());
+  }
+
+  @Test
+  public void testExpiration() throws Exception {
+    TestTracker tracker = new TestTracker();
+    TimestampBatcher batcher =
+        new TimestampBatcher(tracker, () -> 4, 32, TimeUnit.MILLISECONDS.toNanos(50));
+
+    Assert.assertEquals(1, allocate(batcher, System.nanoTime()));
+    Assert.assertEquals(set(1L, 2L, 3L, 4L, 5L), tracker.getTracked());
+
+    // unused timestamps are released even if nothing else is allocated
+    long start = System.nanoTime();
+    while (!tracker.getTracked().equals(set(1L))) {
+      Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+
+    Assert.assertEquals(6, allocate(batcher, System.nanoTime()));
+    Assert.assertEquals(Arrays.asList(5, 5), tracker.requests);
+
+    batcher.close();
+    Assert.assertEquals(set(1L, 6L), tracker.getTracked());
+  }
+
+  @Test
+  public void testClose() {
+    TestTracker tracker = new TestTracker();
+    TimestampBatcher batcher = new TimestampBatcher(tracker, () -> 4, 32, MAX_AGE);
+
+    Assert.assertEquals(1, allocate(batcher, System.nanoTime()));
+    batcher.close();
+    Assert.assertEquals(set(1L), tracker.getTracked());
+
+    try {
+      allocate(batcher, System.nanoTime());
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests HeapWriteBuffer and ArenaWriteBuffer behave the same
+ */
+public class WriteBufferTest {
+
+  private static final Bytes SPECIAL1 = Bytes.of("special1");
+  private static final Bytes SPECIAL2 = Bytes.of("special2");
+
+  private static Map<Bytes, Map<Column, Bytes>> toMap(WriteBuffer buffer) {
+    Map<Bytes, Map<Column, Bytes>> ret = new HashMap<>();
+    for (Entry<Bytes, Map<Column, Bytes>> entry : buffer.rows()) {
+      Assert.assertFalse(entry.getValue().isEmpty());
+      Assert.assertNull(ret.put(entry.getKey(), new HashMap<>(entry.getValue())));
+    }
+    return ret;
+  }
+
+  private static void assertSame(WriteBuffer expected, WriteBuffer actual) {
+    Assert.assertEquals(expected.numRows(), actual.numRows());
+    Assert.assertEquals(expected.numEntries(), actual.numEntries());
+    Assert.assertEquals(expected.getSize(), actual.getSize());
+    Assert.assertEquals(toMap(expected), toMap(actual));
+  }
+
+  @Test
+  public void testBasic() {
+    // use a small chunk size to exercise spanning chunks
+    ArenaWriteBuffer arena = new ArenaWriteBuffer(64, SPECIAL1, SPECIAL2);
+
+    Bytes r1 = Bytes.of("r1");
+    Column c1 = new Column("f1", "q1");
+    Column c2 = new Column("f1", "q2", "A&B");
+
+    Assert.assertNull(arena.get(r1, c1));
+    Assert.assertNull(arena.getRow(r1));
+
+    arena.put(r1, c1, Bytes.of("v1"));
+    arena.put(r1, c2, SPECIAL1);
+    Assert.assertEquals(Bytes.of("v1"), arena.get(r1, c1));
+    Assert.assertSame(SPECIAL1, arena.get(r1, c2));
+    Assert.assertEquals(2, arena.numEntries());
+    Assert.assertEquals(1, arena.numRows());
+    Assert.assertEquals(2 + 4 + 2 + 7 + 8, arena.getSize());
+
+    // a value equal to a special value is not the special value
+    arena.put(r1, c1, Bytes.of("special2"));
+    Assert.assertEquals(SPECIAL2, arena.get(r1, c1));
+    Assert.assertNotSame(SPECIAL2, arena.get(r1, c1));
+    Assert.assertEquals(2, arena.numEntries());
+
+    // a value larger than the chunk size
+    Bytes big = Bytes.of(new byte[1000]);
+    arena.put(r1, c1, big);
+    Assert.assertEquals(big, arena.get(r1, c1));
+    Assert.assertTrue(arena.getAllocated() >= 1000);
+
+    Assert.assertSame(SPECIAL1, arena.remove(r1, c2));
+    Assert.assertNull(arena.remove(r1, c2));
+    Assert.assertEquals(big, arena.remove(r1, c1));
+    Assert.assertEquals(0, arena.numEntries());
+    Assert.assertEquals(0, arena.numRows());
+    Assert.assertEquals(0, arena.getSize());
+    Assert.assertNull(arena.getRow(r1));
+
+    arena.put(r1, c2, Bytes.of("v2"));
+    Assert.assertEquals(1, arena.getRow(r1).size());
+    Assert.assertEquals(Bytes.of("v2"), arena.getRow(r1).get(c2));
+
+    arena.clear();
+    Assert.assertEquals(0, arena.numEntries());
+    Assert.assertNull(arena.get(r1, c2));
+  }
+
+  @Test
+  public void testRandom() {
+    Random rand = new Random(42);
+
+    HeapWriteBuffer heap = new HeapWriteBuffer();
+    ArenaWriteBuffer arena = new ArenaWriteBuffer(4096, SPECIAL1, SPECIAL2);
+
+    for (int i = 0; i < 50_000; i++) {
+      Bytes row = Bytes.of("r" + rand.nextInt(500));
+      Column col = new Column("f" + rand.nextInt(3), "q" + rand.nextInt(20));
+
+      int op = rand.nextInt(10);
+      if (op < 2) {
+        Assert.assertEquals(heap.remove(row, col), arena.remove(row, col));
+      } else {
+        Bytes val;
+        if (op == 2) {
+          val = SPECIAL1;
+        } else if (op == 3) {
+          val = SPECIAL2;
+        } else {
+          val = Bytes.of("v" + rand.nextInt(1000));
+        }
+        heap.put(row, col, val);
+        arena.put(row, col, val);
+      }
+
+      Bytes expected = heap.get(row, col);
+      Bytes actual = arena.get(row, col);
+      Assert.assertEquals(expected, actual);
+      if (expected == SPECIAL1 || expected == SPECIAL2) {
+        Assert.assertSame(expected, actual);
+      }
+      Assert.assertEquals(heap.getRow(row), arena.getRow(row));
+    }
+
+    assertSame(heap, arena);
+    assertSorted(heap);
+    assertSorted(arena);
+  }
+
+  private static void assertSorted(WriteBuffer buffer) {
+    Bytes prev = null;
+    int count = 0;
+    for (Entry<Bytes, Map<Column, Bytes>> entry : buffer.sortedRows()) {
+      if (prev != null) {
+        Assert.assertTrue(prev.compareTo(entry.getKey()) < 0);
+      }
+      Assert.assertEquals(buffer.getRow(entry.getKey()), entry.getValue());
+      prev = entry.getKey();
+      count++;
+    }
+    Assert.assertEquals(buffer.numRows(), count);
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.oracle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Timer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.apache.fluo.core.oracle.StampAllocator.MAX_RESERVATION_SIZE;
+import static org.apache.fluo.core.oracle.StampAllocator.MIN_RESERVATION_SIZE;
+import static org.apache.fluo.core.oracle.StampAllocator.RESERVATION_GROWTH_PERIOD_MS;
+
+public class StampAllocatorTest {
+
+  private static class TestStore implements StampAllocator.MaxTimestampStore {
+    private long max;
+    private final List<Long> sizes = new ArrayList<>();
+
+    TestStore(long max) {
+      this.max = max;
+    }
+
+    @Override
+    public synchronized long read() {
+      return max;
+    }
+
+    @Override
+    public synchronized long reserve(long minMaxTs, long size) {
+      max += size;
+      if (max <= minMaxTs) {
+        max = minMaxTs + size;
+      }
+      sizes.add(size);
+      return max;
+    }
+
+    synchronized List<Long> getSizes() {
+      return new ArrayList<>(sizes);
+    }
+  }
+
+  // queues background reservations until they are run by the test
+  private static class QueueingExecutor implements Executor {
+    private final List<Runnable> queued = new ArrayList<>();
+
+    @Override
+    public synchronized void execute(Runnable command) {
+      queued.add(command);
+    }
+
+    synchronized List<Runnable> drain() {
+      List<Runnable> ret = new ArrayList<>(queued);
+      queued.clear();
+      return ret;
+    }
+  }
+
+  private static final Executor REJECTING_EXECUTOR = r -> {
+    throw new RejectedExecutionException();
+  };
+
+  private static class Range implements Comparable<Range> {
+    final long start;
+    final long end;
+
+    Range(long start, int num) {
+      this.start = start;
+      this.end = start + num;
+    }
+
+    @Override
+    public int compareTo(Range o) {
+      return Long.compare(start, o.start);
+    }
+  }
+
+  /**
+   * Allocates timestamps from many threads and checks that no timestamp is handed out twice, that
+   * each thread sees increasing timestamps, and that no timestamp is past the reserved max.
+   */
+  private static List<Range> allocateConcurrently(StampAllocator allocator, TestStore store,
+      int numThreads, int numPerThread) throws Exception {
+    ExecutorService threads = Executors.newFixedThreadPool(numThreads);
+    CyclicBarrier barrier = new CyclicBarrier(numThreads);
+    List<Future<List<Range>>> futures = new ArrayList<>();
+
+    for (int t = 0; t < numThreads; t++) {
+      int seed = t;
+      futures.add(threads.submit(() -> {
+        Random rand = new Random(seed);
+        List<Range> ranges = new ArrayList<>();
+        long prevEnd = Long.MIN_VALUE;
+        barrier.await();
+        for (int i = 0; i < numPerThread; i++) {
+          int num = 1 + rand.nextInt(20);
+          Range range = new Range(allocator.allocate(num), num);
+          Assert.assertTrue(range.start >= prevEnd);
+          Assert.assertTrue(range.end <= allocator.getMaxTs());
+          Assert.assertTrue(range.end <= store.read());
+          prevEnd = range.end;
+          ranges.add(range);
+        }
+        return ranges;
+      }));
+    }
+
+    List<Range> ranges = new ArrayList<>();
+    for (Future<List<Range>> future : futures) {
+      ranges.addAll(future.get());
+    }
+    threads.shutdown();
+
+    Collections.sort(ranges);
+    for (int i = 1; i < ranges.size(); i++) {
+      Assert.assertTrue(ranges.get(i - 1).end <= ranges.get(i).start);
+    }
+    return ranges;
+  }
+
+  @Test
+  public void testConcurrentAllocation() throws Exception {
+    TestStore store = new TestStore(42);
+    ExecutorService reservationExecutor = Executors.newFixedThreadPool(1);
+    StampAllocator allocator = new StampAllocator(store, reservationExecutor, new Timer(),
+        System::currentTimeMillis);
+    allocator.start();
+
+    List<Range> ranges = allocateConcurrently(allocator, store, 16, 10_000);
+    Assert.assertEquals(42, ranges.get(0).start);
+    Assert.assertTrue(ranges.get(ranges.size() - 1).end <= allocator.getMaxTs());
+
+    reservationExecutor.shutdown();
+    Assert.assertTrue(reservationExecutor.awaitTermination(30, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testReserveAhead() throws Exception {
+    TestStore store = new TestStore(0);
+    QueueingExecutor reservationExecutor = new QueueingExecutor();
+    Timer stallTimer = new Timer();
+    StampAllocator allocator =
+        new StampAllocator(store, reservationExecutor, stallTimer, () -> 1_000_000L);
+    allocator.start();
+
+    // nothing is reserved yet, so the first request waits for a reservation
+    Assert.assertEquals(0, allocator.allocate(1));
+    Assert.assertEquals(1, stallTimer.getCount());
+    long max1 = MIN_RESERVATION_SIZE;
+    Assert.assertEquals(max1, allocator.getMaxTs());
+
+    // many threads pass the half way point of the block, but the next block is reserved once
+    Assert.assertEquals(1, allocator.allocate(600));
+    allocateConcurrently(allocator, store, 8, 2);
+    List<Runnable> queued = reservationExecutor.drain();
+    Assert.assertEquals(1, queued.size());
+    Assert.assertEquals(1, stallTimer.getCount());
+
+    // the block was used up quickly, so a larger one is reserved
+    queued.get(0).run();
+    long max2 = max1 + 2 * MIN_RESERVATION_SIZE;
+    Assert.assertEquals(max2, allocator.getMaxTs());
+    Assert.assertEquals(max2, store.read());
+
+    // the block reserved in the background is used without waiting
+    long start = allocator.allocate((int) (max2 - allocator.getCurrent() - 1));
+    Assert.assertTrue(start < max1);
+    Assert.assertEquals(1, stallTimer.getCount());
+    Assert.assertEquals(1, reservationExecutor.drain().size());
+
+    // the block is used up before the background reservation ran, so this waits
+    Assert.assertEquals(max2 - 1, allocator.allocate(1));
+    Assert.assertEquals(2, stallTimer.getCount());
+  }
+
+  @Test
+  public void testReservationGrowth() throws Exception {
+    TestStore store = new TestStore(0);
+    AtomicLong clock = new AtomicLong(1_000_000);
+    StampAllocator allocator =
+        new StampAllocator(store, REJECTING_EXECUTOR, new Timer(), clock::get);
+    allocator.start();
+
+    List<Long> expected = new ArrayList<>();
+
+    // blocks used up quickly double the size reserved, up to the max
+    for (long size = MIN_RESERVATION_SIZE; size < MAX_RESERVATION_SIZE; size *= 2) {
+      expected.add(size);
+    }
+    expected.add(MAX_RESERVATION_SIZE);
+    expected.add(MAX_RESERVATION_SIZE);
+
+    long prev = -1;
+    for (int i = 0; i < expected.size(); i++) {
+      // uses all but the last timestamp of the block, then the next request needs a new block
+      long remaining = allocator.getMaxTs() - allocator.getCurrent() - 1;
+      if (remaining > 0) {
+        Assert.assertTrue(allocator.allocate((int) remaining) > prev);
+      }
+      prev = allocator.allocate(1);
+      Assert.assertEquals(expected.get(i).longValue(), allocator.getReservationSize());
+    }
+    Assert.assertEquals(expected, store.getSizes());
+
+    // a block that lasts for the growth period resets the size
+    clock.addAndGet(RESERVATION_GROWTH_PERIOD_MS);
+    allocator.allocate((int) (allocator.getMaxTs() - allocator.getCurrent()));
+    Assert.assertEquals(MIN_RESERVATION_SIZE, allocator.getReservationSize());
+
+    clock.addAndGet(RESERVATION_GROWTH_PERIOD_MS - 1);
+    allocator.allocate((int) (allocator.getMaxTs() - allocator.getCurrent()));
+    Assert.assertEquals(MIN_RESERVATION_SIZE * 2, allocator.getReservationSize());
+
+    Assert.assertEquals(allocator.getMaxTs(), store.read());
+  }
+
+  @Test
+  public void testFailover() throws Exception {
+    TestStore store = new TestStore(0);
+    ExecutorService reservationExecutor = Executors.newFixedThreadPool(1);
+    StampAllocator allocator1 = new StampAllocator(store, reservationExecutor, new Timer(),
+        System::currentTimeMillis);
+    allocator1.start();
+
+    List<Range> ranges = allocateConcurrently(allocator1, store, 4, 1000);
+    long lastHandedOut = ranges.get(ranges.size() - 1).end - 1;
+
+    reservationExecutor.shutdown();
+    Assert.assertTrue(reservationExecutor.awaitTermination(30, TimeUnit.SECONDS));
+    long reservedMax = store.read();
+    Assert.assertTrue(reservedMax > lastHandedOut);
+
+    // the next leader resumes past everything the previous leader reserved, even what it had not
+    // handed out yet
+    StampAllocator allocator2 =
+        new StampAllocator(store, REJECTING_EXECUTOR, new Timer(), System::currentTimeMillis);
+    allocator2.start();
+    Assert.assertEquals(reservedMax, allocator2.getCurrent());
+    Assert.assertEquals(reservedMax, allocator2.allocate(10));
+    Assert.assertTrue(store.read() > reservedMax);
+  }
+}
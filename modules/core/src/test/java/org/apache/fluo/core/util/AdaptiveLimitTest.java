@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests AdaptiveLimit class
+ */
+public class AdaptiveLimitTest {
+
+  private static final long MS = 1_000_000;
+
+  private static void use(AdaptiveLimit limit, int times, int num, long latency) {
+    for (int i = 0; i < times; i++) {
+      limit.acquire(num);
+      limit.release(num, latency);
+    }
+  }
+
+  @Test
+  public void testIncreaseAndDecrease() {
+    AdaptiveLimit limit = new AdaptiveLimit(100, 10, 1000);
+
+    use(limit, 20, 60, MS);
+    int increased = limit.permits();
+    Assert.assertTrue(increased > 100);
+    Assert.assertEquals(0, limit.leased());
+
+    use(limit, 20, 60, 10 * MS);
+    int decreased = limit.permits();
+    Assert.assertTrue(decreased < increased);
+
+    // should never go outside of min and max
+    use(limit, 1000, 60, 100 * MS);
+    Assert.assertEquals(10, limit.permits());
+
+    use(limit, 100_000, 1000, MS);
+    Assert.assertEquals(1000, limit.permits());
+  }
+
+  @Test
+  public void testNoIncreaseWhenUnused() {
+    AdaptiveLimit limit = new AdaptiveLimit(100, 10, 1000);
+    use(limit, 100, 5, MS);
+    Assert.assertEquals(100, limit.permits());
+  }
+
+  @Test
+  public void testFixed() {
+    AdaptiveLimit limit = AdaptiveLimit.create(100, false);
+    use(limit, 100, 60, MS);
+    use(limit, 100, 60, 100 * MS);
+    Assert.assertEquals(100, limit.permits());
+  }
+}
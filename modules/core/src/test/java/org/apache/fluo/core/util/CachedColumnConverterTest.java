@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests CachedColumnConverter and CachedBytesConverter
+ */
+public class CachedColumnConverterTest {
+
+  @Test
+  public void testKnownColumns() {
+    Column c1 = new Column("f1", "q1");
+    Column c2 = new Column("f1", "q2", "A&B");
+    CachedColumnConverter converter = new CachedColumnConverter(Arrays.asList(c1, c2), 0);
+
+    Assert.assertSame(c1, converter.apply(new Key("r1", "f1", "q1")));
+    Assert.assertSame(c2, converter.apply(new Key("r1", "f1", "q2", "A&B")));
+    Assert.assertSame(c1, converter.apply(new Key("r2", "f1", "q1")));
+
+    Column c3 = converter.apply(new Key("r1", "f1", "q3"));
+    Assert.assertEquals(new Column("f1", "q3"), c3);
+    // max learned is zero, so should not be remembered
+    Assert.assertNotSame(c3, converter.apply(new Key("r2", "f1", "q3")));
+    Assert.assertEquals(c3, converter.apply(new Key("r2", "f1", "q3")));
+  }
+
+  @Test
+  public void testLearnedColumns() {
+    CachedColumnConverter converter = new CachedColumnConverter(Collections.emptyList(), 2);
+
+    Column c1 = converter.apply(new Key("r1", "f1", "q1"));
+    Column c2 = converter.apply(new Key("r1", "f1", "q2"));
+    Column c3 = converter.apply(new Key("r1", "f2", "q3", "A"));
+
+    Assert.assertEquals(new Column("f1", "q1"), c1);
+    Assert.assertEquals(new Column("f1", "q2"), c2);
+    Assert.assertEquals(new Column("f2", "q3", "A"), c3);
+
+    Assert.assertSame(c1, converter.apply(new Key("r2", "f1", "q1")));
+    Assert.assertSame(c2, converter.apply(new Key("r2", "f1", "q2")));
+    Assert.assertNotSame(c3, converter.apply(new Key("r2", "f2", "q3", "A")));
+    Assert.assertEquals(c3, converter.apply(new Key("r2", "f2", "q3", "A")));
+  }
+
+  @Test
+  public void testBytesConverter() {
+    Bytes r1 = Bytes.of("r1");
+    CachedBytesConverter converter = new CachedBytesConverter(Collections.singleton(r1));
+
+    Assert.assertSame(r1, converter.apply(new ArrayByteSequence("r1")));
+    Bytes r2 = converter.apply(new ArrayByteSequence("r2"));
+    Assert.assertEquals(Bytes.of("r2"), r2);
+    Assert.assertSame(r2, converter.apply(new ArrayByteSequence("r2")));
+    Assert.assertSame(r1, converter.apply(new ArrayByteSequence("r1")));
+    Assert.assertSame(Bytes.EMPTY, converter.apply(new ArrayByteSequence("")));
+  }
+
+  @Test
+  public void testBytesConverterReusedBuffer() {
+    CachedBytesConverter converter = new CachedBytesConverter();
+
+    // callers like scanners may overwrite the buffer of a sequence after converting it
+    byte[] buffer = "r1".getBytes(StandardCharsets.UTF_8);
+    Bytes r1 = converter.apply(new ArrayByteSequence(buffer));
+    buffer[1] = '2';
+    Bytes r2 = converter.apply(new ArrayByteSequence(buffer));
+
+    Assert.assertEquals(Bytes.of("r1"), r1);
+    Assert.assertEquals(Bytes.of("r2"), r2);
+    Assert.assertSame(r2, converter.apply(new ArrayByteSequence("r2")));
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FluoExecutorsTest {
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    if (!FluoThreadFactory.supportsVirtualThreads()) {
+      try {
+        FluoExecutors.newFixedThreadPool(2, "test", true);
+        Assert.fail();
+      } catch (UnsupportedOperationException e) {
+        // expected on Java versions before 21
+      }
+      return;
+    }
+
+    ExecutorService executor = FluoExecutors.newFixedThreadPool(2, "test", true);
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get();
+      Assert.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+      Assert.assertTrue(thread.getName().endsWith("-test"));
+    } finally {
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void testPlatformThreads() throws Exception {
+    ExecutorService executor = FluoExecutors.newFixedThreadPool(2, "test", false);
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get();
+      Assert.assertTrue(thread.isDaemon());
+      Assert.assertTrue(thread.getName().endsWith("-test"));
+    } finally {
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+}
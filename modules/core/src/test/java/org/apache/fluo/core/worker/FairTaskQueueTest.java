@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FairTaskQueueTest {
+
+  private static class TestTask implements Runnable, Comparable<TestTask> {
+    final String group;
+    final long order;
+
+    TestTask(String group, long order) {
+      this.group = group;
+      this.order = order;
+    }
+
+    @Override
+    public void run() {}
+
+    @Override
+    public int compareTo(TestTask o) {
+      return Long.compare(order, o.order);
+    }
+  }
+
+  private static FairTaskQueue newQueue(Map<String, Integer> weights, Map<String, Integer> max) {
+    return new FairTaskQueue(r -> ((TestTask) r).group, g -> weights.getOrDefault(g, 1),
+        g -> max.getOrDefault(g, 0), weights.keySet());
+  }
+
+  private static TestTask take(FairTaskQueue queue) throws Exception {
+    TestTask task = (TestTask) queue.poll(0, TimeUnit.SECONDS);
+    Assert.assertNotNull(task);
+    queue.finished(task);
+    return task;
+  }
+
+  @Test
+  public void testFairness() throws Exception {
+    FairTaskQueue queue = newQueue(new HashMap<>(), new HashMap<>());
+
+    // the flooded group has older tasks, but can not starve the other group
+    for (int i = 0; i < 1000; i++) {
+      queue.offer(new TestTask("flood", i));
+    }
+    for (int i = 0; i < 10; i++) {
+      queue.offer(new TestTask("other", 1000 + i));
+    }
+    Assert.assertEquals(1010, queue.size());
+    Assert.assertEquals(10, queue.getQueued("other"));
+
+    int other = 0;
+    long prevFlood = -1;
+    for (int i = 0; i < 20; i++) {
+      TestTask task = take(queue);
+      if (task.group.equals("other")) {
+        other++;
+      } else {
+        // tasks in a group are taken in order
+        Assert.assertTrue(task.order > prevFlood);
+        prevFlood = task.order;
+      }
+    }
+    Assert.assertEquals(10, other);
+    Assert.assertEquals(990, queue.size());
+  }
+
+  @Test
+  public void testWeights() throws Exception {
+    Map<String, Integer> weights = new HashMap<>();
+    weights.put("a", 3);
+    FairTaskQueue queue = newQueue(weights, new HashMap<>());
+
+    for (int i = 0; i < 400; i++) {
+      queue.offer(new TestTask("a", i));
+      queue.offer(new TestTask("b", i));
+    }
+
+    int a = 0;
+    for (int i = 0; i < 400; i++) {
+      if (take(queue).group.equals("a")) {
+        a++;
+      }
+    }
+    Assert.assertEquals(300, a, 2);
+  }
+
+  @Test
+  public void testMaxRunning() throws Exception {
+    Map<String, Integer> max = new HashMap<>();
+    max.put("a", 2);
+    FairTaskQueue queue = newQueue(new HashMap<>(), max);
+
+    for (int i = 0; i < 5; i++) {
+      queue.offer(new TestTask("a", i));
+    }
+
+    Runnable t1 = queue.poll();
+    Runnable t2 = queue.poll();
+    Assert.assertNotNull(t1);
+    Assert.assertNotNull(t2);
+    Assert.assertEquals(2, queue.getRunning("a"));
+    // at the limit, so nothing can be taken even though tasks are queued
+    Assert.assertNull(queue.poll());
+    Assert.assertNull(queue.peek());
+    Assert.assertEquals(3, queue.size());
+
+    // other groups can still run
+    queue.offer(new TestTask("b", 0));
+    Assert.assertEquals("b", take(queue).group);
+
+    queue.finished(t1);
+    Assert.assertEquals(1, queue.getRunning("a"));
+    Assert.assertEquals(2, ((TestTask) queue.poll()).order);
+    Assert.assertNull(queue.poll());
+
+    // a thread waiting for a task is woken when a task finishes
+    Thread finisher = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      queue.finished(t2);
+    });
+    finisher.start();
+    Assert.assertEquals(3, ((TestTask) queue.take()).order);
+    finisher.join();
+  }
+
+  @Test
+  public void testRemoveAndDrain() throws Exception {
+    FairTaskQueue queue = newQueue(new HashMap<>(), new HashMap<>());
+    for (int i = 0; i < 10; i++) {
+      queue.offer(new TestTask(i % 2 == 0 ? "a" : "b", i));
+    }
+
+    Iterator<Runnable> iter = queue.iterator();
+    while (iter.hasNext()) {
+      if (((TestTask) iter.next()).order % 5 == 0) {
+        iter.remove();
+      }
+    }
+    Assert.assertEquals(8, queue.size());
+
+    List<Runnable> drained = new ArrayList<>();
+    Assert.assertEquals(8, queue.drainTo(drained));
+    Assert.assertEquals(0, queue.size());
+    Assert.assertTrue(queue.isEmpty());
+    Assert.assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testBadConfig() {
+    Map<String, Integer> weights = new HashMap<>();
+    weights.put("a", 0);
+    try {
+      newQueue(weights, new HashMap<>());
+      Assert.fail("Expected bad weight to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // known groups are validated when the queue is created, before any task is queued
+    Map<String, Integer> max = new HashMap<>();
+    max.put("b", -1);
+    try {
+      new FairTaskQueue(r -> ((TestTask) r).group, g -> 1, g -> max.getOrDefault(g, 0),
+          Arrays.asList("a", "b"));
+      Assert.fail("Expected bad max running to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
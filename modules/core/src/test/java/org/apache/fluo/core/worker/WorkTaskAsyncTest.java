@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.observer.Observer;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.Notification;
+import org.apache.fluo.core.observer.Observers;
+import org.apache.fluo.core.oracle.Stamp;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that WorkTaskAsync releases its notifications when it fails before committing.
+ */
+public class WorkTaskAsyncTest {
+
+  // fails to allocate start timestamps, so every transaction fails to start
+  private static class FailingProcessor implements WorkTaskAsync.Processor {
+    final List<Notification> processed = new ArrayList<>();
+
+    @Override
+    public Stamp allocateTimestamp(long minTimestamp, long requestTime) {
+      throw new IllegalStateException("oracle unavailable");
+    }
+
+    @Override
+    public long getPrefetchMaxAge() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void notificationProcessed(Notification notification) {
+      processed.add(notification);
+    }
+
+    @Override
+    public void requeueNotification(NotificationFinder notificationFinder,
+        Notification notification) {
+      Assert.fail("Unexpected requeue");
+    }
+  }
+
+  private static class TestFinder implements NotificationFinder {
+    final List<Notification> failed = new ArrayList<>();
+
+    @Override
+    public void init(Environment env, NotificationProcessor processor) {}
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public boolean shouldProcess(Notification notification) {
+      return true;
+    }
+
+    @Override
+    public void failedToProcess(Notification notification, TxResult status) {
+      Assert.assertEquals(TxResult.ERROR, status);
+      failed.add(notification);
+    }
+  }
+
+  private static class TestObservers implements Observers {
+    private final Observer observer = (tx, row, col) -> Assert.fail("Unexpected process");
+    int returned = 0;
+
+    @Override
+    public String getObserverId(Column col) {
+      return "test";
+    }
+
+    @Override
+    public Observer getObserver(Column col) {
+      return observer;
+    }
+
+    @Override
+    public void returnObserver(Observer o) {
+      returned++;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static List<Notification> notifications() {
+    List<Notification> notifications = new ArrayList<>();
+    for (String qual : new String[] {"a", "b", "c"}) {
+      notifications.add(new Notification(Bytes.of("r1"), new Column("f", qual), 42));
+    }
+    return notifications;
+  }
+
+  private static void runFailedStart(boolean prefetch) {
+    FailingProcessor processor = new FailingProcessor();
+    TestFinder finder = new TestFinder();
+    TestObservers observers = new TestObservers();
+    List<Notification> notifications = notifications();
+
+    WorkTaskAsync task = new WorkTaskAsync(processor, finder, null, notifications.get(0),
+        observers, Collections.singleton(new Column("f", "a")));
+    task.addToBatch(notifications.get(1));
+    task.addToBatch(notifications.get(2));
+
+    if (prefetch) {
+      // the failure to start the transaction is only seen when the task runs
+      task.prefetch();
+      Assert.assertEquals(0, processor.processed.size());
+    }
+
+    task.run();
+
+    // the notification and the ones batched with it are no longer tracked and can be found again
+    Assert.assertEquals(notifications, processor.processed);
+    Assert.assertEquals(notifications, finder.failed);
+    Assert.assertEquals(1, observers.returned);
+  }
+
+  @Test
+  public void testFailedStart() {
+    runFailedStart(false);
+  }
+
+  @Test
+  public void testFailedPrefetchStart() {
+    runFailedStart(true);
+  }
+}
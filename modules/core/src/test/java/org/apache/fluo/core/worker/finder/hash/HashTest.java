@@ -15,6 +15,7 @@
 
 package org.apache.fluo.core.worker.finder.hash;
 
+import java.util.BitSet;
 import java.util.Random;
 
 import com.google.common.math.DoubleMath;
@@ -66,4 +67,40 @@ public class HashTest {
     Assert.assertEquals(accept, PartitionManager.shouldProcess(Notification.from(k), 7, 3));
     return accept;
   }
+
+  @Test
+  public void testBucketConsistency() {
+    Random rand = new Random(11);
+
+    BitSet buckets = new BitSet();
+    for (int i = 0; i < 1024; i += 3) {
+      buckets.set(i);
+    }
+
+    int count = 0;
+    for (int i = 0; i < 1000; i++) {
+      byte[] row = new byte[16];
+      byte[] cf = new byte[16];
+      byte[] cq = new byte[16];
+
+      rand.nextBytes(row);
+      rand.nextBytes(cf);
+      rand.nextBytes(cq);
+
+      Column col = new Column(Bytes.of(cf), Bytes.of(cq));
+      Key k = new Key(row, ColumnConstants.NOTIFY_CF.toArray(), NotificationUtil.encodeCol(col),
+          new byte[0], 6);
+      int bucket =
+          NotificationHashFilter.getBucket(k.getRowData(), k.getColumnQualifierData(), 1024);
+      Assert.assertTrue(bucket >= 0 && bucket < 1024);
+      boolean accept = buckets.get(bucket);
+      Assert.assertEquals(accept,
+          PartitionManager.shouldProcess(Notification.from(k), 1024, buckets));
+      if (accept) {
+        count++;
+      }
+    }
+
+    Assert.assertTrue(DoubleMath.fuzzyEquals(count / 1000.0, 1.0 / 3, .1));
+  }
 }
@@ -15,10 +15,14 @@
 
 package org.apache.fluo.core.worker.finder.hash;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IntSummaryStatistics;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -98,4 +102,175 @@ public class PartitionManagerTest {
       }
     }
   }
+
+  @Test
+  public void testRendezvousGrouping() {
+    IntFunction<String> nff = i -> String.format("f-%04d", i);
+
+    for (int numSplits : new int[] {1, 10, 100, 1000}) {
+      for (int numWorkers : new int[] {1, 5, 10, 11, 100}) {
+        for (int groupSize : new int[] {1, 2, 3, 7, 13}) {
+          int expectedGroups = Math.max(1, numWorkers / groupSize);
+
+          TreeSet<String> children = new TreeSet<>();
+          IntStream.range(0, numWorkers).mapToObj(nff).forEach(children::add);
+
+          Collection<TableRange> tablets = newTablets(numSplits);
+
+          Set<String> idCombos = new HashSet<>();
+          Map<Integer, RangeSet> groupTablets = new HashMap<>();
+          Map<Integer, BitSet> groupBuckets = new HashMap<>();
+          IntSummaryStatistics groupSizes = new IntSummaryStatistics();
+
+          for (int i = 0; i < numWorkers; i++) {
+            String me = nff.apply(i);
+            PartitionInfo pi =
+                PartitionManager.getRendezvousGroupInfo(me, children, tablets, groupSize);
+            Assert.assertEquals(expectedGroups, pi.getNumGroups());
+            Assert.assertEquals(numWorkers, pi.getNumWorkers());
+            Assert.assertTrue(
+                pi.getMyIdInGroup() >= 0 && pi.getMyIdInGroup() < pi.getMyGroupSize());
+            Assert.assertTrue(pi.getMyGroupId() >= 0 && pi.getMyGroupId() < expectedGroups);
+            Assert.assertEquals(PartitionManager.NUM_BUCKETS, pi.getNumBuckets());
+            groupSizes.accept(pi.getMyGroupSize());
+
+            Assert.assertTrue(idCombos.add(pi.getMyGroupId() + ":" + pi.getMyIdInGroup()));
+
+            if (!groupTablets.containsKey(pi.getMyGroupId())) {
+              groupTablets.put(pi.getMyGroupId(), pi.getMyGroupsRanges());
+              groupBuckets.put(pi.getMyGroupId(), new BitSet());
+            } else {
+              Assert.assertEquals(groupTablets.get(pi.getMyGroupId()), pi.getMyGroupsRanges());
+            }
+
+            // the buckets of the workers in a group are disjoint and about the same size
+            BitSet buckets = groupBuckets.get(pi.getMyGroupId());
+            Assert.assertFalse(buckets.intersects(pi.getMyBuckets()));
+            buckets.or(pi.getMyBuckets());
+            int expectedBuckets = PartitionManager.NUM_BUCKETS / pi.getMyGroupSize();
+            Assert.assertTrue(pi.getMyBuckets().cardinality() - expectedBuckets < 2);
+            Assert.assertTrue(pi.getMyBuckets().cardinality() >= expectedBuckets);
+          }
+
+          Assert.assertEquals(numWorkers, idCombos.size());
+          Assert.assertTrue(groupSizes.getMax() - groupSizes.getMin() < 2);
+
+          // the workers in each group process all buckets
+          groupBuckets.values().forEach(
+              b -> Assert.assertEquals(PartitionManager.NUM_BUCKETS, b.cardinality()));
+
+          HashSet<TableRange> allTabletsFromGroups = new HashSet<>();
+          for (RangeSet tabletSet : groupTablets.values()) {
+            tabletSet.forEach(tr -> Assert.assertTrue(allTabletsFromGroups.add(tr)));
+          }
+          Assert.assertEquals(new HashSet<>(tablets), allTabletsFromGroups);
+
+          IntSummaryStatistics summaryStats =
+              groupTablets.values().stream().mapToInt(RangeSet::size).summaryStatistics();
+          Assert.assertTrue(summaryStats.getMax() - summaryStats.getMin() < 2);
+        }
+      }
+    }
+  }
+
+  private static Collection<TableRange> newTablets(int numSplits) {
+    Collection<Bytes> rows = IntStream.iterate(0, i -> i + 1000).limit(numSplits)
+        .mapToObj(i -> String.format("r%06d", i)).map(Bytes::of).collect(toList());
+    return TableRange.toTabletRanges(rows);
+  }
+
+  /**
+   * Computes which worker processes each bucket of each tablet.
+   */
+  private static Map<String, String> getOwners(TreeSet<String> children,
+      Collection<TableRange> tablets, int groupSize) {
+    Map<String, String> owners = new HashMap<>();
+    for (String me : children) {
+      PartitionInfo pi = PartitionManager.getRendezvousGroupInfo(me, children, tablets, groupSize);
+      pi.getMyGroupsRanges().forEach(tr -> pi.getMyBuckets().stream()
+          .forEach(b -> Assert.assertNull(owners.put(tr + ":" + b, me))));
+    }
+    return owners;
+  }
+
+  @Test
+  public void testRendezvousChurn() {
+    IntFunction<String> nff = i -> String.format("f-%010d", i);
+    Collection<TableRange> tablets = newTablets(100);
+
+    for (int numWorkers : new int[] {7, 10, 15}) {
+      TreeSet<String> children = new TreeSet<>();
+      IntStream.range(0, numWorkers).mapToObj(nff).forEach(children::add);
+      Map<String, String> before = getOwners(children, tablets, 7);
+
+      // new workers always sort last because their zookeeper nodes are sequential
+      children.add(nff.apply(numWorkers));
+      Map<String, String> after = getOwners(children, tablets, 7);
+
+      Assert.assertEquals(before.keySet(), after.keySet());
+      long moved =
+          before.keySet().stream().filter(k -> !before.get(k).equals(after.get(k))).count();
+      // ideally only the work taken by the new worker moves, allow some more than that
+      double ideal = before.size() / (double) (numWorkers + 1);
+      Assert.assertTrue(moved + " " + ideal, moved < ideal * 1.5);
+    }
+  }
+
+  @Test
+  public void testWeightedGrouping() {
+    IntFunction<String> nff = i -> String.format("f-%04d", i);
+
+    TreeSet<String> children = new TreeSet<>();
+    IntStream.range(0, 35).mapToObj(nff).forEach(children::add);
+
+    List<TableRange> tablets = new ArrayList<>(newTablets(100));
+    Collections.sort(tablets);
+
+    // one tablet has a third of the load, the rest of the load is spread over 20 tablets
+    Map<TableRange, Double> weights = new HashMap<>();
+    double totalWeight = 0;
+    for (int i = 0; i < tablets.size(); i++) {
+      double weight = i == 42 ? 16 : (i % 5 == 0 ? 1.5 : TabletLoads.MIN_WEIGHT);
+      weights.put(tablets.get(i), weight);
+      totalWeight += weight;
+    }
+
+    Map<String, String> owners = new HashMap<>();
+    Map<String, Double> workerLoads = new HashMap<>();
+    Set<Integer> groupsWithHotTablet = new HashSet<>();
+    for (String me : children) {
+      PartitionInfo pi =
+          PartitionManager.getRendezvousGroupInfo(me, children, tablets, 7, weights);
+      Assert.assertEquals(5, pi.getNumGroups());
+      double load = 0;
+      for (TableRange tablet : tablets) {
+        if (tablet.equals(pi.getMyGroupsRanges().getContaining(rowIn(tablet)))) {
+          BitSet buckets = pi.getMyBuckets(tablet);
+          buckets.stream().forEach(b -> Assert.assertNull(owners.put(tablet + ":" + b, me)));
+          load += weights.get(tablet) * buckets.cardinality() / PartitionManager.NUM_BUCKETS;
+          if (tablet.equals(tablets.get(42))) {
+            groupsWithHotTablet.add(pi.getMyGroupId());
+          }
+        }
+      }
+      workerLoads.put(me, load);
+    }
+
+    // every bucket of every tablet is processed by one worker
+    Assert.assertEquals(tablets.size() * PartitionManager.NUM_BUCKETS, owners.size());
+
+    // the hot tablet is split between groups
+    Assert.assertTrue(groupsWithHotTablet.size() > 1);
+
+    // without splitting the hot tablet, the workers processing it would have about twelve times
+    // the average load
+    double average = totalWeight / children.size();
+    for (double load : workerLoads.values()) {
+      Assert.assertTrue(load + " " + average, load < average * 1.5);
+    }
+  }
+
+  private static Bytes rowIn(TableRange tablet) {
+    return tablet.getEndRow() == null ? Bytes.of("z") : tablet.getEndRow();
+  }
 }
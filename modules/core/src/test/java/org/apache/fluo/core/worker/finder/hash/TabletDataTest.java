@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker.finder.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TabletDataTest {
+
+  @Test
+  public void testFullScanInterval() {
+    TabletData td = new TabletData();
+
+    // nothing seen yet, so must do a full scan
+    Assert.assertEquals(-1, td.getScanMinTimestamp(3));
+    td.updateHighWaterMark(-1, -1);
+    Assert.assertEquals(-1, td.getScanMinTimestamp(3));
+
+    td.updateHighWaterMark(-1, 10);
+    Assert.assertEquals(10, td.getScanMinTimestamp(3));
+    td.updateHighWaterMark(10, 15);
+    Assert.assertEquals(15, td.getScanMinTimestamp(3));
+    // an incremental scan that finds nothing should not lower the high water mark
+    td.updateHighWaterMark(15, -1);
+    Assert.assertEquals(-1, td.getScanMinTimestamp(3));
+
+    td.updateHighWaterMark(-1, 12);
+    Assert.assertEquals(15, td.getScanMinTimestamp(3));
+
+    // an interval of 1 means every scan is a full scan
+    Assert.assertEquals(-1, td.getScanMinTimestamp(1));
+  }
+}
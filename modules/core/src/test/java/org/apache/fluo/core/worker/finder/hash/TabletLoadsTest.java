@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker.finder.hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.fluo.api.data.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TabletLoadsTest {
+
+  private static List<TableRange> newTablets(String... splits) {
+    List<Bytes> rows = new ArrayList<>();
+    Arrays.stream(splits).map(Bytes::of).forEach(rows::add);
+    return new ArrayList<>(TableRange.toTabletRanges(rows));
+  }
+
+  @Test
+  public void testSerialization() {
+    List<TableRange> tablets = newTablets("m", "t");
+
+    Map<TableRange, Double> loads = new HashMap<>();
+    loads.put(tablets.get(0), 1.5);
+    loads.put(tablets.get(1), 0.0);
+    loads.put(tablets.get(2), 1000.25);
+
+    Assert.assertEquals(loads, TabletLoads.deserialize(TabletLoads.serialize(loads)));
+    Assert.assertEquals(new HashMap<>(),
+        TabletLoads.deserialize(TabletLoads.serialize(new HashMap<>())));
+  }
+
+  @Test
+  public void testWeights() {
+    List<TableRange> tablets = newTablets("b", "c", "d");
+
+    Assert.assertNull(TabletLoads.computeWeights(new HashMap<>(), tablets));
+
+    Map<TableRange, Double> rates = new HashMap<>();
+    rates.put(tablets.get(0), 10.0);
+    rates.put(tablets.get(1), 10.0);
+    rates.put(tablets.get(2), 75.0);
+    // the last tablet has no rate, so it is treated as having no new notifications
+
+    Map<TableRange, Double> weights = TabletLoads.computeWeights(rates, tablets);
+    Assert.assertEquals(4, weights.size());
+    // the mean rate is 23.75, weights are rounded to a power of two
+    Assert.assertEquals(.5, weights.get(tablets.get(0)), 0.0);
+    Assert.assertEquals(.5, weights.get(tablets.get(1)), 0.0);
+    Assert.assertEquals(4, weights.get(tablets.get(2)), 0.0);
+    Assert.assertEquals(TabletLoads.MIN_WEIGHT, weights.get(tablets.get(3)), 0.0);
+  }
+
+  @Test
+  public void testShouldUpdate() {
+    List<TableRange> tablets = newTablets("b", "c");
+
+    Map<TableRange, Double> current = new HashMap<>();
+    current.put(tablets.get(0), 1.0);
+    current.put(tablets.get(1), 2.0);
+    current.put(tablets.get(2), .5);
+
+    Assert.assertTrue(TabletLoads.shouldUpdate(null, current));
+
+    // small changes in weights are ignored to avoid moving work around
+    Map<TableRange, Double> proposed = new HashMap<>(current);
+    proposed.put(tablets.get(0), 2.0);
+    proposed.put(tablets.get(1), 1.0);
+    Assert.assertFalse(TabletLoads.shouldUpdate(current, proposed));
+
+    proposed.put(tablets.get(2), 2.0);
+    Assert.assertTrue(TabletLoads.shouldUpdate(current, proposed));
+
+    // tablets changed
+    proposed = new HashMap<>(current);
+    proposed.remove(tablets.get(2));
+    Assert.assertTrue(TabletLoads.shouldUpdate(current, proposed));
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import org.apache.fluo.api.client.Snapshot;
+import org.apache.fluo.api.client.Transaction;
+import org.apache.fluo.api.client.scanner.ScanAggregates;
+import org.apache.fluo.api.client.scanner.ScanFilter;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.core.impl.TransactionImpl.CommitData;
+import org.apache.fluo.core.impl.TransactorNode;
+import org.apache.fluo.core.oracle.Stamp;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class AggregateIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COUNT_COL = new Column("stat", "count");
+  private static final Column NAME_COL = new Column("meta", "name");
+
+  @Test
+  public void testAggregate() {
+    try (Transaction tx = client.newTransaction()) {
+      for (int i = 0; i < 100; i++) {
+        String row = String.format("r%03d", i);
+        tx.set(row, COUNT_COL, i + "");
+        tx.set(row, NAME_COL, "n" + i);
+      }
+      tx.commit();
+    }
+
+    try (Snapshot snap = client.newSnapshot()) {
+      ScanAggregates all = snap.scanner().aggregate();
+      Assert.assertEquals(new ScanAggregates(200, 100, 4950, 0, 99), all);
+
+      ScanAggregates counts = snap.scanner().fetch(COUNT_COL).aggregate();
+      Assert.assertEquals(new ScanAggregates(100, 100, 4950, 0, 99), counts);
+
+      ScanAggregates names = snap.scanner().fetch(NAME_COL).aggregate();
+      Assert.assertEquals(new ScanAggregates(100, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE), names);
+
+      ScanAggregates span = snap.scanner().overPrefix("r01").fetch(COUNT_COL).aggregate();
+      Assert.assertEquals(new ScanAggregates(10, 10, 145, 10, 19), span);
+
+      ScanAggregates filtered =
+          snap.scanner().fetch(COUNT_COL).filter(ScanFilter.valueRegex("[0-9]")).aggregate();
+      Assert.assertEquals(new ScanAggregates(10, 10, 45, 0, 9), filtered);
+
+      ScanAggregates empty = snap.scanner().over("none").aggregate();
+      Assert.assertEquals(0, empty.getCount());
+    }
+
+    // aggregates are consistent with the snapshot
+    try (Snapshot snap = client.newSnapshot()) {
+      try (Transaction tx = client.newTransaction()) {
+        tx.set("r000", COUNT_COL, "1000");
+        tx.commit();
+      }
+
+      Assert.assertEquals(4950, snap.scanner().fetch(COUNT_COL).aggregate().getSum());
+    }
+
+    try (Snapshot snap = client.newSnapshot()) {
+      Assert.assertEquals(5950, snap.scanner().fetch(COUNT_COL).aggregate().getSum());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testColumnLimit() {
+    try (Snapshot snap = client.newSnapshot()) {
+      snap.scanner().filter(ScanFilter.maxColumnsPerRow(1)).aggregate();
+    }
+  }
+
+  @Test
+  public void testRecovery1() throws Exception {
+    runRecoveryTest(true);
+  }
+
+  @Test
+  public void testRecovery2() throws Exception {
+    runRecoveryTest(false);
+  }
+
+  private void runRecoveryTest(boolean closeTransID) throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    for (int i = 0; i < 7; i++) {
+      tx1.set(i + "", COUNT_COL, i + "");
+    }
+    tx1.done();
+
+    TransactorNode tNode1 = new TransactorNode(env);
+
+    // locks columns and never commits, so should be rolled back
+    TestTransaction tx2 = new TestTransaction(env, tNode1);
+    tx2.set("0", COUNT_COL, "100");
+    tx2.set("1", COUNT_COL, "100");
+    CommitData cd2 = tx2.createCommitData();
+    Assert.assertTrue(tx2.preCommit(cd2));
+
+    // commits the primary column only, so should be rolled forward
+    TestTransaction tx3 = new TestTransaction(env, tNode1);
+    tx3.set("4", COUNT_COL, "10");
+    tx3.set("5", COUNT_COL, "10");
+    CommitData cd3 = tx3.createCommitData();
+    Assert.assertTrue(tx3.preCommit(cd3));
+    Stamp commitTs = env.getSharedResources().getOracleClient().getStamp();
+    tx3.commitPrimaryColumn(cd3, commitTs);
+
+    if (closeTransID) {
+      tNode1.close();
+    }
+
+    for (int i = 0; i < 2; i++) {
+      TestTransaction tx = new TestTransaction(env);
+      ScanAggregates aggregates = tx.scanner().fetch(COUNT_COL).aggregate();
+      Assert.assertEquals(new ScanAggregates(7, 7, 0 + 1 + 2 + 3 + 10 + 10 + 6, 0, 10),
+          aggregates);
+      tx.done();
+    }
+
+    if (!closeTransID) {
+      tNode1.close();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.fluo.api.client.Snapshot;
+import org.apache.fluo.api.client.Transaction;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.observer.ObserverProvider;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.integration.ITBaseMini;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.apache.fluo.api.observer.Observer.NotificationType.STRONG;
+
+/**
+ * Tests sharing worker threads fairly between observers.
+ */
+public class FairSchedulingIT extends ITBaseMini {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column FLOOD_COL = new Column("data", "flood");
+  private static final Column CAPPED_COL = new Column("data", "capped");
+  private static final Column COPY_COL = new Column("data", "copy");
+
+  private static final AtomicInteger cappedRunning = new AtomicInteger(0);
+  private static final AtomicInteger cappedMaxRunning = new AtomicInteger(0);
+
+  public static class FairObserverProvider implements ObserverProvider {
+    @Override
+    public void provide(Registry or, Context ctx) {
+      or.forColumn(FLOOD_COL, STRONG).withId("flood").useStrObserver((tx, row, col) -> {
+        tx.set(row, COPY_COL, tx.gets(row, FLOOD_COL));
+      });
+      or.forColumn(CAPPED_COL, STRONG).withId("capped").useStrObserver((tx, row, col) -> {
+        int running = cappedRunning.incrementAndGet();
+        cappedMaxRunning.accumulateAndGet(running, Math::max);
+        try {
+          tx.set(row, COPY_COL, tx.gets(row, CAPPED_COL));
+        } finally {
+          cappedRunning.decrementAndGet();
+        }
+      });
+    }
+  }
+
+  @Override
+  protected Class<? extends ObserverProvider> getObserverProviderClass() {
+    return FairObserverProvider.class;
+  }
+
+  @Override
+  protected void setConfig(FluoConfiguration config) {
+    config.setWorkerThreads(8);
+    config.setProperty(FluoConfigurationImpl.WORKER_FAIR_SCHEDULING_PROP, true);
+    config.setProperty(FluoConfigurationImpl.WORKER_OBSERVER_WEIGHT_PREFIX + "flood", 4);
+    config.setProperty(FluoConfigurationImpl.WORKER_OBSERVER_MAX_THREADS_PREFIX + "capped", 1);
+  }
+
+  @Test
+  public void testObservers() throws Exception {
+    try (Transaction tx = client.newTransaction()) {
+      for (int i = 0; i < 500; i++) {
+        tx.set(String.format("f%03d", i), FLOOD_COL, "f" + i);
+      }
+      for (int i = 0; i < 50; i++) {
+        tx.set(String.format("c%03d", i), CAPPED_COL, "c" + i);
+      }
+      tx.commit();
+    }
+
+    miniFluo.waitForObservers();
+
+    try (Snapshot snap = client.newSnapshot()) {
+      for (int i = 0; i < 500; i++) {
+        Assert.assertEquals("f" + i, snap.gets(String.format("f%03d", i), COPY_COL));
+      }
+      for (int i = 0; i < 50; i++) {
+        Assert.assertEquals("c" + i, snap.gets(String.format("c%03d", i), COPY_COL));
+      }
+    }
+
+    Assert.assertEquals(1, cappedMaxRunning.get());
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+
+/**
+ * Runs the {@link NotificationHintsIT} chains with a worker whose notification queue is always
+ * full. A notification stays queued until its transaction has passed its hints on, so hints must
+ * be dropped instead of waiting for space. Scanning finds the dropped notifications.
+ */
+public class NotificationHintsFullQueueIT extends NotificationHintsIT {
+
+  @Override
+  protected void setConfig(FluoConfiguration config) {
+    super.setConfig(config);
+    config.setProperty(FluoConfigurationImpl.WORKER_NTFY_QUEUE_MEMORY_PROP, 1);
+  }
+}
@@ -30,6 +30,7 @@ import java.util.concurrent.Executors;
 import org.apache.fluo.core.impl.Environment;
 import org.apache.fluo.core.oracle.OracleClient;
 import org.apache.fluo.core.oracle.OracleServer;
+import org.apache.fluo.core.oracle.Stamp;
 import org.apache.fluo.core.util.HostUtil;
 import org.apache.fluo.core.util.PortUtils;
 import org.apache.fluo.integration.ITBaseImpl;
@@ -67,6 +68,27 @@ public class OracleIT extends ITBaseImpl {
     assertTrue(ts3 + " " + ts4, ts3 < ts4);
   }
 
+  @Test
+  public void testGetStamps() throws Exception {
+    OracleClient client = env.getSharedResources().getOracleClient();
+
+    long ts1 = client.getStamp().getTxTimestamp();
+
+    List<Stamp> stamps = client.getStamps(50);
+    assertEquals(50, stamps.size());
+    for (int i = 0; i < stamps.size(); i++) {
+      assertEquals(ts1 + 1 + i, stamps.get(i).getTxTimestamp());
+      assertEquals(stamps.get(0).getGcTimestamp(), stamps.get(i).getGcTimestamp());
+    }
+
+    List<Stamp> stamps2 = client.getStampsAsync(3).get();
+    assertEquals(3, stamps2.size());
+    assertEquals(ts1 + 51, stamps2.get(0).getTxTimestamp());
+    assertEquals(ts1 + 53, stamps2.get(2).getTxTimestamp());
+
+    assertEquals(ts1 + 54, client.getStamp().getTxTimestamp());
+  }
+
   private static class TimestampFetcher implements Runnable {
     private int numToGet;
     private Environment env;
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.TreeSet;
+
+import org.apache.fluo.api.client.Snapshot;
+import org.apache.fluo.api.client.Transaction;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.observer.ObserverProvider;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.integration.ITBaseMini;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.apache.fluo.api.observer.Observer.NotificationType.STRONG;
+
+/**
+ * Tests scanning multiple tablets for notifications concurrently.
+ */
+public class ParallelScanIT extends ITBaseMini {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column UPDATE_COL = new Column("data", "update");
+  private static final Column COPY_COL = new Column("data", "copy");
+
+  public static class CopyObserverProvider implements ObserverProvider {
+    @Override
+    public void provide(Registry or, Context ctx) {
+      or.forColumn(UPDATE_COL, STRONG).useStrObserver((tx, row, col) -> {
+        tx.set(row, COPY_COL, tx.gets(row, UPDATE_COL));
+        tx.delete(row, UPDATE_COL);
+      });
+    }
+  }
+
+  @Override
+  protected Class<? extends ObserverProvider> getObserverProviderClass() {
+    return CopyObserverProvider.class;
+  }
+
+  @Override
+  protected void setConfig(FluoConfiguration config) {
+    config.setProperty(FluoConfigurationImpl.NTFY_FINDER_SCAN_THREADS_PROP, 4);
+    config.setProperty(FluoConfigurationImpl.NTFY_FINDER_MIN_SLEEP_TIME_PROP, 100);
+  }
+
+  @Test
+  public void testMultipleTablets() throws Exception {
+    TreeSet<Text> splits = new TreeSet<>();
+    for (int i = 1; i < 8; i++) {
+      splits.add(new Text(String.format("r%03d", i * 50)));
+    }
+    conn.tableOperations().addSplits(config.getAccumuloTable(), splits);
+
+    try (Transaction tx = client.newTransaction()) {
+      for (int i = 0; i < 400; i++) {
+        tx.set(String.format("r%03d", i), UPDATE_COL, "u" + i);
+      }
+      tx.commit();
+    }
+
+    miniFluo.waitForObservers();
+
+    try (Snapshot snap = client.newSnapshot()) {
+      for (int i = 0; i < 400; i++) {
+        String row = String.format("r%03d", i);
+        Assert.assertEquals("u" + i, snap.gets(row, COPY_COL));
+        Assert.assertNull(snap.gets(row, UPDATE_COL));
+      }
+    }
+  }
+}
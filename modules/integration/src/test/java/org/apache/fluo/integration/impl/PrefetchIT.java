@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.client.Snapshot;
+import org.apache.fluo.api.client.Transaction;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.observer.ObserverProvider;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.TransactionImpl;
+import org.apache.fluo.integration.ITBaseMini;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.apache.fluo.api.observer.Observer.NotificationType.STRONG;
+
+/**
+ * Tests observers that declare columns to prefetch.
+ */
+public class PrefetchIT extends ITBaseMini {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column VAL_COL = new Column("data", "val");
+  private static final Column UPDATE_COL = new Column("data", "update");
+  private static final Column COPY_COL = new Column("data", "copy");
+
+  public static class PrefetchObserverProvider implements ObserverProvider {
+    @Override
+    public void provide(Registry or, Context ctx) {
+      or.forColumn(UPDATE_COL, STRONG).withPrefetch(ImmutableSet.of(VAL_COL, UPDATE_COL))
+          .withId("copier").useStrObserver((tx, row, col) -> {
+            String val = tx.gets(row, VAL_COL);
+            String update = tx.gets(row, UPDATE_COL);
+            tx.set(row, COPY_COL, val + ":" + update);
+            tx.delete(row, UPDATE_COL);
+          });
+    }
+  }
+
+  @Override
+  protected Class<? extends ObserverProvider> getObserverProviderClass() {
+    return PrefetchObserverProvider.class;
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    try (Transaction tx = client.newTransaction()) {
+      for (int i = 0; i < 100; i++) {
+        String row = String.format("r%03d", i);
+        tx.set(row, VAL_COL, "v" + i);
+        tx.set(row, UPDATE_COL, "u" + i);
+      }
+      tx.commit();
+    }
+
+    miniFluo.waitForObservers();
+
+    try (Snapshot snap = client.newSnapshot()) {
+      for (int i = 0; i < 100; i++) {
+        String row = String.format("r%03d", i);
+        Assert.assertEquals("v" + i + ":u" + i, snap.gets(row, COPY_COL));
+        Assert.assertNull(snap.gets(row, UPDATE_COL));
+      }
+    }
+
+    // a second round of notifications should see the values written by the first
+    try (Transaction tx = client.newTransaction()) {
+      for (int i = 0; i < 100; i++) {
+        String row = String.format("r%03d", i);
+        tx.set(row, VAL_COL, "w" + i);
+        tx.set(row, UPDATE_COL, "x" + i);
+      }
+      tx.commit();
+    }
+
+    miniFluo.waitForObservers();
+
+    try (Snapshot snap = client.newSnapshot()) {
+      for (int i = 0; i < 100; i++) {
+        String row = String.format("r%03d", i);
+        Assert.assertEquals("w" + i + ":x" + i, snap.gets(row, COPY_COL));
+      }
+    }
+  }
+
+  @Test
+  public void testPrefetchNotRecordedAsRead() throws Exception {
+    try (Transaction tx = client.newTransaction()) {
+      tx.set("r1", VAL_COL, "v1");
+      tx.commit();
+    }
+
+    try (Environment env = new Environment(config); TransactionImpl tx = new TransactionImpl(env)) {
+      tx.prefetch(Bytes.of("r1"), ImmutableSet.of(VAL_COL, COPY_COL));
+      Assert.assertEquals(0, tx.getSize());
+
+      // the observer reading a prefetched column records it
+      Assert.assertEquals("v1", tx.gets("r1", VAL_COL));
+      Assert.assertEquals(1, tx.getStats().getReadCacheHits());
+      Assert.assertTrue(tx.getSize() > 0);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class ReadCacheIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COL1 = new Column("data", "c1");
+  private static final Column COL2 = new Column("data", "c2");
+
+  @Test
+  public void testRepeatedReads() {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", COL1, "v1");
+    tx1.set("r2", COL1, "v2");
+    tx1.done();
+
+    TestTransaction tx2 = new TestTransaction(env);
+    Assert.assertEquals("v1", tx2.gets("r1", COL1));
+    long entriesReturned = tx2.getStats().getEntriesReturned();
+    Assert.assertEquals(0, tx2.getStats().getReadCacheHits());
+
+    Assert.assertEquals("v1", tx2.gets("r1", COL1));
+    Assert.assertEquals(1, tx2.getStats().getReadCacheHits());
+
+    // absence of a value is cached
+    Assert.assertNull(tx2.gets("r1", COL2));
+    Assert.assertNull(tx2.gets("r1", COL2));
+    Assert.assertEquals(2, tx2.getStats().getReadCacheHits());
+
+    Map<String, Map<Column, String>> rows =
+        tx2.gets(Arrays.asList("r1", "r2"), ImmutableSet.of(COL1));
+    Assert.assertEquals("v1", rows.get("r1").get(COL1));
+    Assert.assertEquals("v2", rows.get("r2").get(COL1));
+    Assert.assertEquals(3, tx2.getStats().getReadCacheHits());
+
+    Map<RowColumn, String> rcs = tx2.gets(Arrays.asList(new RowColumn("r1", COL1), new RowColumn(
+        "r2", COL1), new RowColumn("r2", COL2)));
+    Assert.assertEquals(2, rcs.size());
+    Assert.assertEquals("v1", rcs.get(new RowColumn("r1", COL1)));
+    Assert.assertEquals("v2", rcs.get(new RowColumn("r2", COL1)));
+    Assert.assertEquals(5, tx2.getStats().getReadCacheHits());
+
+    // only r2 was read from Accumulo after the first read
+    Assert.assertEquals(entriesReturned + 1, tx2.getStats().getEntriesReturned());
+
+    // a write in tx2 should not change what tx2 reads by default
+    tx2.set("r1", COL1, "v3");
+    Assert.assertEquals("v1", tx2.gets("r1", COL1));
+    tx2.done();
+  }
+
+  @Test
+  public void testReadOwnWrites() throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", COL1, "v1");
+    tx1.set("r2", COL1, "v2");
+    tx1.done();
+
+    FluoConfiguration fc = new FluoConfiguration(config);
+    fc.setProperty(FluoConfigurationImpl.TX_READ_OWN_WRITES_PROP, true);
+
+    try (Environment env2 = new Environment(fc)) {
+      TestTransaction tx2 = new TestTransaction(env2);
+      Assert.assertEquals("v1", tx2.gets("r1", COL1));
+
+      tx2.set("r1", COL1, "v3");
+      tx2.set("r1", COL2, "v4");
+      tx2.delete("r2", COL1);
+
+      Assert.assertEquals("v3", tx2.gets("r1", COL1));
+      Assert.assertEquals("v4", tx2.gets("r1", COL2));
+      Assert.assertNull(tx2.gets("r2", COL1));
+
+      Map<String, Map<Column, String>> rows =
+          tx2.gets(Arrays.asList("r1", "r2"), ImmutableSet.of(COL1, COL2));
+      Assert.assertEquals(1, rows.size());
+      Assert.assertEquals("v3", rows.get("r1").get(COL1));
+      Assert.assertEquals("v4", rows.get("r1").get(COL2));
+
+      Map<RowColumn, String> rcs =
+          tx2.gets(Arrays.asList(new RowColumn("r1", COL2), new RowColumn("r2", COL1)));
+      Assert.assertEquals(1, rcs.size());
+      Assert.assertEquals("v4", rcs.get(new RowColumn("r1", COL2)));
+
+      tx2.done();
+    }
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals("v3", tx3.gets("r1", COL1));
+    Assert.assertEquals("v4", tx3.gets("r1", COL2));
+    Assert.assertNull(tx3.gets("r2", COL1));
+    tx3.done();
+  }
+}
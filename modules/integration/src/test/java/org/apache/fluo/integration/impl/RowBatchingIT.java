@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import org.apache.fluo.api.client.Snapshot;
+import org.apache.fluo.api.client.Transaction;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.observer.ObserverProvider;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.integration.ITBaseMini;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.apache.fluo.api.observer.Observer.NotificationType.STRONG;
+
+/**
+ * Tests processing notifications for the same row in one transaction.
+ */
+public class RowBatchingIT extends ITBaseMini {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COL_A = new Column("data", "a");
+  private static final Column COL_B = new Column("data", "b");
+  private static final Column COL_C = new Column("data", "c");
+  private static final Column COPY_A = new Column("copy", "a");
+  private static final Column COPY_B = new Column("copy", "b");
+  private static final Column COPY_C = new Column("copy", "c");
+
+  public static class BatchObserverProvider implements ObserverProvider {
+    @Override
+    public void provide(Registry or, Context ctx) {
+      or.forColumn(COL_A, STRONG).useStrObserver((tx, row, col) -> {
+        tx.set(row, COPY_A, tx.gets(row, COL_A));
+        // triggers the observer of column c, which can not run in this transaction
+        tx.set(row, COL_C, tx.gets(row, COL_A) + "c");
+      });
+      or.forColumn(COL_B, STRONG).useStrObserver((tx, row, col) -> {
+        tx.set(row, COPY_B, tx.gets(row, COL_B));
+      });
+      or.forColumn(COL_C, STRONG).useStrObserver((tx, row, col) -> {
+        tx.set(row, COPY_C, tx.gets(row, COL_C));
+      });
+    }
+  }
+
+  @Override
+  protected Class<? extends ObserverProvider> getObserverProviderClass() {
+    return BatchObserverProvider.class;
+  }
+
+  @Override
+  protected void setConfig(FluoConfiguration config) {
+    config.setProperty(FluoConfigurationImpl.WORKER_ROW_BATCHING_PROP, true);
+  }
+
+  @Test
+  public void testSameRow() throws Exception {
+    for (int round = 0; round < 3; round++) {
+      try (Transaction tx = client.newTransaction()) {
+        for (int i = 0; i < 100; i++) {
+          String row = String.format("r%03d", i);
+          tx.set(row, COL_A, "a" + round + i);
+          tx.set(row, COL_B, "b" + round + i);
+        }
+        tx.commit();
+      }
+
+      miniFluo.waitForObservers();
+
+      try (Snapshot snap = client.newSnapshot()) {
+        for (int i = 0; i < 100; i++) {
+          String row = String.format("r%03d", i);
+          Assert.assertEquals("a" + round + i, snap.gets(row, COPY_A));
+          Assert.assertEquals("b" + round + i, snap.gets(row, COPY_B));
+          Assert.assertEquals("a" + round + i + "c", snap.gets(row, COPY_C));
+        }
+      }
+    }
+  }
+}